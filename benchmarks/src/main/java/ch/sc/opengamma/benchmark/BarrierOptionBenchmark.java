@@ -0,0 +1,78 @@
+package ch.sc.opengamma.benchmark;
+
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.BlackBarrierPriceFunction;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BlackBarrierPriceFunction#getPrice} and {@link BlackBarrierPriceFunction#getPriceAdjoint} over a book of
+ * single barrier options with the market of BarrierOptionBlackModelPricingTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BarrierOptionBenchmark {
+
+    private static final BlackBarrierPriceFunction BARRIER_FUNCTION = BlackBarrierPriceFunction.getInstance();
+    private static final double EXPIRY_TIME = 3.5;
+    private static final double REBATE = 2;
+    private static final double SPOT = 105;
+    private static final double RATE_DOM = 0.05;
+    private static final double COST_OF_CARRY = 0.03;
+    private static final double VOLATILITY = 0.20;
+
+    @Param({"1", "100", "10000" })
+    public int portfolioSize;
+
+    private EuropeanVanillaOption[] options;
+    private Barrier[] barriers;
+    private double[] derivatives;
+
+    @Setup
+    public void setUp() {
+        options = new EuropeanVanillaOption[portfolioSize];
+        barriers = new Barrier[portfolioSize];
+        for (int i = 0; i < portfolioSize; i++) {
+            final boolean isDown = i % 2 == 0;
+            options[i] = new EuropeanVanillaOption(90 + i % 30, EXPIRY_TIME, i % 3 != 0);
+            barriers[i] = new Barrier(i % 4 < 2 ? Barrier.KnockType.IN : Barrier.KnockType.OUT,
+                    isDown ? Barrier.BarrierType.DOWN : Barrier.BarrierType.UP, Barrier.ObservationType.CONTINUOUS,
+                    isDown ? 80 + i % 20 : 110 + i % 20);
+        }
+        derivatives = new double[5];
+    }
+
+    @Benchmark
+    public double getPrice() {
+        double total = 0;
+        for (int i = 0; i < options.length; i++) {
+            total += BARRIER_FUNCTION.getPrice(options[i], barriers[i], REBATE, SPOT, COST_OF_CARRY, RATE_DOM, VOLATILITY);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double getPriceAdjoint() {
+        double total = 0;
+        for (int i = 0; i < options.length; i++) {
+            total += BARRIER_FUNCTION.getPriceAdjoint(options[i], barriers[i], REBATE, SPOT, COST_OF_CARRY, RATE_DOM, VOLATILITY, derivatives);
+        }
+        return total + derivatives[0];
+    }
+}
@@ -0,0 +1,76 @@
+package ch.sc.opengamma.benchmark;
+
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.curve.ConstantDoublesCurve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.YieldConventionFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instruments and market data shared by the benchmarks. They mirror the data of the unit tests,
+ * replicated with varying terms to build portfolios of a given size.
+ */
+final class BenchmarkMarketData {
+
+    static final String ISSUER_NAME = "Issuer";
+    static final ZonedDateTime BOND_REFERENCE_DATE = DateUtils.getUTCDate(2005, 3, 20);
+    private static final ZonedDateTime FIRST_ACCRUAL_DATE = DateUtils.getUTCDate(2005, 2, 20);
+
+    static final Interpolator1D LINEAR_FLAT = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+            Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+    static final double[] DSC_TIME = new double[] {0.0, 0.5, 1.0, 2.0, 5.0 };
+    static final double[] EUR_DSC_RATE = new double[] {0.0150, 0.0125, 0.0150, 0.0175, 0.0150 };
+    static final double[] USD_DSC_RATE = new double[] {0.0100, 0.0120, 0.0120, 0.0140, 0.0140 };
+    static final double EUR_USD = 1.40;
+
+    private BenchmarkMarketData() {
+    }
+
+    static List<BondFixedSecurityDefinition> bondDefinitions(final int size) {
+        final List<BondFixedSecurityDefinition> bonds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            bonds.add(BondFixedSecurityDefinition.from(Currency.EUR, FIRST_ACCRUAL_DATE.plus(Period.ofYears(1 + i % 30)), FIRST_ACCRUAL_DATE,
+                    Period.ofMonths(6), 0.01 + (i % 17) * 0.005, 0, 1000d, 0, new CalendarNoHoliday("A"),
+                    DayCountFactory.INSTANCE.getDayCount("30E/360"), BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Following"),
+                    YieldConventionFactory.INSTANCE.getYieldConvention("STREET CONVENTION"), false, ISSUER_NAME, "Some repo type"));
+        }
+        return bonds;
+    }
+
+    static IssuerProviderDiscount issuerProvider() {
+        final YieldAndDiscountCurve curve = new YieldCurve("EUR_curve", new ConstantDoublesCurve(0.04d));
+        final MulticurveProviderDiscount multicurve = new MulticurveProviderDiscount();
+        multicurve.setCurve(Currency.EUR, curve);
+        final Map<Pair<String, Currency>, YieldAndDiscountCurve> issuer = new LinkedHashMap<>();
+        issuer.put(new ObjectsPair<>(ISSUER_NAME, Currency.EUR), curve);
+        return new IssuerProviderDiscount(multicurve, issuer);
+    }
+
+    static MulticurveProviderDiscount multicurvesEURUSD() {
+        final MulticurveProviderDiscount multicurves = new MulticurveProviderDiscount(new FXMatrix(Currency.USD, Currency.EUR, 1.0d / EUR_USD));
+        multicurves.setCurve(Currency.EUR, new YieldCurve("EUR Dsc", new InterpolatedDoublesCurve(DSC_TIME, EUR_DSC_RATE, LINEAR_FLAT, true, "EUR Dsc")));
+        multicurves.setCurve(Currency.USD, new YieldCurve("USD Dsc", new InterpolatedDoublesCurve(DSC_TIME, USD_DSC_RATE, LINEAR_FLAT, true, "USD Dsc")));
+        return multicurves;
+    }
+}
@@ -0,0 +1,80 @@
+package ch.sc.opengamma.benchmark;
+
+import ch.sc.opengamma.bond.BondPortfolioResult;
+import ch.sc.opengamma.bond.BondPortfolioRunner;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.util.money.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BondSecurityDiscountingMethod#presentValue} over a bond portfolio, and the parallel portfolio runner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BondBenchmark {
+
+    private static final BondSecurityDiscountingMethod METHOD = BondSecurityDiscountingMethod.getInstance();
+
+    @Param({"1", "100", "10000" })
+    public int portfolioSize;
+
+    private List<BondFixedSecurityDefinition> definitions;
+    private BondFixedSecurity[] bonds;
+    private IssuerProviderDiscount issuerMulticurve;
+    private ForkJoinPool pool;
+    private BondPortfolioRunner runner;
+
+    @Setup
+    public void setUp() {
+        definitions = BenchmarkMarketData.bondDefinitions(portfolioSize);
+        bonds = new BondFixedSecurity[portfolioSize];
+        for (int i = 0; i < portfolioSize; i++) {
+            bonds[i] = definitions.get(i).toDerivative(BenchmarkMarketData.BOND_REFERENCE_DATE);
+        }
+        issuerMulticurve = BenchmarkMarketData.issuerProvider();
+        pool = new ForkJoinPool();
+        runner = new BondPortfolioRunner(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public double presentValue() {
+        double total = 0;
+        for (final BondFixedSecurity bond : bonds) {
+            total += METHOD.presentValue(bond, issuerMulticurve).getAmount(Currency.EUR);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BondPortfolioResult portfolioRunner() {
+        return runner.run(definitions, BenchmarkMarketData.BOND_REFERENCE_DATE, issuerMulticurve);
+    }
+}
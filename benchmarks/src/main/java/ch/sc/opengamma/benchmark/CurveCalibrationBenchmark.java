@@ -0,0 +1,85 @@
+package ch.sc.opengamma.benchmark;
+
+import ch.sc.opengamma.curve.CalibrationQuote;
+import ch.sc.opengamma.curve.CalibrationResult;
+import ch.sc.opengamma.curve.CurveCalibrator;
+import ch.sc.opengamma.curve.CurveDefinition;
+import ch.sc.opengamma.curve.DepositQuote;
+import ch.sc.opengamma.curve.FxSwapQuote;
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.util.money.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold calibration of discount curves with {@link CurveCalibrator}, in pairs of a curve on deposits and a curve on FX
+ * swaps against it, as in CurveCalibratorTest. The portfolio size is the number of curves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CurveCalibrationBenchmark {
+
+    private static final double SPOT_TIME = 2.0 / 365;
+    private static final double[] TIMES = new double[] {0.25, 0.5, 1, 2, 3, 5, 7, 10 };
+    private static final double[] DEPOSIT_RATES = new double[] {0.020, 0.021, 0.022, 0.024, 0.025, 0.027, 0.028, 0.030 };
+    private static final double[] FORWARD_POINTS = new double[] {0.0008, 0.0017, 0.0040, 0.0100, 0.0170, 0.0345, 0.0560, 0.0930 };
+    private static final double SPOT = 1.1;
+
+    @Param({"2", "20", "200" })
+    public int portfolioSize;
+
+    private List<CurveDefinition> definitions;
+    private FXMatrix fx;
+    private ForkJoinPool pool;
+    private CurveCalibrator calibrator;
+
+    @Setup
+    public void setUp() {
+        definitions = new ArrayList<>();
+        fx = new FXMatrix();
+        for (int c = 0; c < portfolioSize / 2; c++) {
+            final Currency deposit = Currency.of("D" + (char) ('A' + c / 26) + (char) ('A' + c % 26));
+            final Currency swap = Currency.of("F" + (char) ('A' + c / 26) + (char) ('A' + c % 26));
+            final List<CalibrationQuote> deposits = new ArrayList<>();
+            final List<CalibrationQuote> swaps = new ArrayList<>();
+            for (int i = 0; i < TIMES.length; i++) {
+                deposits.add(new DepositQuote(SPOT_TIME, TIMES[i], (TIMES[i] - SPOT_TIME) * 365 / 360, DEPOSIT_RATES[i] + 0.0001 * c));
+                swaps.add(new FxSwapQuote(deposit, swap, SPOT_TIME, TIMES[i], SPOT, FORWARD_POINTS[i]));
+            }
+            definitions.add(new CurveDefinition(deposit.getCode() + " Dsc", deposit, deposits));
+            definitions.add(new CurveDefinition(swap.getCode() + " Dsc", swap, swaps));
+        }
+        pool = new ForkJoinPool();
+        calibrator = new CurveCalibrator(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public CalibrationResult calibrate() {
+        return calibrator.calibrate(definitions, fx);
+    }
+}
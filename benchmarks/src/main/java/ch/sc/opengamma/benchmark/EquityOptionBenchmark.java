@@ -0,0 +1,82 @@
+package ch.sc.opengamma.benchmark;
+
+import com.opengamma.analytics.financial.ExerciseDecisionType;
+import com.opengamma.analytics.financial.commodity.definition.SettlementType;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.equity.option.EquityOptionBlackMethod;
+import com.opengamma.analytics.financial.model.interestrate.curve.DiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
+import com.opengamma.analytics.financial.model.volatility.surface.BlackVolatilitySurfaceStrike;
+import com.opengamma.analytics.math.curve.ConstantDoublesCurve;
+import com.opengamma.analytics.math.surface.ConstantDoublesSurface;
+import com.opengamma.util.money.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Present value and greeks of a book of European equity options with {@link EquityOptionBlackMethod},
+ * one method call per measure as in EquityOptionTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EquityOptionBenchmark {
+
+    private static final EquityOptionBlackMethod METHOD = EquityOptionBlackMethod.getInstance();
+
+    @Param({"1", "100", "10000" })
+    public int portfolioSize;
+
+    private EquityOption[] options;
+    private StaticReplicationDataBundle marketData;
+
+    @Setup
+    public void setUp() {
+        options = new EquityOption[portfolioSize];
+        for (int i = 0; i < portfolioSize; i++) {
+            final double expiry = 0.25 * (1 + i % 8);
+            options[i] = new EquityOption(expiry, expiry + 0.003, 80 + i % 40, i % 2 == 0, Currency.AUD, 10,
+                    ExerciseDecisionType.EUROPEAN, SettlementType.CASH);
+        }
+        marketData = new StaticReplicationDataBundle(new BlackVolatilitySurfaceStrike(new ConstantDoublesSurface(0.3)),
+                new DiscountCurve("Discount curve", new ConstantDoublesCurve(0.98)), new ForwardCurve(100));
+    }
+
+    @Benchmark
+    public double presentValue() {
+        double total = 0;
+        for (final EquityOption option : options) {
+            total += METHOD.presentValue(option, marketData);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double greeks() {
+        double total = 0;
+        for (final EquityOption option : options) {
+            total += METHOD.presentValue(option, marketData);
+            total += METHOD.delta(option, marketData);
+            total += METHOD.gammaWrtSpot(option, marketData);
+            total += METHOD.spotTheta(option, marketData);
+            total += METHOD.vega(option, marketData);
+            total += METHOD.rhoBlackScholes(option, marketData);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,77 @@
+package ch.sc.opengamma.benchmark;
+
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.forex.provider.ForexForwardPointsMethod;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ForexForwardPointsMethod#presentValue} over a book of EUR/USD forwards with the curves of ForexForwardTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ForexForwardBenchmark {
+
+    private static final ForexForwardPointsMethod METHOD = ForexForwardPointsMethod.getInstance();
+    private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2013, 2, 12);
+    private static final double FX_RATE = 1.4177;
+    private static final double[] FWD_TIME = new double[] {0.0, 0.25, 0.5, 1.0 };
+    private static final double[] FWD_POINTS = new double[] {0.0, 0.0015, 0.0020, 0.0050 };
+
+    @Param({"1", "100", "10000" })
+    public int portfolioSize;
+
+    private Forex[] forwards;
+    private MulticurveProviderDiscount multicurves;
+    private InterpolatedDoublesCurve forwardRates;
+    private Pair<Currency, Currency> pair;
+
+    @Setup
+    public void setUp() {
+        forwards = new Forex[portfolioSize];
+        for (int i = 0; i < portfolioSize; i++) {
+            final ForexDefinition definition = new ForexDefinition(Currency.EUR, Currency.USD, REFERENCE_DATE.plusDays(7 + i % 360),
+                    1000000 * (1 + i % 100), FX_RATE);
+            forwards[i] = definition.toDerivative(REFERENCE_DATE);
+        }
+        multicurves = BenchmarkMarketData.multicurvesEURUSD();
+        final double[] forwardQuotes = new double[FWD_POINTS.length];
+        for (int i = 0; i < FWD_POINTS.length; i++) {
+            forwardQuotes[i] = FX_RATE + FWD_POINTS[i];
+        }
+        forwardRates = new InterpolatedDoublesCurve(FWD_TIME, forwardQuotes, BenchmarkMarketData.LINEAR_FLAT, true);
+        pair = new ObjectsPair<>(Currency.EUR, Currency.USD);
+    }
+
+    @Benchmark
+    public double presentValue() {
+        double total = 0;
+        for (final Forex forward : forwards) {
+            total += METHOD.presentValue(forward, multicurves, forwardRates, pair).getAmount(Currency.USD);
+        }
+        return total;
+    }
+}
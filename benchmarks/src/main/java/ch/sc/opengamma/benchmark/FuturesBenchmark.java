@@ -0,0 +1,85 @@
+package ch.sc.opengamma.benchmark;
+
+import com.opengamma.analytics.financial.commodity.definition.AgricultureFutureDefinition;
+import com.opengamma.analytics.financial.commodity.definition.SettlementType;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityIndexDividendFuture;
+import com.opengamma.analytics.financial.future.MarkToMarketFuturesCalculator;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.simpleinstruments.pricing.SimpleFutureDataBundle;
+import com.opengamma.id.ExternalId;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mark-to-market of a book of futures through the {@link MarkToMarketFuturesCalculator} visitor, with a fresh data
+ * bundle per position as in FuturePresentValueTest. The book cycles through the future types of that test: equity
+ * futures, equity index dividend futures and agriculture futures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FuturesBenchmark {
+
+    private static final MarkToMarketFuturesCalculator PVC = MarkToMarketFuturesCalculator.PresentValueCalculator.getInstance();
+
+    private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2011, 6, 15);
+    private static final ExternalId UNDERLYING = ExternalId.of("Scheme", "value");
+
+    @Param({"1", "100", "10000" })
+    public int portfolioSize;
+
+    private InstrumentDerivative[] futures;
+    private double[] marketPrices;
+
+    @Setup
+    public void setUp() {
+        futures = new InstrumentDerivative[portfolioSize];
+        marketPrices = new double[portfolioSize];
+        for (int i = 0; i < portfolioSize; i++) {
+            final double expiry = 0.25 * (1 + i % 4);
+            switch (i % 3) {
+                case 0:
+                    futures[i] = new EquityFuture(expiry, expiry + 0.01, 90 + i % 20, Currency.EUR, 10);
+                    break;
+                case 1:
+                    futures[i] = new EquityIndexDividendFuture(expiry, expiry + 0.01, 90 + i % 20, Currency.JPY, 10);
+                    break;
+                default:
+                    final ZonedDateTime expiryDate = REFERENCE_DATE.plusMonths(3 * (1 + i % 4));
+                    futures[i] = new AgricultureFutureDefinition(expiryDate, UNDERLYING, 101, expiryDate, expiryDate.plusYears(1), 500, "tonnes",
+                            SettlementType.PHYSICAL, 90 + i % 20, Currency.GBP, expiryDate.plusYears(1)).toDerivative(REFERENCE_DATE);
+                    break;
+            }
+            marketPrices[i] = 95 + i % 10;
+        }
+    }
+
+    @Benchmark
+    public double presentValue() {
+        double total = 0;
+        for (int i = 0; i < futures.length; i++) {
+            final SimpleFutureDataBundle dataBundle = new SimpleFutureDataBundle(null, marketPrices[i], null, null, null);
+            total += futures[i].accept(PVC, dataBundle);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,68 @@
+package ch.sc.opengamma.benchmark;
+
+import com.opengamma.analytics.financial.var.NormalLinearVaRCalculator;
+import com.opengamma.analytics.financial.var.NormalVaRParameters;
+import com.opengamma.analytics.math.function.Function1D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NormalLinearVaRCalculator#evaluate} for a set of positions, with the parameters of ValueAtRiskNormalDistrTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NormalLinearVaRBenchmark {
+
+    private static final NormalVaRParameters PARAMETERS = new NormalVaRParameters(10, 250, 0.99);
+
+    @Param({"1", "100", "10000" })
+    public int portfolioSize;
+
+    private NormalLinearVaRCalculator<Double> calculator;
+    private Double[] positions;
+
+    @Setup
+    public void setUp() {
+        final Function1D<Double, Double> meanProvider = new Function1D<Double, Double>() {
+            @Override
+            public Double evaluate(final Double x) {
+                return 0.01 * x;
+            }
+        };
+        final Function1D<Double, Double> stdProvider = new Function1D<Double, Double>() {
+            @Override
+            public Double evaluate(final Double x) {
+                return 0.2 * Math.abs(x);
+            }
+        };
+        calculator = new NormalLinearVaRCalculator<>(meanProvider, stdProvider);
+        positions = new Double[portfolioSize];
+        for (int i = 0; i < portfolioSize; i++) {
+            positions[i] = 1000.0 * (1 + i % 50);
+        }
+    }
+
+    @Benchmark
+    public double evaluate() {
+        double total = 0;
+        for (final Double position : positions) {
+            total += calculator.evaluate(PARAMETERS, position).getVaRValue();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,114 @@
+package ch.sc.opengamma.bond;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.util.ArgumentChecker;
+import org.threeten.bp.ZonedDateTime;
+
+/**
+ * Bounded cache of the definition to derivative conversion of fixed rate bonds.
+ * Converting a {@link BondFixedSecurityDefinition} rebuilds the coupon and nominal annuities; in intraday
+ * re-pricing the reference date rarely changes, so the derivative is memoized per (definition, reference date)
+ * and repeated pricing only pays for discounting. The least recently used entries are evicted once the
+ * maximum size is reached.
+ * <p>
+ * Hashing a definition walks its annuities, so the hash of each definition instance is computed once and kept, weakly,
+ * for its later lookups; an equal definition built again, as from a new request, is hashed once and then compared once
+ * per lookup.
+ */
+public class BondDerivativeCache {
+
+    private final LoadingCache<Key, BondFixedSecurity> cache;
+    // Weak keys are compared by identity.
+    private final LoadingCache<BondFixedSecurityDefinition, Integer> hashCodes = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<BondFixedSecurityDefinition, Integer>() {
+                @Override
+                public Integer load(final BondFixedSecurityDefinition definition) {
+                    return definition.hashCode();
+                }
+            });
+
+    /**
+     * @param maximumSize the maximum number of converted bonds kept, strictly positive
+     */
+    public BondDerivativeCache(final long maximumSize) {
+        ArgumentChecker.isTrue(maximumSize > 0, "maximumSize must be positive");
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build(new CacheLoader<Key, BondFixedSecurity>() {
+                    @Override
+                    public BondFixedSecurity load(final Key key) {
+                        return key.definition.toDerivative(key.referenceDate);
+                    }
+                });
+    }
+
+    /**
+     * Returns the converted bond, converting it on a miss.
+     * @param definition the bond definition, not null
+     * @param referenceDate the reference date of the conversion, not null
+     * @return the bond derivative
+     */
+    public BondFixedSecurity toDerivative(final BondFixedSecurityDefinition definition, final ZonedDateTime referenceDate) {
+        ArgumentChecker.notNull(definition, "definition");
+        ArgumentChecker.notNull(referenceDate, "referenceDate");
+        try {
+            return cache.getUnchecked(new Key(definition, hashCodes.getUnchecked(definition), referenceDate));
+        } catch (final UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * @return the hit, miss and eviction counts since the creation of the cache
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static final class Key {
+        private final BondFixedSecurityDefinition definition;
+        private final ZonedDateTime referenceDate;
+        private final int hashCode;
+
+        Key(final BondFixedSecurityDefinition definition, final int definitionHashCode, final ZonedDateTime referenceDate) {
+            this.definition = definition;
+            this.referenceDate = referenceDate;
+            hashCode = 31 * definitionHashCode + referenceDate.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hashCode == other.hashCode && referenceDate.equals(other.referenceDate)
+                    && (definition == other.definition || definition.equals(other.definition));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ch.sc.opengamma.bond;
+
+import com.opengamma.util.money.Currency;
+
+/**
+ * Columnar results of a bond portfolio run. Element i of every column refers to the i-th bond of the
+ * portfolio passed to {@link BondPortfolioRunner}. The arrays are exposed directly, without copies.
+ */
+public class BondPortfolioResult {
+
+    private final Currency[] currency;
+    private final double[] cleanPrice;
+    private final double[] accruedInterest;
+    private final double[] yieldToMaturity;
+    private final double[] modifiedDuration;
+    private final double[] macaulayDuration;
+    private final double[] presentValue;
+    private long elapsedNanos;
+
+    public BondPortfolioResult(final int size) {
+        currency = new Currency[size];
+        cleanPrice = new double[size];
+        accruedInterest = new double[size];
+        yieldToMaturity = new double[size];
+        modifiedDuration = new double[size];
+        macaulayDuration = new double[size];
+        presentValue = new double[size];
+    }
+
+    public int size() {
+        return presentValue.length;
+    }
+
+    public Currency[] getCurrency() {
+        return currency;
+    }
+
+    /**
+     * @return the clean prices, as a fraction of the notional
+     */
+    public double[] getCleanPrice() {
+        return cleanPrice;
+    }
+
+    /**
+     * @return the accrued interests, in currency amounts
+     */
+    public double[] getAccruedInterest() {
+        return accruedInterest;
+    }
+
+    /**
+     * @return the yields to maturity implied by the issuer curves, in the bond yield convention
+     */
+    public double[] getYieldToMaturity() {
+        return yieldToMaturity;
+    }
+
+    public double[] getModifiedDuration() {
+        return modifiedDuration;
+    }
+
+    public double[] getMacaulayDuration() {
+        return macaulayDuration;
+    }
+
+    /**
+     * @return the present values, in the currency of the bond
+     */
+    public double[] getPresentValue() {
+        return presentValue;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    void setElapsedNanos(final long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of bonds priced per second of wall-clock time
+     */
+    public double getThroughput() {
+        if (elapsedNanos == 0) {
+            return 0;
+        }
+        return size() * 1.0E9 / elapsedNanos;
+    }
+}
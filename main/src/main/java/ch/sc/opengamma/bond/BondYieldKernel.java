@@ -0,0 +1,156 @@
+package ch.sc.opengamma.bond;
+
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.Annuity;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponFixed;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.PaymentFixed;
+import com.opengamma.financial.convention.yield.SimpleYieldConvention;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Fused yield/price kernel for a fixed rate bond in street convention.
+ * The coupon schedule is read once into primitive arrays (amounts as a fraction of the notional and
+ * compounding exponents in coupon periods); price, yield and both durations are then evaluated from
+ * these arrays without walking the annuities again and without allocation.
+ * <p>
+ * For a yield y with m coupons per year, v = 1 / (1 + y / m) and the dirty price is
+ * P(y) = sum_i a_i v^(e_i), where e_i is the accrual factor to the next coupon plus i.
+ * This is the standard compounding branch of {@link com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod}; bonds
+ * in their last coupon period, priced with simple interest there, are not supported.
+ */
+public final class BondYieldKernel {
+
+    private static final int MAX_ITERATIONS = 50;
+    private static final double TOLERANCE = 1.0E-14;
+
+    private final double[] amounts;
+    private final double[] exponents;
+    private final double couponPerYear;
+    private final double accruedFraction;
+
+    /**
+     * @param bond the bond, in street convention with at least two coupons left, not null
+     */
+    public BondYieldKernel(final BondFixedSecurity bond) {
+        ArgumentChecker.notNull(bond, "bond");
+        ArgumentChecker.isTrue(isSupported(bond), "Kernel supports street convention bonds with more than one coupon left");
+        final Annuity<CouponFixed> coupons = bond.getCoupon();
+        final Annuity<PaymentFixed> nominal = bond.getNominal();
+        final double notional = nominal.getNthPayment(nominal.getNumberOfPayments() - 1).getAmount();
+        final int nbCoupon = coupons.getNumberOfPayments();
+        amounts = new double[nbCoupon];
+        exponents = new double[nbCoupon];
+        final double accrualFactor = bond.getAccrualFactorToNextCoupon();
+        for (int i = 0; i < nbCoupon; i++) {
+            amounts[i] = coupons.getNthPayment(i).getAmount() / notional;
+            exponents[i] = accrualFactor + i;
+        }
+        // The notional is repaid with the last coupon.
+        amounts[nbCoupon - 1] += 1.0;
+        couponPerYear = bond.getCouponPerYear();
+        accruedFraction = bond.getAccruedInterest() / notional;
+    }
+
+    /**
+     * @param bond the bond, not null
+     * @return true if the kernel reproduces the discounting method yield formulas for the bond
+     */
+    public static boolean isSupported(final BondFixedSecurity bond) {
+        return bond.getNominal().getNumberOfPayments() == 1 && bond.getCoupon().getNumberOfPayments() > 1
+                && SimpleYieldConvention.US_STREET.equals(bond.getYieldConvention());
+    }
+
+    public int getNumberOfCoupons() {
+        return amounts.length;
+    }
+
+    public double dirtyPriceFromYield(final double yield) {
+        final double v = 1.0 / (1.0 + yield / couponPerYear);
+        double discount = Math.pow(v, exponents[0]);
+        double price = 0.0;
+        for (int i = 0; i < amounts.length; i++) {
+            price += amounts[i] * discount;
+            discount *= v;
+        }
+        return price;
+    }
+
+    public double cleanPriceFromYield(final double yield) {
+        return dirtyPriceFromYield(yield) - accruedFraction;
+    }
+
+    public double yieldFromCleanPrice(final double cleanPrice, final double initialGuess) {
+        return yieldFromDirtyPrice(cleanPrice + accruedFraction, initialGuess);
+    }
+
+    /**
+     * Solves P(y) = dirtyPrice with Newton iterations on the analytic derivative.
+     * @param dirtyPrice the dirty price, as a fraction of the notional
+     * @param initialGuess the starting yield, e.g. the solution for a nearby price
+     * @return the yield
+     */
+    public double yieldFromDirtyPrice(final double dirtyPrice, final double initialGuess) {
+        double yield = initialGuess;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            final double factor = 1.0 + yield / couponPerYear;
+            final double v = 1.0 / factor;
+            double discount = Math.pow(v, exponents[0]);
+            double price = 0.0;
+            double weighted = 0.0;
+            for (int i = 0; i < amounts.length; i++) {
+                final double pv = amounts[i] * discount;
+                price += pv;
+                weighted += pv * exponents[i];
+                discount *= v;
+            }
+            // dP/dy = -sum_i a_i e_i v^(e_i + 1) / m
+            final double derivative = -weighted * v / couponPerYear;
+            final double step = (price - dirtyPrice) / derivative;
+            yield -= step;
+            if (Math.abs(step) < TOLERANCE * Math.max(1.0, Math.abs(yield))) {
+                return yield;
+            }
+        }
+        throw new IllegalStateException("Yield did not converge for dirty price " + dirtyPrice);
+    }
+
+    /**
+     * Evaluates clean price, modified and Macaulay durations for each yield in one pass over the cash flows.
+     * The output arrays must be at least as long as the yields.
+     */
+    public void evaluate(final double[] yields, final double[] cleanPrices, final double[] modifiedDurations,
+                         final double[] macaulayDurations) {
+        for (int j = 0; j < yields.length; j++) {
+            final double factor = 1.0 + yields[j] / couponPerYear;
+            final double v = 1.0 / factor;
+            double discount = Math.pow(v, exponents[0]);
+            double price = 0.0;
+            double weighted = 0.0;
+            for (int i = 0; i < amounts.length; i++) {
+                final double pv = amounts[i] * discount;
+                price += pv;
+                weighted += pv * exponents[i];
+                discount *= v;
+            }
+            final double macaulay = weighted / (couponPerYear * price);
+            cleanPrices[j] = price - accruedFraction;
+            macaulayDurations[j] = macaulay;
+            modifiedDurations[j] = macaulay / factor;
+        }
+    }
+
+    /**
+     * Solves the yields of an array of clean prices. Each solution is the initial guess of the next price,
+     * so scenario prices should be passed in a smooth order.
+     * @param cleanPrices the clean prices, as a fraction of the notional
+     * @param initialGuess the starting yield of the first price
+     * @param yields the output yields, at least as long as the prices
+     */
+    public void yieldsFromCleanPrices(final double[] cleanPrices, final double initialGuess, final double[] yields) {
+        double guess = initialGuess;
+        for (int j = 0; j < cleanPrices.length; j++) {
+            guess = yieldFromDirtyPrice(cleanPrices[j] + accruedFraction, guess);
+            yields[j] = guess;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package ch.sc.opengamma.bond;
+
+import com.opengamma.analytics.financial.instrument.annuity.AnnuityCouponFixedDefinition;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.instrument.payment.CouponFixedDefinition;
+import com.opengamma.financial.convention.daycount.AccruedInterestCalculator;
+import com.opengamma.financial.convention.daycount.DayCount;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.time.DateUtils;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.List;
+
+/**
+ * Coupon schedules of a universe of fixed rate bonds, in primitive arrays.
+ * The coupons of all bonds are stored back to back, bond b owning the coupons from {@code offsets[b]} to
+ * {@code offsets[b + 1]}: accrual and payment dates as epoch days, accrual fractions and amounts. The next coupon of a
+ * bond at a date is found by binary search, and accrued interest follows
+ * {@link BondFixedSecurityDefinition#accruedInterest(ZonedDateTime)} without scanning the schedule or allocating.
+ * The 30E/360, Actual/360 and Actual/365 day counts are evaluated on the epoch days; other day counts go through
+ * {@link AccruedInterestCalculator}, once per bond and date.
+ * Immutable.
+ */
+public final class CouponScheduleIndex {
+
+    private static final int THIRTY_E_360 = 0;
+    private static final int ACTUAL_360 = 1;
+    private static final int ACTUAL_365 = 2;
+    private static final int OTHER = 3;
+
+    private final int[] offsets;
+    private final int[] accrualStart;
+    private final int[] accrualStart30;
+    private final int[] accrualEnd;
+    private final int[] paymentDate;
+    private final double[] accrualFraction;
+    private final double[] amount;
+    private final double[] rate;
+    private final double[] notional;
+    private final int[] dayCountType;
+    private final DayCount[] dayCounts;
+    private final int[] exCouponDays;
+    private final int[] couponPerYear;
+    private final boolean[] isEOM;
+
+    /**
+     * @param bonds the bonds, not null, no null elements
+     */
+    public CouponScheduleIndex(final List<BondFixedSecurityDefinition> bonds) {
+        ArgumentChecker.noNulls(bonds, "bonds");
+        final int nbBonds = bonds.size();
+        offsets = new int[nbBonds + 1];
+        for (int b = 0; b < nbBonds; b++) {
+            offsets[b + 1] = offsets[b] + bonds.get(b).getCoupons().getNumberOfPayments();
+        }
+        final int nbCoupons = offsets[nbBonds];
+        accrualStart = new int[nbCoupons];
+        accrualStart30 = new int[nbCoupons];
+        accrualEnd = new int[nbCoupons];
+        paymentDate = new int[nbCoupons];
+        accrualFraction = new double[nbCoupons];
+        amount = new double[nbCoupons];
+        rate = new double[nbCoupons];
+        notional = new double[nbCoupons];
+        dayCountType = new int[nbBonds];
+        dayCounts = new DayCount[nbBonds];
+        exCouponDays = new int[nbBonds];
+        couponPerYear = new int[nbBonds];
+        isEOM = new boolean[nbBonds];
+        for (int b = 0; b < nbBonds; b++) {
+            final BondFixedSecurityDefinition bond = bonds.get(b);
+            final AnnuityCouponFixedDefinition coupons = bond.getCoupons();
+            for (int i = 0; i < coupons.getNumberOfPayments(); i++) {
+                final CouponFixedDefinition coupon = coupons.getNthPayment(i);
+                final int c = offsets[b] + i;
+                final LocalDate start = coupon.getAccrualStartDate().toLocalDate();
+                accrualStart[c] = (int) start.toEpochDay();
+                accrualStart30[c] = thirtyE360(start);
+                accrualEnd[c] = epochDay(coupon.getAccrualEndDate());
+                paymentDate[c] = epochDay(coupon.getPaymentDate());
+                accrualFraction[c] = coupon.getPaymentYearFraction();
+                amount[c] = coupon.getAmount();
+                rate[c] = coupon.getRate();
+                notional[c] = coupon.getNotional();
+            }
+            dayCounts[b] = bond.getDayCount();
+            dayCountType[b] = dayCountType(bond.getDayCount());
+            exCouponDays[b] = bond.getExCouponDays();
+            couponPerYear[b] = bond.getCouponPerYear();
+            isEOM[b] = bond.isEOM();
+        }
+    }
+
+    /**
+     * @return the number of bonds
+     */
+    public int size() {
+        return dayCounts.length;
+    }
+
+    /**
+     * @param bond the index of the bond
+     * @return the index of its first coupon in the coupon arrays
+     */
+    public int getFirstCoupon(final int bond) {
+        return offsets[bond];
+    }
+
+    /**
+     * @param bond the index of the bond
+     * @return the index after its last coupon in the coupon arrays
+     */
+    public int getEndCoupon(final int bond) {
+        return offsets[bond + 1];
+    }
+
+    public int getAccrualStartDate(final int coupon) {
+        return accrualStart[coupon];
+    }
+
+    public int getAccrualEndDate(final int coupon) {
+        return accrualEnd[coupon];
+    }
+
+    public int getPaymentDate(final int coupon) {
+        return paymentDate[coupon];
+    }
+
+    public double getAccrualFraction(final int coupon) {
+        return accrualFraction[coupon];
+    }
+
+    public double getAmount(final int coupon) {
+        return amount[coupon];
+    }
+
+    /**
+     * @param bond the index of the bond
+     * @param date the date, in epoch days
+     * @return the index in the coupon arrays of the first coupon paid strictly after the date, -1 if there is none
+     */
+    public int nextCoupon(final int bond, final int date) {
+        final int coupon = firstAfter(paymentDate, offsets[bond], offsets[bond + 1], date);
+        return coupon == offsets[bond + 1] ? -1 : coupon;
+    }
+
+    /**
+     * Accrued interest of a bond, as {@link BondFixedSecurityDefinition#accruedInterest(ZonedDateTime)}: accrued in the
+     * coupon period whose accrual end is after the date, less the coupon if the date is in the ex-coupon period.
+     * @param bond the index of the bond
+     * @param date the date, in epoch days
+     * @return the accrued interest, 0 on or after the end of the last accrual period
+     */
+    public double accruedInterest(final int bond, final int date) {
+        return accruedInterest(bond, date, thirtyE360(LocalDate.ofEpochDay(date)));
+    }
+
+    /**
+     * Accrued interest of every bond of the universe, in one pass over the schedules.
+     * @param date the date
+     * @param result the array receiving the accrued interest of each bond, at least as long as the universe
+     */
+    public void accruedInterest(final ZonedDateTime date, final double[] result) {
+        ArgumentChecker.notNull(date, "date");
+        ArgumentChecker.notNull(result, "result");
+        ArgumentChecker.isTrue(result.length >= size(), "result must hold {} bonds", size());
+        final LocalDate day = date.toLocalDate();
+        final int epochDay = (int) day.toEpochDay();
+        final int day30 = thirtyE360(day);
+        for (int b = 0; b < size(); b++) {
+            result[b] = accruedInterest(b, epochDay, day30);
+        }
+    }
+
+    private double accruedInterest(final int bond, final int date, final int date30) {
+        final int first = offsets[bond];
+        final int end = offsets[bond + 1];
+        final int c = firstAfter(accrualEnd, first, end, date);
+        if (c == end) {
+            return 0;
+        }
+        final double fraction;
+        switch (dayCountType[bond]) {
+            case THIRTY_E_360:
+                fraction = (date30 - accrualStart30[c]) / 360.0;
+                break;
+            case ACTUAL_360:
+                fraction = (date - accrualStart[c]) / 360.0;
+                break;
+            case ACTUAL_365:
+                fraction = (date - accrualStart[c]) / 365.0;
+                break;
+            default:
+                final double accruedRate = AccruedInterestCalculator.getAccruedInterest(dayCounts[bond], c - first, end - first,
+                        date(accrualStart[c]), date(date), date(accrualEnd[c]), rate[c], couponPerYear[bond], isEOM[bond]);
+                return exCoupon(bond, c, date, accruedRate * notional[c]);
+        }
+        return exCoupon(bond, c, date, fraction * rate[c] * notional[c]);
+    }
+
+    private double exCoupon(final int bond, final int coupon, final int date, final double accrued) {
+        return date > accrualEnd[coupon] - exCouponDays[bond] ? accrued - amount[coupon] : accrued;
+    }
+
+    /**
+     * @return the first index in [from, end) whose date is strictly after the given date, end if there is none
+     */
+    private static int firstAfter(final int[] dates, final int from, final int end, final int date) {
+        int low = from;
+        int high = end;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (dates[mid] > date) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static int dayCountType(final DayCount dayCount) {
+        switch (dayCount.getName()) {
+            case "30E/360":
+                return THIRTY_E_360;
+            case "Actual/360":
+                return ACTUAL_360;
+            case "Actual/365":
+                return ACTUAL_365;
+            default:
+                return OTHER;
+        }
+    }
+
+    // Day number in a calendar of 30-day months, in which the 31st is the 30th.
+    private static int thirtyE360(final LocalDate date) {
+        return 360 * date.getYear() + 30 * date.getMonthValue() + Math.min(date.getDayOfMonth(), 30);
+    }
+
+    private static int epochDay(final ZonedDateTime date) {
+        return (int) date.toLocalDate().toEpochDay();
+    }
+
+    private static ZonedDateTime date(final int epochDay) {
+        final LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return DateUtils.getUTCDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+}
@@ -0,0 +1,94 @@
+package ch.sc.opengamma.cache;
+
+import com.google.common.base.Ticker;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-local {@link ResultStore}, for tests and single-node runs without Redis.
+ * Expired results are dropped when read or when {@link #evictExpired()} is called.
+ */
+public class InMemoryResultStore implements ResultStore {
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Ticker ticker;
+
+    public InMemoryResultStore() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker the time source of the expiries, not null
+     */
+    public InMemoryResultStore(final Ticker ticker) {
+        ArgumentChecker.notNull(ticker, "ticker");
+        this.ticker = ticker;
+    }
+
+    @Override
+    public double[] get(final List<String> keys, final long[] remainingMillis) {
+        ArgumentChecker.notNull(keys, "keys");
+        ArgumentChecker.notNull(remainingMillis, "remainingMillis");
+        ArgumentChecker.isTrue(remainingMillis.length >= keys.size(), "remainingMillis shorter than the keys");
+        final long now = ticker.read();
+        final double[] values = new double[keys.size()];
+        for (int i = 0; i < values.length; i++) {
+            final String key = keys.get(i);
+            final Entry entry = entries.get(key);
+            if (entry == null || entry.expiry - now <= 0) {
+                if (entry != null) {
+                    // Only this entry: a result put again since the read is kept.
+                    entries.remove(key, entry);
+                }
+                values[i] = Double.NaN;
+            } else {
+                values[i] = entry.value;
+                remainingMillis[i] = TimeUnit.NANOSECONDS.toMillis(entry.expiry - now);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void put(final List<String> keys, final double[] values, final int ttlSeconds) {
+        ArgumentChecker.notNull(keys, "keys");
+        ArgumentChecker.notNull(values, "values");
+        ArgumentChecker.isTrue(keys.size() == values.length, "{} keys for {} values", keys.size(), values.length);
+        ArgumentChecker.isTrue(ttlSeconds > 0, "ttlSeconds must be positive");
+        final long expiry = ticker.read() + TimeUnit.SECONDS.toNanos(ttlSeconds);
+        for (int i = 0; i < values.length; i++) {
+            entries.put(keys.get(i), new Entry(values[i], expiry));
+        }
+    }
+
+    /**
+     * Removes the expired results.
+     */
+    public void evictExpired() {
+        final long now = ticker.read();
+        for (final Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            if (it.next().expiry - now <= 0) {
+                it.remove();
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final double value;
+        private final long expiry;
+
+        private Entry(final double value, final long expiry) {
+            this.value = value;
+            this.expiry = expiry;
+        }
+    }
+}
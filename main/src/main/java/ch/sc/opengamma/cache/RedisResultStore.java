@@ -0,0 +1,95 @@
+package ch.sc.opengamma.cache;
+
+import com.opengamma.util.ArgumentChecker;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ResultStore} in Redis. A batch is one pipelined round trip: GETs and PTTLs to read, SETEXs to write, so
+ * that the results expire in Redis itself. Results are stored as the decimal string of the double, which reads back exactly.
+ */
+public class RedisResultStore implements ResultStore {
+
+    private final JedisPool pool;
+
+    /**
+     * @param pool the connections to the Redis server, not null; not closed by the store
+     */
+    public RedisResultStore(final JedisPool pool) {
+        ArgumentChecker.notNull(pool, "pool");
+        this.pool = pool;
+    }
+
+    @Override
+    public double[] get(final List<String> keys, final long[] remainingMillis) {
+        ArgumentChecker.notNull(keys, "keys");
+        ArgumentChecker.notNull(remainingMillis, "remainingMillis");
+        ArgumentChecker.isTrue(remainingMillis.length >= keys.size(), "remainingMillis shorter than the keys");
+        final double[] values = new double[keys.size()];
+        if (values.length == 0) {
+            return values;
+        }
+        final List<Response<String>> responses = new ArrayList<>(values.length);
+        final List<Response<Long>> ttls = new ArrayList<>(values.length);
+        final Jedis jedis = pool.getResource();
+        boolean broken = false;
+        try {
+            final Pipeline pipeline = jedis.pipelined();
+            for (final String key : keys) {
+                responses.add(pipeline.get(key));
+                ttls.add(pipeline.pttl(key));
+            }
+            pipeline.sync();
+        } catch (final JedisConnectionException e) {
+            broken = true;
+            throw e;
+        } finally {
+            release(jedis, broken);
+        }
+        for (int i = 0; i < values.length; i++) {
+            final String value = responses.get(i).get();
+            values[i] = value == null ? Double.NaN : Double.parseDouble(value);
+            remainingMillis[i] = ttls.get(i).get();
+        }
+        return values;
+    }
+
+    @Override
+    public void put(final List<String> keys, final double[] values, final int ttlSeconds) {
+        ArgumentChecker.notNull(keys, "keys");
+        ArgumentChecker.notNull(values, "values");
+        ArgumentChecker.isTrue(keys.size() == values.length, "{} keys for {} values", keys.size(), values.length);
+        ArgumentChecker.isTrue(ttlSeconds > 0, "ttlSeconds must be positive");
+        if (values.length == 0) {
+            return;
+        }
+        final Jedis jedis = pool.getResource();
+        boolean broken = false;
+        try {
+            final Pipeline pipeline = jedis.pipelined();
+            for (int i = 0; i < values.length; i++) {
+                pipeline.setex(keys.get(i), ttlSeconds, Double.toString(values[i]));
+            }
+            pipeline.sync();
+        } catch (final JedisConnectionException e) {
+            broken = true;
+            throw e;
+        } finally {
+            release(jedis, broken);
+        }
+    }
+
+    private void release(final Jedis jedis, final boolean broken) {
+        if (broken) {
+            pool.returnBrokenResource(jedis);
+        } else {
+            pool.returnResource(jedis);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ch.sc.opengamma.cache;
+
+import java.util.List;
+
+/**
+ * Store of pricing results shared by several pricing processes, the second level of a {@link TwoLevelResultCache}.
+ * Implementations are thread-safe and may fail with a runtime exception, which the cache treats as a miss.
+ */
+public interface ResultStore {
+
+    /**
+     * Reads the results of a batch of keys, and the time they have left before they expire, in one round trip.
+     * @param keys the keys, not null
+     * @param remainingMillis receives, for each result found, the time before it expires in milliseconds, or a negative
+     * value if it does not expire; not null, at least as long as the keys
+     * @return the results, in the order of the keys, NaN for the keys not found
+     */
+    double[] get(List<String> keys, long[] remainingMillis);
+
+    /**
+     * Writes the results of a batch of keys in one round trip.
+     * @param keys the keys, not null
+     * @param values the results, in the order of the keys, not null
+     * @param ttlSeconds the time after which the results expire, strictly positive
+     */
+    void put(List<String> keys, double[] values, int ttlSeconds);
+}
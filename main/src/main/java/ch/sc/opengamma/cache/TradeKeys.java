@@ -0,0 +1,115 @@
+package ch.sc.opengamma.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.instrument.annuity.AnnuityCouponFixedDefinition;
+import com.opengamma.analytics.financial.instrument.annuity.AnnuityDefinition;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.instrument.payment.CouponFixedDefinition;
+import com.opengamma.analytics.financial.instrument.payment.PaymentFixedDefinition;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.util.ArgumentChecker;
+import org.threeten.bp.ZonedDateTime;
+
+/**
+ * Keys of the {@link TwoLevelResultCache}: {@code pv:<type>:<snapshot id>:<trade hash>}.
+ * The trade hash is a 128-bit murmur3 hash of the trade terms, identical in every process; {@code hashCode} is not
+ * usable across processes since enums hash by identity.
+ */
+public final class TradeKeys {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private TradeKeys() {
+    }
+
+    /**
+     * @param type the instrument type, not null
+     * @param snapshotId the id of the market data snapshot, not null
+     * @param tradeHash the hash of the trade, not null
+     * @return the key
+     */
+    public static String key(final String type, final String snapshotId, final String tradeHash) {
+        ArgumentChecker.notNull(type, "type");
+        ArgumentChecker.notNull(snapshotId, "snapshotId");
+        ArgumentChecker.notNull(tradeHash, "tradeHash");
+        return "pv:" + type + ":" + snapshotId + ":" + tradeHash;
+    }
+
+    public static String bond(final BondFixedSecurityDefinition bond, final double quantity) {
+        ArgumentChecker.notNull(bond, "bond");
+        final Hasher hasher = HASH.newHasher();
+        string(hasher, bond.getCurrency().getCode());
+        final AnnuityCouponFixedDefinition coupons = bond.getCoupons();
+        hasher.putInt(coupons.getNumberOfPayments());
+        for (int i = 0; i < coupons.getNumberOfPayments(); i++) {
+            final CouponFixedDefinition coupon = coupons.getNthPayment(i);
+            date(hasher, coupon.getPaymentDate());
+            date(hasher, coupon.getAccrualStartDate());
+            date(hasher, coupon.getAccrualEndDate());
+            hasher.putDouble(coupon.getPaymentYearFraction()).putDouble(coupon.getNotional()).putDouble(coupon.getRate());
+        }
+        final AnnuityDefinition<PaymentFixedDefinition> nominal = bond.getNominal();
+        hasher.putInt(nominal.getNumberOfPayments());
+        for (int i = 0; i < nominal.getNumberOfPayments(); i++) {
+            date(hasher, nominal.getNthPayment(i).getPaymentDate());
+            hasher.putDouble(nominal.getNthPayment(i).getReferenceAmount());
+        }
+        hasher.putInt(bond.getSettlementDays()).putInt(bond.getExCouponDays()).putInt(bond.getCouponPerYear()).putBoolean(bond.isEOM());
+        string(hasher, bond.getDayCount().getName());
+        string(hasher, bond.getYieldConvention().getName());
+        string(hasher, bond.getIssuer());
+        string(hasher, bond.getRepoType());
+        return hasher.putDouble(quantity).hash().toString();
+    }
+
+    public static String forexForward(final ForexDefinition forward) {
+        ArgumentChecker.notNull(forward, "forward");
+        final Hasher hasher = HASH.newHasher();
+        payment(hasher, forward.getPaymentCurrency1());
+        payment(hasher, forward.getPaymentCurrency2());
+        return hasher.hash().toString();
+    }
+
+    public static String equityOption(final EquityOption option) {
+        ArgumentChecker.notNull(option, "option");
+        final Hasher hasher = HASH.newHasher();
+        hasher.putDouble(option.getTimeToExpiry()).putDouble(option.getTimeToSettlement()).putDouble(option.getStrike())
+                .putBoolean(option.isCall()).putDouble(option.getUnitAmount());
+        string(hasher, option.getCurrency().getCode());
+        string(hasher, option.getExerciseType().name());
+        string(hasher, option.getSettlementType().name());
+        return hasher.hash().toString();
+    }
+
+    public static String barrierOption(final EuropeanVanillaOption option, final Barrier barrier, final double rebate) {
+        ArgumentChecker.notNull(option, "option");
+        ArgumentChecker.notNull(barrier, "barrier");
+        final Hasher hasher = HASH.newHasher();
+        hasher.putDouble(option.getStrike()).putDouble(option.getTimeToExpiry()).putBoolean(option.isCall());
+        string(hasher, barrier.getKnockType().name());
+        string(hasher, barrier.getBarrierType().name());
+        string(hasher, barrier.getObservationType().name());
+        return hasher.putDouble(barrier.getBarrierLevel()).putDouble(rebate).hash().toString();
+    }
+
+    private static void payment(final Hasher hasher, final PaymentFixedDefinition payment) {
+        string(hasher, payment.getCurrency().getCode());
+        date(hasher, payment.getPaymentDate());
+        hasher.putDouble(payment.getReferenceAmount());
+    }
+
+    private static void date(final Hasher hasher, final ZonedDateTime date) {
+        hasher.putLong(date.toEpochSecond());
+    }
+
+    // Length-prefixed, so that consecutive strings cannot run into each other.
+    private static void string(final Hasher hasher, final String value) {
+        hasher.putInt(value.length()).putString(value, Charsets.UTF_8);
+    }
+}
@@ -0,0 +1,204 @@
+package ch.sc.opengamma.cache;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of pricing results in two levels: a bounded in-process cache in front of a {@link ResultStore} shared by the
+ * pricing processes. Keys identify a trade and a market data snapshot, see {@link TradeKeys}; results of both
+ * levels expire a fixed time after they were computed: a result copied from the shared store keeps the time it has
+ * left there, rather than a new time to live from the copy. A batch is looked up in the local cache, then its misses in
+ * the shared store in one round trip, and only the remaining misses are computed and written back to both levels.
+ * NaN results are never cached. A failing shared store is counted and treated as a miss, so that pricing goes on
+ * without it. Thread-safe.
+ */
+public class TwoLevelResultCache {
+
+    /**
+     * Computes the results missing from the cache.
+     */
+    public interface Loader {
+
+        /**
+         * @param indices the indices, in the batch, of the keys to compute
+         * @return the results, in the order of the indices
+         */
+        double[] load(int[] indices);
+    }
+
+    private final Cache<String, Entry> local;
+    private final ResultStore shared;
+    private final int ttlSeconds;
+    private final Ticker ticker;
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong localMisses = new AtomicLong();
+    private final AtomicLong sharedHits = new AtomicLong();
+    private final AtomicLong sharedFailures = new AtomicLong();
+
+    /**
+     * @param maximumSize the maximum number of results kept in process, strictly positive
+     * @param ttlSeconds the time after which results expire, strictly positive
+     * @param shared the store shared with the other pricing processes, null for an in-process cache only
+     */
+    public TwoLevelResultCache(final long maximumSize, final int ttlSeconds, final ResultStore shared) {
+        this(maximumSize, ttlSeconds, shared, Ticker.systemTicker());
+    }
+
+    TwoLevelResultCache(final long maximumSize, final int ttlSeconds, final ResultStore shared, final Ticker ticker) {
+        ArgumentChecker.isTrue(maximumSize > 0, "maximumSize must be positive");
+        ArgumentChecker.isTrue(ttlSeconds > 0, "ttlSeconds must be positive");
+        local = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.shared = shared;
+        this.ttlSeconds = ttlSeconds;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Returns the results of a batch, computing the ones missing from both levels.
+     * @param keys the keys of the batch, not null, no null elements
+     * @param loader the computation of the missing results, not null
+     * @return the results, in the order of the keys
+     */
+    public double[] get(final List<String> keys, final Loader loader) {
+        ArgumentChecker.noNulls(keys, "keys");
+        ArgumentChecker.notNull(loader, "loader");
+        final double[] values = new double[keys.size()];
+        int[] missing = new int[values.length];
+        int nbMissing = 0;
+        final long now = ticker.read();
+        for (int i = 0; i < values.length; i++) {
+            final String key = keys.get(i);
+            final Entry entry = local.getIfPresent(key);
+            if (entry == null || entry.expiry - now <= 0) {
+                if (entry != null) {
+                    local.asMap().remove(key, entry);
+                }
+                missing[nbMissing++] = i;
+            } else {
+                values[i] = entry.value;
+            }
+        }
+        localHits.addAndGet(values.length - nbMissing);
+        localMisses.addAndGet(nbMissing);
+        if (nbMissing > 0 && shared != null) {
+            nbMissing = readShared(keys, missing, nbMissing, values);
+        }
+        if (nbMissing == 0) {
+            return values;
+        }
+        if (nbMissing < missing.length) {
+            missing = Arrays.copyOf(missing, nbMissing);
+        }
+        final double[] loaded = loader.load(missing);
+        ArgumentChecker.isTrue(loaded.length == nbMissing, "loader returned {} results for {} trades", loaded.length, nbMissing);
+        final List<String> loadedKeys = new ArrayList<>(nbMissing);
+        final double[] cached = new double[nbMissing];
+        final long expiry = ticker.read() + TimeUnit.SECONDS.toNanos(ttlSeconds);
+        for (int j = 0; j < nbMissing; j++) {
+            values[missing[j]] = loaded[j];
+            if (!Double.isNaN(loaded[j])) {
+                final String key = keys.get(missing[j]);
+                local.put(key, new Entry(loaded[j], expiry));
+                cached[loadedKeys.size()] = loaded[j];
+                loadedKeys.add(key);
+            }
+        }
+        if (shared != null && !loadedKeys.isEmpty()) {
+            try {
+                shared.put(loadedKeys, Arrays.copyOf(cached, loadedKeys.size()), ttlSeconds);
+            } catch (final RuntimeException e) {
+                sharedFailures.incrementAndGet();
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Fills the results found in the shared store, copies them to the local cache until they expire in the store,
+     * and compacts the indices still missing.
+     * @return the number of indices still missing
+     */
+    private int readShared(final List<String> keys, final int[] missing, final int nbMissing, final double[] values) {
+        final List<String> missingKeys = new ArrayList<>(nbMissing);
+        for (int j = 0; j < nbMissing; j++) {
+            missingKeys.add(keys.get(missing[j]));
+        }
+        final long[] remainingMillis = new long[nbMissing];
+        final double[] found;
+        try {
+            found = shared.get(missingKeys, remainingMillis);
+        } catch (final RuntimeException e) {
+            sharedFailures.incrementAndGet();
+            return nbMissing;
+        }
+        final long now = ticker.read();
+        final long ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        int stillMissing = 0;
+        for (int j = 0; j < nbMissing; j++) {
+            if (Double.isNaN(found[j])) {
+                missing[stillMissing++] = missing[j];
+            } else {
+                values[missing[j]] = found[j];
+                final long remaining = remainingMillis[j] < 0 ? ttlMillis : Math.min(remainingMillis[j], ttlMillis);
+                local.put(missingKeys.get(j), new Entry(found[j], now + TimeUnit.MILLISECONDS.toNanos(remaining)));
+            }
+        }
+        sharedHits.addAndGet(nbMissing - stillMissing);
+        return stillMissing;
+    }
+
+    /**
+     * The hits and misses are counted here rather than by the local cache, which would count as hits the results
+     * copied from the shared store and expired there since.
+     * @return the hit, miss and eviction counts of the in-process level
+     */
+    public CacheStats getLocalStats() {
+        return new CacheStats(localHits.get(), localMisses.get(), 0, 0, 0, local.stats().evictionCount());
+    }
+
+    /**
+     * @return the number of results found in the shared store
+     */
+    public long getSharedHitCount() {
+        return sharedHits.get();
+    }
+
+    /**
+     * @return the number of failed reads and writes of the shared store
+     */
+    public long getSharedFailureCount() {
+        return sharedFailures.get();
+    }
+
+    public void invalidateAll() {
+        local.invalidateAll();
+    }
+
+    /**
+     * Result in the local cache, with the ticker time at which it expires. The local cache itself evicts entries
+     * the time to live after they were put, which is never earlier.
+     */
+    private static final class Entry {
+        private final double value;
+        private final long expiry;
+
+        private Entry(final double value, final long expiry) {
+            this.value = value;
+            this.expiry = expiry;
+        }
+    }
+}
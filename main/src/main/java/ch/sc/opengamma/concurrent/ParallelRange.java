@@ -0,0 +1,91 @@
+package ch.sc.opengamma.concurrent;
+
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits an index range [0, size) into chunks and runs them on a fork-join pool.
+ * Chunks are split in halves until they are not larger than the grain, so that idle workers can steal the
+ * remaining halves of slower chunks.
+ */
+public final class ParallelRange {
+
+    /**
+     * Body of a parallel loop. Implementations receive disjoint sub-ranges and must only write to
+     * the slots of their own range.
+     */
+    public interface Body {
+        void run(int from, int to);
+    }
+
+    private ParallelRange() {
+    }
+
+    /**
+     * Pool of the engines built without one, so that they share its workers instead of each starting a pool that no
+     * one shuts down. Created on first use, with one worker per processor; the workers are daemon threads.
+     * @return the shared fork-join pool
+     */
+    public static ForkJoinPool sharedPool() {
+        return SharedPool.POOL;
+    }
+
+    /**
+     * Runs the body over [0, size) and blocks until every chunk has completed.
+     * @param pool the fork-join pool, not null
+     * @param size the number of elements
+     * @param grain the maximum number of elements processed by one task, strictly positive
+     * @param body the loop body, not null
+     */
+    public static void run(final ForkJoinPool pool, final int size, final int grain, final Body body) {
+        ArgumentChecker.notNull(pool, "pool");
+        ArgumentChecker.notNull(body, "body");
+        ArgumentChecker.isTrue(grain > 0, "grain must be positive");
+        if (size == 0) {
+            return;
+        }
+        pool.invoke(new RangeAction(0, size, grain, body));
+    }
+
+    /**
+     * Grain that gives each worker of the pool a few chunks to steal from.
+     * @param pool the fork-join pool, not null
+     * @param size the number of elements
+     * @return the grain, at least one
+     */
+    public static int defaultGrain(final ForkJoinPool pool, final int size) {
+        return Math.max(1, size / (pool.getParallelism() * 8));
+    }
+
+    private static final class SharedPool {
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    private static final class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final Body body;
+
+        RangeAction(final int from, final int to, final int grain, final Body body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(from, to);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, middle, grain, body), new RangeAction(middle, to, grain, body));
+        }
+    }
+}
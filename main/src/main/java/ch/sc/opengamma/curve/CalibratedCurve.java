@@ -0,0 +1,72 @@
+package ch.sc.opengamma.curve;
+
+import com.opengamma.util.money.Currency;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Zero rates of a calibrated discount curve at its nodes, with the Jacobians of the node rates to the market quotes:
+ * d rate_i / d quote_j of its own quotes and of the quotes of every curve it depends on, directly or not.
+ */
+public class CalibratedCurve {
+
+    private final CurveDefinition definition;
+    private final double[] times;
+    private final double[] rates;
+    private final Map<String, double[][]> jacobians;
+    private final int iterations;
+
+    CalibratedCurve(final CurveDefinition definition, final double[] times, final double[] rates, final Map<String, double[][]> jacobians,
+                    final int iterations) {
+        this.definition = definition;
+        this.times = times;
+        this.rates = rates;
+        this.jacobians = Collections.unmodifiableMap(jacobians);
+        this.iterations = iterations;
+    }
+
+    public CurveDefinition getDefinition() {
+        return definition;
+    }
+
+    public String getName() {
+        return definition.getName();
+    }
+
+    public Currency getCurrency() {
+        return definition.getCurrency();
+    }
+
+    public double[] getTimes() {
+        return times.clone();
+    }
+
+    public double[] getRates() {
+        return rates.clone();
+    }
+
+    /**
+     * @return the names of the curves whose quotes move this curve, its own included
+     */
+    public Set<String> getQuoteCurves() {
+        return jacobians.keySet();
+    }
+
+    /**
+     * @param curve the name of a curve of {@link #getQuoteCurves()}
+     * @return d rate_i / d quote_j, by node i of this curve and quote j of the given curve; null if its quotes do not
+     * move this curve. Not copied.
+     */
+    public double[][] getJacobian(final String curve) {
+        return jacobians.get(curve);
+    }
+
+    /**
+     * @return the number of Newton steps taken over all nodes; 0 when the starting rates already matched the quotes
+     */
+    public int getIterations() {
+        return iterations;
+    }
+}
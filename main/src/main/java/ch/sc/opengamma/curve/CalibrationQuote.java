@@ -0,0 +1,61 @@
+package ch.sc.opengamma.curve;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+/**
+ * Market quote of an instrument calibrating one node of a discount curve: the node at its end time.
+ * Each quote fixes the log ratio ln(DF(start)) - ln(DF(end)) of the calibrated curve, possibly in terms of the
+ * discount curve of another currency. Times are in years from the reference date of the calibration.
+ */
+public abstract class CalibrationQuote {
+
+    private final double startTime;
+    private final double endTime;
+    private final double quote;
+
+    CalibrationQuote(final double startTime, final double endTime, final double quote) {
+        ArgumentChecker.isTrue(startTime >= 0, "startTime must not be negative");
+        ArgumentChecker.isTrue(endTime > startTime, "endTime must be after startTime");
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.quote = quote;
+    }
+
+    public double getStartTime() {
+        return startTime;
+    }
+
+    public double getEndTime() {
+        return endTime;
+    }
+
+    public double getQuote() {
+        return quote;
+    }
+
+    /**
+     * @param quote the new market quote
+     * @return the same instrument at another quote
+     */
+    public abstract CalibrationQuote withQuote(double quote);
+
+    /**
+     * @param currency the currency of the calibrated curve
+     * @return the currency of the other discount curve the quote depends on, null if none
+     */
+    abstract Currency getDependency(Currency currency);
+
+    /**
+     * @param currency the currency of the calibrated curve
+     * @param other the curve of {@link #getDependency}, null if there is none
+     * @return ln(DF(start)) - ln(DF(end)) of the calibrated curve implied by the quote
+     */
+    abstract double logRatio(Currency currency, NodeCurve other);
+
+    /**
+     * @param currency the currency of the calibrated curve
+     * @return the derivative of {@link #logRatio} to the quote
+     */
+    abstract double logRatioQuoteDerivative(Currency currency);
+}
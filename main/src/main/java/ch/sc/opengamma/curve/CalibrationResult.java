@@ -0,0 +1,111 @@
+package ch.sc.opengamma.curve;
+
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Curves calibrated together, as a {@link MulticurveProviderDiscount} of {@link LinearFlatYieldCurve}s and with the
+ * Jacobians of their node rates to the market quotes. The Jacobians turn sensitivities to the node rates, such as
+ * those of {@link com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityParameterCalculator},
+ * into sensitivities to the quotes without recalibrating. A result is also the warm start of the next calibration.
+ */
+public class CalibrationResult {
+
+    private final Map<String, CalibratedCurve> curves;
+    private final MulticurveProviderDiscount provider;
+
+    CalibrationResult(final Map<String, CalibratedCurve> curves, final MulticurveProviderDiscount provider) {
+        this.curves = Collections.unmodifiableMap(curves);
+        this.provider = provider;
+    }
+
+    /**
+     * @return the calibrated curves, in the order they were defined
+     */
+    public Collection<CalibratedCurve> getCurves() {
+        return curves.values();
+    }
+
+    /**
+     * @param name the curve name
+     * @return the calibrated curve, null if there is none of that name
+     */
+    public CalibratedCurve getCurve(final String name) {
+        return curves.get(name);
+    }
+
+    /**
+     * @return the discounting curves by currency, with the FX matrix of the calibration. Not copied.
+     */
+    public MulticurveProviderDiscount getProvider() {
+        return provider;
+    }
+
+    /**
+     * @param nodeSensitivities the sensitivities to the node rates by curve name, not null
+     * @return the sensitivities to the market quotes by curve name
+     */
+    public Map<String, double[]> marketQuoteSensitivity(final Map<String, double[]> nodeSensitivities) {
+        ArgumentChecker.notNull(nodeSensitivities, "nodeSensitivities");
+        final Map<String, double[]> result = new HashMap<>();
+        for (final Map.Entry<String, double[]> entry : nodeSensitivities.entrySet()) {
+            final CalibratedCurve curve = curves.get(entry.getKey());
+            ArgumentChecker.notNull(curve, entry.getKey());
+            for (final String quoteCurve : curve.getQuoteCurves()) {
+                final double[][] jacobian = curve.getJacobian(quoteCurve);
+                double[] total = result.get(quoteCurve);
+                if (total == null) {
+                    total = new double[jacobian[0].length];
+                    result.put(quoteCurve, total);
+                }
+                multiplyAdd(entry.getValue(), jacobian, total);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sensitivities to the market quotes of sensitivities to the node rates by curve and currency. Sensitivities to
+     * curves not calibrated here are kept as they are.
+     * @param nodeSensitivities the sensitivities to the node rates, not null
+     * @return the sensitivities to the market quotes, by curve and currency
+     */
+    public MultipleCurrencyParameterSensitivity marketQuoteSensitivity(final MultipleCurrencyParameterSensitivity nodeSensitivities) {
+        ArgumentChecker.notNull(nodeSensitivities, "nodeSensitivities");
+        MultipleCurrencyParameterSensitivity result = new MultipleCurrencyParameterSensitivity();
+        for (final Map.Entry<Pair<String, Currency>, DoubleMatrix1D> entry : nodeSensitivities.getSensitivities().entrySet()) {
+            final CalibratedCurve curve = curves.get(entry.getKey().getFirst());
+            if (curve == null) {
+                result = result.plus(entry.getKey(), entry.getValue());
+                continue;
+            }
+            for (final String quoteCurve : curve.getQuoteCurves()) {
+                final double[][] jacobian = curve.getJacobian(quoteCurve);
+                final double[] quoteSensitivity = new double[jacobian[0].length];
+                multiplyAdd(entry.getValue().getData(), jacobian, quoteSensitivity);
+                result = result.plus(new ObjectsPair<>(quoteCurve, entry.getKey().getSecond()), new DoubleMatrix1D(quoteSensitivity));
+            }
+        }
+        return result;
+    }
+
+    private static void multiplyAdd(final double[] row, final double[][] matrix, final double[] out) {
+        ArgumentChecker.isTrue(row.length == matrix.length, "one sensitivity per node");
+        for (int i = 0; i < row.length; i++) {
+            final double[] jacobianRow = matrix[i];
+            for (int j = 0; j < out.length; j++) {
+                out[j] += row[i] * jacobianRow[j];
+            }
+        }
+    }
+}
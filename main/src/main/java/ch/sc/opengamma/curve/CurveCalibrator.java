@@ -0,0 +1,277 @@
+package ch.sc.opengamma.curve;
+
+import ch.sc.opengamma.concurrent.ParallelRange;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bootstraps discount curves, one per currency, from deposit and FX swap quotes.
+ * <p>
+ * Each node is solved in turn by Newton steps on the log ratio its quote fixes; the log ratio is linear in the rate of
+ * the node, so a step lands on the root and a node whose rate already matches its quote takes none. The rates of a
+ * previous result with the same nodes are the starting point, so recalibrating after a small move of the quotes costs
+ * one step per node and an unchanged curve costs nothing. Curves depending on no other curve are calibrated first, in
+ * parallel, then those depending only on calibrated curves, and so on.
+ * <p>
+ * The Jacobian of each curve to its own quotes, and through the curves it depends on to their quotes, is kept in the
+ * result, to turn sensitivities to the node rates into sensitivities to the quotes.
+ */
+public class CurveCalibrator {
+
+    private static final double TOLERANCE = 1E-13;
+    private static final int MAX_ITERATIONS = 20;
+    private static final double INITIAL_RATE = 0.01;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Runs on the {@link ParallelRange#sharedPool() shared pool}.
+     */
+    public CurveCalibrator() {
+        this(ParallelRange.sharedPool());
+    }
+
+    /**
+     * @param pool the fork-join pool calibrating independent curves, not null
+     */
+    public CurveCalibrator(final ForkJoinPool pool) {
+        ArgumentChecker.notNull(pool, "pool");
+        this.pool = pool;
+    }
+
+    /**
+     * Calibrates the curves from a cold start.
+     * @see #calibrate(List, FXMatrix, CalibrationResult)
+     */
+    public CalibrationResult calibrate(final List<CurveDefinition> definitions, final FXMatrix fxMatrix) {
+        return calibrate(definitions, fxMatrix, null);
+    }
+
+    /**
+     * @param definitions the curves, of distinct names and currencies, not null
+     * @param fxMatrix the FX rates of the provider returned, not null
+     * @param previous the previous calibration, whose rates start the curves of the same name and nodes; null for a cold
+     * start
+     * @return the calibrated curves
+     * @throws OpenGammaRuntimeException if a curve depends on a currency without curve, the dependencies form a cycle,
+     * or a node does not converge
+     */
+    public CalibrationResult calibrate(final List<CurveDefinition> definitions, final FXMatrix fxMatrix, final CalibrationResult previous) {
+        ArgumentChecker.noNulls(definitions, "definitions");
+        ArgumentChecker.notNull(fxMatrix, "fxMatrix");
+        final int nbCurves = definitions.size();
+        final Map<Currency, Integer> byCurrency = new HashMap<>();
+        final Map<String, Integer> byName = new HashMap<>();
+        for (int c = 0; c < nbCurves; c++) {
+            final CurveDefinition definition = definitions.get(c);
+            ArgumentChecker.isTrue(byCurrency.put(definition.getCurrency(), c) == null, "more than one curve for {}", definition.getCurrency());
+            ArgumentChecker.isTrue(byName.put(definition.getName(), c) == null, "more than one curve named {}", definition.getName());
+        }
+        // dependencies[c][q]: index of the curve quote q of curve c depends on, -1 if none
+        final int[][] dependencies = new int[nbCurves][];
+        for (int c = 0; c < nbCurves; c++) {
+            final CurveDefinition definition = definitions.get(c);
+            final List<CalibrationQuote> quotes = definition.getQuotes();
+            dependencies[c] = new int[quotes.size()];
+            for (int q = 0; q < quotes.size(); q++) {
+                final Currency dependency = quotes.get(q).getDependency(definition.getCurrency());
+                if (dependency == null) {
+                    dependencies[c][q] = -1;
+                } else {
+                    final Integer index = byCurrency.get(dependency);
+                    if (index == null) {
+                        throw new OpenGammaRuntimeException("Curve " + definition.getName() + " depends on " + dependency + " which has no curve");
+                    }
+                    dependencies[c][q] = index;
+                }
+            }
+        }
+
+        final NodeCurve[] nodeCurves = new NodeCurve[nbCurves];
+        final CalibratedCurve[] calibrated = new CalibratedCurve[nbCurves];
+        final boolean[] done = new boolean[nbCurves];
+        int nbDone = 0;
+        while (nbDone < nbCurves) {
+            final List<Integer> level = new ArrayList<>();
+            for (int c = 0; c < nbCurves; c++) {
+                if (!done[c] && isReady(dependencies[c], done)) {
+                    level.add(c);
+                }
+            }
+            if (level.isEmpty()) {
+                throw new OpenGammaRuntimeException("Circular dependencies between curves " + pending(definitions, done));
+            }
+            ParallelRange.run(pool, level.size(), 1, new ParallelRange.Body() {
+                @Override
+                public void run(final int from, final int to) {
+                    for (int l = from; l < to; l++) {
+                        final int c = level.get(l);
+                        final CurveDefinition definition = definitions.get(c);
+                        final CalibratedCurve start = previous == null ? null : previous.getCurve(definition.getName());
+                        calibrated[c] = calibrate(definition, dependencies[c], nodeCurves, calibrated, start);
+                        nodeCurves[c] = new NodeCurve(calibrated[c].getTimes(), calibrated[c].getRates(), definition.getQuotes().size());
+                    }
+                }
+            });
+            for (final int c : level) {
+                done[c] = true;
+            }
+            nbDone += level.size();
+        }
+
+        final Map<String, CalibratedCurve> curves = new LinkedHashMap<>();
+        final MulticurveProviderDiscount provider = new MulticurveProviderDiscount(fxMatrix);
+        for (final CalibratedCurve curve : calibrated) {
+            curves.put(curve.getName(), curve);
+            provider.setCurve(curve.getCurrency(), new LinearFlatYieldCurve(curve.getName(), curve.getTimes(), curve.getRates()));
+        }
+        return new CalibrationResult(curves, provider);
+    }
+
+    private static CalibratedCurve calibrate(final CurveDefinition definition, final int[] dependencies, final NodeCurve[] nodeCurves,
+                                             final CalibratedCurve[] calibrated, final CalibratedCurve start) {
+        final Currency currency = definition.getCurrency();
+        final List<CalibrationQuote> quotes = definition.getQuotes();
+        final int n = quotes.size();
+        final double[] times = new double[n];
+        for (int i = 0; i < n; i++) {
+            times[i] = quotes.get(i).getEndTime();
+        }
+        final boolean warm = start != null && Arrays.equals(start.getTimes(), times);
+        final double[] rates = warm ? start.getRates() : new double[n];
+        final NodeCurve curve = new NodeCurve(times, rates, 0);
+        int iterations = 0;
+        for (int i = 0; i < n; i++) {
+            curve.setSize(i + 1);
+            if (!warm) {
+                rates[i] = i == 0 ? INITIAL_RATE : rates[i - 1];
+            }
+            final CalibrationQuote quote = quotes.get(i);
+            final NodeCurve other = dependencies[i] < 0 ? null : nodeCurves[dependencies[i]];
+            final double target = quote.logRatio(currency, other);
+            final double s = quote.getStartTime();
+            final double t = quote.getEndTime();
+            for (int k = 0; ; k++) {
+                final double error = curve.logDiscountFactor(s) - curve.logDiscountFactor(t) - target;
+                if (Math.abs(error) <= TOLERANCE) {
+                    break;
+                }
+                if (k == MAX_ITERATIONS) {
+                    throw new OpenGammaRuntimeException("Node " + i + " of curve " + definition.getName() + " did not converge");
+                }
+                rates[i] -= error / (curve.lastNodeDerivative(s) - curve.lastNodeDerivative(t));
+                iterations++;
+            }
+        }
+
+        // M[i][j] = d(ln DF(start_i) - ln DF(end_i)) / d rate_j, lower triangular as end_i is node i
+        final double[][] m = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            final CalibrationQuote quote = quotes.get(i);
+            curve.addLogDiscountFactorDerivative(quote.getStartTime(), 1, m[i]);
+            curve.addLogDiscountFactorDerivative(quote.getEndTime(), -1, m[i]);
+        }
+        final Map<String, double[][]> jacobians = new HashMap<>();
+        final double[][] own = new double[n][n];
+        for (int j = 0; j < n; j++) {
+            own[j][j] = quotes.get(j).logRatioQuoteDerivative(currency);
+        }
+        jacobians.put(definition.getName(), solveLower(m, own));
+
+        final Map<Integer, double[][]> crossTerms = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            final int o = dependencies[i];
+            if (o < 0) {
+                continue;
+            }
+            double[][] b = crossTerms.get(o);
+            if (b == null) {
+                b = new double[n][nodeCurves[o].size()];
+                crossTerms.put(o, b);
+            }
+            final CalibrationQuote quote = quotes.get(i);
+            nodeCurves[o].addLogDiscountFactorDerivative(quote.getStartTime(), 1, b[i]);
+            nodeCurves[o].addLogDiscountFactorDerivative(quote.getEndTime(), -1, b[i]);
+        }
+        for (final Map.Entry<Integer, double[][]> entry : crossTerms.entrySet()) {
+            // d rate / d rate of the other curve, chained with the Jacobians of the other curve
+            final double[][] q = solveLower(m, entry.getValue());
+            final CalibratedCurve other = calibrated[entry.getKey()];
+            for (final String quoteCurve : other.getQuoteCurves()) {
+                final double[][] otherJacobian = other.getJacobian(quoteCurve);
+                double[][] jacobian = jacobians.get(quoteCurve);
+                if (jacobian == null) {
+                    jacobian = new double[n][otherJacobian[0].length];
+                    jacobians.put(quoteCurve, jacobian);
+                }
+                multiplyAdd(q, otherJacobian, jacobian);
+            }
+        }
+        return new CalibratedCurve(definition, times, rates, jacobians, iterations);
+    }
+
+    /**
+     * @return X with M X = B, by forward substitution; B is overwritten
+     */
+    private static double[][] solveLower(final double[][] m, final double[][] b) {
+        for (int i = 0; i < m.length; i++) {
+            final double[] row = b[i];
+            for (int k = 0; k < i; k++) {
+                final double coefficient = m[i][k];
+                if (coefficient != 0) {
+                    final double[] solved = b[k];
+                    for (int j = 0; j < row.length; j++) {
+                        row[j] -= coefficient * solved[j];
+                    }
+                }
+            }
+            for (int j = 0; j < row.length; j++) {
+                row[j] /= m[i][i];
+            }
+        }
+        return b;
+    }
+
+    private static void multiplyAdd(final double[][] a, final double[][] b, final double[][] out) {
+        for (int i = 0; i < a.length; i++) {
+            for (int k = 0; k < b.length; k++) {
+                final double coefficient = a[i][k];
+                if (coefficient != 0) {
+                    for (int j = 0; j < out[i].length; j++) {
+                        out[i][j] += coefficient * b[k][j];
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isReady(final int[] dependencies, final boolean[] done) {
+        for (final int dependency : dependencies) {
+            if (dependency >= 0 && !done[dependency]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> pending(final List<CurveDefinition> definitions, final boolean[] done) {
+        final List<String> names = new ArrayList<>();
+        for (int c = 0; c < done.length; c++) {
+            if (!done[c]) {
+                names.add(definitions.get(c).getName());
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,66 @@
+package ch.sc.opengamma.curve;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Discount curve of one currency to calibrate, with one node at the end time of each quote. The curve interpolates
+ * its zero rates linearly with flat extrapolation, as {@link LinearFlatYieldCurve}.
+ */
+public class CurveDefinition {
+
+    private final String name;
+    private final Currency currency;
+    private final List<CalibrationQuote> quotes;
+
+    /**
+     * @param name the curve name, not null
+     * @param currency the currency discounted, not null
+     * @param quotes the quotes, by strictly increasing end time, at least two, not null
+     */
+    public CurveDefinition(final String name, final Currency currency, final List<? extends CalibrationQuote> quotes) {
+        ArgumentChecker.notNull(name, "name");
+        ArgumentChecker.notNull(currency, "currency");
+        ArgumentChecker.noNulls(quotes, "quotes");
+        ArgumentChecker.isTrue(quotes.size() >= 2, "at least two quotes are required");
+        for (int i = 1; i < quotes.size(); i++) {
+            ArgumentChecker.isTrue(quotes.get(i - 1).getEndTime() < quotes.get(i).getEndTime(), "quote end times must be strictly increasing");
+        }
+        for (final CalibrationQuote quote : quotes) {
+            ArgumentChecker.isTrue(!currency.equals(quote.getDependency(currency)), "a quote of {} cannot depend on its own curve", name);
+        }
+        this.name = name;
+        this.currency = currency;
+        this.quotes = Collections.unmodifiableList(new ArrayList<>(quotes));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public List<CalibrationQuote> getQuotes() {
+        return quotes;
+    }
+
+    /**
+     * @param quotes the new market quotes, one per quote of this definition, not null
+     * @return the same curve on the same instruments at other quotes
+     */
+    public CurveDefinition withQuotes(final double[] quotes) {
+        ArgumentChecker.notNull(quotes, "quotes");
+        ArgumentChecker.isTrue(quotes.length == this.quotes.size(), "one quote per instrument");
+        final List<CalibrationQuote> requoted = new ArrayList<>(quotes.length);
+        for (int i = 0; i < quotes.length; i++) {
+            requoted.add(this.quotes.get(i).withQuote(quotes[i]));
+        }
+        return new CurveDefinition(name, currency, requoted);
+    }
+}
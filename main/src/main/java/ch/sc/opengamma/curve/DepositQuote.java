@@ -0,0 +1,77 @@
+package ch.sc.opengamma.curve;
+
+import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
+import com.opengamma.analytics.util.time.TimeCalculator;
+import com.opengamma.financial.convention.businessday.BusinessDayConvention;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.daycount.DayCount;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+/**
+ * Deposit at a simple rate: DF(start) / DF(end) = 1 + rate * accrual factor.
+ */
+public final class DepositQuote extends CalibrationQuote {
+
+    private final double accrualFactor;
+
+    /**
+     * @param startTime the start time
+     * @param endTime the end time, after the start
+     * @param accrualFactor the accrual factor between start and end, strictly positive
+     * @param rate the deposit rate
+     */
+    public DepositQuote(final double startTime, final double endTime, final double accrualFactor, final double rate) {
+        super(startTime, endTime, rate);
+        ArgumentChecker.isTrue(accrualFactor > 0, "accrualFactor must be positive");
+        this.accrualFactor = accrualFactor;
+    }
+
+    /**
+     * Deposit starting on the spot date and ending after the tenor, adjusted with the convention.
+     * @param referenceDate the reference date of the calibration, not null
+     * @param spotLag the business days from the reference date to the start
+     * @param tenor the tenor, not null
+     * @param rate the deposit rate
+     * @param dayCount the day count of the accrual factor, not null
+     * @param convention the business day convention of the end date, not null
+     * @param calendar the calendar, not null
+     * @return the deposit quote
+     */
+    public static DepositQuote of(final ZonedDateTime referenceDate, final int spotLag, final Period tenor, final double rate,
+                                  final DayCount dayCount, final BusinessDayConvention convention, final Calendar calendar) {
+        ArgumentChecker.notNull(referenceDate, "referenceDate");
+        ArgumentChecker.notNull(tenor, "tenor");
+        ArgumentChecker.notNull(dayCount, "dayCount");
+        final ZonedDateTime start = ScheduleCalculator.getAdjustedDate(referenceDate, spotLag, calendar);
+        final ZonedDateTime end = ScheduleCalculator.getAdjustedDate(start, tenor, convention, calendar, false);
+        return new DepositQuote(TimeCalculator.getTimeBetween(referenceDate, start), TimeCalculator.getTimeBetween(referenceDate, end),
+                dayCount.getDayCountFraction(start, end), rate);
+    }
+
+    public double getAccrualFactor() {
+        return accrualFactor;
+    }
+
+    @Override
+    public DepositQuote withQuote(final double quote) {
+        return new DepositQuote(getStartTime(), getEndTime(), accrualFactor, quote);
+    }
+
+    @Override
+    Currency getDependency(final Currency currency) {
+        return null;
+    }
+
+    @Override
+    double logRatio(final Currency currency, final NodeCurve other) {
+        return Math.log(1 + getQuote() * accrualFactor);
+    }
+
+    @Override
+    double logRatioQuoteDerivative(final Currency currency) {
+        return accrualFactor / (1 + getQuote() * accrualFactor);
+    }
+}
@@ -0,0 +1,115 @@
+package ch.sc.opengamma.curve;
+
+import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
+import com.opengamma.analytics.util.time.TimeCalculator;
+import com.opengamma.financial.convention.businessday.BusinessDayConvention;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+/**
+ * FX swap quoted in forward points on the rate of the pair (counter currency per base currency): the outright forward
+ * F = spot + points satisfies F / spot = (DF_base(end) / DF_base(start)) / (DF_counter(end) / DF_counter(start)).
+ * It calibrates the curve of either currency of the pair given the curve of the other.
+ */
+public final class FxSwapQuote extends CalibrationQuote {
+
+    private final Currency base;
+    private final Currency counter;
+    private final double spot;
+
+    /**
+     * @param base the base currency of the pair, not null
+     * @param counter the counter currency of the pair, not null
+     * @param startTime the start time of the swap, normally the spot date
+     * @param endTime the end time of the swap, after the start
+     * @param spot the rate of the pair at the start, strictly positive
+     * @param points the forward points
+     */
+    public FxSwapQuote(final Currency base, final Currency counter, final double startTime, final double endTime, final double spot,
+                       final double points) {
+        super(startTime, endTime, points);
+        ArgumentChecker.notNull(base, "base");
+        ArgumentChecker.notNull(counter, "counter");
+        ArgumentChecker.isTrue(!base.equals(counter), "the currencies of the pair must differ");
+        ArgumentChecker.isTrue(spot > 0, "spot must be positive");
+        ArgumentChecker.isTrue(spot + points > 0, "the outright forward must be positive");
+        this.base = base;
+        this.counter = counter;
+        this.spot = spot;
+    }
+
+    /**
+     * FX swap starting on the spot date and ending after the tenor, adjusted with the convention.
+     * @param referenceDate the reference date of the calibration, not null
+     * @param base the base currency of the pair, not null
+     * @param counter the counter currency of the pair, not null
+     * @param spotLag the business days from the reference date to the spot date
+     * @param tenor the tenor, not null
+     * @param spot the rate of the pair at the spot date
+     * @param points the forward points
+     * @param convention the business day convention of the end date, not null
+     * @param calendar the calendar, not null
+     * @return the FX swap quote
+     */
+    public static FxSwapQuote of(final ZonedDateTime referenceDate, final Currency base, final Currency counter, final int spotLag,
+                                 final Period tenor, final double spot, final double points, final BusinessDayConvention convention,
+                                 final Calendar calendar) {
+        ArgumentChecker.notNull(referenceDate, "referenceDate");
+        ArgumentChecker.notNull(tenor, "tenor");
+        final ZonedDateTime start = ScheduleCalculator.getAdjustedDate(referenceDate, spotLag, calendar);
+        final ZonedDateTime end = ScheduleCalculator.getAdjustedDate(start, tenor, convention, calendar, false);
+        return new FxSwapQuote(base, counter, TimeCalculator.getTimeBetween(referenceDate, start), TimeCalculator.getTimeBetween(referenceDate, end),
+                spot, points);
+    }
+
+    public Currency getBase() {
+        return base;
+    }
+
+    public Currency getCounter() {
+        return counter;
+    }
+
+    public double getSpot() {
+        return spot;
+    }
+
+    /**
+     * @return the outright forward rate, spot plus points
+     */
+    public double getForward() {
+        return spot + getQuote();
+    }
+
+    @Override
+    public FxSwapQuote withQuote(final double quote) {
+        return new FxSwapQuote(base, counter, getStartTime(), getEndTime(), spot, quote);
+    }
+
+    @Override
+    Currency getDependency(final Currency currency) {
+        if (currency.equals(counter)) {
+            return base;
+        }
+        ArgumentChecker.isTrue(currency.equals(base), "FX swap {}/{} cannot calibrate a {} curve", base, counter, currency);
+        return counter;
+    }
+
+    @Override
+    double logRatio(final Currency currency, final NodeCurve other) {
+        final double otherRatio = other.logDiscountFactor(getStartTime()) - other.logDiscountFactor(getEndTime());
+        return direction(currency) * Math.log(getForward() / spot) + otherRatio;
+    }
+
+    @Override
+    double logRatioQuoteDerivative(final Currency currency) {
+        return direction(currency) / getForward();
+    }
+
+    private double direction(final Currency currency) {
+        return currency.equals(counter) ? 1 : -1;
+    }
+}
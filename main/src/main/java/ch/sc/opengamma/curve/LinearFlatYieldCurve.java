@@ -0,0 +1,160 @@
+package ch.sc.opengamma.curve;
+
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolator;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.FlatExtrapolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.analytics.math.interpolation.LinearInterpolator1D;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.Arrays;
+
+/**
+ * Yield curve of zero rates interpolated linearly with flat extrapolation, evaluated on primitive arrays.
+ * A {@link YieldCurve} on an {@link InterpolatedDoublesCurve} boxes every time through {@code Curve<Double, Double>} and
+ * searches the nodes on each call. This curve keeps the nodes and the slope of each segment in arrays, so that a rate
+ * costs a search and a multiply-add. A {@link Cursor} remembers the last segment, so increasing times such as the
+ * coupons of a bond are found without searching, and {@link #getDiscountFactors} evaluates a batch the same way.
+ * <p>
+ * The underlying interpolated curve is kept, so sensitivities and every other {@link YieldCurve} method are unchanged.
+ */
+public class LinearFlatYieldCurve extends YieldCurve {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Interpolator1D LINEAR_FLAT = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+            Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+
+    private final double[] times;
+    private final double[] rates;
+    private final double[] slopes;
+
+    /**
+     * @param name the curve name, not null
+     * @param times the node times, strictly increasing, at least two, not null
+     * @param rates the zero rates at the nodes, not null
+     */
+    public LinearFlatYieldCurve(final String name, final double[] times, final double[] rates) {
+        this(name, InterpolatedDoublesCurve.fromSorted(times, rates, LINEAR_FLAT, name));
+    }
+
+    /**
+     * @param name the curve name, not null
+     * @param curve the zero rates, interpolated as described by {@link #supports}, not null
+     */
+    public LinearFlatYieldCurve(final String name, final InterpolatedDoublesCurve curve) {
+        super(name, curve);
+        ArgumentChecker.isTrue(supports(curve), "{} is not interpolated linearly with flat extrapolation", curve.getName());
+        this.times = curve.getXDataAsPrimitive();
+        this.rates = curve.getYDataAsPrimitive();
+        ArgumentChecker.isTrue(times.length >= 2, "at least two nodes are required");
+        this.slopes = new double[times.length - 1];
+        for (int i = 0; i < slopes.length; i++) {
+            ArgumentChecker.isTrue(times[i] < times[i + 1], "node times must be strictly increasing");
+            slopes[i] = (rates[i + 1] - rates[i]) / (times[i + 1] - times[i]);
+        }
+    }
+
+    /**
+     * @param curve the curve, not null
+     * @return true if the curve interpolates linearly and extrapolates flat on both sides
+     */
+    public static boolean supports(final InterpolatedDoublesCurve curve) {
+        ArgumentChecker.notNull(curve, "curve");
+        if (!(curve.getInterpolator() instanceof CombinedInterpolatorExtrapolator)) {
+            return false;
+        }
+        final CombinedInterpolatorExtrapolator interpolator = (CombinedInterpolatorExtrapolator) curve.getInterpolator();
+        return interpolator.getInterpolator() instanceof LinearInterpolator1D
+                && interpolator.getLeftExtrapolator() instanceof FlatExtrapolator1D
+                && interpolator.getRightExtrapolator() instanceof FlatExtrapolator1D;
+    }
+
+    @Override
+    public double getInterestRate(final Double time) {
+        final double t = time;
+        return rate(t, segment(t));
+    }
+
+    @Override
+    public double getDiscountFactor(final double t) {
+        return Math.exp(-t * rate(t, segment(t)));
+    }
+
+    /**
+     * Discount factors of a batch of times. Fastest when the times are increasing.
+     * @param t the times, not null
+     * @param out the discount factors, at least as long as the times, not null
+     */
+    public void getDiscountFactors(final double[] t, final double[] out) {
+        ArgumentChecker.notNull(t, "t");
+        ArgumentChecker.notNull(out, "out");
+        ArgumentChecker.isTrue(out.length >= t.length, "output array too short");
+        int segment = 0;
+        for (int i = 0; i < t.length; i++) {
+            segment = segment(t[i], segment);
+            out[i] = Math.exp(-t[i] * rate(t[i], segment));
+        }
+    }
+
+    /**
+     * @return a new cursor at the start of the curve
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Discount factor lookups that start searching from the segment of the previous lookup.
+     * Not thread-safe: each pricing thread uses its own cursor.
+     */
+    public final class Cursor {
+        private int segment;
+
+        private Cursor() {
+        }
+
+        public double getDiscountFactor(final double t) {
+            segment = segment(t, segment);
+            return Math.exp(-t * rate(t, segment));
+        }
+
+        public double getInterestRate(final double t) {
+            segment = segment(t, segment);
+            return rate(t, segment);
+        }
+    }
+
+    /**
+     * @return the index i of the segment [times[i], times[i + 1]) containing t, -1 before the first node and the
+     * index of the last node from it on
+     */
+    private int segment(final double t) {
+        final int index = Arrays.binarySearch(times, t);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int segment(final double t, final int hint) {
+        if (hint < 0 || hint >= times.length || t < times[hint]) {
+            return segment(t);
+        }
+        int segment = hint;
+        while (segment < times.length - 1 && t >= times[segment + 1]) {
+            segment++;
+        }
+        return segment;
+    }
+
+    private double rate(final double t, final int segment) {
+        if (segment < 0) {
+            return rates[0];
+        }
+        if (segment >= slopes.length) {
+            return rates[rates.length - 1];
+        }
+        return rates[segment] + slopes[segment] * (t - times[segment]);
+    }
+}
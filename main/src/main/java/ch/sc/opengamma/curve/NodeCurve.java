@@ -0,0 +1,90 @@
+package ch.sc.opengamma.curve;
+
+import java.util.Arrays;
+
+/**
+ * Zero rates at node times, interpolated linearly with flat extrapolation as in {@link LinearFlatYieldCurve}, with
+ * the derivatives of the log discount factors to the node rates. Only the first nodes may be in use while a curve is
+ * bootstrapped; the nodes after them are ignored. Not thread safe.
+ */
+final class NodeCurve {
+
+    private final double[] times;
+    private final double[] rates;
+    private int size;
+
+    NodeCurve(final double[] times, final double[] rates, final int size) {
+        this.times = times;
+        this.rates = rates;
+        this.size = size;
+    }
+
+    double[] getTimes() {
+        return times;
+    }
+
+    double[] getRates() {
+        return rates;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void setSize(final int size) {
+        this.size = size;
+    }
+
+    /**
+     * @return ln(DF(t)) = -t z(t)
+     */
+    double logDiscountFactor(final double t) {
+        final int i = segment(t);
+        if (i < 0) {
+            return -t * rates[0];
+        }
+        if (i >= size - 1) {
+            return -t * rates[size - 1];
+        }
+        final double weight = (t - times[i]) / (times[i + 1] - times[i]);
+        return -t * (rates[i] + weight * (rates[i + 1] - rates[i]));
+    }
+
+    /**
+     * Adds factor * d ln(DF(t)) / d rate to each node rate derivative.
+     * @param t the time
+     * @param factor the factor applied
+     * @param derivatives the derivatives, one per node, added to
+     */
+    void addLogDiscountFactorDerivative(final double t, final double factor, final double[] derivatives) {
+        final int i = segment(t);
+        if (i < 0) {
+            derivatives[0] -= factor * t;
+        } else if (i >= size - 1) {
+            derivatives[size - 1] -= factor * t;
+        } else {
+            final double weight = (t - times[i]) / (times[i + 1] - times[i]);
+            derivatives[i] -= factor * t * (1 - weight);
+            derivatives[i + 1] -= factor * t * weight;
+        }
+    }
+
+    /**
+     * @return d ln(DF(t)) / d rate of the last node in use
+     */
+    double lastNodeDerivative(final double t) {
+        final int i = segment(t);
+        if (i >= size - 1 || i < 0 && size == 1) {
+            return -t;
+        }
+        if (i == size - 2 && i >= 0) {
+            return -t * (t - times[i]) / (times[i + 1] - times[i]);
+        }
+        return 0;
+    }
+
+    private int segment(final double t) {
+        final int index = Arrays.binarySearch(times, 0, size, t);
+        return index >= 0 ? index : -index - 2;
+    }
+}
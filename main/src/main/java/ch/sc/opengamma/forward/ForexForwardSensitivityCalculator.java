@@ -0,0 +1,126 @@
+package ch.sc.opengamma.forward;
+
+import ch.sc.opengamma.concurrent.ParallelRange;
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.provider.calculator.forexpoints.PresentValueCurveSensitivityForexForwardPointsCalculator;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveForwardPointsProviderInterface;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyMulticurveSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityParameterCalculator;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Curve node sensitivities of a portfolio of FX forwards priced with forward points.
+ * Instead of bumping every node and re-pricing every trade
+ * ({@code ParameterSensitivityForexForwardPointsDiscountInterpolatedFDCalculator}), the point sensitivities of each
+ * trade are computed by algorithmic differentiation with {@link PresentValueCurveSensitivityForexForwardPointsCalculator},
+ * summed over the portfolio, and projected onto the curve parameters once. The result has the same shape as the
+ * finite difference calculator's.
+ * When {@link PricingMetrics} are supplied, each chunk of trades differentiated by a worker is timed, and the batch
+ * sizes and the number of trades are recorded under the {@value #INSTRUMENT_TYPE} instrument type.
+ */
+public class ForexForwardSensitivityCalculator {
+
+    /** Instrument type of the metrics. */
+    public static final String INSTRUMENT_TYPE = "ForexForward";
+
+    /** Number of trades summed between two compressions of the point sensitivities. */
+    private static final int CLEAN_INTERVAL = 64;
+
+    private static final PresentValueCurveSensitivityForexForwardPointsCalculator PVCSFFPC =
+            PresentValueCurveSensitivityForexForwardPointsCalculator.getInstance();
+    private static final ParameterSensitivityParameterCalculator<MulticurveForwardPointsProviderInterface> PSC =
+            new ParameterSensitivityParameterCalculator<>(PVCSFFPC);
+
+    private final ForkJoinPool pool;
+    private final PricingMetrics metrics;
+
+    /**
+     * Runs on the {@link ParallelRange#sharedPool() shared pool}.
+     */
+    public ForexForwardSensitivityCalculator() {
+        this(ParallelRange.sharedPool());
+    }
+
+    public ForexForwardSensitivityCalculator(final ForkJoinPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * @param pool the fork-join pool, not null
+     * @param metrics the metrics recorded, null to record none
+     */
+    public ForexForwardSensitivityCalculator(final ForkJoinPool pool, final PricingMetrics metrics) {
+        ArgumentChecker.notNull(pool, "pool");
+        this.pool = pool;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param forwards the FX forwards, not null
+     * @param multicurves the discounting curves and forward points, not null
+     * @return the sum of the trades' point sensitivities to the discounting curves
+     */
+    public MultipleCurrencyMulticurveSensitivity pointSensitivity(final List<Forex> forwards,
+                                                                  final MulticurveForwardPointsProviderInterface multicurves) {
+        ArgumentChecker.noNulls(forwards, "forwards");
+        ArgumentChecker.notNull(multicurves, "multicurves");
+        final Forex[] trades = forwards.toArray(new Forex[forwards.size()]);
+        final MultipleCurrencyMulticurveSensitivity[] sensitivities = new MultipleCurrencyMulticurveSensitivity[trades.length];
+        final ParallelRange.Body body = new ParallelRange.Body() {
+            @Override
+            public void run(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    sensitivities[i] = trades[i].accept(PVCSFFPC, multicurves);
+                }
+            }
+        };
+        final long start = System.nanoTime();
+        ParallelRange.run(pool, trades.length, ParallelRange.defaultGrain(pool, trades.length), body);
+        if (metrics != null) {
+            metrics.timer(INSTRUMENT_TYPE, PricingMetrics.SENSITIVITIES).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            metrics.histogram(INSTRUMENT_TYPE, "batchSize").update(trades.length);
+            metrics.meter(INSTRUMENT_TYPE, "priced").mark(trades.length);
+        }
+        // Summed in trade order, so the result does not depend on the scheduling.
+        MultipleCurrencyMulticurveSensitivity total = new MultipleCurrencyMulticurveSensitivity();
+        for (int i = 0; i < sensitivities.length; i++) {
+            total = total.plus(sensitivities[i]);
+            if ((i + 1) % CLEAN_INTERVAL == 0) {
+                total = total.cleaned();
+            }
+        }
+        return total.cleaned();
+    }
+
+    /**
+     * @param forwards the FX forwards, not null
+     * @param multicurves the discounting curves and forward points, not null
+     * @param curves the names of the curves to which the sensitivities are computed, not null
+     * @return the sensitivities of the portfolio present value to the curve parameters
+     */
+    public MultipleCurrencyParameterSensitivity parameterSensitivity(final List<Forex> forwards,
+                                                                     final MulticurveForwardPointsProviderInterface multicurves,
+                                                                     final Set<String> curves) {
+        ArgumentChecker.notNull(curves, "curves");
+        return PSC.pointToParameterSensitivity(pointSensitivity(forwards, multicurves), multicurves, curves);
+    }
+
+    /**
+     * Sensitivities to all the discounting curves of the provider.
+     * @param forwards the FX forwards, not null
+     * @param multicurves the discounting curves and forward points, not null
+     * @return the sensitivities of the portfolio present value to the curve parameters
+     */
+    public MultipleCurrencyParameterSensitivity parameterSensitivity(final List<Forex> forwards,
+                                                                     final MulticurveForwardPointsProviderInterface multicurves) {
+        ArgumentChecker.notNull(multicurves, "multicurves");
+        return parameterSensitivity(forwards, multicurves, multicurves.getMulticurveProvider().getAllNames());
+    }
+}
@@ -0,0 +1,165 @@
+package ch.sc.opengamma.future;
+
+import com.opengamma.analytics.financial.commodity.derivative.CommodityFuture;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Futures positions in columns: unit amount times quantity, reference price and underlying index, one entry per position.
+ * Underlyings are numbered in order of first appearance; each underlying is quoted in a single currency, and the prices
+ * passed to {@link FuturesMarkToMarketEngine} are indexed by underlying.
+ * Positions are appended; the book is not thread safe while being filled.
+ */
+public class FuturesBook {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> underlyingIndex = new HashMap<>();
+    private final List<String> underlyings = new ArrayList<>();
+    private final List<Currency> currencies = new ArrayList<>();
+    private int[] underlyingCurrency = new int[INITIAL_CAPACITY];
+
+    private double[] unitAmount = new double[INITIAL_CAPACITY];
+    private double[] referencePrice = new double[INITIAL_CAPACITY];
+    private int[] underlying = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param underlyingId the identifier of the price the future is marked against, not null
+     * @param currency the currency of the future, not null
+     * @param unitAmount the unit amount times the number of contracts
+     * @param referencePrice the trade or last margin price
+     * @return the index of the position
+     */
+    public int add(final String underlyingId, final Currency currency, final double unitAmount, final double referencePrice) {
+        final int index = underlyingIndex(underlyingId, currency);
+        if (size == this.unitAmount.length) {
+            this.unitAmount = Arrays.copyOf(this.unitAmount, 2 * size);
+            this.referencePrice = Arrays.copyOf(this.referencePrice, 2 * size);
+            underlying = Arrays.copyOf(underlying, 2 * size);
+        }
+        this.unitAmount[size] = unitAmount;
+        this.referencePrice[size] = referencePrice;
+        underlying[size] = index;
+        return size++;
+    }
+
+    /**
+     * Adds an equity, index or dividend future; those carry no identifier of their underlying.
+     */
+    public int add(final String underlyingId, final EquityFuture future, final double quantity) {
+        ArgumentChecker.notNull(future, "future");
+        return add(underlyingId, future.getCurrency(), quantity * future.getUnitAmount(), future.getReferencePrice());
+    }
+
+    /**
+     * Adds a commodity future, marked against the price of its underlying.
+     */
+    public int add(final CommodityFuture future, final double quantity) {
+        ArgumentChecker.notNull(future, "future");
+        return add(future.getUnderlying().toString(), future.getCurrency(), quantity * future.getUnitAmount(), future.getReferencePrice());
+    }
+
+    private int underlyingIndex(final String underlyingId, final Currency currency) {
+        ArgumentChecker.notNull(underlyingId, "underlyingId");
+        ArgumentChecker.notNull(currency, "currency");
+        final Integer existing = underlyingIndex.get(underlyingId);
+        if (existing != null) {
+            ArgumentChecker.isTrue(currencies.get(underlyingCurrency[existing]).equals(currency),
+                    "underlying {} is quoted in {}, not {}", underlyingId, currencies.get(underlyingCurrency[existing]), currency);
+            return existing;
+        }
+        int currencyIndex = currencies.indexOf(currency);
+        if (currencyIndex < 0) {
+            currencyIndex = currencies.size();
+            currencies.add(currency);
+        }
+        final int index = underlyings.size();
+        if (index == underlyingCurrency.length) {
+            underlyingCurrency = Arrays.copyOf(underlyingCurrency, 2 * index);
+        }
+        underlyingCurrency[index] = currencyIndex;
+        underlyings.add(underlyingId);
+        underlyingIndex.put(underlyingId, index);
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getNumberOfUnderlyings() {
+        return underlyings.size();
+    }
+
+    /**
+     * @return the index of the underlying in the price vector, -1 if no position references it
+     */
+    public int getUnderlyingIndex(final String underlyingId) {
+        final Integer index = underlyingIndex.get(underlyingId);
+        return index == null ? -1 : index;
+    }
+
+    public String getUnderlyingId(final int underlying) {
+        return underlyings.get(underlying);
+    }
+
+    public int getNumberOfCurrencies() {
+        return currencies.size();
+    }
+
+    public Currency getCurrency(final int currency) {
+        return currencies.get(currency);
+    }
+
+    /**
+     * @return the index of the currency the underlying is quoted in
+     */
+    public int getUnderlyingCurrency(final int underlying) {
+        return underlyingCurrency[underlying];
+    }
+
+    public double getUnitAmount(final int position) {
+        return unitAmount[position];
+    }
+
+    public double getReferencePrice(final int position) {
+        return referencePrice[position];
+    }
+
+    public int getUnderlying(final int position) {
+        return underlying[position];
+    }
+
+    /**
+     * Moves the reference price of every position to the price of its underlying, as after a daily margin call.
+     * @param prices the price of each underlying
+     */
+    public void resetReferencePrices(final double[] prices) {
+        ArgumentChecker.notNull(prices, "prices");
+        ArgumentChecker.isTrue(prices.length >= getNumberOfUnderlyings(), "one price per underlying");
+        for (int i = 0; i < size; i++) {
+            referencePrice[i] = prices[underlying[i]];
+        }
+    }
+
+    // Column access for the engine; the arrays may be longer than the book.
+    double[] unitAmounts() {
+        return unitAmount;
+    }
+
+    double[] referencePrices() {
+        return referencePrice;
+    }
+
+    int[] underlyings() {
+        return underlying;
+    }
+}
@@ -0,0 +1,69 @@
+package ch.sc.opengamma.future;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.CurrencyAmount;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+
+/**
+ * Present values of a {@link FuturesBook}: one per position, summed by underlying and by currency, in preallocated
+ * primitive arrays. Underlying and currency totals are in the currency of the underlying, indexed as in the book.
+ * A result can be reused across runs on the same book.
+ */
+public class FuturesMarkToMarketResult {
+
+    private final FuturesBook book;
+    private final double[] presentValues;
+    private final double[] underlyingTotals;
+    private final double[] currencyTotals;
+
+    public FuturesMarkToMarketResult(final FuturesBook book) {
+        ArgumentChecker.notNull(book, "book");
+        this.book = book;
+        presentValues = new double[book.size()];
+        underlyingTotals = new double[book.getNumberOfUnderlyings()];
+        currencyTotals = new double[book.getNumberOfCurrencies()];
+    }
+
+    public FuturesBook getBook() {
+        return book;
+    }
+
+    /**
+     * @return true if the result was sized for the book as it is now
+     */
+    public boolean matches(final FuturesBook book) {
+        return this.book == book && presentValues.length == book.size() && underlyingTotals.length == book.getNumberOfUnderlyings()
+                && currencyTotals.length == book.getNumberOfCurrencies();
+    }
+
+    public double[] getPresentValues() {
+        return presentValues;
+    }
+
+    public double[] getUnderlyingTotals() {
+        return underlyingTotals;
+    }
+
+    public double[] getCurrencyTotals() {
+        return currencyTotals;
+    }
+
+    public double getPresentValue(final int position) {
+        return presentValues[position];
+    }
+
+    public double getUnderlyingTotal(final int underlying) {
+        return underlyingTotals[underlying];
+    }
+
+    /**
+     * @return the total present value in each currency of the book
+     */
+    public MultipleCurrencyAmount getTotal() {
+        MultipleCurrencyAmount total = MultipleCurrencyAmount.of(new CurrencyAmount[0]);
+        for (int c = 0; c < currencyTotals.length; c++) {
+            total = total.plus(book.getCurrency(c), currencyTotals[c]);
+        }
+        return total;
+    }
+}
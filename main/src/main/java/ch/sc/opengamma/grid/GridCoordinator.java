@@ -0,0 +1,432 @@
+package ch.sc.opengamma.grid;
+
+import ch.sc.opengamma.grid.GridPortfolio.Partition;
+import ch.sc.opengamma.wire.FudgeResultCodec;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyMulticurveSensitivity;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.CurrencyAmount;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distributes the pricing of a {@link GridPortfolio} across {@link GridWorker} processes connected over loopback
+ * sockets, and merges their present values and sensitivities.
+ * Workers pull partitions one at a time, so that faster workers take more of them. Once no partition is left to
+ * dispatch, an idle worker steals a partition still running on another worker and runs it again; the first result
+ * wins, so that a straggler does not hold up the job. A worker that disconnects has its partition dispatched again.
+ * Partitions failing to price fail the job, as does a job not done within its timeout; the workers still busy with it
+ * are then disconnected, so that a hung worker does not hold up the next job.
+ */
+public class GridCoordinator {
+
+    /** The time a job may take by default, in milliseconds. */
+    public static final long DEFAULT_JOB_TIMEOUT_MILLIS = 600000;
+
+    private final ServerSocket server;
+    private final Thread acceptor;
+    private final List<WorkerLink> workers = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong jobIds = new AtomicLong();
+    private final long jobTimeoutMillis;
+    private volatile boolean closed;
+
+    /**
+     * @param port the local port workers connect to, 0 for any free port
+     */
+    public GridCoordinator(final int port) {
+        this(port, DEFAULT_JOB_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param port the local port workers connect to, 0 for any free port
+     * @param jobTimeoutMillis the time a job may take, in milliseconds, strictly positive
+     */
+    public GridCoordinator(final int port, final long jobTimeoutMillis) {
+        ArgumentChecker.isTrue(jobTimeoutMillis > 0, "jobTimeoutMillis must be positive");
+        this.jobTimeoutMillis = jobTimeoutMillis;
+        try {
+            server = new ServerSocket();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        } catch (final IOException e) {
+            throw new OpenGammaRuntimeException("Could not bind grid coordinator to port " + port, e);
+        }
+        acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "grid-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getNumberOfWorkers() {
+        return workers.size();
+    }
+
+    /**
+     * Waits for workers to connect.
+     * @param nbWorkers the number of workers to wait for
+     * @param timeoutMillis the maximum wait, in milliseconds
+     * @throws OpenGammaRuntimeException if fewer workers are connected at the end of the wait
+     */
+    public void awaitWorkers(final int nbWorkers, final long timeoutMillis) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (workers) {
+            while (workers.size() < nbWorkers) {
+                final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    throw new OpenGammaRuntimeException(workers.size() + " grid workers connected, expected " + nbWorkers);
+                }
+                try {
+                    workers.wait(remaining);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OpenGammaRuntimeException("Interrupted waiting for grid workers", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prices a portfolio on the connected workers.
+     * @param portfolio the portfolio, not null
+     * @param marketData the market data, not null
+     * @param partitionsPerWorker the target number of partitions per worker, strictly positive; more partitions balance
+     * the load better at the cost of more round trips
+     * @return the merged results
+     * @throws OpenGammaRuntimeException if a partition fails to price, no worker is left, or the job times out
+     */
+    public GridResult run(final GridPortfolio portfolio, final GridMarketData marketData, final int partitionsPerWorker) {
+        ArgumentChecker.notNull(portfolio, "portfolio");
+        ArgumentChecker.notNull(marketData, "marketData");
+        ArgumentChecker.isTrue(partitionsPerWorker > 0, "partitionsPerWorker must be positive");
+        ArgumentChecker.isTrue(!workers.isEmpty(), "no grid worker connected");
+        final List<Partition> partitions = portfolio.partition(partitionsPerWorker * workers.size());
+        final Job job = new Job(jobIds.incrementAndGet(), partitions, marketData.toByteArray());
+        for (final WorkerLink worker : workers) {
+            job.serving();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    worker.serve(job);
+                }
+            });
+        }
+        try {
+            job.await(jobTimeoutMillis);
+        } finally {
+            if (job.timedOut) {
+                for (final WorkerLink worker : workers) {
+                    worker.abandon(job);
+                }
+            }
+        }
+        final Map<String, MultipleCurrencyAmount> values = new LinkedHashMap<>();
+        MultipleCurrencyAmount total = MultipleCurrencyAmount.of(new CurrencyAmount[0]);
+        MultipleCurrencyMulticurveSensitivity sensitivity = new MultipleCurrencyMulticurveSensitivity();
+        for (int i = 0; i < partitions.size(); i++) {
+            final String[] tradeIds = partitions.get(i).getTradeIds();
+            final MultipleCurrencyAmount[] amounts = job.values[i];
+            ArgumentChecker.isTrue(amounts.length == tradeIds.length, "partition {} returned {} values for {} trades", i, amounts.length,
+                    tradeIds.length);
+            for (int j = 0; j < tradeIds.length; j++) {
+                values.put(tradeIds[j], amounts[j]);
+                total = total.plus(amounts[j]);
+            }
+            sensitivity = sensitivity.plus(job.sensitivities[i]);
+        }
+        return new GridResult(values, total, sensitivity.cleaned(), partitions.size(), job.nbStolen);
+    }
+
+    /**
+     * Shuts the connected workers down and stops accepting new ones.
+     */
+    public void close() {
+        closed = true;
+        try {
+            server.close();
+        } catch (final IOException e) {
+            // the acceptor stops either way
+        }
+        for (final WorkerLink worker : workers) {
+            worker.shutdown();
+        }
+        executor.shutdown();
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                final Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                synchronized (workers) {
+                    workers.add(new WorkerLink(socket));
+                    workers.notifyAll();
+                }
+            } catch (final IOException e) {
+                if (closed) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Connection to one worker. Serves one job at a time; a job starting while the worker is still busy with a partition
+     * of the previous job waits for it.
+     */
+    private final class WorkerLink {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final Object writeLock = new Object();
+        private volatile Job current;
+
+        private WorkerLink(final Socket socket) throws IOException {
+            this.socket = socket;
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private synchronized void serve(final Job job) {
+            Task task = null;
+            current = job;
+            try {
+                write(GridProtocol.MARKET_DATA, job.id, job.marketData);
+                while ((task = job.next()) != null) {
+                    write(GridProtocol.TASK, task.index, task.partition.getTrades());
+                    final GridProtocol.Frame frame = GridProtocol.read(in);
+                    if (frame.getType() == GridProtocol.RESULT && frame.getId() == task.index) {
+                        job.complete(task, FudgeResultCodec.decodeAmounts(frame.getPart(0)), FudgeResultCodec.decodeSensitivity(frame.getPart(1)));
+                    } else if (frame.getType() == GridProtocol.FAILURE) {
+                        job.fail("Partition " + task.index + " failed on a grid worker: " + new String(frame.getPart(0), StandardCharsets.UTF_8));
+                    } else {
+                        throw new IOException("Unexpected frame type " + frame.getType());
+                    }
+                    task = null;
+                }
+                job.stopServing();
+            } catch (final IOException | RuntimeException e) {
+                workers.remove(this);
+                closeQuietly();
+                job.lost(task);
+            } finally {
+                current = null;
+            }
+        }
+
+        /**
+         * Disconnects the worker if it is still busy with a job, so that its serving thread fails the partition.
+         */
+        private void abandon(final Job job) {
+            if (current == job) {
+                workers.remove(this);
+                closeQuietly();
+            }
+        }
+
+        private void shutdown() {
+            // Not synchronized on the link: a worker still running a stolen partition is not waited for.
+            try {
+                write(GridProtocol.SHUTDOWN, 0);
+            } catch (final IOException e) {
+                // the worker is gone already
+            }
+            closeQuietly();
+        }
+
+        /**
+         * Writes a frame whole, so that a shutdown never interleaves with a frame of the serving thread.
+         */
+        private void write(final int type, final long id, final byte[]... parts) throws IOException {
+            synchronized (writeLock) {
+                GridProtocol.write(out, type, id, parts);
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                // nothing left to release
+            }
+        }
+    }
+
+    private static final class Task {
+        private final int index;
+        private final Partition partition;
+        private int nbRunning;
+
+        private Task(final int index, final Partition partition) {
+            this.index = index;
+            this.partition = partition;
+        }
+    }
+
+    /**
+     * Dispatch state of one portfolio run, shared by the worker links.
+     */
+    private static final class Job {
+        private final long id;
+        private final byte[] marketData;
+        private final Deque<Task> pending = new ArrayDeque<>();
+        private final Deque<Task> running = new ArrayDeque<>();
+        private final MultipleCurrencyAmount[][] values;
+        private final MultipleCurrencyMulticurveSensitivity[] sensitivities;
+        private int nbRemaining;
+        private int nbServing;
+        private int nbStolen;
+        private String failure;
+        private boolean timedOut;
+
+        private Job(final long id, final List<Partition> partitions, final byte[] marketData) {
+            this.id = id;
+            this.marketData = marketData;
+            values = new MultipleCurrencyAmount[partitions.size()][];
+            sensitivities = new MultipleCurrencyMulticurveSensitivity[partitions.size()];
+            for (int i = 0; i < partitions.size(); i++) {
+                pending.add(new Task(i, partitions.get(i)));
+            }
+            nbRemaining = partitions.size();
+        }
+
+        private synchronized void serving() {
+            nbServing++;
+        }
+
+        private synchronized void stopServing() {
+            nbServing--;
+            notifyAll();
+        }
+
+        /**
+         * @return the next partition to run, a running partition to steal once none is pending, or null once the job is
+         * over
+         */
+        private synchronized Task next() {
+            while (nbRemaining > 0 && failure == null) {
+                Task task = pending.poll();
+                if (task != null) {
+                    running.add(task);
+                } else {
+                    task = steal();
+                }
+                if (task != null) {
+                    task.nbRunning++;
+                    return task;
+                }
+                try {
+                    wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = "Interrupted";
+                }
+            }
+            return null;
+        }
+
+        // The longest running partition not already run twice.
+        private Task steal() {
+            for (final Task task : running) {
+                if (task.nbRunning == 1 && values[task.index] == null) {
+                    nbStolen++;
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        private synchronized void complete(final Task task, final MultipleCurrencyAmount[] amounts, final MultipleCurrencyMulticurveSensitivity sensitivity) {
+            done(task);
+            if (values[task.index] == null) {
+                values[task.index] = amounts;
+                sensitivities[task.index] = sensitivity;
+                nbRemaining--;
+            }
+            notifyAll();
+        }
+
+        private synchronized void fail(final String message) {
+            if (failure == null) {
+                failure = message;
+            }
+            notifyAll();
+        }
+
+        /**
+         * Puts the partition of a lost worker back in the queue, unless another worker completed it or still runs it.
+         */
+        private synchronized void lost(final Task task) {
+            nbServing--;
+            if (task != null) {
+                done(task);
+                if (values[task.index] == null && task.nbRunning == 0) {
+                    pending.addFirst(task);
+                }
+            }
+            notifyAll();
+        }
+
+        private void done(final Task task) {
+            task.nbRunning--;
+            if (task.nbRunning == 0) {
+                running.remove(task);
+            }
+        }
+
+        private synchronized void await(final long timeoutMillis) {
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            boolean interrupted = false;
+            while (nbRemaining > 0 && failure == null && nbServing > 0) {
+                final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    timedOut = true;
+                    failure = "Timed out after " + timeoutMillis + " ms, " + nbRemaining + " partitions not priced";
+                    notifyAll();
+                    break;
+                }
+                try {
+                    wait(remaining);
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw new OpenGammaRuntimeException(failure);
+            }
+            if (nbRemaining > 0) {
+                throw new OpenGammaRuntimeException("No grid worker left, " + nbRemaining + " partitions not priced");
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package ch.sc.opengamma.grid;
+
+import ch.sc.opengamma.marketdata.MarketDataSnapshot;
+import ch.sc.opengamma.marketdata.MarketDataSnapshotWriter;
+import ch.sc.opengamma.server.PricingMarketData;
+import ch.sc.opengamma.wire.FudgeMarketDataCodec;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveForwardPointsProviderDiscount;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Market data shipped to the grid workers: a snapshot encoded by {@link FudgeMarketDataCodec}, with the names of the
+ * curves and surface each worker assembles into its {@link PricingMarketData}, in one Fudge message.
+ * Barrier options carry no currency; their values are reported in the equity currency. FX forwards of the currency
+ * pair of the forward rate curve, when there is one, are priced on it.
+ */
+public class GridMarketData {
+
+    private static final FudgeContext CONTEXT = FudgeContext.GLOBAL_DEFAULT;
+    private static final String SNAPSHOT = "snapshot";
+    private static final String REFERENCE_DATE = "referenceDate";
+    private static final String DISCOUNTING_CURVE = "discountingCurve";
+    private static final String ISSUER_CURVE = "issuerCurve";
+    private static final String ISSUER = "issuer";
+    private static final String CURRENCY = "currency";
+    private static final String CURVE = "curve";
+    private static final String VOLATILITY_SURFACE = "volatilitySurface";
+    private static final String EQUITY_DISCOUNT_CURVE = "equityDiscountCurve";
+    private static final String EQUITY_FORWARD_CURVE = "equityForwardCurve";
+    private static final String EQUITY_CURRENCY = "equityCurrency";
+    private static final String FORWARD_POINTS_CURVE = "forwardPointsCurve";
+    private static final String FORWARD_POINTS_CURRENCY_1 = "forwardPointsCurrency1";
+    private static final String FORWARD_POINTS_CURRENCY_2 = "forwardPointsCurrency2";
+
+    private final byte[] snapshot;
+    private final ZonedDateTime referenceDate;
+    private final Map<Currency, String> discountingCurves;
+    private final Map<Pair<String, Currency>, String> issuerCurves;
+    private final String volatilitySurface;
+    private final String equityDiscountCurve;
+    private final String equityForwardCurve;
+    private final Currency equityCurrency;
+    private final String forwardPointsCurve;
+    private final Pair<Currency, Currency> forwardPointsPair;
+
+    /**
+     * @param snapshot the curves, FX rates and surfaces, not null
+     * @param referenceDate the valuation date, not null
+     * @param discountingCurves the name of the discounting curve by currency, not null
+     * @param issuerCurves the name of the issuer curve by issuer and currency, not null
+     * @param volatilitySurface the name of the equity volatility surface, not null
+     * @param equityDiscountCurve the name of the equity discounting curve, not null
+     * @param equityForwardCurve the name of the curve of forwards of the equity underlying, not null
+     * @param equityCurrency the currency of the equity underlying, not null
+     */
+    public GridMarketData(final MarketDataSnapshotWriter snapshot, final ZonedDateTime referenceDate, final Map<Currency, String> discountingCurves,
+                          final Map<Pair<String, Currency>, String> issuerCurves, final String volatilitySurface, final String equityDiscountCurve,
+                          final String equityForwardCurve, final Currency equityCurrency) {
+        this(snapshot, referenceDate, discountingCurves, issuerCurves, volatilitySurface, equityDiscountCurve, equityForwardCurve, equityCurrency,
+                null, null);
+    }
+
+    /**
+     * @param snapshot the curves, FX rates and surfaces, not null
+     * @param referenceDate the valuation date, not null
+     * @param discountingCurves the name of the discounting curve by currency, not null
+     * @param issuerCurves the name of the issuer curve by issuer and currency, not null
+     * @param volatilitySurface the name of the equity volatility surface, not null
+     * @param equityDiscountCurve the name of the equity discounting curve, not null
+     * @param equityForwardCurve the name of the curve of forwards of the equity underlying, not null
+     * @param equityCurrency the currency of the equity underlying, not null
+     * @param forwardPointsCurve the name of the curve of FX forward rates, null for none
+     * @param forwardPointsPair the currency pair of the FX forward rates, not null if there is a curve of them
+     */
+    public GridMarketData(final MarketDataSnapshotWriter snapshot, final ZonedDateTime referenceDate, final Map<Currency, String> discountingCurves,
+                          final Map<Pair<String, Currency>, String> issuerCurves, final String volatilitySurface, final String equityDiscountCurve,
+                          final String equityForwardCurve, final Currency equityCurrency, final String forwardPointsCurve,
+                          final Pair<Currency, Currency> forwardPointsPair) {
+        this(FudgeMarketDataCodec.encode(snapshot), referenceDate, discountingCurves, issuerCurves, volatilitySurface,
+                equityDiscountCurve, equityForwardCurve, equityCurrency, forwardPointsCurve, forwardPointsPair);
+    }
+
+    private GridMarketData(final byte[] snapshot, final ZonedDateTime referenceDate, final Map<Currency, String> discountingCurves,
+                           final Map<Pair<String, Currency>, String> issuerCurves, final String volatilitySurface, final String equityDiscountCurve,
+                           final String equityForwardCurve, final Currency equityCurrency, final String forwardPointsCurve,
+                           final Pair<Currency, Currency> forwardPointsPair) {
+        ArgumentChecker.notNull(referenceDate, "referenceDate");
+        ArgumentChecker.notNull(discountingCurves, "discountingCurves");
+        ArgumentChecker.notNull(issuerCurves, "issuerCurves");
+        ArgumentChecker.notNull(volatilitySurface, "volatilitySurface");
+        ArgumentChecker.notNull(equityDiscountCurve, "equityDiscountCurve");
+        ArgumentChecker.notNull(equityForwardCurve, "equityForwardCurve");
+        ArgumentChecker.notNull(equityCurrency, "equityCurrency");
+        ArgumentChecker.isTrue(forwardPointsCurve == null || forwardPointsPair != null, "no currency pair for forward points curve {}",
+                forwardPointsCurve);
+        this.snapshot = snapshot;
+        this.referenceDate = referenceDate;
+        this.discountingCurves = Collections.unmodifiableMap(new LinkedHashMap<>(discountingCurves));
+        this.issuerCurves = Collections.unmodifiableMap(new LinkedHashMap<>(issuerCurves));
+        this.volatilitySurface = volatilitySurface;
+        this.equityDiscountCurve = equityDiscountCurve;
+        this.equityForwardCurve = equityForwardCurve;
+        this.equityCurrency = equityCurrency;
+        this.forwardPointsCurve = forwardPointsCurve;
+        this.forwardPointsPair = forwardPointsCurve == null ? null : forwardPointsPair;
+    }
+
+    /**
+     * Builds the market data from the snapshot, which is read in place.
+     * @return the market data
+     */
+    public PricingMarketData toPricingMarketData() {
+        final MarketDataSnapshot data = FudgeMarketDataCodec.decode(snapshot);
+        final IssuerProviderDiscount rates = data.getIssuerProvider(discountingCurves, issuerCurves);
+        final MulticurveForwardPointsProviderDiscount forwardPoints = forwardPointsCurve == null ? null
+                : new MulticurveForwardPointsProviderDiscount(rates.getMulticurveProvider(), data.getCurve(forwardPointsCurve), forwardPointsPair);
+        return new PricingMarketData(null, referenceDate, rates, forwardPoints,
+                data.getStaticReplicationData(volatilitySurface, equityDiscountCurve, equityForwardCurve), equityCurrency);
+    }
+
+    /**
+     * @return the encoded market data, read by {@link #fromByteArray(byte[])}
+     */
+    public byte[] toByteArray() {
+        final MutableFudgeMsg message = CONTEXT.newMessage();
+        message.add(SNAPSHOT, snapshot);
+        message.add(REFERENCE_DATE, (int) referenceDate.toLocalDate().toEpochDay());
+        for (final Map.Entry<Currency, String> entry : discountingCurves.entrySet()) {
+            final MutableFudgeMsg curve = CONTEXT.newMessage();
+            curve.add(CURRENCY, entry.getKey().getCode());
+            curve.add(CURVE, entry.getValue());
+            message.add(DISCOUNTING_CURVE, curve);
+        }
+        for (final Map.Entry<Pair<String, Currency>, String> entry : issuerCurves.entrySet()) {
+            final MutableFudgeMsg curve = CONTEXT.newMessage();
+            curve.add(ISSUER, entry.getKey().getFirst());
+            curve.add(CURRENCY, entry.getKey().getSecond().getCode());
+            curve.add(CURVE, entry.getValue());
+            message.add(ISSUER_CURVE, curve);
+        }
+        message.add(VOLATILITY_SURFACE, volatilitySurface);
+        message.add(EQUITY_DISCOUNT_CURVE, equityDiscountCurve);
+        message.add(EQUITY_FORWARD_CURVE, equityForwardCurve);
+        message.add(EQUITY_CURRENCY, equityCurrency.getCode());
+        if (forwardPointsCurve != null) {
+            message.add(FORWARD_POINTS_CURVE, forwardPointsCurve);
+            message.add(FORWARD_POINTS_CURRENCY_1, forwardPointsPair.getFirst().getCode());
+            message.add(FORWARD_POINTS_CURRENCY_2, forwardPointsPair.getSecond().getCode());
+        }
+        return CONTEXT.toByteArray(message);
+    }
+
+    /**
+     * @param bytes the market data, as encoded by {@link #toByteArray()}, not null
+     * @return the market data
+     */
+    public static GridMarketData fromByteArray(final byte[] bytes) {
+        ArgumentChecker.notNull(bytes, "bytes");
+        final FudgeMsg message = CONTEXT.deserialize(bytes).getMessage();
+        final byte[] snapshot = message.getValue(byte[].class, SNAPSHOT);
+        ArgumentChecker.isTrue(snapshot != null, "missing field {}", SNAPSHOT);
+        final LocalDate date = LocalDate.ofEpochDay(required(message.getInt(REFERENCE_DATE), REFERENCE_DATE));
+        final ZonedDateTime referenceDate = DateUtils.getUTCDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+        final Map<Currency, String> discountingCurves = new LinkedHashMap<>();
+        for (final FudgeField field : message.getAllByName(DISCOUNTING_CURVE)) {
+            final FudgeMsg curve = (FudgeMsg) field.getValue();
+            discountingCurves.put(Currency.of(string(curve, CURRENCY)), string(curve, CURVE));
+        }
+        final Map<Pair<String, Currency>, String> issuerCurves = new LinkedHashMap<>();
+        for (final FudgeField field : message.getAllByName(ISSUER_CURVE)) {
+            final FudgeMsg curve = (FudgeMsg) field.getValue();
+            issuerCurves.put(new ObjectsPair<>(string(curve, ISSUER), Currency.of(string(curve, CURRENCY))), string(curve, CURVE));
+        }
+        final String forwardPointsCurve = message.getString(FORWARD_POINTS_CURVE);
+        final Pair<Currency, Currency> forwardPointsPair = forwardPointsCurve == null ? null
+                : new ObjectsPair<>(Currency.of(string(message, FORWARD_POINTS_CURRENCY_1)), Currency.of(string(message, FORWARD_POINTS_CURRENCY_2)));
+        return new GridMarketData(snapshot, referenceDate, discountingCurves, issuerCurves, string(message, VOLATILITY_SURFACE),
+                string(message, EQUITY_DISCOUNT_CURVE), string(message, EQUITY_FORWARD_CURVE), Currency.of(string(message, EQUITY_CURRENCY)),
+                forwardPointsCurve, forwardPointsPair);
+    }
+
+    private static String string(final FudgeMsg message, final String name) {
+        return required(message.getString(name), name);
+    }
+
+    private static <T> T required(final T value, final String name) {
+        ArgumentChecker.isTrue(value != null, "missing field {}", name);
+        return value;
+    }
+}
@@ -0,0 +1,203 @@
+package ch.sc.opengamma.grid;
+
+import ch.sc.opengamma.loader.CsvTradeParser.TradeType;
+import ch.sc.opengamma.loader.TradeHandler;
+import ch.sc.opengamma.wire.FudgeTradeWriter;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Portfolio distributed by a {@link GridCoordinator}, filled as a {@link TradeHandler}, for instance by a
+ * {@link ch.sc.opengamma.loader.StreamingTradeLoader}. It is split into partitions of a single instrument type and of
+ * similar estimated cost: a bond costs one unit per coupon, an FX forward one unit, an option two and a future half a
+ * unit. Thread-safe.
+ */
+public class GridPortfolio implements TradeHandler {
+
+    private final Map<TradeType, List<Entry>> trades = new EnumMap<>(TradeType.class);
+
+    @Override
+    public synchronized void bond(final String tradeId, final BondFixedSecurityDefinition bond, final double quantity) {
+        add(TradeType.BOND, new Entry(tradeId, 1 + bond.getCoupons().getNumberOfPayments()) {
+            @Override
+            void writeTo(final TradeHandler handler) {
+                handler.bond(tradeId, bond, quantity);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void forexForward(final String tradeId, final ForexDefinition forward) {
+        add(TradeType.FX_FORWARD, new Entry(tradeId, 1) {
+            @Override
+            void writeTo(final TradeHandler handler) {
+                handler.forexForward(tradeId, forward);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void equityOption(final String tradeId, final EquityOption option) {
+        add(TradeType.EQUITY_OPTION, new Entry(tradeId, 2) {
+            @Override
+            void writeTo(final TradeHandler handler) {
+                handler.equityOption(tradeId, option);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void equityFuture(final String tradeId, final EquityFuture future) {
+        add(TradeType.EQUITY_FUTURE, new Entry(tradeId, 0.5) {
+            @Override
+            void writeTo(final TradeHandler handler) {
+                handler.equityFuture(tradeId, future);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void barrierOption(final String tradeId, final EuropeanVanillaOption option, final Barrier barrier, final double rebate) {
+        add(TradeType.BARRIER_OPTION, new Entry(tradeId, 2) {
+            @Override
+            void writeTo(final TradeHandler handler) {
+                handler.barrierOption(tradeId, option, barrier, rebate);
+            }
+        });
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (final List<Entry> entries : trades.values()) {
+            size += entries.size();
+        }
+        return size;
+    }
+
+    /**
+     * Splits the portfolio. Each type is cut into consecutive runs of trades costing at most the total cost divided by
+     * the number of partitions, or a single trade if it costs more; the partitions are returned by decreasing cost,
+     * so that the most expensive ones are dispatched first.
+     * @param nbPartitions the target number of partitions, strictly positive
+     * @return the partitions
+     */
+    public synchronized List<Partition> partition(final int nbPartitions) {
+        ArgumentChecker.isTrue(nbPartitions > 0, "nbPartitions must be positive");
+        double totalCost = 0;
+        for (final List<Entry> entries : trades.values()) {
+            for (final Entry entry : entries) {
+                totalCost += entry.cost;
+            }
+        }
+        final double maxCost = totalCost / nbPartitions;
+        final List<Partition> partitions = new ArrayList<>();
+        for (final Map.Entry<TradeType, List<Entry>> type : trades.entrySet()) {
+            final List<Entry> entries = type.getValue();
+            int from = 0;
+            while (from < entries.size()) {
+                double cost = entries.get(from).cost;
+                int to = from + 1;
+                while (to < entries.size() && cost + entries.get(to).cost <= maxCost) {
+                    cost += entries.get(to++).cost;
+                }
+                partitions.add(partition(partitions.size(), type.getKey(), entries.subList(from, to), cost));
+                from = to;
+            }
+        }
+        Collections.sort(partitions, new Comparator<Partition>() {
+            @Override
+            public int compare(final Partition p1, final Partition p2) {
+                return Double.compare(p2.getCost(), p1.getCost());
+            }
+        });
+        return partitions;
+    }
+
+    private void add(final TradeType type, final Entry entry) {
+        List<Entry> entries = trades.get(type);
+        if (entries == null) {
+            entries = new ArrayList<>();
+            trades.put(type, entries);
+        }
+        entries.add(entry);
+    }
+
+    private static Partition partition(final int id, final TradeType type, final List<Entry> entries, final double cost) {
+        final FudgeTradeWriter writer = new FudgeTradeWriter();
+        final String[] tradeIds = new String[entries.size()];
+        for (int i = 0; i < tradeIds.length; i++) {
+            tradeIds[i] = entries.get(i).tradeId;
+            entries.get(i).writeTo(writer);
+        }
+        return new Partition(id, type, tradeIds, writer.toByteArray(), cost);
+    }
+
+    /**
+     * Trades of one type shipped to a worker as a Fudge batch.
+     */
+    public static final class Partition {
+        private final int id;
+        private final TradeType type;
+        private final String[] tradeIds;
+        private final byte[] trades;
+        private final double cost;
+
+        private Partition(final int id, final TradeType type, final String[] tradeIds, final byte[] trades, final double cost) {
+            this.id = id;
+            this.type = type;
+            this.tradeIds = tradeIds;
+            this.trades = trades;
+            this.cost = cost;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public TradeType getType() {
+            return type;
+        }
+
+        /**
+         * @return the ids of the trades, in the order of the batch
+         */
+        public String[] getTradeIds() {
+            return tradeIds.clone();
+        }
+
+        /**
+         * @return the batch, as written by {@link FudgeTradeWriter}
+         */
+        public byte[] getTrades() {
+            return trades;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+    }
+
+    private abstract static class Entry {
+        private final String tradeId;
+        private final double cost;
+
+        Entry(final String tradeId, final double cost) {
+            this.tradeId = tradeId;
+            this.cost = cost;
+        }
+
+        abstract void writeTo(TradeHandler handler);
+    }
+}
@@ -0,0 +1,73 @@
+package ch.sc.opengamma.grid;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Frames exchanged between the {@link GridCoordinator} and its {@link GridWorker}s over a socket: the frame type, an
+ * id and length-prefixed byte parts. The coordinator sends the market data of a job, then one task at a time, each
+ * answered by a result or a failure before the next task is sent.
+ */
+final class GridProtocol {
+
+    /** Coordinator to worker: the job id and the {@link GridMarketData}. */
+    static final int MARKET_DATA = 1;
+    /** Coordinator to worker: the task id and the Fudge trade batch. */
+    static final int TASK = 2;
+    /** Worker to coordinator: the task id, the Fudge amounts and the Fudge sensitivity. */
+    static final int RESULT = 3;
+    /** Worker to coordinator: the task id and the UTF-8 error message. */
+    static final int FAILURE = 4;
+    /** Coordinator to worker: stop. */
+    static final int SHUTDOWN = 5;
+
+    private GridProtocol() {
+    }
+
+    static void write(final DataOutputStream out, final int type, final long id, final byte[]... parts) throws IOException {
+        out.writeInt(type);
+        out.writeLong(id);
+        out.writeInt(parts.length);
+        for (final byte[] part : parts) {
+            out.writeInt(part.length);
+            out.write(part);
+        }
+        out.flush();
+    }
+
+    static Frame read(final DataInputStream in) throws IOException {
+        final int type = in.readInt();
+        final long id = in.readLong();
+        final byte[][] parts = new byte[in.readInt()][];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new byte[in.readInt()];
+            in.readFully(parts[i]);
+        }
+        return new Frame(type, id, parts);
+    }
+
+    static final class Frame {
+        private final int type;
+        private final long id;
+        private final byte[][] parts;
+
+        private Frame(final int type, final long id, final byte[][] parts) {
+            this.type = type;
+            this.id = id;
+            this.parts = parts;
+        }
+
+        int getType() {
+            return type;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        byte[] getPart(final int index) {
+            return parts[index];
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ch.sc.opengamma.grid;
+
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyMulticurveSensitivity;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Results of a portfolio priced by a {@link GridCoordinator}, merged from its partitions.
+ */
+public class GridResult {
+
+    private final Map<String, MultipleCurrencyAmount> values;
+    private final MultipleCurrencyAmount total;
+    private final MultipleCurrencyMulticurveSensitivity sensitivity;
+    private final int nbPartitions;
+    private final int nbStolen;
+
+    GridResult(final Map<String, MultipleCurrencyAmount> values, final MultipleCurrencyAmount total,
+               final MultipleCurrencyMulticurveSensitivity sensitivity, final int nbPartitions, final int nbStolen) {
+        this.values = Collections.unmodifiableMap(values);
+        this.total = total;
+        this.sensitivity = sensitivity;
+        this.nbPartitions = nbPartitions;
+        this.nbStolen = nbStolen;
+    }
+
+    /**
+     * @return the present value of every trade, by trade id
+     */
+    public Map<String, MultipleCurrencyAmount> getValues() {
+        return values;
+    }
+
+    /**
+     * @param tradeId the trade id, not null
+     * @return the present value of the trade
+     */
+    public MultipleCurrencyAmount getValue(final String tradeId) {
+        final MultipleCurrencyAmount value = values.get(tradeId);
+        ArgumentChecker.isTrue(value != null, "no trade {}", tradeId);
+        return value;
+    }
+
+    /**
+     * @return the present value of the portfolio, by currency
+     */
+    public MultipleCurrencyAmount getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the point sensitivity of the bonds and FX forwards of the portfolio to the discounting and issuer curves
+     */
+    public MultipleCurrencyMulticurveSensitivity getSensitivity() {
+        return sensitivity;
+    }
+
+    public int getNumberOfPartitions() {
+        return nbPartitions;
+    }
+
+    /**
+     * @return the number of partitions re-run by an idle worker while another was still running them
+     */
+    public int getNumberOfStolenPartitions() {
+        return nbStolen;
+    }
+}
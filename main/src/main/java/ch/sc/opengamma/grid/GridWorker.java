@@ -0,0 +1,91 @@
+package ch.sc.opengamma.grid;
+
+import ch.sc.opengamma.server.PricingMarketData;
+import ch.sc.opengamma.wire.FudgeResultCodec;
+import ch.sc.opengamma.wire.FudgeTradeReader;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.util.ArgumentChecker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Worker process of a {@link GridCoordinator}: connects to the coordinator, then prices the partitions it receives
+ * with a {@link PartitionPricer} until the coordinator shuts it down or disconnects. A partition that fails to price
+ * is reported to the coordinator, which fails the job.
+ */
+public class GridWorker {
+
+    private final FudgeTradeReader reader;
+
+    /**
+     * @param reader the decoder of the partitions, not null
+     */
+    public GridWorker(final FudgeTradeReader reader) {
+        ArgumentChecker.notNull(reader, "reader");
+        this.reader = reader;
+    }
+
+    /**
+     * Serves a coordinator until it shuts the worker down or disconnects.
+     * @param host the host of the coordinator, not null
+     * @param port the port of the coordinator
+     */
+    public void run(final String host, final int port) {
+        ArgumentChecker.notNull(host, "host");
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            serve(in, out);
+        } catch (final EOFException e) {
+            return;
+        } catch (final IOException e) {
+            throw new OpenGammaRuntimeException("Lost grid coordinator " + host + ":" + port, e);
+        }
+    }
+
+    private void serve(final DataInputStream in, final DataOutputStream out) throws IOException {
+        PricingMarketData marketData = null;
+        while (true) {
+            final GridProtocol.Frame frame = GridProtocol.read(in);
+            switch (frame.getType()) {
+                case GridProtocol.MARKET_DATA:
+                    marketData = GridMarketData.fromByteArray(frame.getPart(0)).toPricingMarketData();
+                    break;
+                case GridProtocol.TASK:
+                    try {
+                        ArgumentChecker.isTrue(marketData != null, "no market data before task {}", frame.getId());
+                        final PartitionPricer pricer = new PartitionPricer(marketData);
+                        reader.read(frame.getPart(0), pricer);
+                        final byte[] values = FudgeResultCodec.encodeAmounts(pricer.getValues());
+                        final byte[] sensitivity = FudgeResultCodec.encodeSensitivity(pricer.getSensitivity());
+                        GridProtocol.write(out, GridProtocol.RESULT, frame.getId(), values, sensitivity);
+                    } catch (final RuntimeException e) {
+                        GridProtocol.write(out, GridProtocol.FAILURE, frame.getId(), String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+                    }
+                    break;
+                case GridProtocol.SHUTDOWN:
+                    return;
+                default:
+                    throw new IOException("Unexpected frame type " + frame.getType());
+            }
+        }
+    }
+
+    /**
+     * Starts a worker settling bonds on a calendar without holidays, as the demonstration pricing server does.
+     * Arguments: the host and port of the coordinator.
+     */
+    public static void main(String[] arg) {
+        ArgumentChecker.isTrue(arg.length == 2, "usage: GridWorker host port");
+        new GridWorker(new FudgeTradeReader(new CalendarNoHoliday("A"))).run(arg[0], Integer.parseInt(arg[1]));
+    }
+}
@@ -0,0 +1,82 @@
+package ch.sc.opengamma.grid;
+
+import ch.sc.opengamma.loader.TradeHandler;
+import ch.sc.opengamma.server.PricingMarketData;
+import ch.sc.opengamma.server.TradePricing;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyMulticurveSensitivity;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prices the trades of a partition on a grid worker, in the order they are received, as a {@link TradeHandler} fed by a
+ * {@link ch.sc.opengamma.wire.FudgeTradeReader}, with the {@link TradePricing} of the pricing service. Present values
+ * are multi-currency amounts, barrier options in the equity currency of the market data; bonds and FX forwards also
+ * add their point sensitivities to the discounting and issuer curves to the partition total. Not thread-safe.
+ */
+public class PartitionPricer implements TradeHandler {
+
+    private final PricingMarketData marketData;
+    private final List<MultipleCurrencyAmount> values = new ArrayList<>();
+    private MultipleCurrencyMulticurveSensitivity sensitivity = new MultipleCurrencyMulticurveSensitivity();
+
+    /**
+     * @param marketData the market data, not null
+     */
+    public PartitionPricer(final PricingMarketData marketData) {
+        ArgumentChecker.notNull(marketData, "marketData");
+        this.marketData = marketData;
+    }
+
+    @Override
+    public void bond(final String tradeId, final BondFixedSecurityDefinition bond, final double quantity) {
+        final BondFixedSecurity derivative = bond.toDerivative(marketData.getReferenceDate());
+        values.add(TradePricing.bond(derivative, quantity, marketData));
+        sensitivity = sensitivity.plus(TradePricing.bondSensitivity(derivative, quantity, marketData));
+    }
+
+    @Override
+    public void forexForward(final String tradeId, final ForexDefinition forward) {
+        final Forex forex = forward.toDerivative(marketData.getReferenceDate());
+        values.add(TradePricing.forexForward(forex, marketData));
+        sensitivity = sensitivity.plus(TradePricing.forexForwardSensitivity(forex, marketData));
+    }
+
+    @Override
+    public void equityOption(final String tradeId, final EquityOption option) {
+        values.add(MultipleCurrencyAmount.of(option.getCurrency(), TradePricing.equityOption(option, marketData)));
+    }
+
+    @Override
+    public void equityFuture(final String tradeId, final EquityFuture future) {
+        values.add(MultipleCurrencyAmount.of(future.getCurrency(), TradePricing.equityFuture(future, marketData)));
+    }
+
+    @Override
+    public void barrierOption(final String tradeId, final EuropeanVanillaOption option, final Barrier barrier, final double rebate) {
+        values.add(MultipleCurrencyAmount.of(marketData.getEquityCurrency(), TradePricing.barrierOption(option, barrier, rebate, marketData)));
+    }
+    /**
+     * @return the present values, in the order the trades were received
+     */
+    public MultipleCurrencyAmount[] getValues() {
+        return values.toArray(new MultipleCurrencyAmount[values.size()]);
+    }
+
+    /**
+     * @return the sum of the point sensitivities of the bonds and FX forwards received
+     */
+    public MultipleCurrencyMulticurveSensitivity getSensitivity() {
+        return sensitivity.cleaned();
+    }
+}
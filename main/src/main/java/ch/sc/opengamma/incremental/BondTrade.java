@@ -0,0 +1,74 @@
+package ch.sc.opengamma.incremental;
+
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.Annuity;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponFixed;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.PaymentFixed;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderInterface;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Fixed rate bond holding priced with {@link BondSecurityDiscountingMethod} on its issuer curve, converted to the
+ * reporting currency at the provider's FX rates.
+ */
+public class BondTrade implements CurveDependentTrade<IssuerProviderInterface> {
+
+    private static final BondSecurityDiscountingMethod METHOD = BondSecurityDiscountingMethod.getInstance();
+
+    private final String book;
+    private final BondFixedSecurity bond;
+    private final double quantity;
+    private final Currency reportingCurrency;
+    private final Map<String, double[]> curveTimes;
+
+    /**
+     * @param book the book, not null
+     * @param bond the bond, not null
+     * @param quantity the number of bonds held
+     * @param reportingCurrency the reporting currency, not null
+     * @param issuerCurve the name of the issuer curve the bond is discounted on, not null
+     */
+    public BondTrade(final String book, final BondFixedSecurity bond, final double quantity, final Currency reportingCurrency,
+                     final String issuerCurve) {
+        ArgumentChecker.notNull(book, "book");
+        ArgumentChecker.notNull(bond, "bond");
+        ArgumentChecker.notNull(reportingCurrency, "reportingCurrency");
+        ArgumentChecker.notNull(issuerCurve, "issuerCurve");
+        this.book = book;
+        this.bond = bond;
+        this.quantity = quantity;
+        this.reportingCurrency = reportingCurrency;
+        final Annuity<CouponFixed> coupons = bond.getCoupon();
+        final Annuity<PaymentFixed> nominal = bond.getNominal();
+        final double[] times = new double[coupons.getNumberOfPayments() + nominal.getNumberOfPayments()];
+        for (int i = 0; i < coupons.getNumberOfPayments(); i++) {
+            times[i] = coupons.getNthPayment(i).getPaymentTime();
+        }
+        for (int i = 0; i < nominal.getNumberOfPayments(); i++) {
+            times[coupons.getNumberOfPayments() + i] = nominal.getNthPayment(i).getPaymentTime();
+        }
+        curveTimes = Collections.singletonMap(issuerCurve, times);
+    }
+
+    @Override
+    public String getBook() {
+        return book;
+    }
+
+    @Override
+    public double presentValue(final IssuerProviderInterface provider) {
+        final Currency currency = bond.getCurrency();
+        return quantity * METHOD.presentValue(bond, provider).getAmount(currency)
+                * provider.getMulticurveProvider().getFxRate(currency, reportingCurrency);
+    }
+
+    @Override
+    public Map<String, double[]> getCurveTimes() {
+        return curveTimes;
+    }
+}
@@ -0,0 +1,26 @@
+package ch.sc.opengamma.incremental;
+
+import java.util.Map;
+
+/**
+ * A trade whose present value depends on a known set of curve points.
+ * @param <P> the type of market data provider the trade is priced with
+ */
+public interface CurveDependentTrade<P> {
+
+    /**
+     * @return the book the trade is aggregated in
+     */
+    String getBook();
+
+    /**
+     * @param provider the curves
+     * @return the present value, in the reporting currency of the portfolio
+     */
+    double presentValue(P provider);
+
+    /**
+     * @return the times at which the present value reads each curve, by curve name
+     */
+    Map<String, double[]> getCurveTimes();
+}
@@ -0,0 +1,115 @@
+package ch.sc.opengamma.incremental;
+
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index from curve nodes to the trades whose present value depends on them.
+ * For a curve with known node times, a trade reading the curve at time t depends only on the nodes around t:
+ * the node itself if t is a node, its two neighbours otherwise, and the first or last node outside the node range.
+ * This holds for linear interpolation with flat extrapolation, the prototype's LINEAR_FLAT. Curves without node times
+ * are taken to be non-local: a trade reading them depends on all their nodes.
+ */
+public final class CurveNodeIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, int[][]> byNode = new HashMap<>();
+    private final Map<String, int[]> byCurve = new HashMap<>();
+
+    /**
+     * @param localCurveNodes the node times of the curves with local interpolation, by curve name, not null
+     * @param trades the trades, indexed by their position in the list, not null
+     */
+    public CurveNodeIndex(final Map<String, double[]> localCurveNodes, final List<? extends CurveDependentTrade<?>> trades) {
+        ArgumentChecker.notNull(localCurveNodes, "localCurveNodes");
+        ArgumentChecker.noNulls(trades, "trades");
+        final Map<String, BitSet[]> nodeTrades = new HashMap<>();
+        final Map<String, BitSet> curveTrades = new HashMap<>();
+        for (int trade = 0; trade < trades.size(); trade++) {
+            for (final Map.Entry<String, double[]> entry : trades.get(trade).getCurveTimes().entrySet()) {
+                final String curve = entry.getKey();
+                BitSet dependents = curveTrades.get(curve);
+                if (dependents == null) {
+                    dependents = new BitSet();
+                    curveTrades.put(curve, dependents);
+                }
+                dependents.set(trade);
+                final double[] nodes = localCurveNodes.get(curve);
+                if (nodes == null) {
+                    continue;
+                }
+                BitSet[] perNode = nodeTrades.get(curve);
+                if (perNode == null) {
+                    perNode = new BitSet[nodes.length];
+                    for (int i = 0; i < nodes.length; i++) {
+                        perNode[i] = new BitSet();
+                    }
+                    nodeTrades.put(curve, perNode);
+                }
+                for (final double time : entry.getValue()) {
+                    final int index = Arrays.binarySearch(nodes, time);
+                    if (index >= 0) {
+                        perNode[index].set(trade);
+                    } else {
+                        final int insertion = -index - 1;
+                        if (insertion > 0) {
+                            perNode[insertion - 1].set(trade);
+                        }
+                        if (insertion < nodes.length) {
+                            perNode[insertion].set(trade);
+                        }
+                    }
+                }
+            }
+        }
+        for (final Map.Entry<String, BitSet> entry : curveTrades.entrySet()) {
+            byCurve.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        for (final Map.Entry<String, BitSet[]> entry : nodeTrades.entrySet()) {
+            final BitSet[] perNode = entry.getValue();
+            final int[][] dependents = new int[perNode.length][];
+            for (int i = 0; i < perNode.length; i++) {
+                dependents[i] = toArray(perNode[i]);
+            }
+            byNode.put(entry.getKey(), dependents);
+        }
+    }
+
+    /**
+     * @param curve the curve name
+     * @return the indices of the trades that read the curve, increasing
+     */
+    public int[] getTrades(final String curve) {
+        final int[] trades = byCurve.get(curve);
+        return trades == null ? NONE : trades;
+    }
+
+    /**
+     * @param curve the curve name
+     * @param node the node index
+     * @return the indices of the trades whose value depends on the node, increasing
+     */
+    public int[] getTrades(final String curve, final int node) {
+        final int[][] perNode = byNode.get(curve);
+        if (perNode == null) {
+            return getTrades(curve);
+        }
+        ArgumentChecker.isTrue(node >= 0 && node < perNode.length, "node {} out of range for curve {}", node, curve);
+        return perNode[node];
+    }
+
+    private static int[] toArray(final BitSet set) {
+        final int[] array = new int[set.cardinality()];
+        int position = 0;
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+            array[position++] = i;
+        }
+        return array;
+    }
+}
@@ -0,0 +1,64 @@
+package ch.sc.opengamma.incremental;
+
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderInterface;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FX forward priced by discounting each payment on the discounting curve of its currency, converted to the
+ * reporting currency at the provider's FX rates.
+ */
+public class ForexForwardTrade implements CurveDependentTrade<IssuerProviderInterface> {
+
+    private final String book;
+    private final Forex forex;
+    private final Currency reportingCurrency;
+    private final Map<String, double[]> curveTimes;
+
+    /**
+     * @param book the book, not null
+     * @param forex the FX forward, not null
+     * @param reportingCurrency the reporting currency, not null
+     * @param multicurve the curves, used to name the discounting curves, not null
+     */
+    public ForexForwardTrade(final String book, final Forex forex, final Currency reportingCurrency, final MulticurveProviderInterface multicurve) {
+        ArgumentChecker.notNull(book, "book");
+        ArgumentChecker.notNull(forex, "forex");
+        ArgumentChecker.notNull(reportingCurrency, "reportingCurrency");
+        ArgumentChecker.notNull(multicurve, "multicurve");
+        this.book = book;
+        this.forex = forex;
+        this.reportingCurrency = reportingCurrency;
+        final double[] paymentTime = new double[] {forex.getPaymentTime()};
+        curveTimes = new HashMap<>();
+        curveTimes.put(multicurve.getName(forex.getCurrency1()), paymentTime);
+        curveTimes.put(multicurve.getName(forex.getCurrency2()), paymentTime);
+    }
+
+    @Override
+    public String getBook() {
+        return book;
+    }
+
+    @Override
+    public double presentValue(final IssuerProviderInterface provider) {
+        final MulticurveProviderInterface multicurve = provider.getMulticurveProvider();
+        final double paymentTime = forex.getPaymentTime();
+        final Currency currency1 = forex.getCurrency1();
+        final Currency currency2 = forex.getCurrency2();
+        return forex.getPaymentCurrency1().getAmount() * multicurve.getDiscountFactor(currency1, paymentTime)
+                * multicurve.getFxRate(currency1, reportingCurrency)
+                + forex.getPaymentCurrency2().getAmount() * multicurve.getDiscountFactor(currency2, paymentTime)
+                * multicurve.getFxRate(currency2, reportingCurrency);
+    }
+
+    @Override
+    public Map<String, double[]> getCurveTimes() {
+        return curveTimes;
+    }
+}
@@ -0,0 +1,143 @@
+package ch.sc.opengamma.incremental;
+
+import ch.sc.opengamma.concurrent.ParallelRange;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Portfolio present values kept up to date as curve nodes move.
+ * All trades are priced once at construction. On a curve update only the trades found in the {@link CurveNodeIndex}
+ * are re-priced, and the differences with their previous values are applied to the book and portfolio totals.
+ * Updates are serialized; readers see the totals of the last completed update.
+ * @param <P> the type of market data provider the trades are priced with
+ */
+public class IncrementalPortfolio<P> {
+
+    private final CurveDependentTrade<P>[] trades;
+    private final CurveNodeIndex index;
+    private final ForkJoinPool pool;
+    private final double[] presentValues;
+    private final int[] tradeBooks;
+    private final String[] books;
+    private final double[] bookTotals;
+    private double total;
+
+    /**
+     * @param trades the trades, not null
+     * @param localCurveNodes the node times of the curves with local interpolation, see {@link CurveNodeIndex}, not null
+     * @param provider the initial curves, not null
+     * @param pool the pool used to re-price, not null
+     */
+    @SuppressWarnings("unchecked")
+    public IncrementalPortfolio(final List<? extends CurveDependentTrade<P>> trades, final Map<String, double[]> localCurveNodes,
+                                final P provider, final ForkJoinPool pool) {
+        ArgumentChecker.noNulls(trades, "trades");
+        ArgumentChecker.notNull(provider, "provider");
+        ArgumentChecker.notNull(pool, "pool");
+        this.trades = trades.toArray(new CurveDependentTrade[trades.size()]);
+        this.index = new CurveNodeIndex(localCurveNodes, trades);
+        this.pool = pool;
+        this.presentValues = new double[this.trades.length];
+        this.tradeBooks = new int[this.trades.length];
+        final Map<String, Integer> bookIndex = new LinkedHashMap<>();
+        for (int i = 0; i < this.trades.length; i++) {
+            final String book = this.trades[i].getBook();
+            Integer position = bookIndex.get(book);
+            if (position == null) {
+                position = bookIndex.size();
+                bookIndex.put(book, position);
+            }
+            tradeBooks[i] = position;
+        }
+        this.books = bookIndex.keySet().toArray(new String[bookIndex.size()]);
+        this.bookTotals = new double[books.length];
+
+        final int[] all = new int[this.trades.length];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        reprice(provider, all);
+    }
+
+    /**
+     * Re-prices the trades depending on one node of a curve.
+     * @param provider the curves after the update, not null
+     * @param curve the name of the updated curve
+     * @param node the index of the moved node
+     * @return the number of trades re-priced
+     */
+    public synchronized int nodeChanged(final P provider, final String curve, final int node) {
+        ArgumentChecker.notNull(provider, "provider");
+        return reprice(provider, index.getTrades(curve, node));
+    }
+
+    /**
+     * Re-prices the trades depending on any node of a curve.
+     * @param provider the curves after the update, not null
+     * @param curve the name of the updated curve
+     * @return the number of trades re-priced
+     */
+    public synchronized int curveChanged(final P provider, final String curve) {
+        ArgumentChecker.notNull(provider, "provider");
+        return reprice(provider, index.getTrades(curve));
+    }
+
+    public synchronized double getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the total present value by book, in order of first appearance in the trades
+     */
+    public synchronized Map<String, Double> getBookTotals() {
+        final Map<String, Double> totals = new LinkedHashMap<>();
+        for (int i = 0; i < books.length; i++) {
+            totals.put(books[i], bookTotals[i]);
+        }
+        return Collections.unmodifiableMap(totals);
+    }
+
+    public synchronized double getPresentValue(final int trade) {
+        return presentValues[trade];
+    }
+
+    /**
+     * Recomputes the totals from the trade values, discarding the rounding accumulated by incremental updates.
+     */
+    public synchronized void resynchronize() {
+        total = 0;
+        for (int i = 0; i < books.length; i++) {
+            bookTotals[i] = 0;
+        }
+        for (int i = 0; i < presentValues.length; i++) {
+            bookTotals[tradeBooks[i]] += presentValues[i];
+            total += presentValues[i];
+        }
+    }
+
+    private int reprice(final P provider, final int[] affected) {
+        final double[] updated = new double[affected.length];
+        ParallelRange.run(pool, affected.length, ParallelRange.defaultGrain(pool, affected.length), new ParallelRange.Body() {
+            @Override
+            public void run(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    updated[i] = trades[affected[i]].presentValue(provider);
+                }
+            }
+        });
+        // Deltas applied in trade order, so the totals do not depend on the scheduling.
+        for (int i = 0; i < affected.length; i++) {
+            final int trade = affected[i];
+            final double delta = updated[i] - presentValues[trade];
+            presentValues[trade] = updated[i];
+            bookTotals[tradeBooks[trade]] += delta;
+            total += delta;
+        }
+        return affected.length;
+    }
+}
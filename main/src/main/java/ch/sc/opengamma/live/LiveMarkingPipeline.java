@@ -0,0 +1,349 @@
+package ch.sc.opengamma.live;
+
+import ch.sc.opengamma.future.FuturesBook;
+import ch.sc.opengamma.metrics.PricingMetrics;
+import ch.sc.opengamma.option.EquityOptionBook;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Re-marks futures and equity option positions as price ticks of their underlyings arrive.
+ * Publishers call {@link #onTick(String, double)} from any thread; the call never blocks. Ticks are conflated per
+ * underlying: a tick overwrites the price of its underlying and, if the underlying is not already waiting, queues it
+ * for the marking thread. The marking thread takes the waiting underlyings, marks the positions on each at its latest
+ * price and publishes one {@link LiveUpdate} per underlying to the listener.
+ * <p>
+ * A slow listener holds the marking thread, so ticks conflate instead of queueing: the memory used is one slot per
+ * underlying whatever the tick rate, and the latency of an update is bounded by the time to mark and publish every
+ * underlying once. The number of ticks received, conflated and ignored (unknown underlying), the updates published and
+ * the worst latency, from the oldest tick of an update to its publication, are available from this class and, when
+ * {@link PricingMetrics} are supplied, recorded under the {@value #INSTRUMENT_TYPE} instrument type with the depth of
+ * the queue of waiting underlyings.
+ * <p>
+ * The positions on an underlying must all be in one currency, the currency of the present values of its updates.
+ * The books must not be modified once the pipeline is built.
+ */
+public class LiveMarkingPipeline {
+
+    /** Instrument type of the metrics. */
+    public static final String INSTRUMENT_TYPE = "Live";
+
+    /**
+     * Receives the updates, on the marking thread.
+     */
+    public interface Listener {
+        void onUpdate(LiveUpdate update);
+    }
+
+    private final FuturesBook futures;
+    private final EquityOptionBook options;
+    private final Listener listener;
+    private final Map<String, Integer> underlyingIndex = new HashMap<>();
+    private final String[] underlyings;
+    private final Currency[] underlyingCurrencies;
+    private final int[][] underlyingFutures;
+    private final int[][] underlyingOptions;
+
+    private final AtomicLongArray prices;
+    private final AtomicLongArray firstTickNanos;
+    private final AtomicIntegerArray waiting;
+    private final BlockingQueue<Integer> queue;
+    private final Thread marker;
+    private volatile boolean closed;
+
+    private final AtomicLong nbTicks = new AtomicLong();
+    private final AtomicLong nbConflated = new AtomicLong();
+    private final AtomicLong nbIgnored = new AtomicLong();
+    private final AtomicLong nbFailures = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final Object idle = new Object();
+    private long nbQueued;
+    private long nbPublished;
+
+    private final Meter tickMeter;
+    private final Meter conflatedMeter;
+    private final Timer latencyTimer;
+
+    /**
+     * @param futures the futures positions, not null
+     * @param options the equity option positions, not null
+     * @param listener the listener receiving the updates, not null
+     * @throws IllegalArgumentException if the positions on an underlying are in different currencies
+     */
+    public LiveMarkingPipeline(final FuturesBook futures, final EquityOptionBook options, final Listener listener) {
+        this(futures, options, listener, null);
+    }
+
+    /**
+     * @param futures the futures positions, not null
+     * @param options the equity option positions, not null
+     * @param listener the listener receiving the updates, not null
+     * @param metrics the metrics recorded, null to record none
+     * @throws IllegalArgumentException if the positions on an underlying are in different currencies
+     */
+    public LiveMarkingPipeline(final FuturesBook futures, final EquityOptionBook options, final Listener listener, final PricingMetrics metrics) {
+        ArgumentChecker.notNull(futures, "futures");
+        ArgumentChecker.notNull(options, "options");
+        ArgumentChecker.notNull(listener, "listener");
+        this.futures = futures;
+        this.options = options;
+        this.listener = listener;
+
+        final List<String> ids = new ArrayList<>();
+        final List<Currency> currencies = new ArrayList<>();
+        final List<List<Integer>> futuresByUnderlying = new ArrayList<>();
+        final List<List<Integer>> optionsByUnderlying = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            final int underlying = futures.getUnderlying(i);
+            final int u = index(futures.getUnderlyingId(underlying), futures.getCurrency(futures.getUnderlyingCurrency(underlying)),
+                    ids, currencies, futuresByUnderlying, optionsByUnderlying);
+            futuresByUnderlying.get(u).add(i);
+        }
+        for (int i = 0; i < options.size(); i++) {
+            final int u = index(options.getUnderlyingId(i), options.getCurrency(i), ids, currencies, futuresByUnderlying, optionsByUnderlying);
+            optionsByUnderlying.get(u).add(i);
+        }
+        final int nbUnderlyings = ids.size();
+        underlyings = ids.toArray(new String[nbUnderlyings]);
+        underlyingCurrencies = currencies.toArray(new Currency[nbUnderlyings]);
+        underlyingFutures = new int[nbUnderlyings][];
+        underlyingOptions = new int[nbUnderlyings][];
+        for (int u = 0; u < nbUnderlyings; u++) {
+            underlyingFutures[u] = toArray(futuresByUnderlying.get(u));
+            underlyingOptions[u] = toArray(optionsByUnderlying.get(u));
+        }
+        prices = new AtomicLongArray(nbUnderlyings);
+        firstTickNanos = new AtomicLongArray(nbUnderlyings);
+        waiting = new AtomicIntegerArray(nbUnderlyings);
+        // An underlying is queued at most once, so the queue never fills.
+        queue = new ArrayBlockingQueue<>(Math.max(nbUnderlyings, 1));
+
+        if (metrics != null) {
+            tickMeter = metrics.meter(INSTRUMENT_TYPE, "ticks");
+            conflatedMeter = metrics.meter(INSTRUMENT_TYPE, "conflated");
+            latencyTimer = metrics.timer(INSTRUMENT_TYPE, "latency");
+            metrics.registerQueue(INSTRUMENT_TYPE, "waiting", queue);
+        } else {
+            tickMeter = null;
+            conflatedMeter = null;
+            latencyTimer = null;
+        }
+
+        marker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mark();
+            }
+        }, "live-marking");
+        marker.setDaemon(true);
+        marker.start();
+    }
+
+    private int index(final String id, final Currency currency, final List<String> ids, final List<Currency> currencies,
+                      final List<List<Integer>> futuresByUnderlying, final List<List<Integer>> optionsByUnderlying) {
+        final Integer existing = underlyingIndex.get(id);
+        if (existing != null) {
+            ArgumentChecker.isTrue(currencies.get(existing).equals(currency),
+                    "positions on underlying {} are in {} and {}", id, currencies.get(existing), currency);
+            return existing;
+        }
+        underlyingIndex.put(id, ids.size());
+        ids.add(id);
+        currencies.add(currency);
+        futuresByUnderlying.add(new ArrayList<Integer>());
+        optionsByUnderlying.add(new ArrayList<Integer>());
+        return ids.size() - 1;
+    }
+
+    private static int[] toArray(final List<Integer> values) {
+        final int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Records a new price of an underlying. Never blocks.
+     * @param underlyingId the underlying, not null
+     * @param price the price
+     * @return false if no position is on the underlying or the pipeline is closed, in which case the tick is ignored
+     */
+    public boolean onTick(final String underlyingId, final double price) {
+        ArgumentChecker.notNull(underlyingId, "underlyingId");
+        final Integer u = underlyingIndex.get(underlyingId);
+        if (u == null || closed) {
+            nbIgnored.incrementAndGet();
+            return false;
+        }
+        nbTicks.incrementAndGet();
+        if (tickMeter != null) {
+            tickMeter.mark();
+        }
+        prices.set(u, Double.doubleToRawLongBits(price));
+        if (waiting.compareAndSet(u, 0, 1)) {
+            firstTickNanos.set(u, System.nanoTime());
+            synchronized (idle) {
+                nbQueued++;
+            }
+            queue.add(u);
+        } else {
+            nbConflated.incrementAndGet();
+            if (conflatedMeter != null) {
+                conflatedMeter.mark();
+            }
+        }
+        return true;
+    }
+
+    private void mark() {
+        final List<Integer> batch = new ArrayList<>();
+        try {
+            while (!closed) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (final int u : batch) {
+                    final long tickNanos = firstTickNanos.get(u);
+                    // Cleared before the price is read, so that a later tick queues the underlying again.
+                    waiting.set(u, 0);
+                    final double price = Double.longBitsToDouble(prices.get(u));
+                    try {
+                        listener.onUpdate(update(u, price, tickNanos));
+                    } catch (final RuntimeException e) {
+                        nbFailures.incrementAndGet();
+                    }
+                    synchronized (idle) {
+                        nbPublished++;
+                        if (nbPublished == nbQueued) {
+                            idle.notifyAll();
+                        }
+                    }
+                }
+                batch.clear();
+            }
+        } catch (final InterruptedException e) {
+            // Closed.
+        }
+    }
+
+    private LiveUpdate update(final int u, final double price, final long tickNanos) {
+        final int[] futurePositions = underlyingFutures[u];
+        final double[] futureValues = new double[futurePositions.length];
+        double presentValue = 0;
+        double delta = 0;
+        for (int i = 0; i < futurePositions.length; i++) {
+            final int position = futurePositions[i];
+            final double unitAmount = futures.getUnitAmount(position);
+            futureValues[i] = unitAmount * (price - futures.getReferencePrice(position));
+            presentValue += futureValues[i];
+            delta += unitAmount;
+        }
+        final int[] optionPositions = underlyingOptions[u];
+        final double[] optionValues = new double[optionPositions.length];
+        final double[] optionDeltas = new double[optionPositions.length];
+        for (int i = 0; i < optionPositions.length; i++) {
+            options.mark(optionPositions[i], price, optionValues, optionDeltas, i);
+            presentValue += optionValues[i];
+            delta += optionDeltas[i];
+        }
+        final long publishNanos = System.nanoTime();
+        final long latency = publishNanos - tickNanos;
+        long max = maxLatencyNanos.get();
+        while (latency > max && !maxLatencyNanos.compareAndSet(max, latency)) {
+            max = maxLatencyNanos.get();
+        }
+        if (latencyTimer != null) {
+            latencyTimer.update(latency, TimeUnit.NANOSECONDS);
+        }
+        return new LiveUpdate(underlyings[u], underlyingCurrencies[u], price, tickNanos, publishNanos, futurePositions, futureValues,
+                optionPositions, optionValues, optionDeltas, presentValue, delta);
+    }
+
+    /**
+     * Waits until every underlying queued so far has been published.
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout, not null
+     * @return false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitIdle(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idle) {
+            while (nbPublished < nbQueued) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(idle, remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Stops the marking thread. Ticks received afterwards are ignored.
+     */
+    public void close() {
+        closed = true;
+        marker.interrupt();
+    }
+
+    public int getNumberOfUnderlyings() {
+        return underlyings.length;
+    }
+
+    public long getTickCount() {
+        return nbTicks.get();
+    }
+
+    /**
+     * @return the number of ticks overwritten by a later tick of the same underlying before being marked
+     */
+    public long getConflatedCount() {
+        return nbConflated.get();
+    }
+
+    /**
+     * @return the number of ticks of underlyings without positions, or received after close
+     */
+    public long getIgnoredCount() {
+        return nbIgnored.get();
+    }
+
+    public long getPublishedCount() {
+        synchronized (idle) {
+            return nbPublished;
+        }
+    }
+
+    /**
+     * @return the number of updates the listener failed on
+     */
+    public long getFailureCount() {
+        return nbFailures.get();
+    }
+
+    /**
+     * @return the number of underlyings waiting to be marked
+     */
+    public int getWaitingCount() {
+        return queue.size();
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+}
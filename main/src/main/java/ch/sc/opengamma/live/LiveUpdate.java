@@ -0,0 +1,119 @@
+package ch.sc.opengamma.live;
+
+import com.opengamma.util.money.Currency;
+
+/**
+ * Present values and spot deltas of the positions on one underlying, re-marked at a new price.
+ * Positions are identified by their index in the {@link ch.sc.opengamma.future.FuturesBook} or
+ * {@link ch.sc.opengamma.option.EquityOptionBook} of the pipeline. The delta of a future is its unit amount.
+ * All the present values are in the currency of the underlying.
+ * The arrays returned are copies, so that listeners cannot alter the positions of the pipeline or another update.
+ */
+public class LiveUpdate {
+
+    private final String underlyingId;
+    private final Currency currency;
+    private final double price;
+    private final long tickNanos;
+    private final long publishNanos;
+    private final int[] futures;
+    private final double[] futurePresentValues;
+    private final int[] options;
+    private final double[] optionPresentValues;
+    private final double[] optionDeltas;
+    private final double presentValue;
+    private final double delta;
+
+    LiveUpdate(final String underlyingId, final Currency currency, final double price, final long tickNanos, final long publishNanos,
+               final int[] futures, final double[] futurePresentValues, final int[] options, final double[] optionPresentValues,
+               final double[] optionDeltas, final double presentValue, final double delta) {
+        this.underlyingId = underlyingId;
+        this.currency = currency;
+        this.price = price;
+        this.tickNanos = tickNanos;
+        this.publishNanos = publishNanos;
+        this.futures = futures;
+        this.futurePresentValues = futurePresentValues;
+        this.options = options;
+        this.optionPresentValues = optionPresentValues;
+        this.optionDeltas = optionDeltas;
+        this.presentValue = presentValue;
+        this.delta = delta;
+    }
+
+    public String getUnderlyingId() {
+        return underlyingId;
+    }
+
+    /**
+     * @return the currency of the positions on the underlying, which the present values are in
+     */
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * @return the last price received before the positions were marked
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} of the oldest tick conflated into this update
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    public long getPublishNanos() {
+        return publishNanos;
+    }
+
+    /**
+     * @return the time from the oldest tick conflated into this update to its publication, in nanoseconds
+     */
+    public long getLatencyNanos() {
+        return publishNanos - tickNanos;
+    }
+
+    /**
+     * @return the indices of the futures on the underlying, in the futures book
+     */
+    public int[] getFutures() {
+        return futures.clone();
+    }
+
+    public double[] getFuturePresentValues() {
+        return futurePresentValues.clone();
+    }
+
+    /**
+     * @return the indices of the options on the underlying, in the option book
+     */
+    public int[] getOptions() {
+        return options.clone();
+    }
+
+    public double[] getOptionPresentValues() {
+        return optionPresentValues.clone();
+    }
+
+    public double[] getOptionDeltas() {
+        return optionDeltas.clone();
+    }
+
+    /**
+     * @return the present value of all the positions on the underlying, in {@link #getCurrency()}
+     */
+    public double getPresentValue() {
+        return presentValue;
+    }
+
+    /**
+     * @return the sensitivity to the price of all the positions on the underlying
+     */
+    public double getDelta() {
+        return delta;
+    }
+}
@@ -0,0 +1,73 @@
+package ch.sc.opengamma.live;
+
+import au.com.bytecode.opencsv.CSVReader;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays recorded price ticks from a CSV source into a {@link LiveMarkingPipeline}.
+ * Each row is {@code underlying,price[,offset]}, where the optional offset is the time of the tick in microseconds
+ * from the start of the recording: rows with an offset are sent no earlier than that time after the start of the
+ * replay, rows without one are sent as fast as they are read. Empty lines and lines starting with '#' are skipped.
+ */
+public class TickReplay {
+
+    private final LiveMarkingPipeline pipeline;
+
+    /**
+     * @param pipeline the pipeline receiving the ticks, not null
+     */
+    public TickReplay(final LiveMarkingPipeline pipeline) {
+        ArgumentChecker.notNull(pipeline, "pipeline");
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Sends all the ticks of the source and returns once the last one is sent.
+     * @param source the CSV source, not closed by this method, not null
+     * @return the number of ticks sent
+     */
+    public long replay(final Reader source) {
+        ArgumentChecker.notNull(source, "source");
+        final long start = System.nanoTime();
+        final CSVReader reader = new CSVReader(source);
+        long line = 0;
+        long nbTicks = 0;
+        try {
+            String[] fields;
+            while ((fields = reader.readNext()) != null) {
+                line++;
+                if (fields.length == 0 || (fields.length == 1 && fields[0].trim().isEmpty()) || fields[0].startsWith("#")) {
+                    continue;
+                }
+                if (fields.length < 2) {
+                    throw new OpenGammaRuntimeException("Invalid tick at line " + line + ": expected underlying,price[,offset]");
+                }
+                final double price;
+                try {
+                    price = Double.parseDouble(fields[1].trim());
+                    if (fields.length > 2) {
+                        final long wait = start + TimeUnit.MICROSECONDS.toNanos(Long.parseLong(fields[2].trim())) - System.nanoTime();
+                        if (wait > 0) {
+                            TimeUnit.NANOSECONDS.sleep(wait);
+                        }
+                    }
+                } catch (final NumberFormatException e) {
+                    throw new OpenGammaRuntimeException("Invalid tick at line " + line + ": " + e.getMessage(), e);
+                }
+                pipeline.onTick(fields[0].trim(), price);
+                nbTicks++;
+            }
+        } catch (final IOException e) {
+            throw new OpenGammaRuntimeException("Could not read ticks", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OpenGammaRuntimeException("Interrupted while replaying ticks", e);
+        }
+        return nbTicks;
+    }
+}
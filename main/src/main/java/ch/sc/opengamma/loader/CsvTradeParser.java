@@ -0,0 +1,124 @@
+package ch.sc.opengamma.loader;
+
+import com.opengamma.analytics.financial.ExerciseDecisionType;
+import com.opengamma.analytics.financial.commodity.definition.SettlementType;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.YieldConventionFactory;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+/**
+ * Builds og-analytics trades from CSV rows. The first column is the trade type and the second the trade id;
+ * dates are ISO (2013-06-26), periods ISO (P6M) and booleans true/false. The remaining columns are, by type:
+ * <ul>
+ * <li>BOND: currency, first accrual date, maturity date, coupon period, rate, settlement days, notional,
+ * ex-coupon days, day count, business day convention, yield convention, end of month, issuer, repo type, quantity</li>
+ * <li>FX_FORWARD: currency 1, currency 2, payment date, amount in currency 1, forward rate</li>
+ * <li>EQUITY_OPTION: time to expiry, time to settlement, strike, is call, currency, unit amount, exercise (EUROPEAN or
+ * AMERICAN), settlement (CASH or PHYSICAL)</li>
+ * <li>EQUITY_FUTURE: time to expiry, time to settlement, reference price, currency, unit amount</li>
+ * <li>BARRIER_OPTION: strike, time to expiry, is call, knock type (IN or OUT), barrier type (DOWN or UP),
+ * observation (CONTINUOUS or CLOSE), barrier level, rebate</li>
+ * </ul>
+ * Thread-safe.
+ */
+public class CsvTradeParser {
+
+    /** The trade types, as written in the first column. */
+    public enum TradeType {
+        BOND(17), FX_FORWARD(7), EQUITY_OPTION(10), EQUITY_FUTURE(7), BARRIER_OPTION(10);
+
+        private final int nbColumns;
+
+        TradeType(final int nbColumns) {
+            this.nbColumns = nbColumns;
+        }
+    }
+
+    private final Calendar calendar;
+
+    /**
+     * @param calendar the holiday calendar used to build bond schedules, not null
+     */
+    public CsvTradeParser(final Calendar calendar) {
+        ArgumentChecker.notNull(calendar, "calendar");
+        this.calendar = calendar;
+    }
+
+    /**
+     * Builds the trade of a row and passes it to the handler.
+     * @param row the CSV fields, not null
+     * @param handler the handler, not null
+     * @throws IllegalArgumentException if the row is not a valid trade
+     */
+    public void parse(final String[] row, final TradeHandler handler) {
+        ArgumentChecker.notNull(row, "row");
+        ArgumentChecker.notNull(handler, "handler");
+        ArgumentChecker.isTrue(row.length >= 2, "row must contain a trade type and a trade id");
+        final TradeType type = TradeType.valueOf(row[0].trim());
+        ArgumentChecker.isTrue(row.length == type.nbColumns, "{} row must have {} columns, got {}", type, type.nbColumns, row.length);
+        final String id = row[1].trim();
+        switch (type) {
+            case BOND:
+                final BondFixedSecurityDefinition bond = BondFixedSecurityDefinition.from(currency(row[2]), date(row[4]), date(row[3]),
+                        Period.parse(row[5].trim()), number(row[6]), integer(row[7]), number(row[8]), integer(row[9]), calendar,
+                        DayCountFactory.INSTANCE.getDayCount(row[10].trim()),
+                        BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention(row[11].trim()),
+                        YieldConventionFactory.INSTANCE.getYieldConvention(row[12].trim()), bool(row[13]), row[14].trim(), row[15].trim());
+                handler.bond(id, bond, number(row[16]));
+                break;
+            case FX_FORWARD:
+                handler.forexForward(id, new ForexDefinition(currency(row[2]), currency(row[3]), date(row[4]), number(row[5]), number(row[6])));
+                break;
+            case EQUITY_OPTION:
+                handler.equityOption(id, new EquityOption(number(row[2]), number(row[3]), number(row[4]), bool(row[5]), currency(row[6]),
+                        number(row[7]), ExerciseDecisionType.valueOf(row[8].trim()), SettlementType.valueOf(row[9].trim())));
+                break;
+            case EQUITY_FUTURE:
+                handler.equityFuture(id, new EquityFuture(number(row[2]), number(row[3]), number(row[4]), currency(row[5]), number(row[6])));
+                break;
+            case BARRIER_OPTION:
+                final Barrier barrier = new Barrier(Barrier.KnockType.valueOf(row[5].trim()), Barrier.BarrierType.valueOf(row[6].trim()),
+                        Barrier.ObservationType.valueOf(row[7].trim()), number(row[8]));
+                handler.barrierOption(id, new EuropeanVanillaOption(number(row[2]), number(row[3]), bool(row[4])), barrier, number(row[9]));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported trade type " + type);
+        }
+    }
+
+    private static double number(final String field) {
+        return Double.parseDouble(field.trim());
+    }
+
+    private static int integer(final String field) {
+        return Integer.parseInt(field.trim());
+    }
+
+    private static boolean bool(final String field) {
+        final String value = field.trim();
+        ArgumentChecker.isTrue("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value), "not a boolean: {}", value);
+        return Boolean.parseBoolean(value);
+    }
+
+    private static Currency currency(final String field) {
+        return Currency.of(field.trim());
+    }
+
+    private static ZonedDateTime date(final String field) {
+        final LocalDate date = LocalDate.parse(field.trim());
+        return DateUtils.getUTCDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+}
@@ -0,0 +1,296 @@
+package ch.sc.opengamma.loader;
+
+import au.com.bytecode.opencsv.CSVReader;
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.codahale.metrics.Meter;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.util.ArgumentChecker;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams trades from a CSV source into a {@link TradeHandler}.
+ * The calling thread reads the rows and puts them in a bounded queue; worker threads take them, build the trades
+ * with a {@link CsvTradeParser} and pass them to the handler. Reading blocks while the queue is full, so the memory
+ * used does not depend on the size of the file. Empty lines and lines starting with '#', after any leading blanks, are
+ * skipped.
+ * <p>
+ * The first invalid row, or the first trade the handler fails on, stops the load: the remaining rows are not read and
+ * the error is rethrown with the line of the row in the source once the workers have finished. Trades already handled
+ * are not rolled back.
+ * <p>
+ * When {@link PricingMetrics} are supplied, the depth of the row queue and the rate of trades handled are recorded
+ * under the {@value #INSTRUMENT_TYPE} instrument type.
+ */
+public class StreamingTradeLoader {
+
+    /** Instrument type of the metrics. */
+    public static final String INSTRUMENT_TYPE = "Loader";
+
+    private static final Row END = new Row(-1, null);
+
+    private final CsvTradeParser parser;
+    private final int nbWorkers;
+    private final int bufferSize;
+    private final PricingMetrics metrics;
+
+    /**
+     * @param parser the row parser, not null
+     * @param nbWorkers the number of worker threads, strictly positive
+     * @param bufferSize the number of rows read ahead of the workers, strictly positive
+     */
+    public StreamingTradeLoader(final CsvTradeParser parser, final int nbWorkers, final int bufferSize) {
+        this(parser, nbWorkers, bufferSize, null);
+    }
+
+    /**
+     * @param parser the row parser, not null
+     * @param nbWorkers the number of worker threads, strictly positive
+     * @param bufferSize the number of rows read ahead of the workers, strictly positive
+     * @param metrics the metrics recorded, null to record none
+     */
+    public StreamingTradeLoader(final CsvTradeParser parser, final int nbWorkers, final int bufferSize, final PricingMetrics metrics) {
+        ArgumentChecker.notNull(parser, "parser");
+        ArgumentChecker.isTrue(nbWorkers > 0, "nbWorkers must be positive");
+        ArgumentChecker.isTrue(bufferSize > 0, "bufferSize must be positive");
+        this.parser = parser;
+        this.nbWorkers = nbWorkers;
+        this.bufferSize = bufferSize;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Loads all the trades of the source and returns when they have all been handled.
+     * @param source the CSV source, not closed by this method, not null
+     * @param handler the handler receiving the trades, not null
+     * @return the number of trades handled
+     */
+    public long load(final Reader source, final TradeHandler handler) {
+        ArgumentChecker.notNull(source, "source");
+        ArgumentChecker.notNull(handler, "handler");
+        final BlockingQueue<Row> queue = new ArrayBlockingQueue<>(bufferSize);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final AtomicLong nbTrades = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(nbWorkers);
+        Meter handled = null;
+        if (metrics != null) {
+            metrics.registerQueue(INSTRUMENT_TYPE, "rows", queue);
+            handled = metrics.meter(INSTRUMENT_TYPE, "trades");
+        }
+        for (int i = 0; i < nbWorkers; i++) {
+            final Thread worker = new Thread(new Worker(queue, handler, failure, nbTrades, handled, done), "trade-loader-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        boolean interrupted = false;
+        try {
+            final CSVReader reader = new CSVReader(source);
+            // The last line read; a quoted field may span several lines.
+            long line = 0;
+            String[] fields;
+            while (failure.get() == null && (fields = reader.readNext()) != null) {
+                final long first = line + 1;
+                line += 1 + countLineBreaks(fields);
+                if (fields.length == 0 || (fields.length == 1 && fields[0].trim().isEmpty()) || fields[0].trim().startsWith("#")) {
+                    continue;
+                }
+                queue.put(new Row(first, fields));
+            }
+        } catch (final IOException e) {
+            failure.compareAndSet(null, new OpenGammaRuntimeException("Could not read trades", e));
+        } catch (final InterruptedException e) {
+            interrupted = true;
+            failure.compareAndSet(null, new OpenGammaRuntimeException("Interrupted while loading trades", e));
+        } finally {
+            interrupted |= finish(queue, done);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return nbTrades.get();
+    }
+
+    private static int countLineBreaks(final String[] fields) {
+        int nbBreaks = 0;
+        for (final String field : fields) {
+            for (int i = field.indexOf('\n'); i >= 0; i = field.indexOf('\n', i + 1)) {
+                nbBreaks++;
+            }
+        }
+        return nbBreaks;
+    }
+
+    /**
+     * Sends one end marker per worker and waits for the workers to drain the queue.
+     * @return true if the calling thread was interrupted meanwhile
+     */
+    private boolean finish(final BlockingQueue<Row> queue, final CountDownLatch done) {
+        boolean interrupted = false;
+        int sent = 0;
+        while (sent < nbWorkers) {
+            try {
+                queue.put(END);
+                sent++;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (true) {
+            try {
+                done.await();
+                return interrupted;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    private static final class Row {
+        private final long line;
+        private final String[] fields;
+
+        private Row(final long line, final String[] fields) {
+            this.line = line;
+            this.fields = fields;
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final BlockingQueue<Row> queue;
+        private final GuardedHandler handler;
+        private final AtomicReference<RuntimeException> failure;
+        private final AtomicLong nbTrades;
+        private final Meter handled;
+        private final CountDownLatch done;
+
+        private Worker(final BlockingQueue<Row> queue, final TradeHandler handler, final AtomicReference<RuntimeException> failure,
+                       final AtomicLong nbTrades, final Meter handled, final CountDownLatch done) {
+            this.queue = queue;
+            this.handler = new GuardedHandler(handler);
+            this.failure = failure;
+            this.nbTrades = nbTrades;
+            this.handled = handled;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Row row;
+                while ((row = takeUninterruptibly()) != END) {
+                    if (failure.get() != null) {
+                        continue; // drain so that the reader is not blocked
+                    }
+                    try {
+                        parser.parse(row.fields, handler);
+                        nbTrades.incrementAndGet();
+                        if (handled != null) {
+                            handled.mark();
+                        }
+                    } catch (final HandlerFailure e) {
+                        final Throwable cause = e.getCause();
+                        failure.compareAndSet(null, new OpenGammaRuntimeException("Could not handle trade at line " + row.line + ": "
+                                + cause.getMessage(), cause));
+                    } catch (final RuntimeException e) {
+                        failure.compareAndSet(null, new OpenGammaRuntimeException("Invalid trade at line " + row.line + ": " + e.getMessage(), e));
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private Row takeUninterruptibly() {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (final InterruptedException e) {
+                    // The worker only stops on the end marker, so that the reader never blocks on a full queue.
+                }
+            }
+        }
+    }
+
+    /**
+     * Failure of the handler, told apart from the failures to parse a row.
+     */
+    private static final class HandlerFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private HandlerFailure(final RuntimeException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Passes the trades to the handler, wrapping its failures in {@link HandlerFailure}.
+     */
+    private static final class GuardedHandler implements TradeHandler {
+        private final TradeHandler handler;
+
+        private GuardedHandler(final TradeHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void bond(final String tradeId, final BondFixedSecurityDefinition bond, final double quantity) {
+            try {
+                handler.bond(tradeId, bond, quantity);
+            } catch (final RuntimeException e) {
+                throw new HandlerFailure(e);
+            }
+        }
+
+        @Override
+        public void forexForward(final String tradeId, final ForexDefinition forward) {
+            try {
+                handler.forexForward(tradeId, forward);
+            } catch (final RuntimeException e) {
+                throw new HandlerFailure(e);
+            }
+        }
+
+        @Override
+        public void equityOption(final String tradeId, final EquityOption option) {
+            try {
+                handler.equityOption(tradeId, option);
+            } catch (final RuntimeException e) {
+                throw new HandlerFailure(e);
+            }
+        }
+
+        @Override
+        public void equityFuture(final String tradeId, final EquityFuture future) {
+            try {
+                handler.equityFuture(tradeId, future);
+            } catch (final RuntimeException e) {
+                throw new HandlerFailure(e);
+            }
+        }
+
+        @Override
+        public void barrierOption(final String tradeId, final EuropeanVanillaOption option, final Barrier barrier, final double rebate) {
+            try {
+                handler.barrierOption(tradeId, option, barrier, rebate);
+            } catch (final RuntimeException e) {
+                throw new HandlerFailure(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ch.sc.opengamma.loader;
+
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+
+/**
+ * Receives the trades built by {@link StreamingTradeLoader}, typically to hand them to a pricer.
+ * Methods are called concurrently from the loader's worker threads and must be thread-safe.
+ */
+public interface TradeHandler {
+
+    void bond(String tradeId, BondFixedSecurityDefinition bond, double quantity);
+
+    void forexForward(String tradeId, ForexDefinition forward);
+
+    void equityOption(String tradeId, EquityOption option);
+
+    void equityFuture(String tradeId, EquityFuture future);
+
+    void barrierOption(String tradeId, EuropeanVanillaOption option, Barrier barrier, double rebate);
+}
@@ -0,0 +1,274 @@
+package ch.sc.opengamma.marketdata;
+
+import ch.sc.opengamma.curve.LinearFlatYieldCurve;
+import ch.sc.opengamma.volatility.LinearFlatVolatilitySurface;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.model.volatility.surface.BlackVolatilitySurfaceStrike;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.GridInterpolator2D;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.analytics.math.surface.ConstantDoublesSurface;
+import com.opengamma.analytics.math.surface.InterpolatedDoublesSurface;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.tuple.Pair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of a market data snapshot file written by {@link MarketDataSnapshotWriter}.
+ * The file is memory-mapped; opening it only walks the record headers to index curves and surfaces by name, and the
+ * node arrays of a curve or surface are copied out of the mapping with one bulk read when it is requested. Building the
+ * providers of a pricing process therefore costs a few array copies rather than parsing the whole snapshot.
+ * Thread-safe.
+ */
+public final class MarketDataSnapshot {
+
+    private final ByteBuffer buffer;
+    private final Map<String, Integer> curves;
+    private final Map<String, Integer> surfaces;
+    private final int fxRates;
+    private final int nbFxRates;
+
+    private MarketDataSnapshot(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        final ByteBuffer reader = view(0);
+        if (reader.remaining() < 20 || reader.getInt() != SnapshotFormat.MAGIC) {
+            throw new OpenGammaRuntimeException("Not a market data snapshot");
+        }
+        final int version = reader.getInt();
+        if (version != SnapshotFormat.VERSION) {
+            throw new OpenGammaRuntimeException("Unsupported market data snapshot version " + version);
+        }
+        final int nbCurves = reader.getInt();
+        nbFxRates = reader.getInt();
+        final int nbSurfaces = reader.getInt();
+        curves = new LinkedHashMap<>(2 * nbCurves);
+        for (int i = 0; i < nbCurves; i++) {
+            curves.put(SnapshotFormat.getString(reader), reader.position());
+            skipStrings(reader, 3);
+            final int n = reader.getInt();
+            reader.position(reader.position() + 16 * n);
+        }
+        fxRates = reader.position();
+        for (int i = 0; i < nbFxRates; i++) {
+            skipStrings(reader, 2);
+            reader.getDouble();
+        }
+        surfaces = new LinkedHashMap<>(2 * nbSurfaces);
+        for (int i = 0; i < nbSurfaces; i++) {
+            surfaces.put(SnapshotFormat.getString(reader), reader.position());
+            skipStrings(reader, 2);
+            final int nbExpiries = reader.getInt();
+            final int nbStrikes = reader.getInt();
+            reader.position(reader.position() + 8 * (nbExpiries + nbStrikes + nbExpiries * nbStrikes));
+        }
+    }
+
+    /**
+     * Maps a snapshot file. The mapping stays valid after the method returns; the file is not kept open.
+     * @param file the snapshot file, not null
+     * @return the snapshot
+     */
+    public static MarketDataSnapshot open(final Path file) {
+        ArgumentChecker.notNull(file, "file");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MarketDataSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (final IOException e) {
+            throw new OpenGammaRuntimeException("Could not open market data snapshot " + file, e);
+        } catch (final RuntimeException e) {
+            throw new OpenGammaRuntimeException("Corrupt market data snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Reads a snapshot held in memory, without copying it.
+     * @param bytes the snapshot, in the file format, not modified afterwards, not null
+     * @return the snapshot
+     */
+    public static MarketDataSnapshot wrap(final ByteBuffer bytes) {
+        ArgumentChecker.notNull(bytes, "bytes");
+        try {
+            return new MarketDataSnapshot(bytes.slice());
+        } catch (final RuntimeException e) {
+            throw new OpenGammaRuntimeException("Corrupt market data snapshot", e);
+        }
+    }
+
+    public Set<String> getCurveNames() {
+        return Collections.unmodifiableSet(curves.keySet());
+    }
+
+    public Set<String> getVolatilitySurfaceNames() {
+        return Collections.unmodifiableSet(surfaces.keySet());
+    }
+
+    public double[] getCurveTimes(final String name) {
+        final ByteBuffer reader = curve(name);
+        return SnapshotFormat.getDoubles(reader, reader.getInt());
+    }
+
+    public double[] getCurveValues(final String name) {
+        final ByteBuffer reader = curve(name);
+        final int n = reader.getInt();
+        reader.position(reader.position() + 8 * n);
+        return SnapshotFormat.getDoubles(reader, n);
+    }
+
+    /**
+     * @param name the curve name
+     * @return the interpolated curve on the node times and values, named after the snapshot curve
+     */
+    public InterpolatedDoublesCurve getCurve(final String name) {
+        final ByteBuffer reader = view(index(curves, name));
+        final Interpolator1D interpolator = CombinedInterpolatorExtrapolatorFactory.getInterpolator(SnapshotFormat.getString(reader),
+                SnapshotFormat.getString(reader), SnapshotFormat.getString(reader));
+        final int n = reader.getInt();
+        final double[] times = SnapshotFormat.getDoubles(reader, n);
+        final double[] values = SnapshotFormat.getDoubles(reader, n);
+        return InterpolatedDoublesCurve.fromSorted(times, values, interpolator, name);
+    }
+
+    /**
+     * @param name the name of a curve of zero rates
+     * @return the yield curve, a {@link LinearFlatYieldCurve} if the curve is interpolated linearly with flat extrapolation
+     */
+    public YieldCurve getYieldCurve(final String name) {
+        final InterpolatedDoublesCurve curve = getCurve(name);
+        return LinearFlatYieldCurve.supports(curve) ? new LinearFlatYieldCurve(name, curve) : new YieldCurve(name, curve);
+    }
+
+    /**
+     * @return the FX matrix of the snapshot rates, in the order they were written
+     */
+    public FXMatrix getFxMatrix() {
+        final ByteBuffer reader = view(fxRates);
+        FXMatrix matrix = new FXMatrix();
+        for (int i = 0; i < nbFxRates; i++) {
+            final Currency currency1 = Currency.of(SnapshotFormat.getString(reader));
+            final Currency currency2 = Currency.of(SnapshotFormat.getString(reader));
+            final double rate = reader.getDouble();
+            if (i == 0) {
+                matrix = new FXMatrix(currency1, currency2, rate);
+            } else {
+                matrix.addCurrency(currency1, currency2, rate);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * @param name the surface name
+     * @return the Black volatility surface by expiry and strike; constant if the grid has a single point, a
+     * {@link LinearFlatVolatilitySurface} if it is interpolated linearly with flat extrapolation
+     */
+    public BlackVolatilitySurfaceStrike getVolatilitySurface(final String name) {
+        final ByteBuffer reader = view(index(surfaces, name));
+        final String interpolatorName = SnapshotFormat.getString(reader);
+        final String extrapolatorName = SnapshotFormat.getString(reader);
+        final int nbExpiries = reader.getInt();
+        final int nbStrikes = reader.getInt();
+        final double[] expiries = SnapshotFormat.getDoubles(reader, nbExpiries);
+        final double[] strikes = SnapshotFormat.getDoubles(reader, nbStrikes);
+        final double[] volatilities = SnapshotFormat.getDoubles(reader, nbExpiries * nbStrikes);
+        if (volatilities.length == 1) {
+            return new BlackVolatilitySurfaceStrike(ConstantDoublesSurface.from(volatilities[0], name));
+        }
+        if (nbExpiries >= 2 && nbStrikes >= 2 && Interpolator1DFactory.LINEAR.equals(interpolatorName)
+                && Interpolator1DFactory.FLAT_EXTRAPOLATOR.equals(extrapolatorName)) {
+            return new LinearFlatVolatilitySurface(name, expiries, strikes, volatilities);
+        }
+        final double[] x = new double[volatilities.length];
+        final double[] y = new double[volatilities.length];
+        for (int i = 0; i < nbExpiries; i++) {
+            for (int j = 0; j < nbStrikes; j++) {
+                x[i * nbStrikes + j] = expiries[i];
+                y[i * nbStrikes + j] = strikes[j];
+            }
+        }
+        final Interpolator1D interpolator = CombinedInterpolatorExtrapolatorFactory.getInterpolator(interpolatorName, extrapolatorName);
+        return new BlackVolatilitySurfaceStrike(InterpolatedDoublesSurface.from(x, y, volatilities, new GridInterpolator2D(interpolator, interpolator), name));
+    }
+
+    /**
+     * @param discountingCurves the name of the discounting curve, of zero rates, by currency, not null
+     * @return the multicurve provider with the snapshot FX matrix
+     */
+    public MulticurveProviderDiscount getMulticurveProvider(final Map<Currency, String> discountingCurves) {
+        ArgumentChecker.notNull(discountingCurves, "discountingCurves");
+        final MulticurveProviderDiscount multicurve = new MulticurveProviderDiscount(getFxMatrix());
+        for (final Map.Entry<Currency, String> entry : discountingCurves.entrySet()) {
+            multicurve.setCurve(entry.getKey(), getYieldCurve(entry.getValue()));
+        }
+        return multicurve;
+    }
+
+    /**
+     * @param discountingCurves the name of the discounting curve by currency, not null
+     * @param issuerCurves the name of the issuer curve by issuer and currency, not null
+     * @return the issuer provider
+     */
+    public IssuerProviderDiscount getIssuerProvider(final Map<Currency, String> discountingCurves,
+                                                    final Map<Pair<String, Currency>, String> issuerCurves) {
+        ArgumentChecker.notNull(issuerCurves, "issuerCurves");
+        final Map<Pair<String, Currency>, YieldAndDiscountCurve> issuer = new HashMap<>();
+        for (final Map.Entry<Pair<String, Currency>, String> entry : issuerCurves.entrySet()) {
+            issuer.put(entry.getKey(), getYieldCurve(entry.getValue()));
+        }
+        return new IssuerProviderDiscount(getMulticurveProvider(discountingCurves), issuer);
+    }
+
+    /**
+     * @param volatilitySurface the volatility surface name
+     * @param discountCurve the name of the discounting curve, of zero rates
+     * @param forwardCurve the name of the curve of forwards of the underlying
+     * @return the equity option market data
+     */
+    public StaticReplicationDataBundle getStaticReplicationData(final String volatilitySurface, final String discountCurve,
+                                                                final String forwardCurve) {
+        return new StaticReplicationDataBundle(getVolatilitySurface(volatilitySurface), getYieldCurve(discountCurve),
+                new ForwardCurve(getCurve(forwardCurve)));
+    }
+
+    private ByteBuffer curve(final String name) {
+        final ByteBuffer reader = view(index(curves, name));
+        skipStrings(reader, 3);
+        return reader;
+    }
+
+    private ByteBuffer view(final int position) {
+        final ByteBuffer reader = buffer.duplicate().order(SnapshotFormat.ORDER);
+        reader.position(position);
+        return reader;
+    }
+
+    private static int index(final Map<String, Integer> index, final String name) {
+        final Integer position = index.get(name);
+        ArgumentChecker.isTrue(position != null, "{} not in snapshot", name);
+        return position;
+    }
+
+    private static void skipStrings(final ByteBuffer reader, final int nbStrings) {
+        for (int i = 0; i < nbStrings; i++) {
+            SnapshotFormat.skipString(reader);
+        }
+    }
+}
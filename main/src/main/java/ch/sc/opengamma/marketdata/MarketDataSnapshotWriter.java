@@ -0,0 +1,235 @@
+package ch.sc.opengamma.marketdata;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects curves, FX rates and volatility surfaces and writes them as a snapshot file readable by
+ * {@link MarketDataSnapshot}. Not thread-safe.
+ */
+public class MarketDataSnapshotWriter {
+
+    private final List<Curve> curves = new ArrayList<>();
+    private final List<FxRate> fxRates = new ArrayList<>();
+    private final List<Surface> surfaces = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+
+    /**
+     * Adds a curve interpolated on its nodes, e.g. zero rates for a discounting curve or forwards for an equity forward curve.
+     * @param name the curve name, unique in the snapshot
+     * @param times the node times, increasing
+     * @param values the node values
+     * @param interpolator the interpolator name, as in {@link com.opengamma.analytics.math.interpolation.Interpolator1DFactory}
+     * @param leftExtrapolator the left extrapolator name
+     * @param rightExtrapolator the right extrapolator name
+     * @return this writer
+     */
+    public MarketDataSnapshotWriter addCurve(final String name, final double[] times, final double[] values, final String interpolator,
+                                             final String leftExtrapolator, final String rightExtrapolator) {
+        checkName(name);
+        ArgumentChecker.notNull(times, "times");
+        ArgumentChecker.notNull(values, "values");
+        ArgumentChecker.isTrue(times.length == values.length && times.length > 0, "times and values must have the same non-zero length");
+        ArgumentChecker.notNull(interpolator, "interpolator");
+        ArgumentChecker.notNull(leftExtrapolator, "leftExtrapolator");
+        ArgumentChecker.notNull(rightExtrapolator, "rightExtrapolator");
+        names.add(name);
+        curves.add(new Curve(name, times.clone(), values.clone(), interpolator, leftExtrapolator, rightExtrapolator));
+        return this;
+    }
+
+    /**
+     * Adds an FX rate. The first rate defines the two first currencies of the FX matrix; each later rate must link
+     * a new currency (currency 1) to a currency already added (currency 2).
+     * @param currency1 the first currency, not null
+     * @param currency2 the second currency, not null
+     * @param rate the number of currency 2 units for one unit of currency 1
+     * @return this writer
+     */
+    public MarketDataSnapshotWriter addFxRate(final Currency currency1, final Currency currency2, final double rate) {
+        ArgumentChecker.notNull(currency1, "currency1");
+        ArgumentChecker.notNull(currency2, "currency2");
+        fxRates.add(new FxRate(currency1.getCode(), currency2.getCode(), rate));
+        return this;
+    }
+
+    /**
+     * Adds a Black volatility surface on an expiry x strike grid. A one point grid is read back as a constant surface.
+     * @param name the surface name, unique in the snapshot
+     * @param expiries the expiries, increasing
+     * @param strikes the strikes, increasing
+     * @param volatilities the volatilities, by expiry then strike
+     * @param interpolator the interpolator name used along both axes
+     * @param extrapolator the extrapolator name used on both sides of both axes
+     * @return this writer
+     */
+    public MarketDataSnapshotWriter addVolatilitySurface(final String name, final double[] expiries, final double[] strikes,
+                                                        final double[][] volatilities, final String interpolator, final String extrapolator) {
+        checkName(name);
+        ArgumentChecker.notNull(expiries, "expiries");
+        ArgumentChecker.notNull(strikes, "strikes");
+        ArgumentChecker.noNulls(volatilities, "volatilities");
+        ArgumentChecker.isTrue(expiries.length > 0 && strikes.length > 0, "surface must have at least one point");
+        ArgumentChecker.isTrue(volatilities.length == expiries.length, "one row of volatilities per expiry");
+        final double[] flat = new double[expiries.length * strikes.length];
+        for (int i = 0; i < expiries.length; i++) {
+            ArgumentChecker.isTrue(volatilities[i].length == strikes.length, "one volatility per strike");
+            System.arraycopy(volatilities[i], 0, flat, i * strikes.length, strikes.length);
+        }
+        ArgumentChecker.notNull(interpolator, "interpolator");
+        ArgumentChecker.notNull(extrapolator, "extrapolator");
+        names.add(name);
+        surfaces.add(new Surface(name, expiries.clone(), strikes.clone(), flat, interpolator, extrapolator));
+        return this;
+    }
+
+    /**
+     * Writes the snapshot, replacing the file if it exists.
+     * @param file the file, not null
+     */
+    public void write(final Path file) {
+        ArgumentChecker.notNull(file, "file");
+        final long size = size();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(SnapshotFormat.ORDER);
+            write(buffer);
+            buffer.force();
+        } catch (final IOException e) {
+            throw new OpenGammaRuntimeException("Could not write market data snapshot " + file, e);
+        }
+    }
+
+    /**
+     * @return the snapshot, in the file format, for sending to a process that reads it with {@link MarketDataSnapshot#wrap}
+     */
+    public byte[] toByteArray() {
+        final long size = size();
+        ArgumentChecker.isTrue(size <= Integer.MAX_VALUE, "snapshot too large for an array");
+        final ByteBuffer buffer = ByteBuffer.allocate((int) size).order(SnapshotFormat.ORDER);
+        write(buffer);
+        return buffer.array();
+    }
+
+    private void write(final ByteBuffer buffer) {
+        buffer.putInt(SnapshotFormat.MAGIC);
+        buffer.putInt(SnapshotFormat.VERSION);
+        buffer.putInt(curves.size());
+        buffer.putInt(fxRates.size());
+        buffer.putInt(surfaces.size());
+        for (final Curve curve : curves) {
+            SnapshotFormat.putString(buffer, curve.name);
+            SnapshotFormat.putString(buffer, curve.interpolator);
+            SnapshotFormat.putString(buffer, curve.leftExtrapolator);
+            SnapshotFormat.putString(buffer, curve.rightExtrapolator);
+            buffer.putInt(curve.times.length);
+            SnapshotFormat.putDoubles(buffer, curve.times);
+            SnapshotFormat.putDoubles(buffer, curve.values);
+        }
+        for (final FxRate fxRate : fxRates) {
+            SnapshotFormat.putString(buffer, fxRate.currency1);
+            SnapshotFormat.putString(buffer, fxRate.currency2);
+            buffer.putDouble(fxRate.rate);
+        }
+        for (final Surface surface : surfaces) {
+            SnapshotFormat.putString(buffer, surface.name);
+            SnapshotFormat.putString(buffer, surface.interpolator);
+            SnapshotFormat.putString(buffer, surface.extrapolator);
+            buffer.putInt(surface.expiries.length);
+            buffer.putInt(surface.strikes.length);
+            SnapshotFormat.putDoubles(buffer, surface.expiries);
+            SnapshotFormat.putDoubles(buffer, surface.strikes);
+            SnapshotFormat.putDoubles(buffer, surface.volatilities);
+        }
+    }
+
+    private long size() {
+        long size = 5 * 4;
+        for (final Curve curve : curves) {
+            size += SnapshotFormat.stringSize(curve.name) + SnapshotFormat.stringSize(curve.interpolator)
+                    + SnapshotFormat.stringSize(curve.leftExtrapolator) + SnapshotFormat.stringSize(curve.rightExtrapolator)
+                    + 4 + 16 * curve.times.length;
+        }
+        for (final FxRate fxRate : fxRates) {
+            size += SnapshotFormat.stringSize(fxRate.currency1) + SnapshotFormat.stringSize(fxRate.currency2) + 8;
+        }
+        for (final Surface surface : surfaces) {
+            size += SnapshotFormat.stringSize(surface.name) + SnapshotFormat.stringSize(surface.interpolator)
+                    + SnapshotFormat.stringSize(surface.extrapolator) + 8
+                    + 8 * (surface.expiries.length + surface.strikes.length + surface.volatilities.length);
+        }
+        return size;
+    }
+
+    /**
+     * Checks that the name is not taken yet; it is added to the names once the other arguments are checked, so that a
+     * rejected curve or surface does not take it.
+     */
+    private void checkName(final String name) {
+        ArgumentChecker.notNull(name, "name");
+        ArgumentChecker.isTrue(!names.contains(name), "duplicate name {}", name);
+    }
+
+    private static final class Curve {
+        private final String name;
+        private final double[] times;
+        private final double[] values;
+        private final String interpolator;
+        private final String leftExtrapolator;
+        private final String rightExtrapolator;
+
+        private Curve(final String name, final double[] times, final double[] values, final String interpolator, final String leftExtrapolator,
+                      final String rightExtrapolator) {
+            this.name = name;
+            this.times = times;
+            this.values = values;
+            this.interpolator = interpolator;
+            this.leftExtrapolator = leftExtrapolator;
+            this.rightExtrapolator = rightExtrapolator;
+        }
+    }
+
+    private static final class FxRate {
+        private final String currency1;
+        private final String currency2;
+        private final double rate;
+
+        private FxRate(final String currency1, final String currency2, final double rate) {
+            this.currency1 = currency1;
+            this.currency2 = currency2;
+            this.rate = rate;
+        }
+    }
+
+    private static final class Surface {
+        private final String name;
+        private final double[] expiries;
+        private final double[] strikes;
+        private final double[] volatilities;
+        private final String interpolator;
+        private final String extrapolator;
+
+        private Surface(final String name, final double[] expiries, final double[] strikes, final double[] volatilities, final String interpolator,
+                        final String extrapolator) {
+            this.name = name;
+            this.expiries = expiries;
+            this.strikes = strikes;
+            this.volatilities = volatilities;
+            this.interpolator = interpolator;
+            this.extrapolator = extrapolator;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ch.sc.opengamma.marketdata;
+
+import com.opengamma.util.ArgumentChecker;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Layout of a market data snapshot file, shared by {@link MarketDataSnapshotWriter} and {@link MarketDataSnapshot}.
+ * All numbers are little endian. The file is a header (magic, version, number of curves, FX rates and surfaces)
+ * followed by the curves, the FX rates and the surfaces:
+ * <ul>
+ * <li>curve: name, interpolator, left extrapolator, right extrapolator, node count n, n times, n values</li>
+ * <li>FX rate: currency 1, currency 2, rate (1 currency 1 = rate currency 2)</li>
+ * <li>surface: name, interpolator, extrapolator, expiry count e, strike count k, e expiries, k strikes,
+ * e * k volatilities by expiry then strike</li>
+ * </ul>
+ * Strings are a two byte unsigned length followed by UTF-8 bytes, so at most {@value #MAX_STRING_BYTES} bytes.
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x4F474D53; // "OGMS"
+    static final int VERSION = 1;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private SnapshotFormat() {
+    }
+
+    static String getString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    static void skipString(final ByteBuffer buffer) {
+        final int length = buffer.getShort() & 0xFFFF;
+        buffer.position(buffer.position() + length);
+    }
+
+    static void putString(final ByteBuffer buffer, final String value) {
+        final byte[] bytes = encode(value);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    static int stringSize(final String value) {
+        return 2 + encode(value).length;
+    }
+
+    private static byte[] encode(final String value) {
+        final byte[] bytes = value.getBytes(UTF8);
+        ArgumentChecker.isTrue(bytes.length <= MAX_STRING_BYTES, "string of {} bytes longer than the {} bytes of the snapshot format",
+                bytes.length, MAX_STRING_BYTES);
+        return bytes;
+    }
+
+    /**
+     * Reads n doubles at the position of the buffer with one bulk copy and advances the position.
+     */
+    static double[] getDoubles(final ByteBuffer buffer, final int n) {
+        final double[] values = new double[n];
+        buffer.slice().order(ORDER).asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + 8 * n);
+        return values;
+    }
+
+    static void putDoubles(final ByteBuffer buffer, final double[] values) {
+        buffer.slice().order(ORDER).asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+}
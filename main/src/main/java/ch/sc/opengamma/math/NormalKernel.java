@@ -0,0 +1,209 @@
+package ch.sc.opengamma.math;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Normal distribution on primitive doubles, for pricing and risk loops.
+ * {@link com.opengamma.analytics.math.statistics.distribution.NormalDistribution} boxes every argument through
+ * {@code ProbabilityDistribution<Double>} and does not apply its mean and standard deviation consistently
+ * (see NormalDistributionTest); this kernel does neither, and offers batch methods writing into caller-owned arrays.
+ * <p>
+ * The cumulative distribution uses Cody's rational Chebyshev approximations (Cody 1969, as in R's pnorm), which are
+ * accurate relative to the probability in the tails as well. The inverse starts from Acklam's rational approximation
+ * and is refined by one Halley step on that cumulative distribution, which brings it to full double precision.
+ */
+public final class NormalKernel {
+
+    /** The standard normal distribution. */
+    public static final NormalKernel STANDARD = new NormalKernel(0, 1);
+
+    private static final double SQRT_TWO_PI = Math.sqrt(2 * Math.PI);
+    private static final double INV_SQRT_TWO_PI = 1 / SQRT_TWO_PI;
+    private static final double CENTRAL = 0.67448975;
+    private static final double INTERMEDIATE = Math.sqrt(32);
+    private static final double CUTOFF = 38.5;
+
+    private static final double[] CODY_A = {
+        2.2352520354606839287, 161.02823106855587881, 1067.6894854603709582, 18154.981253343561249, 0.065682337918207449113};
+    private static final double[] CODY_B = {47.20258190468824187, 976.09855173777669322, 10260.932208618978205, 45507.789335026729956};
+    private static final double[] CODY_C = {
+        0.39894151208813466764, 8.8831497943883759412, 93.506656132177855979, 597.27027639480026226, 2494.5375852903726711,
+        6848.1904505362823326, 11602.651437647350124, 9842.7148383839780218, 1.0765576773720192317e-8};
+    private static final double[] CODY_D = {
+        22.266688044328115691, 235.38790178262499861, 1519.377599407554805, 6485.558298266760755, 18615.571640885098091,
+        34900.952721145977266, 38912.003286093271411, 19685.429676859990727};
+    private static final double[] CODY_P = {
+        0.21589853405795699, 0.1274011611602473639, 0.022235277870649807, 0.001421619193227893466, 2.9112874951168792e-5,
+        0.02307344176494017303};
+    private static final double[] CODY_Q = {
+        1.28426009614491121, 0.468238212480865118, 0.0659881378689285515, 0.00378239633202758244, 7.29751555083966205e-5};
+
+    private static final double[] A = {
+        -3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02, 1.383577518672690e+02, -3.066479806614716e+01,
+        2.506628277459239e+00};
+    private static final double[] B = {
+        -5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02, 6.680131188771972e+01, -1.328068155288572e+01};
+    private static final double[] C = {
+        -7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00, -2.549732539343734e+00, 4.374664141464968e+00,
+        2.938163982698783e+00};
+    private static final double[] D = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00, 3.754408661907416e+00};
+    private static final double P_LOW = 0.02425;
+
+    private final double mean;
+    private final double standardDeviation;
+
+    /**
+     * @param mean the mean
+     * @param standardDeviation the standard deviation, strictly positive
+     */
+    public NormalKernel(final double mean, final double standardDeviation) {
+        ArgumentChecker.isTrue(standardDeviation > 0, "standard deviation must be positive");
+        this.mean = mean;
+        this.standardDeviation = standardDeviation;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public double getCDF(final double x) {
+        return cdf((x - mean) / standardDeviation);
+    }
+
+    public double getPDF(final double x) {
+        return pdf((x - mean) / standardDeviation) / standardDeviation;
+    }
+
+    public double getInverseCDF(final double p) {
+        return mean + standardDeviation * inverseCdf(p);
+    }
+
+    /**
+     * @param x the points, not null
+     * @param out the cumulative probabilities, at least as long as the points; may be the same array
+     */
+    public void getCDF(final double[] x, final double[] out) {
+        checkArrays(x, out);
+        for (int i = 0; i < x.length; i++) {
+            out[i] = cdf((x[i] - mean) / standardDeviation);
+        }
+    }
+
+    /**
+     * @param x the points, not null
+     * @param out the densities, at least as long as the points; may be the same array
+     */
+    public void getPDF(final double[] x, final double[] out) {
+        checkArrays(x, out);
+        for (int i = 0; i < x.length; i++) {
+            out[i] = pdf((x[i] - mean) / standardDeviation) / standardDeviation;
+        }
+    }
+
+    /**
+     * @param p the probabilities, in [0, 1], not null
+     * @param out the quantiles, at least as long as the probabilities; may be the same array
+     */
+    public void getInverseCDF(final double[] p, final double[] out) {
+        checkArrays(p, out);
+        for (int i = 0; i < p.length; i++) {
+            out[i] = mean + standardDeviation * inverseCdf(p[i]);
+        }
+    }
+
+    /**
+     * @param x the point
+     * @return the standard normal cumulative distribution at x
+     */
+    public static double cdf(final double x) {
+        final double y = Math.abs(x);
+        if (y <= CENTRAL) {
+            final double xsq = x * x;
+            double numerator = CODY_A[4] * xsq;
+            double denominator = xsq;
+            for (int i = 0; i < 3; i++) {
+                numerator = (numerator + CODY_A[i]) * xsq;
+                denominator = (denominator + CODY_B[i]) * xsq;
+            }
+            return 0.5 + x * (numerator + CODY_A[3]) / (denominator + CODY_B[3]);
+        }
+        if (y > CUTOFF) {
+            return x > 0 ? 1 : 0;
+        }
+        double ratio;
+        if (y <= INTERMEDIATE) {
+            double numerator = CODY_C[8] * y;
+            double denominator = y;
+            for (int i = 0; i < 7; i++) {
+                numerator = (numerator + CODY_C[i]) * y;
+                denominator = (denominator + CODY_D[i]) * y;
+            }
+            ratio = (numerator + CODY_C[7]) / (denominator + CODY_D[7]);
+        } else {
+            final double xsq = 1 / (y * y);
+            double numerator = CODY_P[5] * xsq;
+            double denominator = xsq;
+            for (int i = 0; i < 4; i++) {
+                numerator = (numerator + CODY_P[i]) * xsq;
+                denominator = (denominator + CODY_Q[i]) * xsq;
+            }
+            ratio = (INV_SQRT_TWO_PI - xsq * (numerator + CODY_P[4]) / (denominator + CODY_Q[4])) / y;
+        }
+        // exp(-y^2/2) with y split in a 1/16 multiple and a remainder, so the rounding of y^2 does not cost relative accuracy.
+        final double head = ((long) (y * 16)) / 16.0;
+        final double tail = Math.exp(-0.5 * head * head) * Math.exp(-0.5 * (y - head) * (y + head)) * ratio;
+        return x > 0 ? 1 - tail : tail;
+    }
+
+    /**
+     * @param x the point
+     * @return the standard normal density at x
+     */
+    public static double pdf(final double x) {
+        return INV_SQRT_TWO_PI * Math.exp(-0.5 * x * x);
+    }
+
+    /**
+     * @param p the probability, in [0, 1]
+     * @return the standard normal quantile of p; infinite at 0 and 1. Below the smallest normal double, the quantile
+     * is not refined and only has the relative accuracy of Acklam's approximation, about 1E-9.
+     */
+    public static double inverseCdf(final double p) {
+        ArgumentChecker.isTrue(p >= 0 && p <= 1, "probability must be in [0, 1]");
+        if (p > 0.5) {
+            // 1 - p is exact on (0.5, 1], and the lower tail is where the approximation is refined most accurately.
+            return -inverseCdf(1 - p);
+        }
+        if (p == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double x;
+        if (p < P_LOW) {
+            final double q = Math.sqrt(-2 * Math.log(p));
+            x = (((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5])
+                    / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+        } else {
+            final double q = p - 0.5;
+            final double r = q * q;
+            x = (((((A[0] * r + A[1]) * r + A[2]) * r + A[3]) * r + A[4]) * r + A[5]) * q
+                    / (((((B[0] * r + B[1]) * r + B[2]) * r + B[3]) * r + B[4]) * r + 1);
+        }
+        if (p < Double.MIN_NORMAL) {
+            // Subnormal tail: exp(x^2/2) overflows and cdf(x) has lost precision, so the Halley step would give NaN.
+            return x;
+        }
+        // Halley step: u is the Newton correction (cdf(x) - p) / pdf(x).
+        final double u = (cdf(x) - p) * SQRT_TWO_PI * Math.exp(0.5 * x * x);
+        return x - u / (1 + 0.5 * x * u);
+    }
+
+    private static void checkArrays(final double[] in, final double[] out) {
+        ArgumentChecker.notNull(in, "in");
+        ArgumentChecker.notNull(out, "out");
+        ArgumentChecker.isTrue(out.length >= in.length, "output array too short");
+    }
+}
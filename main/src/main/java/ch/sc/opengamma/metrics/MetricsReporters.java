@@ -0,0 +1,65 @@
+package ch.sc.opengamma.metrics;
+
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ganglia.GangliaReporter;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+import info.ganglia.gmetric4j.gmetric.GMetric;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reporters publishing a {@link MetricRegistry}, with rates per second and durations in milliseconds.
+ * JMX exposes the metrics on demand. Scheduled reporters, such as Ganglia, are returned unstarted: any
+ * {@link com.codahale.metrics.ScheduledReporter} can be plugged in the same way and started with its reporting period.
+ */
+public final class MetricsReporters {
+
+    private MetricsReporters() {
+    }
+
+    /**
+     * @param registry the registry, not null
+     * @return the started JMX reporter
+     */
+    public static JmxReporter startJmx(final MetricRegistry registry) {
+        ArgumentChecker.notNull(registry, "registry");
+        final JmxReporter reporter = JmxReporter.forRegistry(registry)
+                .convertRatesTo(TimeUnit.SECONDS)
+                .convertDurationsTo(TimeUnit.MILLISECONDS)
+                .build();
+        reporter.start();
+        return reporter;
+    }
+
+    /**
+     * @param registry the registry, not null
+     * @param host the gmond host, not null
+     * @param port the gmond UDP port
+     * @return the Ganglia reporter sending to the host, not started
+     */
+    public static GangliaReporter ganglia(final MetricRegistry registry, final String host, final int port) {
+        ArgumentChecker.notNull(host, "host");
+        try {
+            return ganglia(registry, new GMetric(host, port, GMetric.UDPAddressingMode.UNICAST, 1));
+        } catch (final IOException e) {
+            throw new OpenGammaRuntimeException("Could not connect to Ganglia at " + host + ":" + port, e);
+        }
+    }
+
+    /**
+     * @param registry the registry, not null
+     * @param ganglia the Ganglia client, not null
+     * @return the Ganglia reporter, not started
+     */
+    public static GangliaReporter ganglia(final MetricRegistry registry, final GMetric ganglia) {
+        ArgumentChecker.notNull(registry, "registry");
+        ArgumentChecker.notNull(ganglia, "ganglia");
+        return GangliaReporter.forRegistry(registry)
+                .convertRatesTo(TimeUnit.SECONDS)
+                .convertDurationsTo(TimeUnit.MILLISECONDS)
+                .build(ganglia);
+    }
+}
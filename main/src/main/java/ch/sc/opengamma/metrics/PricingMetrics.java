@@ -0,0 +1,142 @@
+package ch.sc.opengamma.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Supplier;
+import com.google.common.cache.CacheStats;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.Collection;
+
+/**
+ * Pricing metrics of one desk, recorded in a shared {@link MetricRegistry}.
+ * Metrics are named {@code pricing.<desk>.<instrument type>.<name>}, so that reporters can filter and aggregate by
+ * desk. Timers hold the latency distribution and the rate of the pricing calls of one method: one sample per call of
+ * a pricer, from the caller's side, however many trades the call prices and however many threads it runs on.
+ * Histograms hold the sizes of the batches priced per call, meters the number of trades processed. Thread-safe.
+ */
+public final class PricingMetrics {
+
+    public static final String PREFIX = "pricing";
+
+    /** Present value method. */
+    public static final String PRESENT_VALUE = "pv";
+    /** Greeks method, present value included when computed in the same pass. */
+    public static final String GREEKS = "greeks";
+    /** Curve sensitivities method. */
+    public static final String SENSITIVITIES = "sensitivities";
+    /** Scenario revaluation of a value at risk. */
+    public static final String VALUE_AT_RISK = "var";
+
+    private final MetricRegistry registry;
+    private final String desk;
+
+    /**
+     * @param registry the registry, not null
+     * @param desk the desk, not null
+     */
+    public PricingMetrics(final MetricRegistry registry, final String desk) {
+        ArgumentChecker.notNull(registry, "registry");
+        ArgumentChecker.notNull(desk, "desk");
+        this.registry = registry;
+        this.desk = desk;
+    }
+
+    public MetricRegistry getRegistry() {
+        return registry;
+    }
+
+    public String getDesk() {
+        return desk;
+    }
+
+    /**
+     * @param instrumentType the instrument type, e.g. "Bond"
+     * @param metric the metric name within the instrument type
+     * @return the full name of the metric
+     */
+    public String name(final String instrumentType, final String metric) {
+        return MetricRegistry.name(PREFIX, desk, instrumentType, metric);
+    }
+
+    /**
+     * @param instrumentType the instrument type
+     * @param method the pricing method, e.g. {@link #PRESENT_VALUE}
+     * @return the timer of the pricing calls
+     */
+    public Timer timer(final String instrumentType, final String method) {
+        return registry.timer(name(instrumentType, method));
+    }
+
+    public Histogram histogram(final String instrumentType, final String metric) {
+        return registry.histogram(name(instrumentType, metric));
+    }
+
+    public Meter meter(final String instrumentType, final String metric) {
+        return registry.meter(name(instrumentType, metric));
+    }
+
+    /**
+     * Registers the hit ratio, hit, miss and eviction counts of a cache, replacing the gauges of a previous cache
+     * of the same name.
+     * @param instrumentType the instrument type
+     * @param cache the cache name
+     * @param stats the statistics of the cache, read on each report, not null
+     */
+    public void registerCache(final String instrumentType, final String cache, final Supplier<CacheStats> stats) {
+        ArgumentChecker.notNull(stats, "stats");
+        replace(name(instrumentType, MetricRegistry.name(cache, "hitRatio")), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                final CacheStats current = stats.get();
+                return Ratio.of(current.hitCount(), current.requestCount());
+            }
+        });
+        replace(name(instrumentType, MetricRegistry.name(cache, "hits")), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return stats.get().hitCount();
+            }
+        });
+        replace(name(instrumentType, MetricRegistry.name(cache, "misses")), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return stats.get().missCount();
+            }
+        });
+        replace(name(instrumentType, MetricRegistry.name(cache, "evictions")), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return stats.get().evictionCount();
+            }
+        });
+    }
+
+    /**
+     * Registers the depth of a queue, replacing the gauge of a previous queue of the same name.
+     * @param instrumentType the instrument type
+     * @param queue the queue name
+     * @param elements the queue, not null
+     */
+    public void registerQueue(final String instrumentType, final String queue, final Collection<?> elements) {
+        ArgumentChecker.notNull(elements, "elements");
+        replace(name(instrumentType, MetricRegistry.name(queue, "depth")), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return elements.size();
+            }
+        });
+    }
+
+    private void replace(final String name, final Metric metric) {
+        synchronized (registry) {
+            registry.remove(name);
+            registry.register(name, metric);
+        }
+    }
+}
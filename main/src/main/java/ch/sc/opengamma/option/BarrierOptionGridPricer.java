@@ -0,0 +1,137 @@
+package ch.sc.opengamma.option;
+
+import ch.sc.opengamma.concurrent.ParallelRange;
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.BlackBarrierPriceFunction;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prices a book of single barrier options over many (spot, volatility) scenario points.
+ * Each point is priced with one call to {@link BlackBarrierPriceFunction#getPriceAdjoint}, which returns the price
+ * together with the spot, strike, rate, cost-of-carry and volatility sensitivities; bumping and repricing
+ * the same sensitivities takes one call per bumped input on top of the base price.
+ * Points are spread over a fork-join pool and written into a {@link BarrierOptionGridResult}.
+ * When {@link PricingMetrics} are supplied, each chunk of points priced by a worker is timed, and the grid sizes and
+ * the number of points priced are recorded under the {@value #INSTRUMENT_TYPE} instrument type.
+ */
+public class BarrierOptionGridPricer {
+
+    /** Instrument type of the metrics. */
+    public static final String INSTRUMENT_TYPE = "BarrierOption";
+
+    private static final BlackBarrierPriceFunction BARRIER_FUNCTION = BlackBarrierPriceFunction.getInstance();
+
+    private final ForkJoinPool pool;
+    private final PricingMetrics metrics;
+
+    /**
+     * Runs on the {@link ParallelRange#sharedPool() shared pool}.
+     */
+    public BarrierOptionGridPricer() {
+        this(ParallelRange.sharedPool());
+    }
+
+    public BarrierOptionGridPricer(final ForkJoinPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * @param pool the fork-join pool, not null
+     * @param metrics the metrics recorded, null to record none
+     */
+    public BarrierOptionGridPricer(final ForkJoinPool pool, final PricingMetrics metrics) {
+        ArgumentChecker.notNull(pool, "pool");
+        this.pool = pool;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Prices every option at every scenario point into a new result.
+     * @see #price(EuropeanVanillaOption[], Barrier[], double[], double, double, double[], double[], BarrierOptionGridResult)
+     */
+    public BarrierOptionGridResult price(final EuropeanVanillaOption[] options, final Barrier[] barriers, final double[] rebates,
+                                         final double costOfCarry, final double rate, final double[] spots, final double[] volatilities) {
+        ArgumentChecker.notNull(options, "options");
+        ArgumentChecker.notNull(spots, "spots");
+        final BarrierOptionGridResult result = new BarrierOptionGridResult(options.length, spots.length);
+        price(options, barriers, rebates, costOfCarry, rate, spots, volatilities, result);
+        return result;
+    }
+
+    /**
+     * Prices every option at every scenario point.
+     * @param options the vanilla part of the options, not null
+     * @param barriers the barrier of each option, same length as the options
+     * @param rebates the rebate of each option, same length as the options
+     * @param costOfCarry the cost of carry, common to all points
+     * @param rate the domestic rate, common to all points
+     * @param spots the spot of each scenario point
+     * @param volatilities the volatility of each scenario point, same length as the spots
+     * @param result the preallocated result, with matching dimensions
+     */
+    public void price(final EuropeanVanillaOption[] options, final Barrier[] barriers, final double[] rebates,
+                      final double costOfCarry, final double rate, final double[] spots, final double[] volatilities,
+                      final BarrierOptionGridResult result) {
+        ArgumentChecker.noNulls(options, "options");
+        ArgumentChecker.noNulls(barriers, "barriers");
+        ArgumentChecker.notNull(rebates, "rebates");
+        ArgumentChecker.notNull(spots, "spots");
+        ArgumentChecker.notNull(volatilities, "volatilities");
+        ArgumentChecker.notNull(result, "result");
+        ArgumentChecker.isTrue(barriers.length == options.length && rebates.length == options.length, "one barrier and rebate per option");
+        ArgumentChecker.isTrue(volatilities.length == spots.length, "one volatility per spot");
+        ArgumentChecker.isTrue(result.getNumberOfOptions() == options.length && result.getNumberOfScenarios() == spots.length,
+                "result dimensions do not match the grid");
+
+        final int nbScenarios = spots.length;
+        final int nbPoints = options.length * nbScenarios;
+        final double[] prices = result.getPrices();
+        final double[] derivatives = result.getDerivatives();
+        final ParallelRange.Body body = new ParallelRange.Body() {
+            @Override
+            public void run(final int from, final int to) {
+                final double[] pointDerivatives = new double[BarrierOptionGridResult.NB_DERIVATIVES];
+                for (int point = from; point < to; point++) {
+                    final int option = point / nbScenarios;
+                    final int scenario = point - option * nbScenarios;
+                    prices[point] = BARRIER_FUNCTION.getPriceAdjoint(options[option], barriers[option], rebates[option], spots[scenario],
+                            costOfCarry, rate, volatilities[scenario], pointDerivatives);
+                    System.arraycopy(pointDerivatives, 0, derivatives, point * BarrierOptionGridResult.NB_DERIVATIVES,
+                            BarrierOptionGridResult.NB_DERIVATIVES);
+                }
+            }
+        };
+        final long start = System.nanoTime();
+        ParallelRange.run(pool, nbPoints, ParallelRange.defaultGrain(pool, nbPoints), body);
+        if (metrics != null) {
+            metrics.timer(INSTRUMENT_TYPE, PricingMetrics.GREEKS).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            metrics.histogram(INSTRUMENT_TYPE, "batchSize").update(nbPoints);
+            metrics.meter(INSTRUMENT_TYPE, "priced").mark(nbPoints);
+        }
+    }
+
+    /**
+     * Builds the scenario points of the cartesian product of spots and volatilities, spot-major.
+     * @param spots the spot levels, not null
+     * @param volatilities the volatility levels, not null
+     * @return the spot (element 0) and volatility (element 1) of each point
+     */
+    public static double[][] cartesianScenarios(final double[] spots, final double[] volatilities) {
+        ArgumentChecker.notNull(spots, "spots");
+        ArgumentChecker.notNull(volatilities, "volatilities");
+        final double[] pointSpots = new double[spots.length * volatilities.length];
+        final double[] pointVolatilities = new double[pointSpots.length];
+        for (int i = 0; i < spots.length; i++) {
+            for (int j = 0; j < volatilities.length; j++) {
+                pointSpots[i * volatilities.length + j] = spots[i];
+                pointVolatilities[i * volatilities.length + j] = volatilities[j];
+            }
+        }
+        return new double[][] {pointSpots, pointVolatilities };
+    }
+}
@@ -0,0 +1,64 @@
+package ch.sc.opengamma.option;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Prices and first order sensitivities of a grid of barrier options by scenarios, in preallocated primitive arrays.
+ * Point (option i, scenario s) is stored at index i * nbScenarios + s; its sensitivities are stored in
+ * {@link #getDerivatives()} from (i * nbScenarios + s) * {@link #NB_DERIVATIVES}, in the order of
+ * {@link com.opengamma.analytics.financial.model.option.pricing.analytic.formula.BlackBarrierPriceFunction#getPriceAdjoint}.
+ * A result can be reused across runs with the same dimensions.
+ */
+public class BarrierOptionGridResult {
+
+    public static final int NB_DERIVATIVES = 5;
+    public static final int SPOT = 0;
+    public static final int STRIKE = 1;
+    public static final int RATE = 2;
+    public static final int COST_OF_CARRY = 3;
+    public static final int VOLATILITY = 4;
+
+    private final int nbOptions;
+    private final int nbScenarios;
+    private final double[] prices;
+    private final double[] derivatives;
+
+    public BarrierOptionGridResult(final int nbOptions, final int nbScenarios) {
+        ArgumentChecker.notNegative(nbOptions, "nbOptions");
+        ArgumentChecker.notNegative(nbScenarios, "nbScenarios");
+        this.nbOptions = nbOptions;
+        this.nbScenarios = nbScenarios;
+        prices = new double[nbOptions * nbScenarios];
+        derivatives = new double[nbOptions * nbScenarios * NB_DERIVATIVES];
+    }
+
+    public int getNumberOfOptions() {
+        return nbOptions;
+    }
+
+    public int getNumberOfScenarios() {
+        return nbScenarios;
+    }
+
+    public double[] getPrices() {
+        return prices;
+    }
+
+    public double[] getDerivatives() {
+        return derivatives;
+    }
+
+    public double getPrice(final int option, final int scenario) {
+        return prices[option * nbScenarios + scenario];
+    }
+
+    /**
+     * @param option the option index
+     * @param scenario the scenario index
+     * @param derivative one of {@link #SPOT}, {@link #STRIKE}, {@link #RATE}, {@link #COST_OF_CARRY}, {@link #VOLATILITY}
+     * @return the derivative of the price
+     */
+    public double getDerivative(final int option, final int scenario, final int derivative) {
+        return derivatives[(option * nbScenarios + scenario) * NB_DERIVATIVES + derivative];
+    }
+}
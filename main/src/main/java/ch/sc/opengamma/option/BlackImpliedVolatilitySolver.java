@@ -0,0 +1,194 @@
+package ch.sc.opengamma.option;
+
+import ch.sc.opengamma.concurrent.ParallelRange;
+import ch.sc.opengamma.math.NormalKernel;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Inverts the Black formula for arrays of quoted option prices, as
+ * {@link com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository#impliedVolatility} does one quote at
+ * a time. Prices are forward (undiscounted) prices.
+ * <p>
+ * Each quote is reduced to the normalised price of the out-of-the-money option, b(x, s) = e^(x/2) N(x/s + s/2) -
+ * e^(-x/2) N(x/s - s/2) with x = -|ln(F/K)| and s = sigma sqrt(T). The first guess is the rational approximation of
+ * Corrado and Miller, and is refined by third order Householder steps, which use the closed forms of b''/b' and
+ * b'''/b'; a step leaving the bracket of the root found so far is replaced by a bisection or a doubling. Quotes below
+ * the intrinsic value or above the forward have no implied volatility and are flagged as not converged.
+ * <p>
+ * No object is allocated per quote. Quotes are grouped by underlying and the groups are spread over a fork-join pool.
+ */
+public class BlackImpliedVolatilitySolver {
+
+    private static final double DEFAULT_TOLERANCE = 1E-12;
+    private static final int DEFAULT_MAX_ITERATIONS = 30;
+    private static final double SQRT_TWO_PI = Math.sqrt(2 * Math.PI);
+
+    private final ForkJoinPool pool;
+    private final double tolerance;
+    private final int maxIterations;
+
+    /**
+     * Runs on the {@link ParallelRange#sharedPool() shared pool}.
+     */
+    public BlackImpliedVolatilitySolver() {
+        this(ParallelRange.sharedPool());
+    }
+
+    public BlackImpliedVolatilitySolver(final ForkJoinPool pool) {
+        this(pool, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * @param pool the fork-join pool, not null
+     * @param tolerance the relative change of the volatility below which a quote has converged, strictly positive
+     * @param maxIterations the maximum number of Householder steps per quote, strictly positive
+     */
+    public BlackImpliedVolatilitySolver(final ForkJoinPool pool, final double tolerance, final int maxIterations) {
+        ArgumentChecker.notNull(pool, "pool");
+        ArgumentChecker.isTrue(tolerance > 0, "tolerance must be positive");
+        ArgumentChecker.isTrue(maxIterations > 0, "maxIterations must be positive");
+        this.pool = pool;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Solves every quote into a new result, each quote on its own.
+     * @see #solve(double[], double[], double[], double[], boolean[], int[], ImpliedVolatilityResult)
+     */
+    public ImpliedVolatilityResult solve(final double[] forwards, final double[] strikes, final double[] expiries, final double[] prices,
+                                         final boolean[] isCall) {
+        ArgumentChecker.notNull(prices, "prices");
+        final ImpliedVolatilityResult result = new ImpliedVolatilityResult(prices.length);
+        solve(forwards, strikes, expiries, prices, isCall, null, result);
+        return result;
+    }
+
+    /**
+     * Solves every quote into a preallocated result.
+     * @param forwards the forward of the underlying to the expiry of each quote
+     * @param strikes the strike of each quote
+     * @param expiries the time to expiry of each quote
+     * @param prices the forward price of each quote
+     * @param isCall true for the quotes of calls
+     * @param offsets the quotes of underlying u are those from offsets[u] to offsets[u + 1], increasing from 0 to the
+     * number of quotes; null to spread the quotes over the pool regardless of their underlying
+     * @param result the result, the size of the quotes
+     */
+    public void solve(final double[] forwards, final double[] strikes, final double[] expiries, final double[] prices, final boolean[] isCall,
+                      final int[] offsets, final ImpliedVolatilityResult result) {
+        ArgumentChecker.notNull(forwards, "forwards");
+        ArgumentChecker.notNull(strikes, "strikes");
+        ArgumentChecker.notNull(expiries, "expiries");
+        ArgumentChecker.notNull(prices, "prices");
+        ArgumentChecker.notNull(isCall, "isCall");
+        ArgumentChecker.notNull(result, "result");
+        final int nbQuotes = prices.length;
+        ArgumentChecker.isTrue(forwards.length == nbQuotes && strikes.length == nbQuotes && expiries.length == nbQuotes
+                && isCall.length == nbQuotes, "one forward, strike, expiry and call flag per price");
+        ArgumentChecker.isTrue(result.size() == nbQuotes, "result size does not match the quotes");
+        if (offsets != null) {
+            ArgumentChecker.isTrue(offsets.length > 0 && offsets[0] == 0 && offsets[offsets.length - 1] == nbQuotes,
+                    "offsets must run from 0 to the number of quotes");
+            for (int u = 1; u < offsets.length; u++) {
+                ArgumentChecker.isTrue(offsets[u] >= offsets[u - 1], "offsets must be increasing");
+            }
+        }
+
+        final int nbGroups = offsets == null ? nbQuotes : offsets.length - 1;
+        ParallelRange.run(pool, nbGroups, ParallelRange.defaultGrain(pool, nbGroups), new ParallelRange.Body() {
+            @Override
+            public void run(final int from, final int to) {
+                final int first = offsets == null ? from : offsets[from];
+                final int end = offsets == null ? to : offsets[to];
+                for (int i = first; i < end; i++) {
+                    solve(forwards[i], strikes[i], expiries[i], prices[i], isCall[i], i, result);
+                }
+            }
+        });
+    }
+
+    private void solve(final double forward, final double strike, final double expiry, final double price, final boolean isCall,
+                       final int i, final ImpliedVolatilityResult result) {
+        result.getVolatility()[i] = Double.NaN;
+        result.getConverged()[i] = false;
+        result.getIterations()[i] = 0;
+        if (!(forward > 0 && strike > 0 && expiry > 0)) {
+            return;
+        }
+        // Price of the out-of-the-money option by put-call parity, normalised by sqrt(F K).
+        final double intrinsic = forward - strike;
+        final double outOfTheMoney = isCall == intrinsic > 0 ? price - Math.abs(intrinsic) : price;
+        final double x = -Math.abs(Math.log(forward / strike));
+        final double target = outOfTheMoney / Math.sqrt(forward * strike);
+        if (target == 0) {
+            result.getVolatility()[i] = 0;
+            result.getConverged()[i] = true;
+            return;
+        }
+        if (!(target > 0 && target < Math.exp(0.5 * x))) {
+            return;
+        }
+
+        final double x2 = x * x;
+        double lower = 0;
+        double upper = Double.POSITIVE_INFINITY;
+        double s = initialGuess(x, target);
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            final double f = normalisedPrice(x, s) - target;
+            if (f < 0) {
+                lower = s;
+            } else if (f > 0) {
+                upper = s;
+            } else {
+                converge(s, expiry, iteration, i, result);
+                return;
+            }
+            final double vega = Math.exp(-0.5 * (x2 / (s * s) + 0.25 * s * s)) / SQRT_TWO_PI;
+            final double nu = -f / vega;
+            final double gamma = x2 / (s * s * s) - 0.25 * s;
+            final double delta = gamma * gamma - 3 * x2 / (s * s * s * s) - 0.25;
+            final double next = s + nu * (1 + 0.5 * gamma * nu) / (1 + nu * (gamma + delta * nu / 6));
+            if (Math.abs(next - s) <= tolerance * s) {
+                converge(next, expiry, iteration, i, result);
+                return;
+            }
+            if (next > lower && next < upper) {
+                s = next;
+            } else {
+                s = upper == Double.POSITIVE_INFINITY ? 2 * s : 0.5 * (lower + upper);
+            }
+        }
+        result.getIterations()[i] = maxIterations;
+    }
+
+    private static void converge(final double s, final double expiry, final int iterations, final int i, final ImpliedVolatilityResult result) {
+        result.getVolatility()[i] = s / Math.sqrt(expiry);
+        result.getConverged()[i] = true;
+        result.getIterations()[i] = iterations;
+    }
+
+    /**
+     * Corrado-Miller approximation of s on the normalised out-of-the-money call, where forward and strike are e^(x/2)
+     * and e^(-x/2). Falls back on the point of maximum vega, sqrt(2|x|), where the approximation has no real value.
+     */
+    private static double initialGuess(final double x, final double target) {
+        final double f = Math.exp(0.5 * x);
+        final double k = 1 / f;
+        final double halfIntrinsic = 0.5 * (f - k);
+        final double excess = target - halfIntrinsic;
+        final double discriminant = excess * excess - (f - k) * (f - k) / Math.PI;
+        final double guess = SQRT_TWO_PI / (f + k) * (excess + Math.sqrt(Math.max(discriminant, 0)));
+        if (guess > 0 && !Double.isInfinite(guess)) {
+            return guess;
+        }
+        return x < 0 ? Math.sqrt(-2 * x) : 0.5;
+    }
+
+    private static double normalisedPrice(final double x, final double s) {
+        final double d1 = x / s + 0.5 * s;
+        return Math.exp(0.5 * x) * NormalKernel.cdf(d1) - Math.exp(-0.5 * x) * NormalKernel.cdf(d1 - s);
+    }
+}
@@ -0,0 +1,80 @@
+package ch.sc.opengamma.option;
+
+import ch.sc.opengamma.math.NormalKernel;
+
+/**
+ * The Black formula on primitive doubles, shared by the pricing and revaluation loops of European equity options.
+ * Prices are undiscounted and per unit of underlying; the option side is a sign, +1 for a call and -1 for a put.
+ * Unlike {@link com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository}, d1 is passed in by
+ * the caller so that the price and its derivatives are computed from one evaluation of it.
+ */
+public final class BlackKernel {
+
+    private BlackKernel() {
+    }
+
+    /**
+     * @param forward the forward, positive
+     * @param strike the strike, positive
+     * @param sigmaRootT the volatility times the square root of the time to expiry, positive
+     * @return d1 = ln(F/K)/(sigma sqrt(T)) + sigma sqrt(T)/2
+     */
+    public static double d1(final double forward, final double strike, final double sigmaRootT) {
+        return Math.log(forward / strike) / sigmaRootT + 0.5 * sigmaRootT;
+    }
+
+    /**
+     * @param forward the forward
+     * @param strike the strike
+     * @param sigmaRootT the volatility times the square root of the time to expiry
+     * @return true if the option has optionality left, i.e. it is not worth its intrinsic value
+     */
+    public static boolean hasOptionality(final double forward, final double sigmaRootT) {
+        return sigmaRootT > 0 && forward > 0;
+    }
+
+    /**
+     * @param forward the forward, positive
+     * @param strike the strike, positive
+     * @param sigmaRootT the volatility times the square root of the time to expiry, positive
+     * @param sign +1 for a call, -1 for a put
+     * @param d1 the d1 of the forward, strike and sigmaRootT
+     * @return the Black price
+     */
+    public static double price(final double forward, final double strike, final double sigmaRootT, final double sign, final double d1) {
+        return sign * (forward * NormalKernel.cdf(sign * d1) - strike * NormalKernel.cdf(sign * (d1 - sigmaRootT)));
+    }
+
+    /**
+     * @param sign +1 for a call, -1 for a put
+     * @param d1 the d1 of the option
+     * @return the derivative of the Black price with respect to the forward
+     */
+    public static double forwardDelta(final double sign, final double d1) {
+        return sign * NormalKernel.cdf(sign * d1);
+    }
+
+    /**
+     * @param forward the forward
+     * @param strike the strike
+     * @param sign +1 for a call, -1 for a put
+     * @return the intrinsic value, the price of an option without optionality left
+     */
+    public static double intrinsic(final double forward, final double strike, final double sign) {
+        return Math.max(sign * (forward - strike), 0);
+    }
+
+    /**
+     * @param forward the forward
+     * @param strike the strike, positive
+     * @param sigmaRootT the volatility times the square root of the time to expiry
+     * @param sign +1 for a call, -1 for a put
+     * @return the Black price, or the intrinsic value if the option has no optionality left
+     */
+    public static double price(final double forward, final double strike, final double sigmaRootT, final double sign) {
+        if (!hasOptionality(forward, sigmaRootT)) {
+            return intrinsic(forward, strike, sign);
+        }
+        return price(forward, strike, sigmaRootT, sign, d1(forward, strike, sigmaRootT));
+    }
+}
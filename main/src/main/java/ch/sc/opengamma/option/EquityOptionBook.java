@@ -0,0 +1,110 @@
+package ch.sc.opengamma.option;
+
+import com.opengamma.analytics.financial.ExerciseDecisionType;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * European equity option positions in columns, revalued against the spot of their underlying.
+ * The discount factor, the volatility and the ratio of the forward to the spot are taken from the market data when
+ * the position is added; the forward then moves with the spot, as in {@link EquityOptionGreeksCalculator} with a
+ * forward curve of fixed drift. Positions are appended; the book is not thread safe while being filled.
+ */
+public class EquityOptionBook {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final List<String> underlyings = new ArrayList<>();
+    private final List<Currency> currencies = new ArrayList<>();
+    private double[] scale = new double[INITIAL_CAPACITY];
+    private double[] sign = new double[INITIAL_CAPACITY];
+    private double[] strike = new double[INITIAL_CAPACITY];
+    private double[] expiry = new double[INITIAL_CAPACITY];
+    private double[] forwardToSpot = new double[INITIAL_CAPACITY];
+    private double[] volatility = new double[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param underlyingId the identifier of the spot the option is marked against, not null
+     * @param option the option, European, not null
+     * @param quantity the number of options
+     * @param marketData the market data the discount factor, volatility and forward to spot ratio are taken from, not null
+     * @return the index of the position
+     * @throws IllegalArgumentException if the option is not European
+     */
+    public int add(final String underlyingId, final EquityOption option, final double quantity, final StaticReplicationDataBundle marketData) {
+        ArgumentChecker.notNull(underlyingId, "underlyingId");
+        ArgumentChecker.notNull(option, "option");
+        ArgumentChecker.notNull(marketData, "marketData");
+        ArgumentChecker.isTrue(option.getExerciseType() == ExerciseDecisionType.EUROPEAN,
+                "only European options are marked with the Black formula, not {}", option.getExerciseType());
+        if (size == scale.length) {
+            scale = Arrays.copyOf(scale, 2 * size);
+            sign = Arrays.copyOf(sign, 2 * size);
+            strike = Arrays.copyOf(strike, 2 * size);
+            expiry = Arrays.copyOf(expiry, 2 * size);
+            forwardToSpot = Arrays.copyOf(forwardToSpot, 2 * size);
+            volatility = Arrays.copyOf(volatility, 2 * size);
+        }
+        final double timeToExpiry = option.getTimeToExpiry();
+        scale[size] = quantity * option.getUnitAmount() * marketData.getDiscountCurve().getDiscountFactor(option.getTimeToSettlement());
+        sign[size] = option.isCall() ? 1.0 : -1.0;
+        strike[size] = option.getStrike();
+        expiry[size] = timeToExpiry;
+        forwardToSpot[size] = marketData.getForwardCurve().getForward(timeToExpiry) / marketData.getForwardCurve().getSpot();
+        volatility[size] = marketData.getVolatilitySurface().getVolatility(timeToExpiry, option.getStrike());
+        underlyings.add(underlyingId);
+        currencies.add(option.getCurrency());
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getUnderlyingId(final int position) {
+        return underlyings.get(position);
+    }
+
+    /**
+     * @param position the index of the position
+     * @return the currency the present value of the position is in
+     */
+    public Currency getCurrency(final int position) {
+        return currencies.get(position);
+    }
+
+    /**
+     * Revalues a position at a new spot.
+     * @param position the index of the position
+     * @param spot the spot of the underlying
+     * @param presentValues receives the present value at index slot
+     * @param deltas receives the sensitivity to the spot at index slot
+     * @param slot the index written in both arrays
+     */
+    public void mark(final int position, final double spot, final double[] presentValues, final double[] deltas, final int slot) {
+        final double ratio = forwardToSpot[position];
+        final double forward = spot * ratio;
+        final double k = strike[position];
+        final double s = sign[position];
+        final double sigmaRootT = volatility[position] * Math.sqrt(expiry[position]);
+        final double price;
+        final double dPricedF;
+        if (BlackKernel.hasOptionality(forward, sigmaRootT)) {
+            final double d1 = BlackKernel.d1(forward, k, sigmaRootT);
+            price = BlackKernel.price(forward, k, sigmaRootT, s, d1);
+            dPricedF = BlackKernel.forwardDelta(s, d1);
+        } else {
+            price = BlackKernel.intrinsic(forward, k, s);
+            dPricedF = price > 0 ? s : 0;
+        }
+        presentValues[slot] = scale[position] * price;
+        deltas[slot] = scale[position] * dPricedF * ratio;
+    }
+}
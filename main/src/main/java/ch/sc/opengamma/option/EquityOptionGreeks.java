@@ -0,0 +1,69 @@
+package ch.sc.opengamma.option;
+
+/**
+ * Present values and greeks of an array of equity options, one column per measure (structure of arrays).
+ * Element i of every column refers to the i-th option passed to {@link EquityOptionGreeksCalculator}.
+ * All measures are scaled by the unit amount of the option, like its present value.
+ */
+public class EquityOptionGreeks {
+
+    private final double[] presentValue;
+    private final double[] delta;
+    private final double[] gamma;
+    private final double[] theta;
+    private final double[] vega;
+    private final double[] rho;
+
+    public EquityOptionGreeks(final int size) {
+        presentValue = new double[size];
+        delta = new double[size];
+        gamma = new double[size];
+        theta = new double[size];
+        vega = new double[size];
+        rho = new double[size];
+    }
+
+    public int size() {
+        return presentValue.length;
+    }
+
+    public double[] getPresentValue() {
+        return presentValue;
+    }
+
+    /**
+     * @return the first order sensitivities to the spot of the underlying
+     */
+    public double[] getDelta() {
+        return delta;
+    }
+
+    /**
+     * @return the second order sensitivities to the spot of the underlying
+     */
+    public double[] getGamma() {
+        return gamma;
+    }
+
+    /**
+     * @return the Black-Scholes thetas: minus the sensitivities to the time to expiry, spot, zero rate and cost of carry fixed
+     */
+    public double[] getTheta() {
+        return theta;
+    }
+
+    /**
+     * @return the sensitivities to the Black volatility
+     */
+    public double[] getVega() {
+        return vega;
+    }
+
+    /**
+     * @return the Black-Scholes rhos: the sensitivities to the zero rate to expiry, applied to both the discounting and the
+     * cost of carry, the spot being fixed
+     */
+    public double[] getRho() {
+        return rho;
+    }
+}
@@ -0,0 +1,159 @@
+package ch.sc.opengamma.option;
+
+import ch.sc.opengamma.math.NormalKernel;
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.codahale.metrics.Timer;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.volatility.surface.BlackVolatilitySurface;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Computes the present value and the greeks of European equity options in one pass.
+ * {@link com.opengamma.analytics.financial.equity.option.EquityOptionBlackMethod} re-reads the market data and
+ * recomputes d1/d2 for every measure; here the forward, the discount factor and the volatility are looked up once
+ * per option (and reused between consecutive options with the same expiry, settlement or strike), and all
+ * measures are derived from one evaluation of the Black formula of {@link BlackKernel}.
+ * <p>
+ * With unit amount u, discount factor df to settlement, forward F, spot S and the Black price B(F, K, T, sigma):
+ * pv = u df B, delta = u df dB/dF F/S, gamma = u df d2B/dF2 (F/S)^2 and vega = u df dB/dsigma, as
+ * {@code delta}, {@code gammaWrtSpot} and {@code vega} of the Black method. Theta and rho follow its
+ * {@code spotTheta} and {@code rhoBlackScholes}: the Black-Scholes theta and rho of the spot, with the zero rate r of
+ * the discount curve at expiry and the cost of carry b = ln(F/S)/T.
+ * <p>
+ * When {@link PricingMetrics} are supplied, each batch of options is timed, and the batch sizes and the number of
+ * options priced are recorded under the {@value #INSTRUMENT_TYPE} instrument type.
+ */
+public final class EquityOptionGreeksCalculator {
+
+    /** Instrument type of the metrics. */
+    public static final String INSTRUMENT_TYPE = "EquityOption";
+
+    private static final EquityOptionGreeksCalculator INSTANCE = new EquityOptionGreeksCalculator(null);
+
+    private final PricingMetrics metrics;
+
+    /**
+     * @return the calculator recording no metrics
+     */
+    public static EquityOptionGreeksCalculator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param metrics the metrics recorded, null to record none
+     */
+    public EquityOptionGreeksCalculator(final PricingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param options the options, not null
+     * @param marketData the volatility surface, discount and forward curves, not null
+     * @return the present values and greeks, in the order of the options
+     */
+    public EquityOptionGreeks calculate(final EquityOption[] options, final StaticReplicationDataBundle marketData) {
+        ArgumentChecker.notNull(options, "options");
+        final EquityOptionGreeks greeks = new EquityOptionGreeks(options.length);
+        calculate(options, marketData, greeks);
+        return greeks;
+    }
+
+    /**
+     * Computes the present values and greeks into a preallocated result.
+     * @param options the options, not null
+     * @param marketData the volatility surface, discount and forward curves, not null
+     * @param greeks the result, at least as large as the options
+     */
+    public void calculate(final EquityOption[] options, final StaticReplicationDataBundle marketData, final EquityOptionGreeks greeks) {
+        ArgumentChecker.noNulls(options, "options");
+        ArgumentChecker.notNull(marketData, "marketData");
+        ArgumentChecker.notNull(greeks, "greeks");
+        ArgumentChecker.isTrue(greeks.size() >= options.length, "greeks too small for the options");
+        if (metrics == null) {
+            price(options, marketData, greeks);
+            return;
+        }
+        metrics.histogram(INSTRUMENT_TYPE, "batchSize").update(options.length);
+        final Timer.Context context = metrics.timer(INSTRUMENT_TYPE, PricingMetrics.GREEKS).time();
+        try {
+            price(options, marketData, greeks);
+        } finally {
+            context.stop();
+        }
+        metrics.meter(INSTRUMENT_TYPE, "priced").mark(options.length);
+    }
+
+    private static void price(final EquityOption[] options, final StaticReplicationDataBundle marketData, final EquityOptionGreeks greeks) {
+        final ForwardCurve forwardCurve = marketData.getForwardCurve();
+        final YieldAndDiscountCurve discountCurve = marketData.getDiscountCurve();
+        final BlackVolatilitySurface<?> volatilitySurface = marketData.getVolatilitySurface();
+        final double spot = forwardCurve.getSpot();
+
+        double lastExpiry = Double.NaN;
+        double lastSettlement = Double.NaN;
+        double lastStrike = Double.NaN;
+        double forward = 0;
+        double rate = 0;
+        double discountFactor = 0;
+        double volatility = 0;
+        for (int i = 0; i < options.length; i++) {
+            final EquityOption option = options[i];
+            final double expiry = option.getTimeToExpiry();
+            final double settlement = option.getTimeToSettlement();
+            final double strike = option.getStrike();
+            if (expiry != lastExpiry) {
+                forward = forwardCurve.getForward(expiry);
+                rate = expiry > 0 ? discountCurve.getInterestRate(expiry) : 0;
+            }
+            if (settlement != lastSettlement) {
+                discountFactor = discountCurve.getDiscountFactor(settlement);
+            }
+            if (expiry != lastExpiry || strike != lastStrike) {
+                volatility = volatilitySurface.getVolatility(expiry, strike);
+            }
+            lastExpiry = expiry;
+            lastSettlement = settlement;
+            lastStrike = strike;
+
+            final double unitAmount = option.getUnitAmount();
+            final double scale = unitAmount * discountFactor;
+            final double sign = option.isCall() ? 1.0 : -1.0;
+            final double sigmaRootT = volatility * Math.sqrt(expiry);
+            final double price;
+            final double dPricedF;
+            double d2PricedF2 = 0;
+            double dPricedSigma = 0;
+            double theta = 0;
+            double rho = 0;
+            if (BlackKernel.hasOptionality(forward, sigmaRootT)) {
+                final double d1 = BlackKernel.d1(forward, strike, sigmaRootT);
+                final double density = NormalKernel.pdf(d1);
+                price = BlackKernel.price(forward, strike, sigmaRootT, sign, d1);
+                dPricedF = BlackKernel.forwardDelta(sign, d1);
+                d2PricedF2 = density / (forward * sigmaRootT);
+                dPricedSigma = forward * density * Math.sqrt(expiry);
+                // Black-Scholes theta and rho, discounted to expiry at the zero rate r, with S exp((b - r)T) = F exp(-rT)
+                // and sign K N(sign d2) = F dB/dF - B.
+                final double costOfCarry = Math.log(forward / spot) / expiry;
+                final double expiryDiscountFactor = Math.exp(-rate * expiry);
+                final double strikeTerm = forward * dPricedF - price;
+                theta = unitAmount * expiryDiscountFactor * (-forward * density * volatility / (2 * Math.sqrt(expiry))
+                        - (costOfCarry - rate) * forward * dPricedF - rate * strikeTerm);
+                rho = unitAmount * expiry * expiryDiscountFactor * strikeTerm;
+            } else {
+                price = BlackKernel.intrinsic(forward, strike, sign);
+                dPricedF = price > 0 ? sign : 0;
+            }
+            final double forwardToSpot = forward / spot;
+            greeks.getPresentValue()[i] = scale * price;
+            greeks.getDelta()[i] = scale * dPricedF * forwardToSpot;
+            greeks.getGamma()[i] = scale * d2PricedF2 * forwardToSpot * forwardToSpot;
+            greeks.getTheta()[i] = theta;
+            greeks.getVega()[i] = scale * dPricedSigma;
+            greeks.getRho()[i] = rho;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ch.sc.opengamma.option;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Black implied volatilities of an array of quoted options, with a convergence flag and the number of iterations
+ * used for each. Element i refers to the i-th quote passed to {@link BlackImpliedVolatilitySolver}; a quote that
+ * did not converge, or has no implied volatility, has a NaN volatility.
+ * A result can be reused across runs with the same number of quotes.
+ */
+public class ImpliedVolatilityResult {
+
+    private final double[] volatility;
+    private final boolean[] converged;
+    private final int[] iterations;
+
+    public ImpliedVolatilityResult(final int size) {
+        ArgumentChecker.notNegative(size, "size");
+        volatility = new double[size];
+        converged = new boolean[size];
+        iterations = new int[size];
+    }
+
+    public int size() {
+        return volatility.length;
+    }
+
+    public double[] getVolatility() {
+        return volatility;
+    }
+
+    public boolean[] getConverged() {
+        return converged;
+    }
+
+    public int[] getIterations() {
+        return iterations;
+    }
+
+    public double getVolatility(final int quote) {
+        return volatility[quote];
+    }
+
+    public boolean isConverged(final int quote) {
+        return converged[quote];
+    }
+
+    /**
+     * @return the number of quotes that converged
+     */
+    public int getConvergedCount() {
+        int count = 0;
+        for (final boolean flag : converged) {
+            if (flag) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,90 @@
+package ch.sc.opengamma.scenario;
+
+import com.opengamma.analytics.math.curve.ConstantDoublesCurve;
+import com.opengamma.analytics.math.curve.DoublesCurve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Additive shift of the zero rates of a curve, as a function of time.
+ * A shift only stores its own nodes, never the nodes of the curve it is applied to. Between nodes it is linear, and
+ * flat beyond the first and last node.
+ */
+public final class CurveShift {
+
+    private static final Interpolator1D LINEAR_FLAT = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+            Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+
+    private final DoublesCurve spread;
+
+    private CurveShift(final DoublesCurve spread) {
+        this.spread = spread;
+    }
+
+    /**
+     * @param shift the shift of every zero rate
+     * @return the parallel shift
+     */
+    public static CurveShift parallel(final double shift) {
+        return new CurveShift(ConstantDoublesCurve.from(shift));
+    }
+
+    /**
+     * @param times the node times, increasing, not null
+     * @param shifts the shift at each node, not null
+     * @return the shift interpolated between the nodes
+     */
+    public static CurveShift nodes(final double[] times, final double[] shifts) {
+        ArgumentChecker.notEmpty(times, "times");
+        ArgumentChecker.notNull(shifts, "shifts");
+        ArgumentChecker.isTrue(times.length == shifts.length, "times and shifts must have the same length");
+        if (times.length == 1) {
+            return parallel(shifts[0]);
+        }
+        return new CurveShift(new InterpolatedDoublesCurve(times.clone(), shifts.clone(), LINEAR_FLAT, true));
+    }
+
+    /**
+     * Triangular shift peaking at one key time and vanishing at the neighbouring keys. The first and last keys
+     * shift the whole curve before and after them.
+     * @param keyTimes the key rate times, increasing, not null
+     * @param key the index of the shifted key
+     * @param shift the shift at the key time
+     * @return the key rate shift
+     */
+    public static CurveShift keyRate(final double[] keyTimes, final int key, final double shift) {
+        ArgumentChecker.notEmpty(keyTimes, "keyTimes");
+        ArgumentChecker.isTrue(key >= 0 && key < keyTimes.length, "key {} out of range", key);
+        final double[] shifts = new double[keyTimes.length];
+        shifts[key] = shift;
+        return nodes(keyTimes, shifts);
+    }
+
+    /**
+     * Rotation of the curve: the short end is shifted by one amount, the long end by another, linearly in between.
+     * @param shortTime the time up to which the short shift applies
+     * @param shortShift the shift of the short end
+     * @param longTime the time from which the long shift applies, after the short time
+     * @param longShift the shift of the long end
+     * @return the twist
+     */
+    public static CurveShift twist(final double shortTime, final double shortShift, final double longTime, final double longShift) {
+        ArgumentChecker.isTrue(shortTime < longTime, "shortTime must be before longTime");
+        return nodes(new double[] {shortTime, longTime}, new double[] {shortShift, longShift});
+    }
+
+    /**
+     * @param time the time
+     * @return the shift of the zero rate at that time
+     */
+    public double getShift(final double time) {
+        return spread.getYValue(time);
+    }
+
+    DoublesCurve getSpread() {
+        return spread;
+    }
+}
@@ -0,0 +1,163 @@
+package ch.sc.opengamma.scenario;
+
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountAddZeroSpreadCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Named set of curve shifts and FX shocks, applied as an overlay on a base provider.
+ * Applying a scenario builds a provider that shares every unshifted curve with the base, wraps each shifted curve in a
+ * {@link YieldAndDiscountAddZeroSpreadCurve} over the base curve, and copies the FX matrix only if it is shocked.
+ * The base provider is never modified. Immutable.
+ */
+public final class Scenario {
+
+    private final String name;
+    private final Map<String, List<CurveShift>> curveShifts;
+    private final List<FxShock> fxShocks;
+
+    private Scenario(final String name, final Map<String, List<CurveShift>> curveShifts, final List<FxShock> fxShocks) {
+        this.name = name;
+        this.curveShifts = curveShifts;
+        this.fxShocks = fxShocks;
+    }
+
+    /**
+     * @param name the scenario name, not null
+     * @return the scenario without any shift
+     */
+    public static Scenario of(final String name) {
+        ArgumentChecker.notNull(name, "name");
+        return new Scenario(name, Collections.<String, List<CurveShift>>emptyMap(), Collections.<FxShock>emptyList());
+    }
+
+    /**
+     * @param curve the name of the shifted curve, not null
+     * @param shift the shift, added to the shifts already on the curve, not null
+     * @return a scenario with the additional shift
+     */
+    public Scenario withCurveShift(final String curve, final CurveShift shift) {
+        ArgumentChecker.notNull(curve, "curve");
+        ArgumentChecker.notNull(shift, "shift");
+        final Map<String, List<CurveShift>> shifts = new HashMap<>(curveShifts);
+        final List<CurveShift> onCurve = shifts.containsKey(curve) ? new ArrayList<>(shifts.get(curve)) : new ArrayList<CurveShift>();
+        onCurve.add(shift);
+        shifts.put(curve, Collections.unmodifiableList(onCurve));
+        return new Scenario(name, Collections.unmodifiableMap(shifts), fxShocks);
+    }
+
+    /**
+     * @param currency the shocked currency, not null
+     * @param reference the currency in which the shocked currency is quoted, not null
+     * @param relativeShock the relative change of the price of one unit of currency in the reference currency
+     * @return a scenario with the additional shock
+     */
+    public Scenario withFxShock(final Currency currency, final Currency reference, final double relativeShock) {
+        ArgumentChecker.notNull(currency, "currency");
+        ArgumentChecker.notNull(reference, "reference");
+        ArgumentChecker.isTrue(relativeShock > -1, "relativeShock must be above -1");
+        final List<FxShock> shocks = new ArrayList<>(fxShocks);
+        shocks.add(new FxShock(currency, reference, relativeShock));
+        return new Scenario(name, curveShifts, Collections.unmodifiableList(shocks));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param curves the names of the curves a value depends on, not null
+     * @return true if the scenario may change that value: it shocks FX rates or shifts one of the curves
+     */
+    public boolean affects(final Collection<String> curves) {
+        if (!fxShocks.isEmpty()) {
+            return true;
+        }
+        for (final String curve : curves) {
+            if (curveShifts.containsKey(curve)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param base the base provider, not modified, not null
+     * @return the provider of the scenario
+     */
+    public MulticurveProviderDiscount apply(final MulticurveProviderDiscount base) {
+        ArgumentChecker.notNull(base, "base");
+        return new MulticurveProviderDiscount(shift(base.getDiscountingCurves()), shift(base.getForwardIborCurves()),
+                shift(base.getForwardONCurves()), shock(base.getFxRates()));
+    }
+
+    /**
+     * @param base the base provider, not modified, not null
+     * @return the provider of the scenario
+     */
+    public IssuerProviderDiscount apply(final IssuerProviderDiscount base) {
+        ArgumentChecker.notNull(base, "base");
+        final Map<Pair<String, Currency>, YieldAndDiscountCurve> issuerCurves = shift(base.getIssuerCurves());
+        return new IssuerProviderDiscount(apply(base.getMulticurveProvider()), issuerCurves);
+    }
+
+    private <K> Map<K, YieldAndDiscountCurve> shift(final Map<K, YieldAndDiscountCurve> curves) {
+        final Map<K, YieldAndDiscountCurve> shifted = new LinkedHashMap<>();
+        for (final Map.Entry<K, YieldAndDiscountCurve> entry : curves.entrySet()) {
+            shifted.put(entry.getKey(), shift(entry.getValue()));
+        }
+        return shifted;
+    }
+
+    private YieldAndDiscountCurve shift(final YieldAndDiscountCurve curve) {
+        final List<CurveShift> shifts = curveShifts.get(curve.getName());
+        if (shifts == null) {
+            return curve;
+        }
+        final YieldAndDiscountCurve[] curves = new YieldAndDiscountCurve[shifts.size() + 1];
+        curves[0] = curve;
+        for (int i = 0; i < shifts.size(); i++) {
+            curves[i + 1] = new YieldCurve(curve.getName() + " " + name + " " + i, shifts.get(i).getSpread());
+        }
+        // The overlay keeps the base name, so that curve names and sensitivities read as for the base provider.
+        return new YieldAndDiscountAddZeroSpreadCurve(curve.getName(), false, curves);
+    }
+
+    private FXMatrix shock(final FXMatrix base) {
+        if (fxShocks.isEmpty()) {
+            return base;
+        }
+        final FXMatrix shocked = new FXMatrix(base);
+        for (final FxShock shock : fxShocks) {
+            shocked.updateRates(shock.currency, shock.reference,
+                    shocked.getFxRate(shock.currency, shock.reference) * (1 + shock.relativeShock));
+        }
+        return shocked;
+    }
+
+    private static final class FxShock {
+        private final Currency currency;
+        private final Currency reference;
+        private final double relativeShock;
+
+        private FxShock(final Currency currency, final Currency reference, final double relativeShock) {
+            this.currency = currency;
+            this.reference = reference;
+            this.relativeShock = relativeShock;
+        }
+    }
+}
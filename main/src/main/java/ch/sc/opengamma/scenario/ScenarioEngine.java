@@ -0,0 +1,81 @@
+package ch.sc.opengamma.scenario;
+
+import ch.sc.opengamma.concurrent.ParallelRange;
+import ch.sc.opengamma.incremental.CurveDependentTrade;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Revalues a portfolio in a list of stress {@link Scenario}s.
+ * Scenarios are split across a fork-join pool. Each task applies its scenario to the base provider, which costs one
+ * small overlay provider rather than a deep copy, and drops it once the portfolio is valued. Trades that read none of
+ * the curves a scenario shifts keep their base value, unless the scenario shocks FX rates.
+ */
+public class ScenarioEngine {
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Runs on the {@link ParallelRange#sharedPool() shared pool}.
+     */
+    public ScenarioEngine() {
+        this(ParallelRange.sharedPool());
+    }
+
+    public ScenarioEngine(final ForkJoinPool pool) {
+        ArgumentChecker.notNull(pool, "pool");
+        this.pool = pool;
+    }
+
+    /**
+     * @param trades the trades, valued in a common reporting currency, not null
+     * @param base the base provider, not modified, not null
+     * @param scenarios the scenarios, not null
+     * @return the portfolio value in each scenario
+     */
+    public ScenarioResult evaluate(final List<? extends CurveDependentTrade<? super IssuerProviderDiscount>> trades,
+                                   final IssuerProviderDiscount base, final List<Scenario> scenarios) {
+        ArgumentChecker.noNulls(trades, "trades");
+        ArgumentChecker.notNull(base, "base");
+        ArgumentChecker.noNulls(scenarios, "scenarios");
+        final int nbTrades = trades.size();
+        final int nbScenarios = scenarios.size();
+
+        final double[] baseValues = new double[nbTrades];
+        ParallelRange.run(pool, nbTrades, ParallelRange.defaultGrain(pool, nbTrades), new ParallelRange.Body() {
+            @Override
+            public void run(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    baseValues[i] = trades.get(i).presentValue(base);
+                }
+            }
+        });
+        double baseValue = 0;
+        for (final double value : baseValues) {
+            baseValue += value;
+        }
+
+        final String[] names = new String[nbScenarios];
+        final double[] values = new double[nbScenarios];
+        ParallelRange.run(pool, nbScenarios, ParallelRange.defaultGrain(pool, nbScenarios), new ParallelRange.Body() {
+            @Override
+            public void run(final int from, final int to) {
+                for (int s = from; s < to; s++) {
+                    final Scenario scenario = scenarios.get(s);
+                    final IssuerProviderDiscount provider = scenario.apply(base);
+                    double value = 0;
+                    for (int i = 0; i < nbTrades; i++) {
+                        final CurveDependentTrade<? super IssuerProviderDiscount> trade = trades.get(i);
+                        value += scenario.affects(trade.getCurveTimes().keySet()) ? trade.presentValue(provider) : baseValues[i];
+                    }
+                    names[s] = scenario.getName();
+                    values[s] = value;
+                }
+            }
+        });
+        return new ScenarioResult(names, baseValue, values);
+    }
+}
@@ -0,0 +1,44 @@
+package ch.sc.opengamma.scenario;
+
+/**
+ * Portfolio values in a list of scenarios, in the reporting currency of the portfolio.
+ */
+public class ScenarioResult {
+
+    private final String[] names;
+    private final double baseValue;
+    private final double[] values;
+
+    public ScenarioResult(final String[] names, final double baseValue, final double[] values) {
+        this.names = names;
+        this.baseValue = baseValue;
+        this.values = values;
+    }
+
+    public int getNumberOfScenarios() {
+        return values.length;
+    }
+
+    public String getName(final int scenario) {
+        return names[scenario];
+    }
+
+    /**
+     * @return the value of the portfolio on the base provider
+     */
+    public double getBaseValue() {
+        return baseValue;
+    }
+
+    public double getValue(final int scenario) {
+        return values[scenario];
+    }
+
+    /**
+     * @param scenario the scenario index
+     * @return the value in the scenario less the base value
+     */
+    public double getProfitAndLoss(final int scenario) {
+        return values[scenario] - baseValue;
+    }
+}
@@ -0,0 +1,16 @@
+package ch.sc.opengamma.server;
+
+import java.util.List;
+
+/**
+ * Prices a batch of trades of one instrument type. Called from the pricing pool; implementations must be thread-safe.
+ * @param <T> the type of trade
+ */
+public interface BatchPricer<T> {
+
+    /**
+     * @param trades the trades, not empty
+     * @return the present value of each trade, in the order of the trades
+     */
+    double[] price(List<T> trades);
+}
@@ -0,0 +1,160 @@
+package ch.sc.opengamma.server;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrently submitted trades of one instrument type into batches.
+ * A dispatcher thread takes the first waiting trade, then collects the trades submitted within the linger time, up to
+ * the maximum batch size, and hands the batch to the executor; the next batch is collected while the previous one is
+ * priced. If a batch fails, its trades are priced one by one so that only the failing trades report the error; if
+ * the executor rejects a batch or the pricer throws an error, every trade of the batch fails.
+ * @param <T> the type of trade
+ */
+public class MicroBatcher<T> {
+
+    private final BatchPricer<T> pricer;
+    private final Executor executor;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Pending<T>> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    /**
+     * @param name the name of the dispatcher thread, not null
+     * @param pricer the pricer of the batches, not null
+     * @param executor the executor running the batches, not null
+     * @param maxBatchSize the maximum number of trades in a batch, strictly positive
+     * @param lingerMicros the time a batch waits for more trades after its first one, in microseconds
+     */
+    public MicroBatcher(final String name, final BatchPricer<T> pricer, final Executor executor, final int maxBatchSize, final long lingerMicros) {
+        ArgumentChecker.notNull(name, "name");
+        ArgumentChecker.notNull(pricer, "pricer");
+        ArgumentChecker.notNull(executor, "executor");
+        ArgumentChecker.isTrue(maxBatchSize > 0, "maxBatchSize must be positive");
+        ArgumentChecker.isTrue(lingerMicros >= 0, "lingerMicros must not be negative");
+        this.pricer = pricer;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        dispatcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatch();
+            }
+        }, name);
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * @param trade the trade, not null
+     * @return the future present value of the trade
+     */
+    public ListenableFuture<Double> submit(final T trade) {
+        ArgumentChecker.notNull(trade, "trade");
+        final Pending<T> pending = new Pending<>(trade);
+        queue.add(pending);
+        if (closed && queue.remove(pending)) {
+            pending.result.setException(new OpenGammaRuntimeException("Pricing service stopped"));
+        }
+        return pending.result;
+    }
+
+    /**
+     * Stops the dispatcher. Batches already dispatched complete; trades still waiting fail.
+     */
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+    }
+
+    private void dispatch() {
+        try {
+            while (!closed) {
+                final List<Pending<T>> batch = new ArrayList<>(maxBatchSize);
+                batch.add(queue.take());
+                final long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    final long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    final Pending<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            price(batch);
+                        }
+                    });
+                } catch (final RejectedExecutionException e) {
+                    fail(batch, new OpenGammaRuntimeException("Pricing pool rejected a batch of " + batch.size() + " trades", e));
+                }
+            }
+        } catch (final InterruptedException e) {
+            // Closed.
+        } finally {
+            final List<Pending<T>> waiting = new ArrayList<>();
+            queue.drainTo(waiting);
+            fail(waiting, new OpenGammaRuntimeException("Pricing service stopped"));
+        }
+    }
+
+    private void price(final List<Pending<T>> batch) {
+        final List<T> trades = new ArrayList<>(batch.size());
+        for (final Pending<T> pending : batch) {
+            trades.add(pending.trade);
+        }
+        try {
+            final double[] values = pricer.price(trades);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.set(values[i]);
+            }
+        } catch (final RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.setException(e);
+                return;
+            }
+            for (final Pending<T> pending : batch) {
+                price(Collections.singletonList(pending));
+            }
+        } catch (final Throwable e) {
+            fail(batch, e);
+            throw e;
+        }
+    }
+
+    private static <T> void fail(final List<Pending<T>> batch, final Throwable cause) {
+        for (final Pending<T> pending : batch) {
+            pending.result.setException(cause);
+        }
+    }
+
+    private static final class Pending<T> {
+        private final T trade;
+        private final SettableFuture<Double> result = SettableFuture.create();
+
+        private Pending(final T trade) {
+            this.trade = trade;
+        }
+    }
+}
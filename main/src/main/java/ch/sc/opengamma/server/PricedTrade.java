@@ -0,0 +1,37 @@
+package ch.sc.opengamma.server;
+
+import com.opengamma.util.money.Currency;
+
+/**
+ * Present value of one trade of a pricing request, in the currency the pricer of its type reports in.
+ */
+public class PricedTrade {
+
+    private final String tradeId;
+    private final String type;
+    private final Currency currency;
+    private final double presentValue;
+
+    public PricedTrade(final String tradeId, final String type, final Currency currency, final double presentValue) {
+        this.tradeId = tradeId;
+        this.type = type;
+        this.currency = currency;
+        this.presentValue = presentValue;
+    }
+
+    public String getTradeId() {
+        return tradeId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public double getPresentValue() {
+        return presentValue;
+    }
+}
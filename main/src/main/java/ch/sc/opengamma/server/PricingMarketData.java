@@ -0,0 +1,87 @@
+package ch.sc.opengamma.server;
+
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveForwardPointsProviderDiscount;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import org.threeten.bp.ZonedDateTime;
+
+/**
+ * Market data the pricing service prices against. Replaced as a whole, so that a batch never mixes two snapshots.
+ * The snapshot id names the market data across pricing processes, for sharing results; market data without an id
+ * is never cached. FX forwards of the currency pair of the forward rate curve, when there is one, are priced on it.
+ */
+public class PricingMarketData {
+
+    private final String snapshotId;
+    private final ZonedDateTime referenceDate;
+    private final IssuerProviderDiscount rates;
+    private final MulticurveForwardPointsProviderDiscount forwardPoints;
+    private final StaticReplicationDataBundle equity;
+    private final Currency equityCurrency;
+
+    /**
+     * @param referenceDate the valuation date, at which bond and FX definitions are converted, not null
+     * @param rates the discounting and issuer curves, with the FX rates, not null
+     * @param equity the volatility surface, discount and forward curves of the equity underlying, not null
+     * @param equityCurrency the currency of the equity underlying, in which barrier options are valued, not null
+     */
+    public PricingMarketData(final ZonedDateTime referenceDate, final IssuerProviderDiscount rates, final StaticReplicationDataBundle equity,
+                             final Currency equityCurrency) {
+        this(null, referenceDate, rates, null, equity, equityCurrency);
+    }
+
+    /**
+     * @param snapshotId the id of the market data, identical in every pricing process for identical data, null for none
+     * @param referenceDate the valuation date, at which bond and FX definitions are converted, not null
+     * @param rates the discounting and issuer curves, with the FX rates, not null
+     * @param forwardPoints the curve of the FX forward rates of one currency pair, with the discounting curves, null for none
+     * @param equity the volatility surface, discount and forward curves of the equity underlying, not null
+     * @param equityCurrency the currency of the equity underlying, in which barrier options are valued, not null
+     */
+    public PricingMarketData(final String snapshotId, final ZonedDateTime referenceDate, final IssuerProviderDiscount rates,
+                             final MulticurveForwardPointsProviderDiscount forwardPoints, final StaticReplicationDataBundle equity,
+                             final Currency equityCurrency) {
+        ArgumentChecker.notNull(referenceDate, "referenceDate");
+        ArgumentChecker.notNull(rates, "rates");
+        ArgumentChecker.notNull(equity, "equity");
+        ArgumentChecker.notNull(equityCurrency, "equityCurrency");
+        this.snapshotId = snapshotId;
+        this.referenceDate = referenceDate;
+        this.rates = rates;
+        this.forwardPoints = forwardPoints;
+        this.equity = equity;
+        this.equityCurrency = equityCurrency;
+    }
+
+    /**
+     * @return the id of the market data, null if it has none
+     */
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+    public ZonedDateTime getReferenceDate() {
+        return referenceDate;
+    }
+
+    public IssuerProviderDiscount getRates() {
+        return rates;
+    }
+
+    /**
+     * @return the FX forward rates of one currency pair, null if there are none
+     */
+    public MulticurveForwardPointsProviderDiscount getForwardPoints() {
+        return forwardPoints;
+    }
+
+    public StaticReplicationDataBundle getEquity() {
+        return equity;
+    }
+
+    public Currency getEquityCurrency() {
+        return equityCurrency;
+    }
+}
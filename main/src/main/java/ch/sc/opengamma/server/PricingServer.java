@@ -0,0 +1,222 @@
+package ch.sc.opengamma.server;
+
+import ch.sc.opengamma.cache.RedisResultStore;
+import ch.sc.opengamma.cache.TwoLevelResultCache;
+import ch.sc.opengamma.loader.CsvTradeParser;
+import ch.sc.opengamma.metrics.MetricsReporters;
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.net.HostAndPort;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.model.volatility.surface.BlackVolatilitySurfaceStrike;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveForwardPointsProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.curve.ConstantDoublesCurve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.analytics.math.surface.ConstantDoublesSurface;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import redis.clients.jedis.JedisPool;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Resident HTTP front end of a {@link PricingService}, bound to the loopback interface.
+ * <ul>
+ * <li>POST /price: the body holds CSV trade rows; the response holds one {@code tradeId,type,currency,presentValue}
+ * line per trade, in the order of the rows. Invalid rows and pricing failures answer 400 with the error message.</li>
+ * <li>GET /health: answers OK.</li>
+ * </ul>
+ * Requests are served by a thread pool, so that the trades of concurrent requests meet in the service's batches.
+ */
+public class PricingServer {
+
+    private static final Interpolator1D LINEAR_FLAT = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+            Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+
+    private final PricingService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param service the pricing service, not null
+     * @param port the local port, 0 for any free port
+     * @param nbThreads the number of threads serving requests, strictly positive
+     */
+    public PricingServer(final PricingService service, final int port, final int nbThreads) {
+        ArgumentChecker.notNull(service, "service");
+        ArgumentChecker.isTrue(nbThreads > 0, "nbThreads must be positive");
+        this.service = service;
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (final IOException e) {
+            throw new OpenGammaRuntimeException("Could not bind pricing server to port " + port, e);
+        }
+        executor = Executors.newFixedThreadPool(nbThreads);
+        server.setExecutor(executor);
+        server.createContext("/price", new PriceHandler());
+        server.createContext("/health", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                respond(exchange, 200, "OK\n");
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops serving, waiting at most the given delay for the requests in progress.
+     * @param delaySeconds the maximum delay
+     */
+    public void stop(final int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @return the port the server is bound to
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private final class PriceHandler implements HttpHandler {
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "POST trade rows\n");
+                return;
+            }
+            final List<PricedTrade> priced;
+            try (Reader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                priced = service.price(body);
+            } catch (final IllegalArgumentException | OpenGammaRuntimeException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+            final StringBuilder response = new StringBuilder(priced.size() * 40);
+            for (final PricedTrade trade : priced) {
+                response.append(trade.getTradeId()).append(',').append(trade.getType()).append(',').append(trade.getCurrency().getCode()).append(',')
+                        .append(trade.getPresentValue()).append('\n');
+            }
+            respond(exchange, 200, response.toString());
+        }
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Sample trades of every type, priceable against {@link #demoMarketData()}.
+     * @return the CSV fields of the trades
+     */
+    static List<String[]> warmUpTrades() {
+        final List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rows.add(new String[] {"BOND", "B" + i, "EUR", "2005-02-20", (2007 + i % 10) + "-02-20", "P6M", Double.toString(0.02 + 0.005 * i),
+                "0", "1000", "0", "30E/360", "Following", "STREET CONVENTION", "false", "Issuer", "Repo", "10"});
+            rows.add(new String[] {"FX_FORWARD", "F" + i, "EUR", "USD", (2006 + i % 5) + "-06-26", "1000000", "1.40"});
+            rows.add(new String[] {"EQUITY_OPTION", "O" + i, "0.5", "0.5", Integer.toString(80 + 2 * i), Boolean.toString(i % 2 == 0), "USD", "1",
+                "EUROPEAN", "CASH"});
+            rows.add(new String[] {"EQUITY_FUTURE", "E" + i, "0.25", "0.26", Integer.toString(95 + i), "USD", "50"});
+            rows.add(new String[] {"BARRIER_OPTION", "X" + i, Integer.toString(90 + i), "0.5", "false", "OUT", "DOWN", "CONTINUOUS", "80", "1.5"});
+        }
+        return rows;
+    }
+
+    /**
+     * @return flat EUR and USD curves, with the EUR/USD forward rates they imply, an issuer curve for "Issuer" in EUR,
+     * and a USD equity at 100 with 25% volatility
+     */
+    static PricingMarketData demoMarketData() {
+        return demoMarketData(null);
+    }
+
+    /**
+     * @param snapshotId the id of the market data, null for none
+     * @return the demonstration market data of {@link #demoMarketData()}, with the given id
+     */
+    static PricingMarketData demoMarketData(final String snapshotId) {
+        final YieldAndDiscountCurve eur = new YieldCurve("EUR Dsc", new ConstantDoublesCurve(0.02));
+        final YieldAndDiscountCurve usd = new YieldCurve("USD Dsc", new ConstantDoublesCurve(0.01));
+        final MulticurveProviderDiscount multicurve = new MulticurveProviderDiscount(new FXMatrix(Currency.USD, Currency.EUR, 1.0 / 1.40));
+        multicurve.setCurve(Currency.EUR, eur);
+        multicurve.setCurve(Currency.USD, usd);
+        final Map<Pair<String, Currency>, YieldAndDiscountCurve> issuer = new LinkedHashMap<>();
+        issuer.put(new ObjectsPair<>("Issuer", Currency.EUR), new YieldCurve("Issuer EUR", new ConstantDoublesCurve(0.03)));
+        final double[] times = new double[] {0, 0.5, 1, 2, 3, 5, 7, 10};
+        final double[] forwards = new double[times.length];
+        for (int i = 0; i < times.length; i++) {
+            forwards[i] = 1.40 * Math.exp((0.01 - 0.02) * times[i]);
+        }
+        final MulticurveForwardPointsProviderDiscount forwardPoints = new MulticurveForwardPointsProviderDiscount(multicurve,
+                new InterpolatedDoublesCurve(times, forwards, LINEAR_FLAT, true, "EUR/USD Fwd"), new ObjectsPair<>(Currency.EUR, Currency.USD));
+        final StaticReplicationDataBundle equity = new StaticReplicationDataBundle(new BlackVolatilitySurfaceStrike(new ConstantDoublesSurface(0.25)),
+                YieldCurve.from(ConstantDoublesCurve.from(0.01)), new ForwardCurve(100, 0.01));
+        return new PricingMarketData(snapshotId, DateUtils.getUTCDate(2005, 3, 20), new IssuerProviderDiscount(multicurve, issuer), forwardPoints,
+                equity, Currency.USD);
+    }
+
+    /**
+     * Starts a server on demonstration market data, warmed up and reporting its metrics over JMX.
+     * Arguments: the port (default 8080), then optionally the host:port of a Redis server sharing results with the
+     * other pricing servers.
+     */
+    public static void main(String[] arg) {
+        final int port = arg.length > 0 ? Integer.parseInt(arg[0]) : 8080;
+        final MetricRegistry registry = new MetricRegistry();
+        MetricsReporters.startJmx(registry);
+        TwoLevelResultCache resultCache = null;
+        if (arg.length > 1) {
+            final HostAndPort redis = HostAndPort.fromString(arg[1]).withDefaultPort(6379);
+            resultCache = new TwoLevelResultCache(1000000, 3600, new RedisResultStore(new JedisPool(redis.getHostText(), redis.getPort())));
+        }
+        final PricingService service = new PricingService(new CsvTradeParser(new CalendarNoHoliday("A")), demoMarketData(), new ForkJoinPool(),
+                256, 200, new PricingMetrics(registry, "Demo"), resultCache);
+        final long start = System.nanoTime();
+        service.warmUp(warmUpTrades(), 200);
+        System.out.println("Warm-up (ms):  " + (System.nanoTime() - start) / 1.0E6);
+        service.setMarketData(demoMarketData("demo"));
+        final PricingServer server = new PricingServer(service, port, 16);
+        server.start();
+        System.out.println("Pricing server listening on port " + server.getPort());
+    }
+}
@@ -0,0 +1,471 @@
+package ch.sc.opengamma.server;
+
+import au.com.bytecode.opencsv.CSVReader;
+import ch.sc.opengamma.bond.BondDerivativeCache;
+import ch.sc.opengamma.cache.TradeKeys;
+import ch.sc.opengamma.cache.TwoLevelResultCache;
+import ch.sc.opengamma.loader.CsvTradeParser;
+import ch.sc.opengamma.loader.TradeHandler;
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Prices trades submitted concurrently by many clients, coalescing them into batches per instrument type.
+ * Requests are CSV rows in the format of {@link CsvTradeParser}. Each trade goes to the {@link MicroBatcher} of its
+ * type, and the batches are priced on a shared fork-join pool against the current {@link PricingMarketData}, with
+ * {@link TradePricing}. Bonds are valued in the bond currency, their conversions memoized in a
+ * {@link BondDerivativeCache}; FX forwards are valued in currency 2.
+ * With a {@link TwoLevelResultCache}, the values of all types but equity futures are cached per trade and market data
+ * snapshot id, so that pricing processes sharing the cache's store price identical trades once.
+ * {@link #warmUp} prices sample trades through the same path, so that the classes are loaded and the pricers compiled
+ * before the first client request. A request waits at most the timeout for its values.
+ */
+public class PricingService {
+
+    /** The instrument type under which the result cache metrics are registered. */
+    public static final String RESULT_CACHE_TYPE = "All";
+
+    /** The time a request waits for its values by default, in milliseconds. */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+
+    private final CsvTradeParser parser;
+    private final PricingMetrics metrics;
+    private final TwoLevelResultCache resultCache;
+    private final long timeoutMillis;
+    private final BondDerivativeCache bondCache = new BondDerivativeCache(100000);
+    private final MicroBatcher<BondRequest> bonds;
+    private final MicroBatcher<ForexDefinition> forexForwards;
+    private final MicroBatcher<EquityOption> equityOptions;
+    private final MicroBatcher<EquityFuture> equityFutures;
+    private final MicroBatcher<BarrierRequest> barrierOptions;
+    private volatile PricingMarketData marketData;
+
+    /**
+     * @param parser the parser of the request rows, not null
+     * @param marketData the initial market data, not null
+     * @param pool the pool pricing the batches, not null
+     * @param maxBatchSize the maximum number of trades in a batch, strictly positive
+     * @param lingerMicros the time a batch waits for more trades after its first one, in microseconds
+     * @param metrics the metrics recorded, null to record none
+     */
+    public PricingService(final CsvTradeParser parser, final PricingMarketData marketData, final ForkJoinPool pool, final int maxBatchSize,
+                          final long lingerMicros, final PricingMetrics metrics) {
+        this(parser, marketData, pool, maxBatchSize, lingerMicros, metrics, null);
+    }
+
+    /**
+     * @param parser the parser of the request rows, not null
+     * @param marketData the initial market data, not null
+     * @param pool the pool pricing the batches, not null
+     * @param maxBatchSize the maximum number of trades in a batch, strictly positive
+     * @param lingerMicros the time a batch waits for more trades after its first one, in microseconds
+     * @param metrics the metrics recorded, null to record none
+     * @param resultCache the cache of the bond, FX forward, equity option and barrier option values, used for market data
+     * with a snapshot id, null to cache none
+     */
+    public PricingService(final CsvTradeParser parser, final PricingMarketData marketData, final ForkJoinPool pool, final int maxBatchSize,
+                          final long lingerMicros, final PricingMetrics metrics, final TwoLevelResultCache resultCache) {
+        this(parser, marketData, pool, maxBatchSize, lingerMicros, metrics, resultCache, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param parser the parser of the request rows, not null
+     * @param marketData the initial market data, not null
+     * @param pool the pool pricing the batches, not null
+     * @param maxBatchSize the maximum number of trades in a batch, strictly positive
+     * @param lingerMicros the time a batch waits for more trades after its first one, in microseconds
+     * @param metrics the metrics recorded, null to record none
+     * @param resultCache the cache of the bond, FX forward, equity option and barrier option values, used for market data
+     * with a snapshot id, null to cache none
+     * @param timeoutMillis the time a request waits for its values, in milliseconds, strictly positive
+     */
+    public PricingService(final CsvTradeParser parser, final PricingMarketData marketData, final ForkJoinPool pool, final int maxBatchSize,
+                          final long lingerMicros, final PricingMetrics metrics, final TwoLevelResultCache resultCache, final long timeoutMillis) {
+        ArgumentChecker.notNull(parser, "parser");
+        ArgumentChecker.notNull(pool, "pool");
+        ArgumentChecker.isTrue(timeoutMillis > 0, "timeoutMillis must be positive");
+        setMarketData(marketData);
+        this.parser = parser;
+        this.metrics = metrics;
+        this.resultCache = resultCache;
+        this.timeoutMillis = timeoutMillis;
+        if (metrics != null) {
+            metrics.registerCache("Bond", "derivativeCache", new Supplier<CacheStats>() {
+                @Override
+                public CacheStats get() {
+                    return bondCache.getStats();
+                }
+            });
+            if (resultCache != null) {
+                metrics.registerCache(RESULT_CACHE_TYPE, "resultCache", new Supplier<CacheStats>() {
+                    @Override
+                    public CacheStats get() {
+                        return resultCache.getLocalStats();
+                    }
+                });
+            }
+        }
+        bonds = new MicroBatcher<>("pricing-bond", pricer("Bond", new TradeHasher<BondRequest>() {
+            @Override
+            public String hash(final BondRequest trade) {
+                return TradeKeys.bond(trade.bond, trade.quantity);
+            }
+        }, new MarketDataPricer<BondRequest>() {
+            @Override
+            public double[] price(final List<BondRequest> trades, final PricingMarketData data) {
+                final double[] values = new double[trades.size()];
+                for (int i = 0; i < values.length; i++) {
+                    final BondRequest trade = trades.get(i);
+                    final BondFixedSecurity bond = bondCache.toDerivative(trade.bond, data.getReferenceDate());
+                    values[i] = TradePricing.bond(bond, trade.quantity, data).getAmount(bond.getCurrency());
+                }
+                return values;
+            }
+        }), pool, maxBatchSize, lingerMicros);
+        forexForwards = new MicroBatcher<>("pricing-fx-forward", pricer("ForexForward", new TradeHasher<ForexDefinition>() {
+            @Override
+            public String hash(final ForexDefinition trade) {
+                return TradeKeys.forexForward(trade);
+            }
+        }, new MarketDataPricer<ForexDefinition>() {
+            @Override
+            public double[] price(final List<ForexDefinition> trades, final PricingMarketData data) {
+                final MulticurveProviderInterface multicurve = data.getRates().getMulticurveProvider();
+                final double[] values = new double[trades.size()];
+                for (int i = 0; i < values.length; i++) {
+                    final Forex forex = trades.get(i).toDerivative(data.getReferenceDate());
+                    values[i] = multicurve.getFxRates().convert(TradePricing.forexForward(forex, data), forex.getCurrency2()).getAmount();
+                }
+                return values;
+            }
+        }), pool, maxBatchSize, lingerMicros);
+        equityOptions = new MicroBatcher<>("pricing-equity-option", pricer("EquityOption", new TradeHasher<EquityOption>() {
+            @Override
+            public String hash(final EquityOption trade) {
+                return TradeKeys.equityOption(trade);
+            }
+        }, new MarketDataPricer<EquityOption>() {
+            @Override
+            public double[] price(final List<EquityOption> trades, final PricingMarketData data) {
+                final double[] values = new double[trades.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = TradePricing.equityOption(trades.get(i), data);
+                }
+                return values;
+            }
+        }), pool, maxBatchSize, lingerMicros);
+        equityFutures = new MicroBatcher<>("pricing-equity-future", pricer("EquityFuture", null, new MarketDataPricer<EquityFuture>() {
+            @Override
+            public double[] price(final List<EquityFuture> trades, final PricingMarketData data) {
+                final double[] values = new double[trades.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = TradePricing.equityFuture(trades.get(i), data);
+                }
+                return values;
+            }
+        }), pool, maxBatchSize, lingerMicros);
+        final TradeHasher<BarrierRequest> barrierHasher = new TradeHasher<BarrierRequest>() {
+            @Override
+            public String hash(final BarrierRequest trade) {
+                return TradeKeys.barrierOption(trade.option, trade.barrier, trade.rebate);
+            }
+        };
+        final MarketDataPricer<BarrierRequest> barrierPricer = new MarketDataPricer<BarrierRequest>() {
+            @Override
+            public double[] price(final List<BarrierRequest> trades, final PricingMarketData data) {
+                final double[] values = new double[trades.size()];
+                for (int i = 0; i < values.length; i++) {
+                    final BarrierRequest trade = trades.get(i);
+                    values[i] = TradePricing.barrierOption(trade.option, trade.barrier, trade.rebate, data);
+                }
+                return values;
+            }
+        };
+        barrierOptions = new MicroBatcher<>("pricing-barrier-option", timed("BarrierOption", new BatchPricer<BarrierRequest>() {
+            @Override
+            public double[] price(final List<BarrierRequest> trades) {
+                // The values are in the equity currency of the market data of the batch, whether priced or cached.
+                final PricingMarketData data = marketData;
+                for (final BarrierRequest trade : trades) {
+                    trade.currency = data.getEquityCurrency();
+                }
+                return priceBatch("BarrierOption", barrierHasher, barrierPricer, trades, data);
+            }
+        }), pool, maxBatchSize, lingerMicros);
+    }
+
+    /**
+     * @param marketData the market data of the batches dispatched from now on, not null
+     */
+    public void setMarketData(final PricingMarketData marketData) {
+        ArgumentChecker.notNull(marketData, "marketData");
+        this.marketData = marketData;
+    }
+
+    /**
+     * Prices the trades of a CSV request and waits for their values.
+     * @param request the CSV rows, not closed by this method, not null
+     * @return the priced trades, in the order of the rows
+     * @throws IllegalArgumentException if a row is not a valid trade
+     * @throws OpenGammaRuntimeException if a trade could not be priced
+     */
+    public List<PricedTrade> price(final Reader request) {
+        ArgumentChecker.notNull(request, "request");
+        final List<String[]> rows = new ArrayList<>();
+        try {
+            final CSVReader reader = new CSVReader(request);
+            String[] fields;
+            while ((fields = reader.readNext()) != null) {
+                if (fields.length == 0 || (fields.length == 1 && fields[0].trim().isEmpty()) || fields[0].startsWith("#")) {
+                    continue;
+                }
+                rows.add(fields);
+            }
+        } catch (final IOException e) {
+            throw new OpenGammaRuntimeException("Could not read pricing request", e);
+        }
+        return price(rows);
+    }
+
+    /**
+     * Prices trades and waits for their values.
+     * @param rows the CSV fields of the trades, not null
+     * @return the priced trades, in the order of the rows
+     * @throws IllegalArgumentException if a row is not a valid trade
+     * @throws OpenGammaRuntimeException if a trade could not be priced, or its value was not ready within the timeout
+     */
+    public List<PricedTrade> price(final List<String[]> rows) {
+        ArgumentChecker.noNulls(rows, "rows");
+        final Submitter submitter = new Submitter();
+        for (final String[] row : rows) {
+            parser.parse(row, submitter);
+        }
+        final List<PricedTrade> priced = new ArrayList<>(rows.size());
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        boolean interrupted = false;
+        try {
+            for (int i = 0; i < submitter.values.size(); i++) {
+                while (true) {
+                    try {
+                        final double value = submitter.values.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                        priced.add(new PricedTrade(submitter.ids.get(i), submitter.types.get(i), submitter.currencies.get(i).get(), value));
+                        break;
+                    } catch (final InterruptedException e) {
+                        interrupted = true;
+                    } catch (final ExecutionException e) {
+                        throw new OpenGammaRuntimeException("Could not price trade " + submitter.ids.get(i) + ": " + e.getCause().getMessage(),
+                                e.getCause());
+                    } catch (final TimeoutException e) {
+                        throw new OpenGammaRuntimeException("Timed out pricing trade " + submitter.ids.get(i) + " after " + timeoutMillis + " ms");
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return priced;
+    }
+
+    /**
+     * Prices sample trades repeatedly, discarding the values. Run it on market data without a snapshot id, otherwise the
+     * result cache answers every round but the first.
+     * @param rows the CSV fields of sample trades, covering the instrument types to warm up, not null
+     * @param rounds the number of times the samples are priced
+     */
+    public void warmUp(final List<String[]> rows, final int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            price(rows);
+        }
+    }
+
+    /**
+     * Stops the batchers. Trades not yet dispatched fail.
+     */
+    public void close() {
+        bonds.close();
+        forexForwards.close();
+        equityOptions.close();
+        equityFutures.close();
+        barrierOptions.close();
+    }
+
+    /**
+     * Prices a batch against the market data current at dispatch, read once so that the cache keys and the values
+     * refer to the same snapshot.
+     */
+    private <T> BatchPricer<T> pricer(final String instrumentType, final TradeHasher<T> hasher, final MarketDataPricer<T> pricer) {
+        return timed(instrumentType, new BatchPricer<T>() {
+            @Override
+            public double[] price(final List<T> trades) {
+                return priceBatch(instrumentType, hasher, pricer, trades, marketData);
+            }
+        });
+    }
+
+    /**
+     * Prices a batch against given market data, looking the values up in the result cache when the trades and the market
+     * data have keys.
+     */
+    private <T> double[] priceBatch(final String instrumentType, final TradeHasher<T> hasher, final MarketDataPricer<T> pricer,
+                                    final List<T> trades, final PricingMarketData data) {
+        if (resultCache == null || hasher == null || data.getSnapshotId() == null) {
+            return pricer.price(trades, data);
+        }
+        final List<String> keys = new ArrayList<>(trades.size());
+        for (final T trade : trades) {
+            keys.add(TradeKeys.key(instrumentType, data.getSnapshotId(), hasher.hash(trade)));
+        }
+        return resultCache.get(keys, new TwoLevelResultCache.Loader() {
+            @Override
+            public double[] load(final int[] indices) {
+                final List<T> missing = new ArrayList<>(indices.length);
+                for (final int index : indices) {
+                    missing.add(trades.get(index));
+                }
+                return pricer.price(missing, data);
+            }
+        });
+    }
+
+    private <T> BatchPricer<T> timed(final String instrumentType, final BatchPricer<T> pricer) {
+        if (metrics == null) {
+            return pricer;
+        }
+        final Timer timer = metrics.timer(instrumentType, PricingMetrics.PRESENT_VALUE);
+        return new BatchPricer<T>() {
+            @Override
+            public double[] price(final List<T> trades) {
+                metrics.histogram(instrumentType, "batchSize").update(trades.size());
+                final Timer.Context context = timer.time();
+                try {
+                    return pricer.price(trades);
+                } finally {
+                    context.stop();
+                }
+            }
+        };
+    }
+
+    /**
+     * Prices a batch of trades of one type against given market data.
+     */
+    private interface MarketDataPricer<T> {
+        double[] price(List<T> trades, PricingMarketData data);
+    }
+
+    /**
+     * Hashes the terms of a trade, for its result cache key.
+     */
+    private interface TradeHasher<T> {
+        String hash(T trade);
+    }
+
+    private static final class BondRequest {
+        private final BondFixedSecurityDefinition bond;
+        private final double quantity;
+
+        private BondRequest(final BondFixedSecurityDefinition bond, final double quantity) {
+            this.bond = bond;
+            this.quantity = quantity;
+        }
+    }
+
+    /**
+     * Barrier option to price, with the currency of its value once its batch is dispatched.
+     */
+    private static final class BarrierRequest implements Supplier<Currency> {
+        private final EuropeanVanillaOption option;
+        private final Barrier barrier;
+        private final double rebate;
+        private volatile Currency currency;
+
+        private BarrierRequest(final EuropeanVanillaOption option, final Barrier barrier, final double rebate) {
+            this.option = option;
+            this.barrier = barrier;
+            this.rebate = rebate;
+        }
+
+        @Override
+        public Currency get() {
+            return currency;
+        }
+    }
+
+    /**
+     * Submits the parsed trades of one request, in the calling thread.
+     */
+    private final class Submitter implements TradeHandler {
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> types = new ArrayList<>();
+        private final List<Supplier<Currency>> currencies = new ArrayList<>();
+        private final List<ListenableFuture<Double>> values = new ArrayList<>();
+
+        private void add(final String tradeId, final CsvTradeParser.TradeType type, final Currency currency, final ListenableFuture<Double> value) {
+            add(tradeId, type, Suppliers.ofInstance(currency), value);
+        }
+
+        /**
+         * @param currency the currency of the value, read once the value is done
+         */
+        private void add(final String tradeId, final CsvTradeParser.TradeType type, final Supplier<Currency> currency,
+                         final ListenableFuture<Double> value) {
+            ids.add(tradeId);
+            types.add(type.name());
+            currencies.add(currency);
+            values.add(value);
+        }
+
+        @Override
+        public void bond(final String tradeId, final BondFixedSecurityDefinition bond, final double quantity) {
+            add(tradeId, CsvTradeParser.TradeType.BOND, bond.getCurrency(), bonds.submit(new BondRequest(bond, quantity)));
+        }
+
+        @Override
+        public void forexForward(final String tradeId, final ForexDefinition forward) {
+            add(tradeId, CsvTradeParser.TradeType.FX_FORWARD, forward.getCurrency2(), forexForwards.submit(forward));
+        }
+
+        @Override
+        public void equityOption(final String tradeId, final EquityOption option) {
+            add(tradeId, CsvTradeParser.TradeType.EQUITY_OPTION, option.getCurrency(), equityOptions.submit(option));
+        }
+
+        @Override
+        public void equityFuture(final String tradeId, final EquityFuture future) {
+            add(tradeId, CsvTradeParser.TradeType.EQUITY_FUTURE, future.getCurrency(), equityFutures.submit(future));
+        }
+
+        @Override
+        public void barrierOption(final String tradeId, final EuropeanVanillaOption option, final Barrier barrier, final double rebate) {
+            final BarrierRequest request = new BarrierRequest(option, barrier, rebate);
+            add(tradeId, CsvTradeParser.TradeType.BARRIER_OPTION, request, barrierOptions.submit(request));
+        }
+    }
+}
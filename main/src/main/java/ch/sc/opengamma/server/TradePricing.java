@@ -0,0 +1,102 @@
+package ch.sc.opengamma.server;
+
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.equity.option.EquityOptionBlackMethod;
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.forex.provider.ForexDiscountingMethod;
+import com.opengamma.analytics.financial.forex.provider.ForexForwardPointsMethod;
+import com.opengamma.analytics.financial.future.MarkToMarketFuturesCalculator;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.BlackBarrierPriceFunction;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveForwardPointsProviderDiscount;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyMulticurveSensitivity;
+import com.opengamma.analytics.financial.simpleinstruments.pricing.SimpleFutureDataBundle;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+
+/**
+ * Prices single trades against {@link PricingMarketData}, for the {@link PricingService} and the grid workers, so that
+ * a trade has the same value wherever it is priced:
+ * <ul>
+ * <li>bonds with {@link BondSecurityDiscountingMethod}, times the quantity</li>
+ * <li>FX forwards with {@link ForexForwardPointsMethod} when the market data has forward rates for their currency
+ * pair, in that order, otherwise with {@link ForexDiscountingMethod}</li>
+ * <li>equity options with {@link EquityOptionBlackMethod}, in the option currency</li>
+ * <li>equity futures with {@link MarkToMarketFuturesCalculator}, at the forward of the underlying at expiry, in the
+ * future currency</li>
+ * <li>barrier options with {@link BlackBarrierPriceFunction}, at the spot, rate, carry and volatility of the equity
+ * market data, in the equity currency</li>
+ * </ul>
+ */
+public final class TradePricing {
+
+    private static final BondSecurityDiscountingMethod BOND_METHOD = BondSecurityDiscountingMethod.getInstance();
+    private static final ForexForwardPointsMethod FOREX_POINTS_METHOD = ForexForwardPointsMethod.getInstance();
+    private static final ForexDiscountingMethod FOREX_METHOD = ForexDiscountingMethod.getInstance();
+    private static final EquityOptionBlackMethod EQUITY_OPTION_METHOD = EquityOptionBlackMethod.getInstance();
+    private static final MarkToMarketFuturesCalculator FUTURE_CALCULATOR = MarkToMarketFuturesCalculator.PresentValueCalculator.getInstance();
+    private static final BlackBarrierPriceFunction BARRIER_FUNCTION = BlackBarrierPriceFunction.getInstance();
+
+    private TradePricing() {
+    }
+
+    public static MultipleCurrencyAmount bond(final BondFixedSecurity bond, final double quantity, final PricingMarketData data) {
+        return BOND_METHOD.presentValue(bond, data.getRates()).multipliedBy(quantity);
+    }
+
+    public static MultipleCurrencyMulticurveSensitivity bondSensitivity(final BondFixedSecurity bond, final double quantity,
+                                                                        final PricingMarketData data) {
+        return BOND_METHOD.presentValueCurveSensitivity(bond, data.getRates()).multipliedBy(quantity);
+    }
+
+    public static MultipleCurrencyAmount forexForward(final Forex forex, final PricingMarketData data) {
+        final MulticurveForwardPointsProviderDiscount forwardPoints = forwardPoints(forex, data);
+        if (forwardPoints != null) {
+            return FOREX_POINTS_METHOD.presentValue(forex, forwardPoints);
+        }
+        return FOREX_METHOD.presentValue(forex, data.getRates().getMulticurveProvider());
+    }
+
+    /**
+     * @return the point sensitivities to the discounting curves; those to the forward rates are not included
+     */
+    public static MultipleCurrencyMulticurveSensitivity forexForwardSensitivity(final Forex forex, final PricingMarketData data) {
+        final MulticurveForwardPointsProviderDiscount forwardPoints = forwardPoints(forex, data);
+        if (forwardPoints != null) {
+            return FOREX_POINTS_METHOD.presentValueCurveSensitivity(forex, forwardPoints);
+        }
+        return FOREX_METHOD.presentValueCurveSensitivity(forex, data.getRates().getMulticurveProvider());
+    }
+
+    public static double equityOption(final EquityOption option, final PricingMarketData data) {
+        return EQUITY_OPTION_METHOD.presentValue(option, data.getEquity());
+    }
+
+    public static double equityFuture(final EquityFuture future, final PricingMarketData data) {
+        final double price = data.getEquity().getForwardCurve().getForward(future.getTimeToExpiry());
+        return future.accept(FUTURE_CALCULATOR, new SimpleFutureDataBundle(null, price, null, null, null));
+    }
+
+    public static double barrierOption(final EuropeanVanillaOption option, final Barrier barrier, final double rebate, final PricingMarketData data) {
+        final StaticReplicationDataBundle equity = data.getEquity();
+        final double spot = equity.getForwardCurve().getSpot();
+        final double expiry = option.getTimeToExpiry();
+        final double rate = equity.getDiscountCurve().getInterestRate(expiry);
+        final double costOfCarry = expiry > 0 ? Math.log(equity.getForwardCurve().getForward(expiry) / spot) / expiry : rate;
+        final double volatility = equity.getVolatilitySurface().getVolatility(expiry, option.getStrike());
+        return BARRIER_FUNCTION.getPrice(option, barrier, rebate, spot, costOfCarry, rate, volatility);
+    }
+
+    private static MulticurveForwardPointsProviderDiscount forwardPoints(final Forex forex, final PricingMarketData data) {
+        final MulticurveForwardPointsProviderDiscount forwardPoints = data.getForwardPoints();
+        if (forwardPoints != null && forex.getCurrency1().equals(forwardPoints.getCurrencyPair().getFirst())
+                && forex.getCurrency2().equals(forwardPoints.getCurrencyPair().getSecond())) {
+            return forwardPoints;
+        }
+        return null;
+    }
+}
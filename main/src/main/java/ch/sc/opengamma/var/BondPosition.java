@@ -0,0 +1,69 @@
+package ch.sc.opengamma.var;
+
+import ch.sc.opengamma.bond.BondYieldKernel;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderInterface;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Fixed rate bond position revalued from its yield. The yield factor is an absolute shift of the yield to maturity;
+ * prices are computed by {@link BondYieldKernel}, without walking the coupon annuity in each scenario.
+ * <p>
+ * This is an approximation of a revaluation on the curves: the scenario value is the notional times the dirty
+ * price at the shifted yield, so a yield shift stands for a parallel move of the issuer curve and the discounting
+ * from settlement to today is frozen at its base value. Positions built by
+ * {@link #of(BondFixedSecurity, IssuerProviderInterface, double, int)} are worth the present value of
+ * {@link BondSecurityDiscountingMethod} in the base scenario.
+ */
+public class BondPosition implements ScenarioPosition {
+
+    private static final BondSecurityDiscountingMethod METHOD = BondSecurityDiscountingMethod.getInstance();
+
+    private final BondYieldKernel kernel;
+    private final double notional;
+    private final double yield;
+    private final int yieldFactor;
+
+    /**
+     * @param bond the bond, in street convention with at least two coupons left, not null
+     * @param notional the held notional, times the discount factor to settlement for a present value
+     * @param yield the base yield to maturity
+     * @param yieldFactor the index of the yield shift in the scenario factors
+     */
+    public BondPosition(final BondFixedSecurity bond, final double notional, final double yield, final int yieldFactor) {
+        this(new BondYieldKernel(bond), notional, yield, yieldFactor);
+    }
+
+    private BondPosition(final BondYieldKernel kernel, final double notional, final double yield, final int yieldFactor) {
+        ArgumentChecker.isTrue(yieldFactor >= 0, "yieldFactor must be a factor index");
+        this.kernel = kernel;
+        this.notional = notional;
+        this.yield = yield;
+        this.yieldFactor = yieldFactor;
+    }
+
+    /**
+     * Creates a position worth the present value of the bond on the curves in the base scenario, from the yield
+     * implied by the curves.
+     * @param bond the bond, in street convention with at least two coupons left, not null
+     * @param issuerMulticurves the issuer and discounting curves, not null
+     * @param quantity the number of bonds held
+     * @param yieldFactor the index of the yield shift in the scenario factors
+     * @return the position
+     */
+    public static BondPosition of(final BondFixedSecurity bond, final IssuerProviderInterface issuerMulticurves, final double quantity,
+                                  final int yieldFactor) {
+        ArgumentChecker.notNull(bond, "bond");
+        ArgumentChecker.notNull(issuerMulticurves, "issuerMulticurves");
+        final BondYieldKernel kernel = new BondYieldKernel(bond);
+        final double yield = METHOD.yieldFromCurves(bond, issuerMulticurves);
+        final double presentValue = METHOD.presentValue(bond, issuerMulticurves).getAmount(bond.getCurrency());
+        return new BondPosition(kernel, quantity * presentValue / kernel.dirtyPriceFromYield(yield), yield, yieldFactor);
+    }
+
+    @Override
+    public double value(final double[] factors) {
+        return notional * kernel.dirtyPriceFromYield(yield + factors[yieldFactor]);
+    }
+}
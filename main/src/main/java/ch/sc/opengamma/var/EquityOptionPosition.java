@@ -0,0 +1,69 @@
+package ch.sc.opengamma.var;
+
+import ch.sc.opengamma.option.BlackKernel;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * European equity option revalued with the Black formula. The forward moves with a relative shock of the spot and
+ * the volatility, optionally, with an absolute shock; the discount factor and the strike volatility are frozen at
+ * their base values.
+ */
+public class EquityOptionPosition implements ScenarioPosition {
+
+    /** Factor index of a risk that is not shocked. */
+    public static final int NO_FACTOR = -1;
+
+    private final double scale;
+    private final double sign;
+    private final double strike;
+    private final double expiry;
+    private final double forward;
+    private final double volatility;
+    private final int spotFactor;
+    private final int volatilityFactor;
+
+    /**
+     * @param scale the quantity times the unit amount times the discount factor to settlement
+     * @param isCall true for a call
+     * @param strike the strike
+     * @param expiry the time to expiry
+     * @param forward the base forward to expiry
+     * @param volatility the base Black volatility
+     * @param spotFactor the index of the relative spot shock in the scenario factors
+     * @param volatilityFactor the index of the absolute volatility shock, or {@link #NO_FACTOR}
+     */
+    public EquityOptionPosition(final double scale, final boolean isCall, final double strike, final double expiry, final double forward,
+                                final double volatility, final int spotFactor, final int volatilityFactor) {
+        ArgumentChecker.isTrue(spotFactor >= 0, "spotFactor must be a factor index");
+        ArgumentChecker.isTrue(volatilityFactor >= NO_FACTOR, "volatilityFactor must be a factor index or NO_FACTOR");
+        this.scale = scale;
+        this.sign = isCall ? 1.0 : -1.0;
+        this.strike = strike;
+        this.expiry = expiry;
+        this.forward = forward;
+        this.volatility = volatility;
+        this.spotFactor = spotFactor;
+        this.volatilityFactor = volatilityFactor;
+    }
+
+    public static EquityOptionPosition of(final EquityOption option, final StaticReplicationDataBundle marketData, final double quantity,
+                                          final int spotFactor, final int volatilityFactor) {
+        ArgumentChecker.notNull(option, "option");
+        ArgumentChecker.notNull(marketData, "marketData");
+        final double expiry = option.getTimeToExpiry();
+        final double strike = option.getStrike();
+        final double discountFactor = marketData.getDiscountCurve().getDiscountFactor(option.getTimeToSettlement());
+        return new EquityOptionPosition(quantity * option.getUnitAmount() * discountFactor, option.isCall(), strike, expiry,
+                marketData.getForwardCurve().getForward(expiry), marketData.getVolatilitySurface().getVolatility(expiry, strike),
+                spotFactor, volatilityFactor);
+    }
+
+    @Override
+    public double value(final double[] factors) {
+        final double shockedForward = forward * (1 + factors[spotFactor]);
+        final double shockedVolatility = volatilityFactor == NO_FACTOR ? volatility : Math.max(volatility + factors[volatilityFactor], 0);
+        return scale * BlackKernel.price(shockedForward, strike, shockedVolatility * Math.sqrt(expiry), sign);
+    }
+}
@@ -0,0 +1,54 @@
+package ch.sc.opengamma.var;
+
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+/**
+ * FX forward revalued in its second currency. The FX factor is a relative shock of the spot rate
+ * (units of currency 2 per unit of currency 1).
+ * <p>
+ * This is an approximation of a revaluation on the curves: the discount factors of both currencies are frozen at
+ * their base values, so the value moves with the spot only, not with the rates. Positions built by
+ * {@link #of(Forex, MulticurveProviderInterface, int)} are worth the present value of
+ * {@link com.opengamma.analytics.financial.forex.provider.ForexDiscountingMethod}, converted at the spot, in the base
+ * scenario.
+ */
+public class ForexForwardPosition implements ScenarioPosition {
+
+    private final double presentValue1;
+    private final double presentValue2;
+    private final double spot;
+    private final int fxFactor;
+
+    /**
+     * @param presentValue1 the discounted amount paid or received in currency 1
+     * @param presentValue2 the discounted amount paid or received in currency 2
+     * @param spot the base spot rate, currency 2 per currency 1
+     * @param fxFactor the index of the relative spot shock in the scenario factors
+     */
+    public ForexForwardPosition(final double presentValue1, final double presentValue2, final double spot, final int fxFactor) {
+        ArgumentChecker.isTrue(fxFactor >= 0, "fxFactor must be a factor index");
+        this.presentValue1 = presentValue1;
+        this.presentValue2 = presentValue2;
+        this.spot = spot;
+        this.fxFactor = fxFactor;
+    }
+
+    public static ForexForwardPosition of(final Forex forex, final MulticurveProviderInterface multicurves, final int fxFactor) {
+        ArgumentChecker.notNull(forex, "forex");
+        ArgumentChecker.notNull(multicurves, "multicurves");
+        final Currency currency1 = forex.getCurrency1();
+        final Currency currency2 = forex.getCurrency2();
+        final double paymentTime = forex.getPaymentTime();
+        return new ForexForwardPosition(forex.getPaymentCurrency1().getAmount() * multicurves.getDiscountFactor(currency1, paymentTime),
+                forex.getPaymentCurrency2().getAmount() * multicurves.getDiscountFactor(currency2, paymentTime),
+                multicurves.getFxRate(currency1, currency2), fxFactor);
+    }
+
+    @Override
+    public double value(final double[] factors) {
+        return presentValue1 * spot * (1 + factors[fxFactor]) + presentValue2;
+    }
+}
@@ -0,0 +1,40 @@
+package ch.sc.opengamma.var;
+
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Futures position marked to market against its reference price. The underlying price factor is a relative shock
+ * of the market price of the future.
+ */
+public class FuturePosition implements ScenarioPosition {
+
+    private final double unitAmount;
+    private final double referencePrice;
+    private final double marketPrice;
+    private final int priceFactor;
+
+    /**
+     * @param unitAmount the unit amount times the number of contracts
+     * @param referencePrice the trade or last margin price
+     * @param marketPrice the current price of the future
+     * @param priceFactor the index of the relative price shock in the scenario factors
+     */
+    public FuturePosition(final double unitAmount, final double referencePrice, final double marketPrice, final int priceFactor) {
+        ArgumentChecker.isTrue(priceFactor >= 0, "priceFactor must be a factor index");
+        this.unitAmount = unitAmount;
+        this.referencePrice = referencePrice;
+        this.marketPrice = marketPrice;
+        this.priceFactor = priceFactor;
+    }
+
+    public static FuturePosition of(final EquityFuture future, final double quantity, final double marketPrice, final int priceFactor) {
+        ArgumentChecker.notNull(future, "future");
+        return new FuturePosition(quantity * future.getUnitAmount(), future.getReferencePrice(), marketPrice, priceFactor);
+    }
+
+    @Override
+    public double value(final double[] factors) {
+        return unitAmount * (marketPrice * (1 + factors[priceFactor]) - referencePrice);
+    }
+}
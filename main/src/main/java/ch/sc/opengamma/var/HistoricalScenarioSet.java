@@ -0,0 +1,40 @@
+package ch.sc.opengamma.var;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Historical scenarios: the observed factor shocks over the horizon, one row per historical date.
+ */
+public class HistoricalScenarioSet implements ScenarioSet {
+
+    private final double[][] shocks;
+    private final int nbFactors;
+
+    /**
+     * @param shocks the factor shocks, one row per scenario and one column per factor, not copied
+     */
+    public HistoricalScenarioSet(final double[][] shocks) {
+        ArgumentChecker.noNulls(shocks, "shocks");
+        ArgumentChecker.isTrue(shocks.length > 0, "at least one scenario is required");
+        nbFactors = shocks[0].length;
+        for (final double[] row : shocks) {
+            ArgumentChecker.isTrue(row.length == nbFactors, "every scenario must have {} factors", nbFactors);
+        }
+        this.shocks = shocks;
+    }
+
+    @Override
+    public int getNumberOfScenarios() {
+        return shocks.length;
+    }
+
+    @Override
+    public int getNumberOfFactors() {
+        return nbFactors;
+    }
+
+    @Override
+    public void generate(final int scenario, final double[] factors) {
+        System.arraycopy(shocks[scenario], 0, factors, 0, nbFactors);
+    }
+}
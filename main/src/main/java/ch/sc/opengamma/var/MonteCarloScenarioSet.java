@@ -0,0 +1,101 @@
+package ch.sc.opengamma.var;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Monte Carlo scenarios: factor shocks drawn from a centered multivariate normal distribution with the given
+ * covariance over the horizon. Each scenario is drawn from its own random stream, derived from the seed and the
+ * scenario index, so the scenarios do not depend on how the work is split between threads.
+ */
+public class MonteCarloScenarioSet implements ScenarioSet {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int nbScenarios;
+    private final double[][] cholesky;
+    private final long seed;
+
+    /**
+     * @param nbScenarios the number of scenarios, strictly positive
+     * @param covariance the covariance matrix of the factor shocks, symmetric positive definite
+     * @param seed the seed of the random streams
+     */
+    public MonteCarloScenarioSet(final int nbScenarios, final double[][] covariance, final long seed) {
+        ArgumentChecker.isTrue(nbScenarios > 0, "nbScenarios must be positive");
+        ArgumentChecker.noNulls(covariance, "covariance");
+        this.nbScenarios = nbScenarios;
+        this.cholesky = cholesky(covariance);
+        this.seed = seed;
+    }
+
+    @Override
+    public int getNumberOfScenarios() {
+        return nbScenarios;
+    }
+
+    @Override
+    public int getNumberOfFactors() {
+        return cholesky.length;
+    }
+
+    @Override
+    public void generate(final int scenario, final double[] factors) {
+        final int nbFactors = cholesky.length;
+        long state = mix(seed + GOLDEN_GAMMA * (scenario + 1));
+        // Independent standard normals by Box-Muller, written in place.
+        for (int i = 0; i < nbFactors; i += 2) {
+            state += GOLDEN_GAMMA;
+            final double u1 = uniform(mix(state));
+            state += GOLDEN_GAMMA;
+            final double u2 = uniform(mix(state));
+            final double radius = Math.sqrt(-2.0 * Math.log(u1));
+            factors[i] = radius * Math.cos(2.0 * Math.PI * u2);
+            if (i + 1 < nbFactors) {
+                factors[i + 1] = radius * Math.sin(2.0 * Math.PI * u2);
+            }
+        }
+        // Correlate with the lower triangular factor, from the last row so the normals are read before being overwritten.
+        for (int i = nbFactors - 1; i >= 0; i--) {
+            double shock = 0;
+            for (int j = 0; j <= i; j++) {
+                shock += cholesky[i][j] * factors[j];
+            }
+            factors[i] = shock;
+        }
+    }
+
+    private static long mix(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return a uniform in (0, 1), never 0 so that its logarithm is finite
+     */
+    private static double uniform(final long bits) {
+        return ((bits >>> 11) + 0.5) * 0x1.0p-53;
+    }
+
+    private static double[][] cholesky(final double[][] covariance) {
+        final int n = covariance.length;
+        final double[][] lower = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            ArgumentChecker.isTrue(covariance[i].length == n, "covariance must be a square matrix");
+            for (int j = 0; j <= i; j++) {
+                double sum = covariance[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= lower[i][k] * lower[j][k];
+                }
+                if (i == j) {
+                    ArgumentChecker.isTrue(sum > 0, "covariance must be positive definite");
+                    lower[i][i] = Math.sqrt(sum);
+                } else {
+                    lower[i][j] = sum / lower[j][j];
+                }
+            }
+        }
+        return lower;
+    }
+}
@@ -0,0 +1,100 @@
+package ch.sc.opengamma.var;
+
+import ch.sc.opengamma.concurrent.ParallelRange;
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-revaluation historical or Monte Carlo VaR of a portfolio.
+ * Complements the closed-form {@link com.opengamma.analytics.financial.var.NormalLinearVaRCalculator}: every position is
+ * revalued in every scenario of a {@link ScenarioSet}. Scenarios are split across a fork-join pool; each task generates
+ * the scenario factors into its own scratch buffer and feeds the portfolio P&L into its own {@link TailAccumulator},
+ * and the accumulators are merged at the end. The P&L vector itself is never stored.
+ * When {@link PricingMetrics} are supplied, each chunk of scenarios revalued by a worker is timed, and the number of
+ * positions and of scenarios are recorded under the {@value #INSTRUMENT_TYPE} instrument type.
+ */
+public class PortfolioVaREngine {
+
+    /** Instrument type of the metrics. */
+    public static final String INSTRUMENT_TYPE = "Portfolio";
+
+    private final ForkJoinPool pool;
+    private final PricingMetrics metrics;
+
+    /**
+     * Runs on the {@link ParallelRange#sharedPool() shared pool}.
+     */
+    public PortfolioVaREngine() {
+        this(ParallelRange.sharedPool());
+    }
+
+    public PortfolioVaREngine(final ForkJoinPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * @param pool the fork-join pool, not null
+     * @param metrics the metrics recorded, null to record none
+     */
+    public PortfolioVaREngine(final ForkJoinPool pool, final PricingMetrics metrics) {
+        ArgumentChecker.notNull(pool, "pool");
+        this.pool = pool;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param positions the positions, valued in a common reporting currency, not null
+     * @param scenarios the scenarios, not null
+     * @param confidence the confidence level, e.g. 0.99
+     * @return the value at risk and expected shortfall, as losses
+     */
+    public PortfolioVaRResult evaluate(final List<? extends ScenarioPosition> positions, final ScenarioSet scenarios, final double confidence) {
+        ArgumentChecker.noNulls(positions, "positions");
+        ArgumentChecker.notNull(scenarios, "scenarios");
+        final ScenarioPosition[] book = positions.toArray(new ScenarioPosition[positions.size()]);
+        final int nbScenarios = scenarios.getNumberOfScenarios();
+        final int nbFactors = scenarios.getNumberOfFactors();
+        final int tailSize = TailAccumulator.tailSize(nbScenarios, confidence);
+
+        final double baseValue = value(book, new double[nbFactors]);
+        final ConcurrentLinkedQueue<TailAccumulator> tails = new ConcurrentLinkedQueue<>();
+        final ParallelRange.Body body = new ParallelRange.Body() {
+            @Override
+            public void run(final int from, final int to) {
+                final double[] factors = new double[nbFactors];
+                final TailAccumulator tail = new TailAccumulator(tailSize);
+                for (int scenario = from; scenario < to; scenario++) {
+                    scenarios.generate(scenario, factors);
+                    tail.add(value(book, factors) - baseValue);
+                }
+                tails.add(tail);
+            }
+        };
+        final long start = System.nanoTime();
+        ParallelRange.run(pool, nbScenarios, ParallelRange.defaultGrain(pool, nbScenarios), body);
+        if (metrics != null) {
+            metrics.timer(INSTRUMENT_TYPE, PricingMetrics.VALUE_AT_RISK).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            metrics.histogram(INSTRUMENT_TYPE, "batchSize").update(book.length);
+            metrics.meter(INSTRUMENT_TYPE, "scenarios").mark(nbScenarios);
+        }
+
+        final TailAccumulator tail = new TailAccumulator(tailSize);
+        for (final TailAccumulator partial : tails) {
+            tail.merge(partial);
+        }
+        return new PortfolioVaRResult(baseValue, -tail.getQuantile(), -tail.getTailMean(), confidence, nbScenarios);
+    }
+
+    private static double value(final ScenarioPosition[] book, final double[] factors) {
+        double value = 0;
+        for (final ScenarioPosition position : book) {
+            value += position.value(factors);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,49 @@
+package ch.sc.opengamma.var;
+
+/**
+ * Value at risk and expected shortfall of a portfolio over a set of scenarios.
+ * Both are reported as losses: a positive number is a loss of that amount.
+ */
+public class PortfolioVaRResult {
+
+    private final double baseValue;
+    private final double valueAtRisk;
+    private final double expectedShortfall;
+    private final double confidence;
+    private final int nbScenarios;
+
+    public PortfolioVaRResult(final double baseValue, final double valueAtRisk, final double expectedShortfall, final double confidence,
+                              final int nbScenarios) {
+        this.baseValue = baseValue;
+        this.valueAtRisk = valueAtRisk;
+        this.expectedShortfall = expectedShortfall;
+        this.confidence = confidence;
+        this.nbScenarios = nbScenarios;
+    }
+
+    /**
+     * @return the value of the portfolio in the base (unshocked) scenario
+     */
+    public double getBaseValue() {
+        return baseValue;
+    }
+
+    public double getValueAtRisk() {
+        return valueAtRisk;
+    }
+
+    /**
+     * @return the mean loss of the scenarios beyond the value at risk, included
+     */
+    public double getExpectedShortfall() {
+        return expectedShortfall;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public int getNumberOfScenarios() {
+        return nbScenarios;
+    }
+}
@@ -0,0 +1,15 @@
+package ch.sc.opengamma.var;
+
+/**
+ * A position that can be revalued under a risk factor scenario.
+ * Factor values are shocks: the all-zero vector is the base scenario. Values must be expressed in the
+ * reporting currency of the portfolio. Implementations must be thread-safe and should not allocate.
+ */
+public interface ScenarioPosition {
+
+    /**
+     * @param factors the risk factor shocks of the scenario, not modified
+     * @return the value of the position in the scenario
+     */
+    double value(double[] factors);
+}
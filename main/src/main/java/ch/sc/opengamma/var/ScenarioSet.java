@@ -0,0 +1,19 @@
+package ch.sc.opengamma.var;
+
+/**
+ * A set of risk factor scenarios, generated on demand so that the full scenario matrix needs not be stored.
+ * Implementations must be thread-safe: scenarios are generated concurrently into per-thread buffers.
+ */
+public interface ScenarioSet {
+
+    int getNumberOfScenarios();
+
+    int getNumberOfFactors();
+
+    /**
+     * Writes the factor shocks of a scenario.
+     * @param scenario the scenario index, between 0 and the number of scenarios
+     * @param factors the output buffer, at least as long as the number of factors
+     */
+    void generate(int scenario, double[] factors);
+}
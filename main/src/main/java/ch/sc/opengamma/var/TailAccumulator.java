@@ -0,0 +1,116 @@
+package ch.sc.opengamma.var;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Streaming estimator of the lower tail of a P&L distribution. Only the k smallest values seen so far are kept,
+ * in a primitive max-heap, so the quantile and the tail mean are obtained without storing or sorting the full
+ * P&L vector. Accumulators filled by different threads are combined with {@link #merge}.
+ * Not thread-safe.
+ */
+public class TailAccumulator {
+
+    private final double[] heap;
+    private int size;
+    private long count;
+
+    /**
+     * @param tailSize the number of smallest values kept, strictly positive
+     */
+    public TailAccumulator(final int tailSize) {
+        ArgumentChecker.isTrue(tailSize > 0, "tailSize must be positive");
+        heap = new double[tailSize];
+    }
+
+    /**
+     * Number of tail values needed for a quantile at the given confidence level.
+     * @param nbValues the total number of values
+     * @param confidence the confidence level, e.g. 0.99
+     * @return ceil((1 - confidence) * nbValues), at least one
+     */
+    public static int tailSize(final long nbValues, final double confidence) {
+        ArgumentChecker.isTrue(confidence > 0 && confidence < 1, "confidence must be in (0, 1)");
+        return (int) Math.max(1, Math.ceil((1 - confidence) * nbValues - 1.0E-9));
+    }
+
+    public void add(final double value) {
+        count++;
+        if (size < heap.length) {
+            heap[size] = value;
+            siftUp(size++);
+        } else if (value < heap[0]) {
+            heap[0] = value;
+            siftDown(0);
+        }
+    }
+
+    public void merge(final TailAccumulator other) {
+        ArgumentChecker.isTrue(other.heap.length == heap.length, "tail sizes differ");
+        final long otherCount = other.count;
+        for (int i = 0; i < other.size; i++) {
+            add(other.heap[i]);
+        }
+        count += otherCount - other.size;
+    }
+
+    /**
+     * @return the number of values added, including merged ones
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the largest kept value, i.e. the k-th smallest value seen
+     */
+    public double getQuantile() {
+        ArgumentChecker.isTrue(size > 0, "no value added");
+        return heap[0];
+    }
+
+    /**
+     * @return the mean of the k smallest values seen
+     */
+    public double getTailMean() {
+        ArgumentChecker.isTrue(size > 0, "no value added");
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += heap[i];
+        }
+        return sum / size;
+    }
+
+    private void siftUp(final int index) {
+        int child = index;
+        final double value = heap[child];
+        while (child > 0) {
+            final int parent = (child - 1) >>> 1;
+            if (heap[parent] >= value) {
+                break;
+            }
+            heap[child] = heap[parent];
+            child = parent;
+        }
+        heap[child] = value;
+    }
+
+    private void siftDown(final int index) {
+        int parent = index;
+        final double value = heap[parent];
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= value) {
+                break;
+            }
+            heap[parent] = heap[child];
+            parent = child;
+        }
+        heap[parent] = value;
+    }
+}
@@ -0,0 +1,200 @@
+package ch.sc.opengamma.volatility;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.opengamma.analytics.financial.model.volatility.surface.BlackVolatilitySurfaceStrike;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.GridInterpolator2D;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.analytics.math.surface.InterpolatedDoublesSurface;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.Arrays;
+
+/**
+ * Black volatility surface on an expiry x strike grid, interpolated linearly with flat extrapolation along both axes,
+ * evaluated on primitive arrays.
+ * A {@link BlackVolatilitySurfaceStrike} on an {@link InterpolatedDoublesSurface} boxes every lookup and, through
+ * {@link GridInterpolator2D}, interpolates every expiry row at the strike before interpolating in expiry. This surface
+ * keeps the nodes in flat arrays and caches, per expiry looked up, the slice of volatilities interpolated in expiry at
+ * every strike node, so that a lookup at a known expiry costs a strike search and a multiply-add. The last slice used
+ * is kept aside, so options sorted by expiry do not even hit the cache.
+ * <p>
+ * The underlying interpolated surface is kept, so every other {@link BlackVolatilitySurfaceStrike} method is unchanged.
+ */
+public class LinearFlatVolatilitySurface extends BlackVolatilitySurfaceStrike {
+
+    private static final Interpolator1D LINEAR_FLAT = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+            Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+    private static final long DEFAULT_MAXIMUM_SLICES = 1024;
+
+    private final double[] expiries;
+    private final double[] strikes;
+    private final double[] volatilities;
+    private final Cache<Double, Slice> slices;
+    private volatile Slice lastSlice;
+
+    /**
+     * @param name the surface name, not null
+     * @param expiries the expiries, strictly increasing, at least two, not null
+     * @param strikes the strikes, strictly increasing, at least two, not null
+     * @param volatilities the volatilities, by expiry then strike, not null
+     */
+    public LinearFlatVolatilitySurface(final String name, final double[] expiries, final double[] strikes, final double[] volatilities) {
+        this(name, expiries, strikes, volatilities, DEFAULT_MAXIMUM_SLICES);
+    }
+
+    /**
+     * @param name the surface name, not null
+     * @param expiries the expiries, strictly increasing, at least two, not null
+     * @param strikes the strikes, strictly increasing, at least two, not null
+     * @param volatilities the volatilities, by expiry then strike, not null
+     * @param maximumSlices the maximum number of expiry slices cached, strictly positive
+     */
+    public LinearFlatVolatilitySurface(final String name, final double[] expiries, final double[] strikes, final double[] volatilities,
+                                       final long maximumSlices) {
+        super(surface(name, expiries, strikes, volatilities));
+        ArgumentChecker.isTrue(maximumSlices > 0, "maximumSlices must be positive");
+        this.expiries = expiries.clone();
+        this.strikes = strikes.clone();
+        this.volatilities = volatilities.clone();
+        slices = CacheBuilder.newBuilder().maximumSize(maximumSlices).recordStats().build();
+    }
+
+    private static InterpolatedDoublesSurface surface(final String name, final double[] expiries, final double[] strikes,
+                                                      final double[] volatilities) {
+        ArgumentChecker.notNull(name, "name");
+        ArgumentChecker.notNull(expiries, "expiries");
+        ArgumentChecker.notNull(strikes, "strikes");
+        ArgumentChecker.notNull(volatilities, "volatilities");
+        ArgumentChecker.isTrue(expiries.length >= 2 && strikes.length >= 2, "at least two expiries and two strikes are required");
+        ArgumentChecker.isTrue(volatilities.length == expiries.length * strikes.length, "one volatility per expiry and strike");
+        for (int i = 1; i < expiries.length; i++) {
+            ArgumentChecker.isTrue(expiries[i - 1] < expiries[i], "expiries must be strictly increasing");
+        }
+        for (int j = 1; j < strikes.length; j++) {
+            ArgumentChecker.isTrue(strikes[j - 1] < strikes[j], "strikes must be strictly increasing");
+        }
+        final double[] x = new double[volatilities.length];
+        final double[] y = new double[volatilities.length];
+        for (int i = 0; i < expiries.length; i++) {
+            for (int j = 0; j < strikes.length; j++) {
+                x[i * strikes.length + j] = expiries[i];
+                y[i * strikes.length + j] = strikes[j];
+            }
+        }
+        return InterpolatedDoublesSurface.from(x, y, volatilities, new GridInterpolator2D(LINEAR_FLAT, LINEAR_FLAT), name);
+    }
+
+    @Override
+    public double getVolatility(final double t, final double k) {
+        return slice(t).getVolatility(k);
+    }
+
+    /**
+     * Volatilities of a batch of (expiry, strike) points. Fastest when the points are sorted by expiry.
+     * @param t the expiries, not null
+     * @param k the strikes, as many as the expiries, not null
+     * @param out the volatilities, at least as long as the expiries, not null
+     */
+    public void getVolatilities(final double[] t, final double[] k, final double[] out) {
+        ArgumentChecker.notNull(t, "t");
+        ArgumentChecker.notNull(k, "k");
+        ArgumentChecker.notNull(out, "out");
+        ArgumentChecker.isTrue(k.length == t.length, "one strike per expiry");
+        ArgumentChecker.isTrue(out.length >= t.length, "output array too short");
+        for (int i = 0; i < t.length; i++) {
+            out[i] = slice(t[i]).getVolatility(k[i]);
+        }
+    }
+
+    /**
+     * @return the volatilities interpolated in expiry at every strike node, from the cache
+     */
+    public Slice slice(final double t) {
+        final Slice last = lastSlice;
+        if (last != null && last.expiry == t) {
+            return last;
+        }
+        Slice slice = slices.getIfPresent(t);
+        if (slice == null) {
+            slice = new Slice(t, interpolateExpiry(t));
+            slices.put(t, slice);
+        }
+        lastSlice = slice;
+        return slice;
+    }
+
+    /**
+     * @return the hit, miss and eviction counts of the slice cache; lookups at the expiry of the last slice used are
+     * not counted
+     */
+    public CacheStats getSliceStats() {
+        return slices.stats();
+    }
+
+    public double[] getExpiries() {
+        return expiries.clone();
+    }
+
+    public double[] getStrikes() {
+        return strikes.clone();
+    }
+
+    private double[] interpolateExpiry(final double t) {
+        final int nbStrikes = strikes.length;
+        final double[] slice = new double[nbStrikes];
+        final int i = segment(expiries, t);
+        if (i < 0) {
+            System.arraycopy(volatilities, 0, slice, 0, nbStrikes);
+        } else if (i >= expiries.length - 1) {
+            System.arraycopy(volatilities, (expiries.length - 1) * nbStrikes, slice, 0, nbStrikes);
+        } else {
+            final double weight = (t - expiries[i]) / (expiries[i + 1] - expiries[i]);
+            for (int j = 0; j < nbStrikes; j++) {
+                final double v0 = volatilities[i * nbStrikes + j];
+                slice[j] = v0 + weight * (volatilities[(i + 1) * nbStrikes + j] - v0);
+            }
+        }
+        return slice;
+    }
+
+    /**
+     * @return the index i of the segment [nodes[i], nodes[i + 1]) containing x, -1 before the first node and the index
+     * of the last node from it on
+     */
+    private static int segment(final double[] nodes, final double x) {
+        final int index = Arrays.binarySearch(nodes, x);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Volatilities at one expiry, interpolated linearly in strike with flat extrapolation. Immutable.
+     */
+    public final class Slice {
+        private final double expiry;
+        private final double[] values;
+
+        private Slice(final double expiry, final double[] values) {
+            this.expiry = expiry;
+            this.values = values;
+        }
+
+        public double getExpiry() {
+            return expiry;
+        }
+
+        public double getVolatility(final double k) {
+            final int j = segment(strikes, k);
+            if (j < 0) {
+                return values[0];
+            }
+            if (j >= strikes.length - 1) {
+                return values[strikes.length - 1];
+            }
+            return values[j] + (k - strikes[j]) * (values[j + 1] - values[j]) / (strikes[j + 1] - strikes[j]);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ch.sc.opengamma.volatility;
+
+import ch.sc.opengamma.option.ImpliedVolatilityResult;
+import com.opengamma.util.ArgumentChecker;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Builds a {@link LinearFlatVolatilitySurface} from implied volatilities quoted at scattered (expiry, strike) points.
+ * The expiries of the surface are those quoted. Each expiry is interpolated linearly in strike, with flat
+ * extrapolation, onto a common strike grid, which is either given or the union of the quoted strikes. A point quoted
+ * twice keeps the last volatility. Not thread safe.
+ */
+public class VolatilitySurfaceBuilder {
+
+    private final String name;
+    private final TreeMap<Double, TreeMap<Double, Double>> quotes = new TreeMap<>();
+
+    /**
+     * @param name the name of the surface built, not null
+     */
+    public VolatilitySurfaceBuilder(final String name) {
+        ArgumentChecker.notNull(name, "name");
+        this.name = name;
+    }
+
+    /**
+     * @param expiry the time to expiry, strictly positive
+     * @param strike the strike
+     * @param volatility the implied volatility, not negative
+     * @return this builder
+     */
+    public VolatilitySurfaceBuilder add(final double expiry, final double strike, final double volatility) {
+        ArgumentChecker.isTrue(expiry > 0, "expiry must be positive");
+        ArgumentChecker.isTrue(volatility >= 0, "volatility must not be negative");
+        TreeMap<Double, Double> slice = quotes.get(expiry);
+        if (slice == null) {
+            slice = new TreeMap<>();
+            quotes.put(expiry, slice);
+        }
+        slice.put(strike, volatility);
+        return this;
+    }
+
+    /**
+     * Adds the quotes that converged in the result of a {@link ch.sc.opengamma.option.BlackImpliedVolatilitySolver}.
+     * @param expiries the expiries of the quotes, not null
+     * @param strikes the strikes of the quotes, not null
+     * @param result the implied volatilities, as many as the expiries and strikes, not null
+     * @return this builder
+     */
+    public VolatilitySurfaceBuilder addAll(final double[] expiries, final double[] strikes, final ImpliedVolatilityResult result) {
+        ArgumentChecker.notNull(expiries, "expiries");
+        ArgumentChecker.notNull(strikes, "strikes");
+        ArgumentChecker.notNull(result, "result");
+        ArgumentChecker.isTrue(expiries.length == result.size() && strikes.length == result.size(), "one expiry and strike per volatility");
+        for (int i = 0; i < expiries.length; i++) {
+            if (result.isConverged(i)) {
+                add(expiries[i], strikes[i], result.getVolatility(i));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the surface on the union of the quoted strikes
+     */
+    public LinearFlatVolatilitySurface build() {
+        final TreeSet<Double> strikes = new TreeSet<>();
+        for (final TreeMap<Double, Double> slice : quotes.values()) {
+            strikes.addAll(slice.keySet());
+        }
+        final double[] grid = new double[strikes.size()];
+        int j = 0;
+        for (final Double strike : strikes) {
+            grid[j++] = strike;
+        }
+        return build(grid);
+    }
+
+    /**
+     * @param strikes the strikes of the surface, strictly increasing, at least two, not null
+     * @return the surface on the given strikes
+     */
+    public LinearFlatVolatilitySurface build(final double[] strikes) {
+        ArgumentChecker.notNull(strikes, "strikes");
+        ArgumentChecker.isTrue(quotes.size() >= 2, "at least two expiries must be quoted");
+        final double[] expiries = new double[quotes.size()];
+        final double[] volatilities = new double[quotes.size() * strikes.length];
+        int i = 0;
+        for (final Map.Entry<Double, TreeMap<Double, Double>> entry : quotes.entrySet()) {
+            expiries[i] = entry.getKey();
+            final TreeMap<Double, Double> slice = entry.getValue();
+            for (int j = 0; j < strikes.length; j++) {
+                volatilities[i * strikes.length + j] = interpolate(slice, strikes[j]);
+            }
+            i++;
+        }
+        return new LinearFlatVolatilitySurface(name, expiries, strikes, volatilities);
+    }
+
+    private static double interpolate(final TreeMap<Double, Double> slice, final double strike) {
+        final Map.Entry<Double, Double> below = slice.floorEntry(strike);
+        final Map.Entry<Double, Double> above = slice.ceilingEntry(strike);
+        if (below == null) {
+            return above.getValue();
+        }
+        if (above == null || below.getKey() == strike) {
+            return below.getValue();
+        }
+        final double weight = (strike - below.getKey()) / (above.getKey() - below.getKey());
+        return below.getValue() + weight * (above.getValue() - below.getValue());
+    }
+}
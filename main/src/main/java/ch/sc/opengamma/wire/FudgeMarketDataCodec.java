@@ -0,0 +1,44 @@
+package ch.sc.opengamma.wire;
+
+import ch.sc.opengamma.marketdata.MarketDataSnapshot;
+import ch.sc.opengamma.marketdata.MarketDataSnapshotWriter;
+import com.opengamma.util.ArgumentChecker;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fudge encoding of market data bundles. The bundle is carried in the snapshot file format of
+ * {@link MarketDataSnapshotWriter} as a byte array field, so that the decoded message is read in place by
+ * {@link MarketDataSnapshot} rather than rebuilt curve by curve.
+ */
+public final class FudgeMarketDataCodec {
+
+    private static final String SNAPSHOT = "snapshot";
+
+    private FudgeMarketDataCodec() {
+    }
+
+    /**
+     * @param snapshot the market data, not null
+     * @return the encoded market data
+     */
+    public static byte[] encode(final MarketDataSnapshotWriter snapshot) {
+        ArgumentChecker.notNull(snapshot, "snapshot");
+        final MutableFudgeMsg message = WireFormat.newMessage();
+        message.add(SNAPSHOT, snapshot.toByteArray());
+        return WireFormat.CONTEXT.toByteArray(message);
+    }
+
+    /**
+     * @param bytes the encoded market data, not null
+     * @return the market data
+     */
+    public static MarketDataSnapshot decode(final byte[] bytes) {
+        final FudgeMsg message = WireFormat.read(bytes);
+        final byte[] snapshot = message.getValue(byte[].class, SNAPSHOT);
+        ArgumentChecker.isTrue(snapshot != null, "missing field {}", SNAPSHOT);
+        return MarketDataSnapshot.wrap(ByteBuffer.wrap(snapshot));
+    }
+}
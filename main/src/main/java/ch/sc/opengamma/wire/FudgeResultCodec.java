@@ -0,0 +1,217 @@
+package ch.sc.opengamma.wire;
+
+import ch.sc.opengamma.option.EquityOptionGreeks;
+import ch.sc.opengamma.wire.WireFormat.DoubleColumn;
+import ch.sc.opengamma.wire.WireFormat.IntColumn;
+import ch.sc.opengamma.wire.WireFormat.StringColumn;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyMulticurveSensitivity;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.money.CurrencyAmount;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+import com.opengamma.util.tuple.DoublesPair;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fudge encodings of pricing results: present values, equity option greeks, multi-currency amounts and point
+ * sensitivities to the discounting curves.
+ * Columns are decoded with one bulk copy into arrays preallocated by the caller, so that a worker answering batch
+ * after batch does not allocate result arrays per batch.
+ */
+public final class FudgeResultCodec {
+
+    private static final String PRESENT_VALUE = "presentValue";
+    private static final String DELTA = "delta";
+    private static final String GAMMA = "gamma";
+    private static final String THETA = "theta";
+    private static final String VEGA = "vega";
+    private static final String RHO = "rho";
+    private static final String SIZE = "size";
+    private static final String TRADE = "trade";
+    private static final String CURRENCY = "currency";
+    private static final String AMOUNT = "amount";
+    private static final String CURVE = "curve";
+    private static final String TIME = "time";
+    private static final String VALUE = "value";
+
+    private FudgeResultCodec() {
+    }
+
+    /**
+     * @param presentValues the present values, not null
+     * @return the encoded present values
+     */
+    public static byte[] encodePresentValues(final double[] presentValues) {
+        ArgumentChecker.notNull(presentValues, "presentValues");
+        final MutableFudgeMsg message = WireFormat.newMessage();
+        message.add(PRESENT_VALUE, presentValues);
+        return WireFormat.CONTEXT.toByteArray(message);
+    }
+
+    /**
+     * Decodes present values into an array of the caller.
+     * @param bytes the encoded present values, not null
+     * @param presentValues the array receiving the present values from index 0, not null
+     * @return the number of present values decoded
+     * @throws IllegalArgumentException if the array is too small
+     */
+    public static int decodePresentValues(final byte[] bytes, final double[] presentValues) {
+        ArgumentChecker.notNull(presentValues, "presentValues");
+        return copy(WireFormat.read(bytes), PRESENT_VALUE, presentValues);
+    }
+
+    /**
+     * @param greeks the greeks, not null
+     * @return the encoded greeks
+     */
+    public static byte[] encodeGreeks(final EquityOptionGreeks greeks) {
+        ArgumentChecker.notNull(greeks, "greeks");
+        final MutableFudgeMsg message = WireFormat.newMessage();
+        message.add(PRESENT_VALUE, greeks.getPresentValue());
+        message.add(DELTA, greeks.getDelta());
+        message.add(GAMMA, greeks.getGamma());
+        message.add(THETA, greeks.getTheta());
+        message.add(VEGA, greeks.getVega());
+        message.add(RHO, greeks.getRho());
+        return WireFormat.CONTEXT.toByteArray(message);
+    }
+
+    /**
+     * Decodes greeks into a result of the caller.
+     * @param bytes the encoded greeks, not null
+     * @param greeks the result receiving the greeks from index 0, not null
+     * @return the number of options decoded
+     * @throws IllegalArgumentException if the result is too small
+     */
+    public static int decodeGreeks(final byte[] bytes, final EquityOptionGreeks greeks) {
+        ArgumentChecker.notNull(greeks, "greeks");
+        final FudgeMsg message = WireFormat.read(bytes);
+        final int size = copy(message, PRESENT_VALUE, greeks.getPresentValue());
+        copy(message, DELTA, greeks.getDelta());
+        copy(message, GAMMA, greeks.getGamma());
+        copy(message, THETA, greeks.getTheta());
+        copy(message, VEGA, greeks.getVega());
+        copy(message, RHO, greeks.getRho());
+        return size;
+    }
+
+    /**
+     * Encodes one amount per trade as three columns: trade index, currency and amount, one row per currency.
+     * @param amounts the amounts, not null, no null elements
+     * @return the encoded amounts
+     */
+    public static byte[] encodeAmounts(final MultipleCurrencyAmount[] amounts) {
+        ArgumentChecker.noNulls(amounts, "amounts");
+        final IntColumn trades = new IntColumn();
+        final StringColumn currencies = new StringColumn();
+        final DoubleColumn values = new DoubleColumn();
+        for (int i = 0; i < amounts.length; i++) {
+            for (final CurrencyAmount amount : amounts[i].getCurrencyAmounts()) {
+                trades.add(i);
+                currencies.add(amount.getCurrency().getCode());
+                values.add(amount.getAmount());
+            }
+        }
+        final MutableFudgeMsg message = WireFormat.newMessage();
+        message.add(SIZE, amounts.length);
+        trades.addTo(message, TRADE);
+        currencies.addTo(message, CURRENCY);
+        values.addTo(message, AMOUNT);
+        return WireFormat.CONTEXT.toByteArray(message);
+    }
+
+    /**
+     * @param bytes the encoded amounts, not null
+     * @return the amounts, one per trade
+     */
+    public static MultipleCurrencyAmount[] decodeAmounts(final byte[] bytes) {
+        final FudgeMsg message = WireFormat.read(bytes);
+        final Integer size = message.getInt(SIZE);
+        ArgumentChecker.isTrue(size != null, "missing field {}", SIZE);
+        final int[] trades = WireFormat.ints(message, TRADE);
+        final String[] currencies = WireFormat.strings(message, CURRENCY);
+        final double[] values = WireFormat.doubles(message, AMOUNT);
+        final MultipleCurrencyAmount[] amounts = new MultipleCurrencyAmount[size];
+        for (int i = 0; i < size; i++) {
+            amounts[i] = MultipleCurrencyAmount.of(new CurrencyAmount[0]);
+        }
+        for (int i = 0; i < trades.length; i++) {
+            amounts[trades[i]] = amounts[trades[i]].plus(Currency.of(currencies[i]), values[i]);
+        }
+        return amounts;
+    }
+
+    /**
+     * Encodes the discounting curve sensitivities as four columns: currency, curve, time and value, one row per point.
+     * @param sensitivity the point sensitivities, not null
+     * @return the encoded sensitivities
+     */
+    public static byte[] encodeSensitivity(final MultipleCurrencyMulticurveSensitivity sensitivity) {
+        ArgumentChecker.notNull(sensitivity, "sensitivity");
+        final StringColumn currencies = new StringColumn();
+        final StringColumn curves = new StringColumn();
+        final DoubleColumn times = new DoubleColumn();
+        final DoubleColumn values = new DoubleColumn();
+        for (final Map.Entry<Currency, MulticurveSensitivity> entry : sensitivity.getSensitivities().entrySet()) {
+            for (final Map.Entry<String, List<DoublesPair>> curve : entry.getValue().getYieldDiscountingSensitivities().entrySet()) {
+                for (final DoublesPair point : curve.getValue()) {
+                    currencies.add(entry.getKey().getCode());
+                    curves.add(curve.getKey());
+                    times.add(point.getFirst());
+                    values.add(point.getSecond());
+                }
+            }
+        }
+        final MutableFudgeMsg message = WireFormat.newMessage();
+        currencies.addTo(message, CURRENCY);
+        curves.addTo(message, CURVE);
+        times.addTo(message, TIME);
+        values.addTo(message, VALUE);
+        return WireFormat.CONTEXT.toByteArray(message);
+    }
+
+    /**
+     * @param bytes the encoded sensitivities, not null
+     * @return the point sensitivities to the discounting curves
+     */
+    public static MultipleCurrencyMulticurveSensitivity decodeSensitivity(final byte[] bytes) {
+        final FudgeMsg message = WireFormat.read(bytes);
+        final String[] currencies = WireFormat.strings(message, CURRENCY);
+        final String[] curves = WireFormat.strings(message, CURVE);
+        final double[] times = WireFormat.doubles(message, TIME);
+        final double[] values = WireFormat.doubles(message, VALUE);
+        final Map<String, Map<String, List<DoublesPair>>> points = new LinkedHashMap<>();
+        for (int i = 0; i < currencies.length; i++) {
+            Map<String, List<DoublesPair>> byCurve = points.get(currencies[i]);
+            if (byCurve == null) {
+                byCurve = new LinkedHashMap<>();
+                points.put(currencies[i], byCurve);
+            }
+            List<DoublesPair> curve = byCurve.get(curves[i]);
+            if (curve == null) {
+                curve = new ArrayList<>();
+                byCurve.put(curves[i], curve);
+            }
+            curve.add(DoublesPair.of(times[i], values[i]));
+        }
+        MultipleCurrencyMulticurveSensitivity sensitivity = new MultipleCurrencyMulticurveSensitivity();
+        for (final Map.Entry<String, Map<String, List<DoublesPair>>> entry : points.entrySet()) {
+            sensitivity = sensitivity.plus(Currency.of(entry.getKey()), MulticurveSensitivity.ofYieldDiscounting(entry.getValue()));
+        }
+        return sensitivity;
+    }
+
+    private static int copy(final FudgeMsg message, final String name, final double[] destination) {
+        final double[] values = WireFormat.doubles(message, name);
+        ArgumentChecker.isTrue(values.length <= destination.length, "{} values do not fit in an array of {}", values.length, destination.length);
+        System.arraycopy(values, 0, destination, 0, values.length);
+        return values.length;
+    }
+}
@@ -0,0 +1,174 @@
+package ch.sc.opengamma.wire;
+
+import ch.sc.opengamma.loader.TradeHandler;
+import com.opengamma.analytics.financial.ExerciseDecisionType;
+import com.opengamma.analytics.financial.commodity.definition.SettlementType;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.instrument.annuity.AnnuityCouponFixedDefinition;
+import com.opengamma.analytics.financial.instrument.annuity.AnnuityPaymentFixedDefinition;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.instrument.payment.CouponFixedDefinition;
+import com.opengamma.analytics.financial.instrument.payment.PaymentFixedDefinition;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.YieldConventionFactory;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import org.fudgemsg.FudgeMsg;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.ZonedDateTime;
+
+/**
+ * Decodes the trade batches written by {@link FudgeTradeWriter} and passes the trades to a {@link TradeHandler},
+ * in the same way as {@link ch.sc.opengamma.loader.CsvTradeParser}. Bonds are rebuilt from their coupon schedules as
+ * written, with the holiday calendar of the reader, which is not part of the wire format.
+ * Thread-safe.
+ */
+public class FudgeTradeReader {
+
+    private final Calendar calendar;
+
+    /**
+     * @param calendar the holiday calendar of the bonds, used for their settlement dates, not null
+     */
+    public FudgeTradeReader(final Calendar calendar) {
+        ArgumentChecker.notNull(calendar, "calendar");
+        this.calendar = calendar;
+    }
+
+    /**
+     * Decodes a batch of trades.
+     * @param bytes the batch, as written by {@link FudgeTradeWriter#toByteArray()}, not null
+     * @param handler the handler receiving the trades, not null
+     * @return the number of trades read
+     * @throws IllegalArgumentException if the batch is not a supported trade batch
+     */
+    public int read(final byte[] bytes, final TradeHandler handler) {
+        ArgumentChecker.notNull(handler, "handler");
+        final FudgeMsg message = WireFormat.read(bytes);
+        return readBonds(message(message, TradeFields.BOND), handler)
+                + readForexForwards(message(message, TradeFields.FX_FORWARD), handler)
+                + readEquityOptions(message(message, TradeFields.EQUITY_OPTION), handler)
+                + readEquityFutures(message(message, TradeFields.EQUITY_FUTURE), handler)
+                + readBarrierOptions(message(message, TradeFields.BARRIER_OPTION), handler);
+    }
+
+    private int readBonds(final FudgeMsg message, final TradeHandler handler) {
+        final String[] ids = WireFormat.uniqueStrings(message, TradeFields.ID);
+        final String[] currency = WireFormat.strings(message, TradeFields.CURRENCY);
+        final int[] couponCount = WireFormat.ints(message, TradeFields.COUPON_COUNT);
+        final int[] accrualStartDate = WireFormat.ints(message, TradeFields.ACCRUAL_START_DATE);
+        final int[] accrualEndDate = WireFormat.ints(message, TradeFields.ACCRUAL_END_DATE);
+        final int[] paymentDate = WireFormat.ints(message, TradeFields.PAYMENT_DATE);
+        final double[] accrualFactor = WireFormat.doubles(message, TradeFields.ACCRUAL_FACTOR);
+        final double[] notional = WireFormat.doubles(message, TradeFields.NOTIONAL);
+        final double[] rate = WireFormat.doubles(message, TradeFields.RATE);
+        final int[] nominalDate = WireFormat.ints(message, TradeFields.NOMINAL_DATE);
+        final double[] nominalAmount = WireFormat.doubles(message, TradeFields.NOMINAL_AMOUNT);
+        final int[] settlementDays = WireFormat.ints(message, TradeFields.SETTLEMENT_DAYS);
+        final int[] exCouponDays = WireFormat.ints(message, TradeFields.EX_COUPON_DAYS);
+        final String[] dayCount = WireFormat.strings(message, TradeFields.DAY_COUNT);
+        final String[] yieldConvention = WireFormat.strings(message, TradeFields.YIELD_CONVENTION);
+        final int[] endOfMonth = WireFormat.ints(message, TradeFields.END_OF_MONTH);
+        final String[] issuer = WireFormat.strings(message, TradeFields.ISSUER);
+        final String[] repoType = WireFormat.strings(message, TradeFields.REPO_TYPE);
+        final double[] quantity = WireFormat.doubles(message, TradeFields.QUANTITY);
+        int c = 0;
+        for (int i = 0; i < ids.length; i++) {
+            final Currency ccy = Currency.of(currency[i]);
+            final CouponFixedDefinition[] coupons = new CouponFixedDefinition[couponCount[i]];
+            for (int j = 0; j < coupons.length; j++, c++) {
+                coupons[j] = new CouponFixedDefinition(ccy, date(paymentDate[c]), date(accrualStartDate[c]), date(accrualEndDate[c]),
+                        accrualFactor[c], notional[c], rate[c]);
+            }
+            final AnnuityPaymentFixedDefinition nominal = new AnnuityPaymentFixedDefinition(new PaymentFixedDefinition[] {
+                new PaymentFixedDefinition(ccy, date(nominalDate[i]), nominalAmount[i])}, calendar);
+            final BondFixedSecurityDefinition bond = new BondFixedSecurityDefinition(nominal, new AnnuityCouponFixedDefinition(coupons, calendar),
+                    exCouponDays[i], settlementDays[i], calendar, DayCountFactory.INSTANCE.getDayCount(dayCount[i]),
+                    YieldConventionFactory.INSTANCE.getYieldConvention(yieldConvention[i]), endOfMonth[i] != 0, issuer[i], repoType[i]);
+            handler.bond(ids[i], bond, quantity[i]);
+        }
+        ArgumentChecker.isTrue(c == paymentDate.length, "coupon counts do not match the coupon columns");
+        return ids.length;
+    }
+
+    private static int readForexForwards(final FudgeMsg message, final TradeHandler handler) {
+        final String[] ids = WireFormat.uniqueStrings(message, TradeFields.ID);
+        final String[] currency1 = WireFormat.strings(message, TradeFields.CURRENCY_1);
+        final String[] currency2 = WireFormat.strings(message, TradeFields.CURRENCY_2);
+        final int[] paymentDate = WireFormat.ints(message, TradeFields.PAYMENT_DATE);
+        final double[] amount1 = WireFormat.doubles(message, TradeFields.AMOUNT_1);
+        final double[] amount2 = WireFormat.doubles(message, TradeFields.AMOUNT_2);
+        for (int i = 0; i < ids.length; i++) {
+            final ZonedDateTime date = date(paymentDate[i]);
+            handler.forexForward(ids[i], new ForexDefinition(new PaymentFixedDefinition(Currency.of(currency1[i]), date, amount1[i]),
+                    new PaymentFixedDefinition(Currency.of(currency2[i]), date, amount2[i])));
+        }
+        return ids.length;
+    }
+
+    private static int readEquityOptions(final FudgeMsg message, final TradeHandler handler) {
+        final String[] ids = WireFormat.uniqueStrings(message, TradeFields.ID);
+        final double[] timeToExpiry = WireFormat.doubles(message, TradeFields.TIME_TO_EXPIRY);
+        final double[] timeToSettlement = WireFormat.doubles(message, TradeFields.TIME_TO_SETTLEMENT);
+        final double[] strike = WireFormat.doubles(message, TradeFields.STRIKE);
+        final int[] isCall = WireFormat.ints(message, TradeFields.IS_CALL);
+        final String[] currency = WireFormat.strings(message, TradeFields.CURRENCY);
+        final double[] unitAmount = WireFormat.doubles(message, TradeFields.UNIT_AMOUNT);
+        final String[] exercise = WireFormat.strings(message, TradeFields.EXERCISE);
+        final String[] settlement = WireFormat.strings(message, TradeFields.SETTLEMENT);
+        for (int i = 0; i < ids.length; i++) {
+            handler.equityOption(ids[i], new EquityOption(timeToExpiry[i], timeToSettlement[i], strike[i], isCall[i] != 0,
+                    Currency.of(currency[i]), unitAmount[i], ExerciseDecisionType.valueOf(exercise[i]), SettlementType.valueOf(settlement[i])));
+        }
+        return ids.length;
+    }
+
+    private static int readEquityFutures(final FudgeMsg message, final TradeHandler handler) {
+        final String[] ids = WireFormat.uniqueStrings(message, TradeFields.ID);
+        final double[] timeToExpiry = WireFormat.doubles(message, TradeFields.TIME_TO_EXPIRY);
+        final double[] timeToSettlement = WireFormat.doubles(message, TradeFields.TIME_TO_SETTLEMENT);
+        final double[] referencePrice = WireFormat.doubles(message, TradeFields.REFERENCE_PRICE);
+        final String[] currency = WireFormat.strings(message, TradeFields.CURRENCY);
+        final double[] unitAmount = WireFormat.doubles(message, TradeFields.UNIT_AMOUNT);
+        for (int i = 0; i < ids.length; i++) {
+            handler.equityFuture(ids[i], new EquityFuture(timeToExpiry[i], timeToSettlement[i], referencePrice[i], Currency.of(currency[i]),
+                    unitAmount[i]));
+        }
+        return ids.length;
+    }
+
+    private static int readBarrierOptions(final FudgeMsg message, final TradeHandler handler) {
+        final String[] ids = WireFormat.uniqueStrings(message, TradeFields.ID);
+        final double[] strike = WireFormat.doubles(message, TradeFields.STRIKE);
+        final double[] timeToExpiry = WireFormat.doubles(message, TradeFields.TIME_TO_EXPIRY);
+        final int[] isCall = WireFormat.ints(message, TradeFields.IS_CALL);
+        final String[] knockType = WireFormat.strings(message, TradeFields.KNOCK_TYPE);
+        final String[] barrierType = WireFormat.strings(message, TradeFields.BARRIER_TYPE);
+        final String[] observationType = WireFormat.strings(message, TradeFields.OBSERVATION_TYPE);
+        final double[] barrierLevel = WireFormat.doubles(message, TradeFields.BARRIER_LEVEL);
+        final double[] rebate = WireFormat.doubles(message, TradeFields.REBATE);
+        for (int i = 0; i < ids.length; i++) {
+            final Barrier barrier = new Barrier(Barrier.KnockType.valueOf(knockType[i]), Barrier.BarrierType.valueOf(barrierType[i]),
+                    Barrier.ObservationType.valueOf(observationType[i]), barrierLevel[i]);
+            handler.barrierOption(ids[i], new EuropeanVanillaOption(strike[i], timeToExpiry[i], isCall[i] != 0), barrier, rebate[i]);
+        }
+        return ids.length;
+    }
+
+    private static FudgeMsg message(final FudgeMsg message, final String name) {
+        final FudgeMsg column = message.getMessage(name);
+        ArgumentChecker.isTrue(column != null, "missing trade type {}", name);
+        return column;
+    }
+
+    private static ZonedDateTime date(final int epochDay) {
+        final LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return DateUtils.getUTCDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+}
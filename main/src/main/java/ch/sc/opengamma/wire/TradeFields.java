@@ -0,0 +1,53 @@
+package ch.sc.opengamma.wire;
+
+/**
+ * Field names of the trade batches written by {@link FudgeTradeWriter} and read by {@link FudgeTradeReader}.
+ */
+final class TradeFields {
+
+    static final String BOND = "bond";
+    static final String FX_FORWARD = "fxForward";
+    static final String EQUITY_OPTION = "equityOption";
+    static final String EQUITY_FUTURE = "equityFuture";
+    static final String BARRIER_OPTION = "barrierOption";
+
+    static final String ID = "id";
+    static final String CURRENCY = "currency";
+    static final String CURRENCY_1 = "currency1";
+    static final String CURRENCY_2 = "currency2";
+    static final String COUPON_COUNT = "couponCount";
+    static final String ACCRUAL_START_DATE = "accrualStartDate";
+    static final String ACCRUAL_END_DATE = "accrualEndDate";
+    static final String ACCRUAL_FACTOR = "accrualFactor";
+    static final String PAYMENT_DATE = "paymentDate";
+    static final String NOMINAL_DATE = "nominalDate";
+    static final String NOMINAL_AMOUNT = "nominalAmount";
+    static final String RATE = "rate";
+    static final String SETTLEMENT_DAYS = "settlementDays";
+    static final String NOTIONAL = "notional";
+    static final String EX_COUPON_DAYS = "exCouponDays";
+    static final String DAY_COUNT = "dayCount";
+    static final String YIELD_CONVENTION = "yieldConvention";
+    static final String END_OF_MONTH = "endOfMonth";
+    static final String ISSUER = "issuer";
+    static final String REPO_TYPE = "repoType";
+    static final String QUANTITY = "quantity";
+    static final String AMOUNT_1 = "amount1";
+    static final String AMOUNT_2 = "amount2";
+    static final String TIME_TO_EXPIRY = "timeToExpiry";
+    static final String TIME_TO_SETTLEMENT = "timeToSettlement";
+    static final String STRIKE = "strike";
+    static final String IS_CALL = "isCall";
+    static final String UNIT_AMOUNT = "unitAmount";
+    static final String EXERCISE = "exercise";
+    static final String SETTLEMENT = "settlement";
+    static final String REFERENCE_PRICE = "referencePrice";
+    static final String KNOCK_TYPE = "knockType";
+    static final String BARRIER_TYPE = "barrierType";
+    static final String OBSERVATION_TYPE = "observationType";
+    static final String BARRIER_LEVEL = "barrierLevel";
+    static final String REBATE = "rebate";
+
+    private TradeFields() {
+    }
+}
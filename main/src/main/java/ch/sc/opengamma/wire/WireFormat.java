@@ -0,0 +1,173 @@
+package ch.sc.opengamma.wire;
+
+import com.opengamma.util.ArgumentChecker;
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column encodings shared by the Fudge writers and readers.
+ * Every batch is a Fudge message of columns: numbers are primitive array fields, decoded by Fudge straight into the
+ * arrays the readers use; strings repeating across rows (currencies, issuers, conventions) are a dictionary of
+ * repeated string fields and an int array of codes; unique strings (trade ids) are one UTF-8 byte array with an int
+ * array of lengths. Dates are int array fields of epoch days.
+ */
+final class WireFormat {
+
+    static final FudgeContext CONTEXT = FudgeContext.GLOBAL_DEFAULT;
+
+    static final String VERSION_FIELD = "version";
+    static final int VERSION = 2;
+
+    private static final String DICTIONARY_SUFFIX = ".dictionary";
+    private static final String LENGTHS_SUFFIX = ".lengths";
+
+    private WireFormat() {
+    }
+
+    static MutableFudgeMsg newMessage() {
+        final MutableFudgeMsg message = CONTEXT.newMessage();
+        message.add(VERSION_FIELD, VERSION);
+        return message;
+    }
+
+    static FudgeMsg read(final byte[] bytes) {
+        ArgumentChecker.notNull(bytes, "bytes");
+        final FudgeMsg message = CONTEXT.deserialize(bytes).getMessage();
+        final Integer version = message.getInt(VERSION_FIELD);
+        ArgumentChecker.isTrue(version != null && version == VERSION, "unsupported wire format version {}", version);
+        return message;
+    }
+
+    static double[] doubles(final FudgeMsg message, final String name) {
+        final double[] values = message.getValue(double[].class, name);
+        ArgumentChecker.isTrue(values != null, "missing column {}", name);
+        return values;
+    }
+
+    static int[] ints(final FudgeMsg message, final String name) {
+        final int[] values = message.getValue(int[].class, name);
+        ArgumentChecker.isTrue(values != null, "missing column {}", name);
+        return values;
+    }
+
+    static String[] strings(final FudgeMsg message, final String name) {
+        final List<String> dictionary = new ArrayList<>();
+        for (final FudgeField field : message.getAllByName(name + DICTIONARY_SUFFIX)) {
+            dictionary.add((String) field.getValue());
+        }
+        final int[] codes = ints(message, name);
+        final String[] values = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            values[i] = dictionary.get(codes[i]);
+        }
+        return values;
+    }
+
+    static String[] uniqueStrings(final FudgeMsg message, final String name) {
+        final byte[] bytes = message.getValue(byte[].class, name);
+        ArgumentChecker.isTrue(bytes != null, "missing column {}", name);
+        final int[] lengths = ints(message, name + LENGTHS_SUFFIX);
+        final String[] values = new String[lengths.length];
+        int offset = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            values[i] = new String(bytes, offset, lengths[i], StandardCharsets.UTF_8);
+            offset += lengths[i];
+        }
+        return values;
+    }
+
+    /**
+     * Growable column of doubles.
+     */
+    static final class DoubleColumn {
+        private double[] values = new double[16];
+        private int size;
+
+        void add(final double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        void addTo(final MutableFudgeMsg message, final String name) {
+            message.add(name, Arrays.copyOf(values, size));
+        }
+    }
+
+    /**
+     * Growable column of ints.
+     */
+    static final class IntColumn {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void addTo(final MutableFudgeMsg message, final String name) {
+            message.add(name, Arrays.copyOf(values, size));
+        }
+    }
+
+    /**
+     * Column of strings taking few distinct values.
+     */
+    static final class StringColumn {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private final IntColumn values = new IntColumn();
+
+        void add(final String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                codes.put(value, code);
+                dictionary.add(value);
+            }
+            values.add(code);
+        }
+
+        void addTo(final MutableFudgeMsg message, final String name) {
+            for (final String value : dictionary) {
+                message.add(name + DICTIONARY_SUFFIX, value);
+            }
+            values.addTo(message, name);
+        }
+    }
+
+    /**
+     * Column of strings distinct on each row.
+     */
+    static final class UniqueStringColumn {
+        private final StringBuilder values = new StringBuilder();
+        private final IntColumn lengths = new IntColumn();
+
+        void add(final String value) {
+            values.append(value);
+            lengths.add(value.getBytes(StandardCharsets.UTF_8).length);
+        }
+
+        void addTo(final MutableFudgeMsg message, final String name) {
+            message.add(name, values.toString().getBytes(StandardCharsets.UTF_8));
+            lengths.addTo(message, name + LENGTHS_SUFFIX);
+        }
+    }
+}
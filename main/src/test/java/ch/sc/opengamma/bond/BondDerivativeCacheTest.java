@@ -0,0 +1,80 @@
+package ch.sc.opengamma.bond;
+
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.YieldConventionFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import org.junit.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the memoization of the bond definition to derivative conversion.
+ */
+public class BondDerivativeCacheTest {
+    private static final ZonedDateTime FIRST_ACCRUAL_DATE = DateUtils.getUTCDate(2005, 2, 20);
+    private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2005, 3, 20);
+    private static final ZonedDateTime NEXT_DATE = DateUtils.getUTCDate(2005, 3, 21);
+
+    private static BondFixedSecurityDefinition bond(final double rate) {
+        return BondFixedSecurityDefinition.from(Currency.EUR, FIRST_ACCRUAL_DATE.plus(Period.ofYears(2)), FIRST_ACCRUAL_DATE,
+                Period.ofMonths(6), rate, 0, 1000d, 0, new CalendarNoHoliday("A"), DayCountFactory.INSTANCE.getDayCount("30E/360"),
+                BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Following"),
+                YieldConventionFactory.INSTANCE.getYieldConvention("STREET CONVENTION"), false, "Issuer", "Some repo type");
+    }
+
+    @Test
+    public void repeatedConversionIsAHit() {
+        final BondDerivativeCache cache = new BondDerivativeCache(10);
+        final BondFixedSecurityDefinition definition = bond(0.1);
+        final BondFixedSecurity first = cache.toDerivative(definition, REFERENCE_DATE);
+        final BondFixedSecurity second = cache.toDerivative(definition, REFERENCE_DATE);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getStats().missCount());
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(definition.toDerivative(REFERENCE_DATE).getAccruedInterest(), first.getAccruedInterest(), 1E-12);
+    }
+
+    @Test
+    public void equalDefinitionsShareTheConversion() {
+        final BondDerivativeCache cache = new BondDerivativeCache(10);
+        final BondFixedSecurity first = cache.toDerivative(bond(0.1), REFERENCE_DATE);
+        final BondFixedSecurity second = cache.toDerivative(bond(0.1), REFERENCE_DATE);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void referenceDateIsPartOfTheKey() {
+        final BondDerivativeCache cache = new BondDerivativeCache(10);
+        final BondFixedSecurityDefinition definition = bond(0.1);
+        final BondFixedSecurity today = cache.toDerivative(definition, REFERENCE_DATE);
+        final BondFixedSecurity tomorrow = cache.toDerivative(definition, NEXT_DATE);
+
+        assertNotSame(today, tomorrow);
+        assertEquals(2, cache.getStats().missCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void cacheIsBounded() {
+        final BondDerivativeCache cache = new BondDerivativeCache(2);
+        for (int i = 0; i < 5; i++) {
+            cache.toDerivative(bond(0.01 * (i + 1)), REFERENCE_DATE);
+        }
+        assertTrue(cache.size() <= 2);
+        assertTrue(cache.getStats().evictionCount() >= 3);
+    }
+}
@@ -0,0 +1,148 @@
+package ch.sc.opengamma.bond;
+
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.codahale.metrics.MetricRegistry;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.curve.ConstantDoublesCurve;
+import com.opengamma.financial.convention.businessday.BusinessDayConvention;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.financial.convention.daycount.DayCount;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.YieldConvention;
+import com.opengamma.financial.convention.yield.YieldConventionFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+import org.junit.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the parallel portfolio runner against bond-by-bond calls to {@link BondSecurityDiscountingMethod}.
+ */
+public class BondPortfolioRunnerTest {
+    private static final Currency CURRENCY = Currency.EUR;
+    private static final ZonedDateTime FIRST_ACCRUAL_DATE = DateUtils.getUTCDate(2005, 2, 20);
+    private static final Period PAYMENT_PERIOD = Period.ofMonths(6);
+    private static final Calendar CALENDAR = new CalendarNoHoliday("A");
+    private static final DayCount DAY_COUNT = DayCountFactory.INSTANCE.getDayCount("30E/360");
+    private static final BusinessDayConvention BUSINESS_DAY = BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Following");
+    private static final YieldConvention YIELD_CONVENTION = YieldConventionFactory.INSTANCE.getYieldConvention("STREET CONVENTION");
+    private static final String ISSUER_NAME = "Issuer";
+    private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2005, 3, 20);
+
+    private static final YieldAndDiscountCurve YIELD_CURVE = new YieldCurve("EUR_curve", new ConstantDoublesCurve(0.04d));
+    private static final MulticurveProviderDiscount MULTICURVE = new MulticurveProviderDiscount();
+    static {
+        MULTICURVE.setCurve(CURRENCY, YIELD_CURVE);
+    }
+    private static final Map<Pair<String, Currency>, YieldAndDiscountCurve> ISSUER = new LinkedHashMap<>();
+    static {
+        ISSUER.put(new ObjectsPair<>(ISSUER_NAME, CURRENCY), YIELD_CURVE);
+    }
+    private static final IssuerProviderDiscount ISSUER_MULTICURVE = new IssuerProviderDiscount(MULTICURVE, ISSUER);
+
+    private static final BondSecurityDiscountingMethod METHOD = BondSecurityDiscountingMethod.getInstance();
+    private static final double TOL = 1E-10;
+
+    private static List<BondFixedSecurityDefinition> portfolio(final int size) {
+        final List<BondFixedSecurityDefinition> bonds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            bonds.add(BondFixedSecurityDefinition.from(CURRENCY, FIRST_ACCRUAL_DATE.plus(Period.ofYears(2 + i % 10)), FIRST_ACCRUAL_DATE,
+                    PAYMENT_PERIOD, 0.02 + 0.01 * (i % 7), 0, 1000d, 0, CALENDAR, DAY_COUNT, BUSINESS_DAY, YIELD_CONVENTION, false,
+                    ISSUER_NAME, "Some repo type"));
+        }
+        return bonds;
+    }
+
+    @Test
+    public void portfolioResultsMatchSingleBondCalculations() {
+        final List<BondFixedSecurityDefinition> bonds = portfolio(50);
+        final BondPortfolioResult result = new BondPortfolioRunner(new ForkJoinPool(4)).run(bonds, REFERENCE_DATE, ISSUER_MULTICURVE);
+
+        assertEquals(bonds.size(), result.size());
+        for (int i = 0; i < bonds.size(); i++) {
+            final BondFixedSecurity bond = bonds.get(i).toDerivative(REFERENCE_DATE);
+            final double yield = METHOD.yieldFromCurves(bond, ISSUER_MULTICURVE);
+            assertEquals(CURRENCY, result.getCurrency()[i]);
+            assertEquals(yield, result.getYieldToMaturity()[i], TOL);
+            assertEquals(METHOD.cleanPriceFromYield(bond, yield), result.getCleanPrice()[i], TOL);
+            assertEquals(bond.getAccruedInterest(), result.getAccruedInterest()[i], TOL);
+            assertEquals(METHOD.modifiedDurationFromYield(bond, yield), result.getModifiedDuration()[i], TOL);
+            assertEquals(METHOD.macaulayDurationFromYield(bond, yield), result.getMacaulayDuration()[i], TOL);
+            assertEquals(METHOD.presentValue(bond, ISSUER_MULTICURVE).getAmount(CURRENCY), result.getPresentValue()[i], TOL);
+        }
+    }
+
+    @Test
+    public void cleanPriceFromCurvesIsReproduced() {
+        final List<BondFixedSecurityDefinition> bonds = portfolio(5);
+        final BondPortfolioResult result = new BondPortfolioRunner().run(bonds, REFERENCE_DATE, ISSUER_MULTICURVE);
+        for (int i = 0; i < bonds.size(); i++) {
+            final BondFixedSecurity bond = bonds.get(i).toDerivative(REFERENCE_DATE);
+            assertEquals(METHOD.cleanPriceFromCurves(bond, ISSUER_MULTICURVE), result.getCleanPrice()[i], 1E-8);
+        }
+    }
+
+    @Test
+    public void cachedRunnerReusesConversions() {
+        final List<BondFixedSecurityDefinition> bonds = portfolio(30);
+        final BondDerivativeCache cache = new BondDerivativeCache(100);
+        final BondPortfolioRunner runner = new BondPortfolioRunner(new ForkJoinPool(2), cache);
+        final BondPortfolioResult first = runner.run(bonds, REFERENCE_DATE, ISSUER_MULTICURVE);
+        final BondPortfolioResult second = runner.run(bonds, REFERENCE_DATE, ISSUER_MULTICURVE);
+
+        assertEquals(bonds.size(), cache.getStats().missCount());
+        assertEquals(bonds.size(), cache.getStats().hitCount());
+        for (int i = 0; i < bonds.size(); i++) {
+            assertEquals(first.getPresentValue()[i], second.getPresentValue()[i], TOL);
+        }
+    }
+
+    @Test
+    public void metricsAreRecorded() {
+        final List<BondFixedSecurityDefinition> bonds = portfolio(30);
+        final MetricRegistry registry = new MetricRegistry();
+        final PricingMetrics metrics = new PricingMetrics(registry, "Rates");
+        final BondPortfolioRunner runner = new BondPortfolioRunner(new ForkJoinPool(2), new BondDerivativeCache(100), metrics);
+        runner.run(bonds, REFERENCE_DATE, ISSUER_MULTICURVE);
+        runner.run(bonds, REFERENCE_DATE, ISSUER_MULTICURVE);
+
+        // One timer sample per call, not per bond.
+        assertEquals(2, registry.getTimers().get("pricing.Rates.Bond.pv").getCount());
+        assertEquals(2 * bonds.size(), registry.getMeters().get("pricing.Rates.Bond.priced").getCount());
+        assertEquals(2, registry.getHistograms().get("pricing.Rates.Bond.batchSize").getCount());
+        assertEquals(0.5, (Double) registry.getGauges().get("pricing.Rates.Bond.derivativeCache.hitRatio").getValue(), 0);
+    }
+
+    @Test
+    public void throughputIsReported() {
+        final BondPortfolioResult result = new BondPortfolioRunner().run(portfolio(20), REFERENCE_DATE, ISSUER_MULTICURVE);
+        assertTrue(result.getElapsedNanos() > 0);
+        assertTrue(result.getThroughput() > 0);
+    }
+
+    @Test
+    public void emptyPortfolio() {
+        final BondPortfolioResult result = new BondPortfolioRunner().run(new ArrayList<BondFixedSecurityDefinition>(), REFERENCE_DATE, ISSUER_MULTICURVE);
+        assertEquals(0, result.size());
+    }
+}
@@ -0,0 +1,85 @@
+package ch.sc.opengamma.bond;
+
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.YieldConventionFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import org.junit.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the fused yield kernel with the separate passes of {@link BondSecurityDiscountingMethod}.
+ */
+public class BondYieldKernelTest {
+    private static final ZonedDateTime FIRST_ACCRUAL_DATE = DateUtils.getUTCDate(2005, 2, 20);
+    private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2005, 3, 20);
+    private static final double RATE = 0.1;
+    private static final double NOTIONAL = 1000d;
+
+    private static BondFixedSecurity bond(final Period term) {
+        final BondFixedSecurityDefinition definition = BondFixedSecurityDefinition.from(Currency.EUR, FIRST_ACCRUAL_DATE.plus(term),
+                FIRST_ACCRUAL_DATE, Period.ofMonths(6), RATE, 0, NOTIONAL, 0, new CalendarNoHoliday("A"),
+                DayCountFactory.INSTANCE.getDayCount("30E/360"), BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Following"),
+                YieldConventionFactory.INSTANCE.getYieldConvention("STREET CONVENTION"), false, "Issuer", "Some repo type");
+        return definition.toDerivative(REFERENCE_DATE);
+    }
+
+    private static final BondFixedSecurity BOND = bond(Period.ofYears(2));
+    private static final BondYieldKernel KERNEL = new BondYieldKernel(BOND);
+    private static final BondSecurityDiscountingMethod METHOD = BondSecurityDiscountingMethod.getInstance();
+    private static final double[] YIELDS = new double[] {0.01, 0.05, 0.09, 0.12, 0.2 };
+    private static final double TOL = 1E-12;
+
+    @Test
+    public void pricesMatchDiscountingMethod() {
+        for (final double yield : YIELDS) {
+            assertEquals(METHOD.dirtyPriceFromYield(BOND, yield), KERNEL.dirtyPriceFromYield(yield), TOL);
+            assertEquals(METHOD.cleanPriceFromYield(BOND, yield), KERNEL.cleanPriceFromYield(yield), TOL);
+        }
+    }
+
+    @Test
+    public void fusedPassMatchesSeparatePasses() {
+        final double[] clean = new double[YIELDS.length];
+        final double[] modified = new double[YIELDS.length];
+        final double[] macaulay = new double[YIELDS.length];
+        KERNEL.evaluate(YIELDS, clean, modified, macaulay);
+        for (int i = 0; i < YIELDS.length; i++) {
+            assertEquals(METHOD.cleanPriceFromYield(BOND, YIELDS[i]), clean[i], TOL);
+            assertEquals(METHOD.modifiedDurationFromYield(BOND, YIELDS[i]), modified[i], TOL);
+            assertEquals(METHOD.macaulayDurationFromYield(BOND, YIELDS[i]), macaulay[i], TOL);
+        }
+    }
+
+    @Test
+    public void yieldsMatchDiscountingMethod() {
+        final double[] prices = new double[YIELDS.length];
+        for (int i = 0; i < YIELDS.length; i++) {
+            prices[i] = METHOD.cleanPriceFromYield(BOND, YIELDS[i]);
+        }
+        final double[] yields = new double[YIELDS.length];
+        KERNEL.yieldsFromCleanPrices(prices, RATE, yields);
+        for (int i = 0; i < YIELDS.length; i++) {
+            assertEquals(YIELDS[i], yields[i], 1E-10);
+            assertEquals(METHOD.yieldFromCleanPrice(BOND, prices[i]), yields[i], 1E-10);
+        }
+        final double dirty = METHOD.dirtyPriceFromYield(BOND, 0.07);
+        assertEquals(METHOD.yieldFromDirtyPrice(BOND, dirty), KERNEL.yieldFromDirtyPrice(dirty, RATE), 1E-10);
+    }
+
+    @Test
+    public void lastCouponPeriodIsNotSupported() {
+        assertTrue(BondYieldKernel.isSupported(BOND));
+        assertFalse(BondYieldKernel.isSupported(bond(Period.ofMonths(6))));
+    }
+}
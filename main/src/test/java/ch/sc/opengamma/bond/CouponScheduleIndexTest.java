@@ -0,0 +1,113 @@
+package ch.sc.opengamma.bond;
+
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.instrument.payment.CouponFixedDefinition;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.YieldConventionFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import org.junit.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the coupon schedule index with the schedules of {@link BondFixedSecurityDefinition}.
+ */
+public class CouponScheduleIndexTest {
+    private static final ZonedDateTime FIRST_ACCRUAL_DATE = DateUtils.getUTCDate(2005, 2, 20);
+    private static final double TOL = 1E-10;
+
+    private static BondFixedSecurityDefinition bond(final String dayCount, final int years, final int exCouponDays) {
+        return BondFixedSecurityDefinition.from(Currency.EUR, FIRST_ACCRUAL_DATE.plus(Period.ofYears(years)),
+                FIRST_ACCRUAL_DATE, Period.ofMonths(6), 0.04 + 0.01 * years, 0, 1000d * years, exCouponDays, new CalendarNoHoliday("A"),
+                DayCountFactory.INSTANCE.getDayCount(dayCount), BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Following"),
+                YieldConventionFactory.INSTANCE.getYieldConvention("STREET CONVENTION"), false, "Issuer", "Some repo type");
+    }
+
+    private static final List<BondFixedSecurityDefinition> BONDS = Arrays.asList(
+            bond("30E/360", 2, 0),
+            bond("Actual/360", 3, 0),
+            bond("Actual/365", 5, 7),
+            bond("30E/360", 10, 5),
+            bond("Actual/Actual ICMA", 4, 0));
+    private static final CouponScheduleIndex INDEX = new CouponScheduleIndex(BONDS);
+
+    private static ZonedDateTime[] dates() {
+        final ZonedDateTime[] dates = new ZonedDateTime[60];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = FIRST_ACCRUAL_DATE.plusDays(17 * i + i % 5);
+        }
+        return dates;
+    }
+
+    @Test
+    public void scheduleMatchesDefinitions() {
+        assertEquals(BONDS.size(), INDEX.size());
+        for (int b = 0; b < BONDS.size(); b++) {
+            final BondFixedSecurityDefinition bond = BONDS.get(b);
+            assertEquals(bond.getCoupons().getNumberOfPayments(), INDEX.getEndCoupon(b) - INDEX.getFirstCoupon(b));
+            for (int i = 0; i < bond.getCoupons().getNumberOfPayments(); i++) {
+                final CouponFixedDefinition coupon = bond.getCoupons().getNthPayment(i);
+                final int c = INDEX.getFirstCoupon(b) + i;
+                assertEquals(coupon.getAccrualStartDate().toLocalDate().toEpochDay(), INDEX.getAccrualStartDate(c));
+                assertEquals(coupon.getAccrualEndDate().toLocalDate().toEpochDay(), INDEX.getAccrualEndDate(c));
+                assertEquals(coupon.getPaymentDate().toLocalDate().toEpochDay(), INDEX.getPaymentDate(c));
+                assertEquals(coupon.getPaymentYearFraction(), INDEX.getAccrualFraction(c), 0);
+                assertEquals(coupon.getAmount(), INDEX.getAmount(c), 0);
+            }
+        }
+    }
+
+    @Test
+    public void nextCouponMatchesLinearScan() {
+        for (final ZonedDateTime date : dates()) {
+            final int day = (int) date.toLocalDate().toEpochDay();
+            for (int b = 0; b < BONDS.size(); b++) {
+                int expected = -1;
+                for (int c = INDEX.getFirstCoupon(b); c < INDEX.getEndCoupon(b); c++) {
+                    if (INDEX.getPaymentDate(c) > day) {
+                        expected = c;
+                        break;
+                    }
+                }
+                assertEquals(expected, INDEX.nextCoupon(b, day));
+            }
+        }
+        final int afterMaturity = (int) FIRST_ACCRUAL_DATE.plusYears(11).toLocalDate().toEpochDay();
+        assertEquals(-1, INDEX.nextCoupon(0, afterMaturity));
+    }
+
+    @Test
+    public void accruedInterestMatchesDefinition() {
+        for (final ZonedDateTime date : dates()) {
+            final int day = (int) date.toLocalDate().toEpochDay();
+            for (int b = 0; b < BONDS.size(); b++) {
+                final BondFixedSecurityDefinition bond = BONDS.get(b);
+                if (date.isBefore(bond.getCoupons().getNthPayment(bond.getCoupons().getNumberOfPayments() - 1).getAccrualEndDate())) {
+                    assertEquals(bond.accruedInterest(date), INDEX.accruedInterest(b, day), TOL);
+                } else {
+                    assertEquals(0, INDEX.accruedInterest(b, day), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bulkAccruedInterestMatchesSingleBond() {
+        final double[] accrued = new double[BONDS.size()];
+        for (final ZonedDateTime date : dates()) {
+            INDEX.accruedInterest(date, accrued);
+            final int day = (int) date.toLocalDate().toEpochDay();
+            for (int b = 0; b < BONDS.size(); b++) {
+                assertEquals(INDEX.accruedInterest(b, day), accrued[b], 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ch.sc.opengamma.cache;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs against a redis-server on localhost:6379, and is skipped when there is none.
+ */
+public class RedisResultStoreTest {
+
+    private JedisPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new JedisPool("localhost", 6379);
+        try {
+            final Jedis jedis = pool.getResource();
+            jedis.ping();
+            pool.returnResource(jedis);
+        } catch (final JedisConnectionException e) {
+            pool.destroy();
+            Assume.assumeNoException(e);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        pool.destroy();
+    }
+
+    @Test
+    public void roundTripsBatch() {
+        final String prefix = "test:" + UUID.randomUUID() + ":";
+        final List<String> keys = Arrays.asList(prefix + "a", prefix + "b", prefix + "c");
+        final RedisResultStore store = new RedisResultStore(pool);
+        store.put(keys.subList(0, 2), new double[] {1.0 / 3, -2.5E-12}, 10);
+        final long[] remainingMillis = new long[keys.size()];
+        final double[] values = store.get(keys, remainingMillis);
+        assertArrayEquals(new double[] {1.0 / 3, -2.5E-12}, Arrays.copyOf(values, 2), 0);
+        assertTrue(Double.isNaN(values[2]));
+        assertTrue(remainingMillis[0] > 0 && remainingMillis[0] <= 10000);
+        final Jedis jedis = pool.getResource();
+        try {
+            assertTrue(jedis.ttl(prefix + "a") > 0);
+        } finally {
+            pool.returnResource(jedis);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package ch.sc.opengamma.cache;
+
+import com.google.common.base.Ticker;
+import com.opengamma.analytics.financial.ExerciseDecisionType;
+import com.opengamma.analytics.financial.commodity.definition.SettlementType;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.util.money.Currency;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class TwoLevelResultCacheTest {
+
+    private static final double TOL = 0;
+    private static final List<String> KEYS = Arrays.asList("a", "b", "c");
+
+    @Test
+    public void computesOnlyMissingResults() {
+        final TwoLevelResultCache cache = new TwoLevelResultCache(100, 60, null);
+        final CountingLoader loader = new CountingLoader();
+        assertArrayEquals(new double[] {0, 1}, cache.get(KEYS.subList(0, 2), loader), TOL);
+        assertEquals(2, loader.count);
+        assertArrayEquals(new double[] {0, 1, 2}, cache.get(KEYS, loader), TOL);
+        assertEquals(3, loader.count);
+        assertEquals(2, cache.getLocalStats().hitCount());
+    }
+
+    @Test
+    public void sharesResultsThroughStore() {
+        final InMemoryResultStore store = new InMemoryResultStore();
+        final CountingLoader loader = new CountingLoader();
+        new TwoLevelResultCache(100, 60, store).get(KEYS, loader);
+        final TwoLevelResultCache other = new TwoLevelResultCache(100, 60, store);
+        assertArrayEquals(new double[] {0, 1, 2}, other.get(KEYS, loader), TOL);
+        assertEquals(3, loader.count);
+        assertEquals(3, other.getSharedHitCount());
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    public void resultsExpire() {
+        final FakeTicker ticker = new FakeTicker();
+        final InMemoryResultStore store = new InMemoryResultStore(ticker);
+        final TwoLevelResultCache cache = new TwoLevelResultCache(100, 60, store, ticker);
+        final CountingLoader loader = new CountingLoader();
+        cache.get(KEYS, loader);
+        ticker.advance(59, TimeUnit.SECONDS);
+        cache.get(KEYS, loader);
+        assertEquals(3, loader.count);
+        ticker.advance(2, TimeUnit.SECONDS);
+        cache.get(KEYS, loader);
+        assertEquals(6, loader.count);
+        ticker.advance(61, TimeUnit.SECONDS);
+        store.evictExpired();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void storeDropsExpiredResultsWhenRead() {
+        final FakeTicker ticker = new FakeTicker();
+        final InMemoryResultStore store = new InMemoryResultStore(ticker);
+        store.put(KEYS.subList(0, 2), new double[] {1, 2}, 60);
+        ticker.advance(30, TimeUnit.SECONDS);
+        store.put(KEYS.subList(2, 3), new double[] {3}, 60);
+        ticker.advance(31, TimeUnit.SECONDS);
+        final long[] remainingMillis = new long[3];
+        assertArrayEquals(new double[] {Double.NaN, Double.NaN, 3}, store.get(KEYS, remainingMillis), TOL);
+        assertEquals(29000, remainingMillis[2]);
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void sharedResultsKeepTheirExpiryLocally() {
+        final FakeTicker ticker = new FakeTicker();
+        final InMemoryResultStore store = new InMemoryResultStore(ticker);
+        final CountingLoader loader = new CountingLoader();
+        new TwoLevelResultCache(100, 60, store, ticker).get(KEYS, loader);
+        ticker.advance(50, TimeUnit.SECONDS);
+        final TwoLevelResultCache other = new TwoLevelResultCache(100, 60, store, ticker);
+        other.get(KEYS, loader);
+        assertEquals(3, other.getSharedHitCount());
+        ticker.advance(9, TimeUnit.SECONDS);
+        other.get(KEYS, loader);
+        assertEquals(3, loader.count);
+        // Computed 61 seconds ago: expired locally as in the store, although copied only 11 seconds ago.
+        ticker.advance(2, TimeUnit.SECONDS);
+        other.get(KEYS, loader);
+        assertEquals(6, loader.count);
+        // The expired copies are misses, not hits.
+        assertEquals(3, other.getLocalStats().hitCount());
+        assertEquals(6, other.getLocalStats().missCount());
+    }
+
+    @Test
+    public void doesNotCacheNaN() {
+        final TwoLevelResultCache cache = new TwoLevelResultCache(100, 60, new InMemoryResultStore());
+        final TwoLevelResultCache.Loader loader = new TwoLevelResultCache.Loader() {
+            @Override
+            public double[] load(final int[] indices) {
+                final double[] values = new double[indices.length];
+                Arrays.fill(values, Double.NaN);
+                return values;
+            }
+        };
+        cache.get(KEYS, loader);
+        assertEquals(0, cache.getLocalStats().hitCount());
+        cache.get(KEYS, loader);
+        assertEquals(0, cache.getLocalStats().hitCount());
+    }
+
+    @Test
+    public void pricesThroughFailingStore() {
+        final ResultStore failing = new ResultStore() {
+            @Override
+            public double[] get(final List<String> keys, final long[] remainingMillis) {
+                throw new IllegalStateException("down");
+            }
+
+            @Override
+            public void put(final List<String> keys, final double[] values, final int ttlSeconds) {
+                throw new IllegalStateException("down");
+            }
+        };
+        final TwoLevelResultCache cache = new TwoLevelResultCache(100, 60, failing);
+        assertArrayEquals(new double[] {0, 1, 2}, cache.get(KEYS, new CountingLoader()), TOL);
+        assertEquals(2, cache.getSharedFailureCount());
+    }
+
+    @Test
+    public void keysDependOnTermsOnly() {
+        final EquityOption option = new EquityOption(0.5, 0.5, 100, true, Currency.USD, 1, ExerciseDecisionType.EUROPEAN, SettlementType.CASH);
+        final EquityOption same = new EquityOption(0.5, 0.5, 100, true, Currency.USD, 1, ExerciseDecisionType.EUROPEAN, SettlementType.CASH);
+        final EquityOption put = new EquityOption(0.5, 0.5, 100, false, Currency.USD, 1, ExerciseDecisionType.EUROPEAN, SettlementType.CASH);
+        assertEquals(TradeKeys.equityOption(option), TradeKeys.equityOption(same));
+        assertNotEquals(TradeKeys.equityOption(option), TradeKeys.equityOption(put));
+        final EuropeanVanillaOption vanilla = new EuropeanVanillaOption(100, 0.5, false);
+        final Barrier barrier = new Barrier(Barrier.KnockType.OUT, Barrier.BarrierType.DOWN, Barrier.ObservationType.CONTINUOUS, 90);
+        assertNotEquals(TradeKeys.barrierOption(vanilla, barrier, 1.5), TradeKeys.barrierOption(vanilla, barrier, 2.0));
+        assertEquals("pv:EquityOption:snap:abc", TradeKeys.key("EquityOption", "snap", "abc"));
+    }
+
+    /**
+     * Returns the index of each key in the batch as its result, counting the results computed.
+     */
+    private static final class CountingLoader implements TwoLevelResultCache.Loader {
+        private int count;
+
+        @Override
+        public double[] load(final int[] indices) {
+            count += indices.length;
+            final double[] values = new double[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                values[i] = indices[i];
+            }
+            return values;
+        }
+    }
+
+    private static final class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        private void advance(final long duration, final TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    }
+}
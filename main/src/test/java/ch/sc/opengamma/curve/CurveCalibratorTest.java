@@ -0,0 +1,160 @@
+package ch.sc.opengamma.curve;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.util.money.Currency;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Calibrates a EUR curve on deposits and a USD curve on EUR/USD FX swaps, and checks the Jacobians by finite differences.
+ */
+public class CurveCalibratorTest {
+
+    private static final CurveCalibrator CALIBRATOR = new CurveCalibrator(new ForkJoinPool(4));
+    private static final FXMatrix FX = new FXMatrix(Currency.EUR, Currency.USD, 1.1);
+    private static final double SPOT_TIME = 2.0 / 365;
+    private static final double[] TIMES = new double[] {0.25, 0.5, 1, 2, 3, 5, 7, 10 };
+    private static final double[] DEPOSIT_RATES = new double[] {0.020, 0.021, 0.022, 0.024, 0.025, 0.027, 0.028, 0.030 };
+    private static final double[] FORWARD_POINTS = new double[] {0.0008, 0.0017, 0.0040, 0.0100, 0.0170, 0.0345, 0.0560, 0.0930 };
+    private static final double SPOT = 1.1;
+    private static final double SHIFT = 1E-7;
+
+    private static CurveDefinition eur(final double[] rates) {
+        final List<CalibrationQuote> quotes = new ArrayList<>();
+        for (int i = 0; i < TIMES.length; i++) {
+            quotes.add(new DepositQuote(SPOT_TIME, TIMES[i], (TIMES[i] - SPOT_TIME) * 365 / 360, rates[i]));
+        }
+        return new CurveDefinition("EUR Dsc", Currency.EUR, quotes);
+    }
+
+    private static CurveDefinition usd(final double[] points) {
+        final List<CalibrationQuote> quotes = new ArrayList<>();
+        for (int i = 0; i < TIMES.length; i++) {
+            quotes.add(new FxSwapQuote(Currency.EUR, Currency.USD, SPOT_TIME, TIMES[i], SPOT, points[i]));
+        }
+        return new CurveDefinition("USD Dsc", Currency.USD, quotes);
+    }
+
+    private static CalibrationResult calibrate(final double[] rates, final double[] points, final CalibrationResult previous) {
+        // USD first: the calibrator orders the curves by dependency
+        return CALIBRATOR.calibrate(Arrays.asList(usd(points), eur(rates)), FX, previous);
+    }
+
+    @Test
+    public void repricesQuotes() {
+        final MulticurveProviderDiscount provider = calibrate(DEPOSIT_RATES, FORWARD_POINTS, null).getProvider();
+        for (int i = 0; i < TIMES.length; i++) {
+            final double eurRatio = provider.getDiscountFactor(Currency.EUR, SPOT_TIME) / provider.getDiscountFactor(Currency.EUR, TIMES[i]);
+            assertEquals(DEPOSIT_RATES[i], (eurRatio - 1) / ((TIMES[i] - SPOT_TIME) * 365 / 360), 1E-12);
+            final double usdRatio = provider.getDiscountFactor(Currency.USD, SPOT_TIME) / provider.getDiscountFactor(Currency.USD, TIMES[i]);
+            assertEquals(SPOT + FORWARD_POINTS[i], SPOT * usdRatio / eurRatio, 1E-12);
+        }
+    }
+
+    @Test
+    public void jacobiansMatchFiniteDifferences() {
+        final CalibrationResult base = calibrate(DEPOSIT_RATES, FORWARD_POINTS, null);
+        final CalibratedCurve eur = base.getCurve("EUR Dsc");
+        final CalibratedCurve usd = base.getCurve("USD Dsc");
+        assertEquals(Collections.singleton("EUR Dsc"), eur.getQuoteCurves());
+        assertEquals(2, usd.getQuoteCurves().size());
+        for (int j = 0; j < TIMES.length; j++) {
+            final double[] rates = DEPOSIT_RATES.clone();
+            rates[j] += SHIFT;
+            CalibrationResult shifted = calibrate(rates, FORWARD_POINTS, base);
+            assertColumn(eur.getRates(), shifted.getCurve("EUR Dsc").getRates(), eur.getJacobian("EUR Dsc"), j);
+            assertColumn(usd.getRates(), shifted.getCurve("USD Dsc").getRates(), usd.getJacobian("EUR Dsc"), j);
+
+            final double[] points = FORWARD_POINTS.clone();
+            points[j] += SHIFT;
+            shifted = calibrate(DEPOSIT_RATES, points, base);
+            assertColumn(usd.getRates(), shifted.getCurve("USD Dsc").getRates(), usd.getJacobian("USD Dsc"), j);
+            assertArrayEquals(eur.getRates(), shifted.getCurve("EUR Dsc").getRates(), 0);
+        }
+    }
+
+    private static void assertColumn(final double[] base, final double[] shifted, final double[][] jacobian, final int column) {
+        for (int i = 0; i < base.length; i++) {
+            assertEquals((shifted[i] - base[i]) / SHIFT, jacobian[i][column], 1E-5);
+        }
+    }
+
+    @Test
+    public void marketQuoteSensitivityChainsJacobians() {
+        final CalibrationResult base = calibrate(DEPOSIT_RATES, FORWARD_POINTS, null);
+        // Value: sum of the USD rates weighted by their times
+        final Map<String, double[]> nodeSensitivities = new HashMap<>();
+        nodeSensitivities.put("USD Dsc", TIMES.clone());
+        final Map<String, double[]> quoteSensitivities = base.marketQuoteSensitivity(nodeSensitivities);
+        final double value = weighted(base.getCurve("USD Dsc").getRates());
+        for (int j = 0; j < TIMES.length; j++) {
+            final double[] rates = DEPOSIT_RATES.clone();
+            rates[j] += SHIFT;
+            assertEquals((weighted(calibrate(rates, FORWARD_POINTS, base).getCurve("USD Dsc").getRates()) - value) / SHIFT,
+                    quoteSensitivities.get("EUR Dsc")[j], 1E-4);
+            final double[] points = FORWARD_POINTS.clone();
+            points[j] += SHIFT;
+            assertEquals((weighted(calibrate(DEPOSIT_RATES, points, base).getCurve("USD Dsc").getRates()) - value) / SHIFT,
+                    quoteSensitivities.get("USD Dsc")[j], 1E-4);
+        }
+    }
+
+    private static double weighted(final double[] rates) {
+        double value = 0;
+        for (int i = 0; i < rates.length; i++) {
+            value += TIMES[i] * rates[i];
+        }
+        return value;
+    }
+
+    @Test
+    public void warmStartSkipsUnchangedCurves() {
+        final CalibrationResult cold = calibrate(DEPOSIT_RATES, FORWARD_POINTS, null);
+        assertTrue(cold.getCurve("EUR Dsc").getIterations() > 0);
+        final CalibrationResult warm = calibrate(DEPOSIT_RATES, FORWARD_POINTS, cold);
+        assertEquals(0, warm.getCurve("EUR Dsc").getIterations());
+        assertEquals(0, warm.getCurve("USD Dsc").getIterations());
+        assertArrayEquals(cold.getCurve("USD Dsc").getRates(), warm.getCurve("USD Dsc").getRates(), 0);
+    }
+
+    @Test
+    public void calibratesTwentyCurves() {
+        final List<CurveDefinition> definitions = new ArrayList<>();
+        final FXMatrix fx = new FXMatrix();
+        for (int c = 0; c < 10; c++) {
+            final Currency deposit = Currency.of("D" + (char) ('A' + c) + "X");
+            final Currency swap = Currency.of("F" + (char) ('A' + c) + "X");
+            final double[] rates = new double[TIMES.length];
+            for (int i = 0; i < TIMES.length; i++) {
+                rates[i] = DEPOSIT_RATES[i] + 0.001 * c;
+            }
+            final CurveDefinition depositCurve = eur(rates);
+            definitions.add(new CurveDefinition(deposit.getCode() + " Dsc", deposit, depositCurve.getQuotes()));
+            final List<CalibrationQuote> swaps = new ArrayList<>();
+            for (int i = 0; i < TIMES.length; i++) {
+                swaps.add(new FxSwapQuote(deposit, swap, SPOT_TIME, TIMES[i], SPOT, FORWARD_POINTS[i]));
+            }
+            definitions.add(new CurveDefinition(swap.getCode() + " Dsc", swap, swaps));
+        }
+        final CalibrationResult result = CALIBRATOR.calibrate(definitions, fx);
+        assertEquals(20, result.getCurves().size());
+    }
+
+    @Test(expected = OpenGammaRuntimeException.class)
+    public void missingDependencyFails() {
+        CALIBRATOR.calibrate(Collections.singletonList(usd(FORWARD_POINTS)), FX);
+    }
+}
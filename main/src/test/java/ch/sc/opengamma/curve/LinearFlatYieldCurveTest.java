@@ -0,0 +1,75 @@
+package ch.sc.opengamma.curve;
+
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LinearFlatYieldCurveTest {
+
+    private static final double TOL = 1E-14;
+    private static final Interpolator1D LINEAR_FLAT = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+            Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+    private static final double[] TIME = new double[] {0.0, 0.5, 1.0, 2.0, 5.0, 10.0};
+    private static final double[] RATE = new double[] {0.0150, 0.0125, 0.0150, 0.0175, 0.0150, 0.0210};
+    private static final YieldCurve REFERENCE = new YieldCurve("EUR Dsc", new InterpolatedDoublesCurve(TIME, RATE, LINEAR_FLAT, true, "EUR Dsc"));
+    private static final LinearFlatYieldCurve CURVE = new LinearFlatYieldCurve("EUR Dsc", TIME, RATE);
+
+    private static double[] times() {
+        final double[] times = new double[400];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = -0.5 + 0.0375 * i;
+        }
+        return times;
+    }
+
+    @Test
+    public void matchesInterpolatedCurve() {
+        for (final double t : times()) {
+            assertEquals(REFERENCE.getInterestRate(t), CURVE.getInterestRate(t), TOL);
+            assertEquals(REFERENCE.getDiscountFactor(t), CURVE.getDiscountFactor(t), TOL);
+        }
+        for (final double t : TIME) {
+            assertEquals(REFERENCE.getDiscountFactor(t), CURVE.getDiscountFactor(t), TOL);
+        }
+        assertEquals(REFERENCE.getForwardRate(1.5), CURVE.getForwardRate(1.5), TOL);
+        assertEquals(REFERENCE.getNumberOfParameters(), CURVE.getNumberOfParameters());
+    }
+
+    @Test
+    public void cursorAndBatchMatchScalar() {
+        final double[] times = times();
+        final LinearFlatYieldCurve.Cursor cursor = CURVE.cursor();
+        for (final double t : times) {
+            assertEquals(CURVE.getDiscountFactor(t), cursor.getDiscountFactor(t), 0);
+        }
+        // Going backwards falls back to a search.
+        assertEquals(CURVE.getDiscountFactor(0.75), cursor.getDiscountFactor(0.75), 0);
+        assertEquals(CURVE.getInterestRate(0.25), cursor.getInterestRate(0.25), 0);
+
+        final double[] out = new double[times.length];
+        CURVE.getDiscountFactors(times, out);
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(CURVE.getDiscountFactor(times[i]), out[i], 0);
+        }
+        final double[] unsorted = new double[] {7.0, 0.3, 12.0, -1.0, 2.0};
+        CURVE.getDiscountFactors(unsorted, out);
+        for (int i = 0; i < unsorted.length; i++) {
+            assertEquals(REFERENCE.getDiscountFactor(unsorted[i]), out[i], TOL);
+        }
+    }
+
+    @Test
+    public void supportsOnlyLinearFlat() {
+        assertTrue(LinearFlatYieldCurve.supports((InterpolatedDoublesCurve) REFERENCE.getCurve()));
+        final Interpolator1D linearLinear = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+                Interpolator1DFactory.LINEAR_EXTRAPOLATOR, Interpolator1DFactory.LINEAR_EXTRAPOLATOR);
+        assertFalse(LinearFlatYieldCurve.supports(new InterpolatedDoublesCurve(TIME, RATE, linearLinear, true)));
+    }
+}
@@ -0,0 +1,100 @@
+package ch.sc.opengamma.forward;
+
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.provider.calculator.forexpoints.PresentValueForexForwardPointsCalculator;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveForwardPointsProviderDiscount;
+import com.opengamma.analytics.financial.provider.sensitivity.forexpoints.ParameterSensitivityForexForwardPointsDiscountInterpolatedFDCalculator;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+import org.junit.Test;
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.opengamma.util.money.Currency.EUR;
+import static com.opengamma.util.money.Currency.USD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class ForexForwardSensitivityCalculatorTest {
+
+    private static final Interpolator1D LINEAR_FLAT = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+            Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+
+    private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2013, 2, 12);
+    private static final double FX_RATE = 1.4177;
+    private static final double[] POINTS_TIME = new double[] {0.0, 0.1, 0.25, 0.5, 1.0};
+    private static final double[] POINTS_FWD = new double[] {FX_RATE, FX_RATE + 0.0004, FX_RATE + 0.0015, FX_RATE + 0.0020, FX_RATE + 0.0050};
+    private static final MulticurveForwardPointsProviderDiscount MULTICURVES_FWD = new MulticurveForwardPointsProviderDiscount(
+            ForexForwardTest.createMulticurvesEURUSD(), new InterpolatedDoublesCurve(POINTS_TIME, POINTS_FWD, LINEAR_FLAT, true),
+            new ObjectsPair<>(EUR, USD));
+
+    private static final double SHIFT = 1.0E-6;
+    private static final ParameterSensitivityForexForwardPointsDiscountInterpolatedFDCalculator PS_FFP_FDC =
+            new ParameterSensitivityForexForwardPointsDiscountInterpolatedFDCalculator(PresentValueForexForwardPointsCalculator.getInstance(), SHIFT);
+    private static final ForexForwardSensitivityCalculator CALCULATOR = new ForexForwardSensitivityCalculator();
+
+    private static final double TOLERANCE_PV_DELTA = 1.0E+0;
+
+    private static List<Forex> portfolio() {
+        final List<Forex> forwards = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            final ZonedDateTime paymentDate = DateUtils.getUTCDate(2013, 3 + i % 10, 26);
+            final double nominal = (i % 3 == 0 ? -1 : 1) * 1.0E+7 * (1 + i % 7);
+            final Currency currency1 = i % 2 == 0 ? EUR : USD;
+            final Currency currency2 = i % 2 == 0 ? USD : EUR;
+            final double rate = i % 2 == 0 ? FX_RATE : 1.0 / FX_RATE;
+            forwards.add(new ForexDefinition(currency1, currency2, paymentDate, nominal, rate).toDerivative(REFERENCE_DATE));
+        }
+        return forwards;
+    }
+
+    @Test
+    public void portfolioSensitivityMatchesFiniteDifference() {
+        final List<Forex> forwards = portfolio();
+        final MultipleCurrencyParameterSensitivity computed = CALCULATOR.parameterSensitivity(forwards, MULTICURVES_FWD);
+
+        MultipleCurrencyParameterSensitivity expected = new MultipleCurrencyParameterSensitivity();
+        for (final Forex forward : forwards) {
+            expected = expected.plus(PS_FFP_FDC.calculateSensitivity(forward, MULTICURVES_FWD));
+        }
+        assertEquals(expected.getAllNamesCurrency(), computed.getAllNamesCurrency());
+        for (final Map.Entry<Pair<String, Currency>, DoubleMatrix1D> entry : expected.getSensitivities().entrySet()) {
+            final DoubleMatrix1D actual = computed.getSensitivity(entry.getKey());
+            assertNotNull(actual);
+            final double[] expectedData = entry.getValue().getData();
+            final double[] actualData = actual.getData();
+            assertEquals(expectedData.length, actualData.length);
+            for (int i = 0; i < expectedData.length; i++) {
+                assertEquals("Sensitivity " + entry.getKey() + " node " + i, expectedData[i], actualData[i], TOLERANCE_PV_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void singleTradeMatchesFiniteDifference() {
+        final Forex forward = new ForexDefinition(EUR, USD, DateUtils.getUTCDate(2013, 6, 26), 1.0E+8, FX_RATE).toDerivative(REFERENCE_DATE);
+        final List<Forex> forwards = new ArrayList<>();
+        forwards.add(forward);
+        final MultipleCurrencyParameterSensitivity computed = CALCULATOR.parameterSensitivity(forwards, MULTICURVES_FWD);
+        final MultipleCurrencyParameterSensitivity expected = PS_FFP_FDC.calculateSensitivity(forward, MULTICURVES_FWD);
+        for (final Map.Entry<Pair<String, Currency>, DoubleMatrix1D> entry : expected.getSensitivities().entrySet()) {
+            final double[] expectedData = entry.getValue().getData();
+            final double[] actualData = computed.getSensitivity(entry.getKey()).getData();
+            for (int i = 0; i < expectedData.length; i++) {
+                assertEquals(expectedData[i], actualData[i], TOLERANCE_PV_DELTA);
+            }
+        }
+    }
+}
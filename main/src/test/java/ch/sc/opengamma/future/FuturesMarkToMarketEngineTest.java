@@ -0,0 +1,107 @@
+package ch.sc.opengamma.future;
+
+import com.opengamma.analytics.financial.commodity.definition.AgricultureFutureDefinition;
+import com.opengamma.analytics.financial.commodity.definition.SettlementType;
+import com.opengamma.analytics.financial.commodity.derivative.AgricultureFuture;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityIndexDividendFuture;
+import com.opengamma.analytics.financial.future.MarkToMarketFuturesCalculator;
+import com.opengamma.analytics.financial.simpleinstruments.pricing.SimpleFutureDataBundle;
+import com.opengamma.id.ExternalId;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the columnar engine with {@link MarkToMarketFuturesCalculator.PresentValueCalculator}.
+ */
+public class FuturesMarkToMarketEngineTest {
+    private static final MarkToMarketFuturesCalculator PVC = MarkToMarketFuturesCalculator.PresentValueCalculator.getInstance();
+    private static final FuturesMarkToMarketEngine ENGINE = new FuturesMarkToMarketEngine(new ForkJoinPool(4));
+    private static final double TOL = 1E-9;
+
+    private static double visitorPresentValue(final EquityFuture future, final double marketPrice) {
+        return future.accept(PVC, new SimpleFutureDataBundle(null, marketPrice, null, null, null));
+    }
+
+    @Test
+    public void matchesVisitor() {
+        final EquityIndexDividendFuture dividend = new EquityIndexDividendFuture(1.44, 1.45, 95., Currency.JPY, 10);
+        final EquityFuture equity = new EquityFuture(1.44, 1.45, 95, Currency.EUR, 10);
+        final AgricultureFuture agriculture = new AgricultureFutureDefinition(DateUtils.getUTCDate(2011, 9, 21), ExternalId.of("Scheme", "value"),
+                101, DateUtils.getUTCDate(2011, 9, 21), DateUtils.getUTCDate(2012, 9, 21), 500, "tonnes", SettlementType.PHYSICAL, 100,
+                Currency.GBP, DateUtils.getUTCDate(2012, 9, 21)).toDerivative(DateUtils.getUTCDate(2011, 6, 15));
+
+        final FuturesBook book = new FuturesBook();
+        book.add("NKYDIV", dividend, 1);
+        book.add("SX5E", equity, 1);
+        book.add(agriculture, 1);
+        final double[] prices = new double[] {100, 97.5, 70 };
+        final FuturesMarkToMarketResult result = ENGINE.markToMarket(book, prices);
+
+        assertEquals(visitorPresentValue(dividend, 100), result.getPresentValue(0), TOL);
+        assertEquals(visitorPresentValue(equity, 97.5), result.getPresentValue(1), TOL);
+        assertEquals(agriculture.accept(PVC, new SimpleFutureDataBundle(null, 70., null, null, null)), result.getPresentValue(2), TOL);
+        assertEquals(result.getPresentValue(0), result.getTotal().getAmount(Currency.JPY), TOL);
+        assertEquals(result.getPresentValue(2), result.getTotal().getAmount(Currency.GBP), TOL);
+    }
+
+    @Test
+    public void aggregatesByUnderlyingAndCurrency() {
+        final String[] underlyings = new String[] {"ES", "NQ", "FGBL", "Z", "CL" };
+        final Currency[] currencies = new Currency[] {Currency.USD, Currency.USD, Currency.EUR, Currency.GBP, Currency.USD };
+        final Random random = new Random(7);
+        final FuturesBook book = new FuturesBook();
+        for (int i = 0; i < 20000; i++) {
+            final int u = random.nextInt(underlyings.length);
+            book.add(underlyings[u], currencies[u], (random.nextInt(200) - 100) * 50., 90 + 20 * random.nextDouble());
+        }
+        final double[] prices = new double[book.getNumberOfUnderlyings()];
+        for (int u = 0; u < prices.length; u++) {
+            prices[u] = 90 + 20 * random.nextDouble();
+        }
+        final FuturesMarkToMarketResult result = ENGINE.markToMarket(book, prices);
+
+        final double[] byUnderlying = new double[book.getNumberOfUnderlyings()];
+        final double[] byCurrency = new double[book.getNumberOfCurrencies()];
+        for (int i = 0; i < book.size(); i++) {
+            final double pv = book.getUnitAmount(i) * (prices[book.getUnderlying(i)] - book.getReferencePrice(i));
+            assertEquals(pv, result.getPresentValue(i), 0);
+            byUnderlying[book.getUnderlying(i)] += pv;
+            byCurrency[book.getUnderlyingCurrency(book.getUnderlying(i))] += pv;
+        }
+        for (int u = 0; u < byUnderlying.length; u++) {
+            assertEquals(byUnderlying[u], result.getUnderlyingTotal(u), TOL * book.size());
+        }
+        for (int c = 0; c < byCurrency.length; c++) {
+            assertEquals(byCurrency[c], result.getTotal().getAmount(book.getCurrency(c)), TOL * book.size());
+        }
+
+        ENGINE.markToMarket(book, prices, result);
+        assertEquals(byCurrency[0], result.getCurrencyTotals()[0], TOL * book.size());
+    }
+
+    @Test
+    public void resetReferencePricesZeroesValues() {
+        final FuturesBook book = new FuturesBook();
+        book.add("ES", Currency.USD, 50, 4000);
+        book.add("ES", Currency.USD, -100, 4010);
+        final double[] prices = new double[] {4020 };
+        book.resetReferencePrices(prices);
+        final FuturesMarkToMarketResult result = ENGINE.markToMarket(book, prices);
+        assertEquals(0, result.getPresentValue(0), 0);
+        assertEquals(0, result.getPresentValue(1), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void underlyingHasOneCurrency() {
+        final FuturesBook book = new FuturesBook();
+        book.add("ES", Currency.USD, 50, 4000);
+        book.add("ES", Currency.EUR, 50, 4000);
+    }
+}
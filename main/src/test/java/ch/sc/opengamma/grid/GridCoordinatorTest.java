@@ -0,0 +1,324 @@
+package ch.sc.opengamma.grid;
+
+import ch.sc.opengamma.loader.CsvTradeParser;
+import ch.sc.opengamma.loader.TradeHandler;
+import ch.sc.opengamma.marketdata.MarketDataSnapshot;
+import ch.sc.opengamma.marketdata.MarketDataSnapshotWriter;
+import ch.sc.opengamma.server.PricingMarketData;
+import ch.sc.opengamma.wire.FudgeTradeReader;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.equity.option.EquityOptionBlackMethod;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.forex.provider.ForexForwardPointsMethod;
+import com.opengamma.analytics.financial.future.MarkToMarketFuturesCalculator;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.BlackBarrierPriceFunction;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveForwardPointsProviderDiscount;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyMulticurveSensitivity;
+import com.opengamma.analytics.financial.simpleinstruments.pricing.SimpleFutureDataBundle;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.money.CurrencyAmount;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.DoublesPair;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.ZonedDateTime;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GridCoordinatorTest {
+
+    private static final double TOL = 1E-8;
+    private static final double SENSITIVITY_TOL = 1E-6;
+    private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2005, 3, 20);
+    private static final Pair<Currency, Currency> EUR_USD = new ObjectsPair<>(Currency.EUR, Currency.USD);
+    private static final String HOST = InetAddress.getLoopbackAddress().getHostAddress();
+    private static final CsvTradeParser PARSER = new CsvTradeParser(new CalendarNoHoliday("A"));
+    private static final FudgeTradeReader READER = new FudgeTradeReader(new CalendarNoHoliday("A"));
+
+    private GridCoordinator coordinator;
+
+    @Before
+    public void setUp() {
+        coordinator = new GridCoordinator(0);
+    }
+
+    @After
+    public void tearDown() {
+        coordinator.close();
+    }
+
+    @Test
+    public void mergesResultsOfWorkers() {
+        startWorkers(3);
+        coordinator.awaitWorkers(3, 10000);
+        assertResults(coordinator.run(portfolio(), marketData(), 4));
+    }
+
+    @Test
+    public void stealsPartitionsOfStraggler() throws IOException {
+        startStraggler();
+        startWorkers(1);
+        coordinator.awaitWorkers(2, 10000);
+        final GridResult result = coordinator.run(portfolio(), marketData(), 2);
+        assertResults(result);
+        assertTrue(result.getNumberOfStolenPartitions() >= 1);
+    }
+
+    @Test
+    public void runsWorkersInSeparateJvms() throws IOException, InterruptedException {
+        final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        final List<Process> processes = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), GridWorker.class.getName(), HOST,
+                        Integer.toString(coordinator.getPort())).inheritIO().start());
+            }
+            coordinator.awaitWorkers(2, 60000);
+            assertResults(coordinator.run(portfolio(), marketData(), 4));
+            coordinator.close();
+            for (final Process process : processes) {
+                assertEquals(0, process.waitFor());
+            }
+        } finally {
+            for (final Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void failsJobOfHungWorker() throws IOException {
+        coordinator.close();
+        coordinator = new GridCoordinator(0, 500);
+        startStraggler();
+        coordinator.awaitWorkers(1, 10000);
+        try {
+            coordinator.run(portfolio(), marketData(), 2);
+            fail();
+        } catch (final OpenGammaRuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Timed out"));
+        }
+        assertEquals(0, coordinator.getNumberOfWorkers());
+    }
+
+    /**
+     * Connects a worker that reads the market data and tasks it is sent, and never answers.
+     */
+    private void startStraggler() throws IOException {
+        final Socket straggler = new Socket(HOST, coordinator.getPort());
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (DataInputStream in = new DataInputStream(straggler.getInputStream())) {
+                    while (true) {
+                        GridProtocol.read(in);
+                    }
+                } catch (final IOException e) {
+                    return;
+                }
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void startWorkers(final int nbWorkers) {
+        for (int i = 0; i < nbWorkers; i++) {
+            final Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    new GridWorker(READER).run(HOST, coordinator.getPort());
+                }
+            }, "grid-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private static List<String[]> rows() {
+        final List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(new String[] {"BOND", "B" + i, "EUR", "2005-02-20", (2007 + i) + "-02-20", "P6M", Double.toString(0.02 + 0.005 * i),
+                "0", "1000", "0", "30E/360", "Following", "STREET CONVENTION", "false", "Issuer", "Repo", "10"});
+            rows.add(new String[] {"FX_FORWARD", "F" + i, "EUR", "USD", (2006 + i % 5) + "-06-26", "1000000", "1.40"});
+            rows.add(new String[] {"EQUITY_OPTION", "O" + i, "0.5", "0.5", Integer.toString(80 + 4 * i), Boolean.toString(i % 2 == 0), "USD", "1",
+                "EUROPEAN", "CASH"});
+            rows.add(new String[] {"EQUITY_FUTURE", "E" + i, "0.25", "0.26", Integer.toString(95 + i), "USD", "50"});
+            rows.add(new String[] {"BARRIER_OPTION", "X" + i, Integer.toString(90 + i), "0.5", "false", "OUT", "DOWN", "CONTINUOUS", "80", "1.5"});
+        }
+        return rows;
+    }
+
+    private static GridPortfolio portfolio() {
+        final GridPortfolio portfolio = new GridPortfolio();
+        for (final String[] row : rows()) {
+            PARSER.parse(row, portfolio);
+        }
+        return portfolio;
+    }
+
+    private static MarketDataSnapshotWriter snapshot() {
+        final double[] times = new double[] {0.0, 1.0, 2.0, 5.0, 10.0};
+        final double[] forwards = new double[times.length];
+        for (int i = 0; i < times.length; i++) {
+            forwards[i] = 1.40 * Math.exp((0.012 - 0.017) * times[i]);
+        }
+        return new MarketDataSnapshotWriter()
+                .addCurve("EUR Dsc", times, new double[] {0.015, 0.017, 0.019, 0.022, 0.025}, Interpolator1DFactory.LINEAR,
+                        Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR)
+                .addCurve("USD Dsc", times, new double[] {0.010, 0.012, 0.014, 0.018, 0.021}, Interpolator1DFactory.LINEAR,
+                        Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR)
+                .addCurve("Issuer EUR", times, new double[] {0.025, 0.027, 0.029, 0.032, 0.035}, Interpolator1DFactory.LINEAR,
+                        Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR)
+                .addCurve("SPX Fwd", new double[] {0.25, 1.0, 2.0}, new double[] {100.5, 102.0, 104.1}, Interpolator1DFactory.LINEAR,
+                        Interpolator1DFactory.LINEAR_EXTRAPOLATOR, Interpolator1DFactory.LINEAR_EXTRAPOLATOR)
+                .addCurve("EUR/USD Fwd", times, forwards, Interpolator1DFactory.LINEAR, Interpolator1DFactory.FLAT_EXTRAPOLATOR,
+                        Interpolator1DFactory.FLAT_EXTRAPOLATOR)
+                .addFxRate(Currency.USD, Currency.EUR, 1.0 / 1.40)
+                .addVolatilitySurface("SPX Vol", new double[] {0.5, 1.0}, new double[] {80, 100, 120}, new double[][] {{0.30, 0.25, 0.27},
+                    {0.28, 0.24, 0.25}}, Interpolator1DFactory.LINEAR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+    }
+
+    private static Map<Currency, String> discountingCurves() {
+        final Map<Currency, String> discounting = new LinkedHashMap<>();
+        discounting.put(Currency.EUR, "EUR Dsc");
+        discounting.put(Currency.USD, "USD Dsc");
+        return discounting;
+    }
+
+    private static Map<Pair<String, Currency>, String> issuerCurves() {
+        final Map<Pair<String, Currency>, String> issuers = new HashMap<>();
+        issuers.put(new ObjectsPair<>("Issuer", Currency.EUR), "Issuer EUR");
+        return issuers;
+    }
+
+    private static GridMarketData marketData() {
+        return new GridMarketData(snapshot(), REFERENCE_DATE, discountingCurves(), issuerCurves(), "SPX Vol", "USD Dsc", "SPX Fwd", Currency.USD,
+                "EUR/USD Fwd", EUR_USD);
+    }
+
+    private static void assertResults(final GridResult result) {
+        final ExpectedValues expected = new ExpectedValues();
+        final List<String[]> rows = rows();
+        for (final String[] row : rows) {
+            PARSER.parse(row, expected);
+        }
+        assertEquals(rows.size(), result.getValues().size());
+        MultipleCurrencyAmount total = MultipleCurrencyAmount.of(new CurrencyAmount[0]);
+        for (final Map.Entry<String, MultipleCurrencyAmount> entry : expected.values.entrySet()) {
+            assertAmounts(entry.getValue(), result.getValue(entry.getKey()));
+            total = total.plus(entry.getValue());
+        }
+        assertAmounts(total, result.getTotal());
+        assertSensitivity(expected.sensitivity, result.getSensitivity());
+    }
+
+    private static void assertAmounts(final MultipleCurrencyAmount expected, final MultipleCurrencyAmount actual) {
+        assertEquals(expected.size(), actual.size());
+        for (final CurrencyAmount amount : expected) {
+            assertEquals(amount.getAmount(), actual.getAmount(amount.getCurrency()), TOL * Math.max(1, Math.abs(amount.getAmount())));
+        }
+    }
+
+    private static void assertSensitivity(final MultipleCurrencyMulticurveSensitivity expected, final MultipleCurrencyMulticurveSensitivity actual) {
+        assertTrue(expected.getCurrencies().contains(Currency.EUR));
+        assertEquals(expected.getCurrencies(), actual.getCurrencies());
+        final MultipleCurrencyMulticurveSensitivity difference = actual.plus(expected.multipliedBy(-1)).cleaned();
+        for (final Currency currency : difference.getCurrencies()) {
+            for (final List<DoublesPair> points : difference.getSensitivity(currency).getYieldDiscountingSensitivities().values()) {
+                for (final DoublesPair point : points) {
+                    assertEquals(0, point.getSecond(), SENSITIVITY_TOL);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prices each trade with the og-analytics method of its type, on market data read from the snapshot directly, and
+     * sums the point sensitivities of the bonds and FX forwards.
+     */
+    private static final class ExpectedValues implements TradeHandler {
+        private final PricingMarketData marketData;
+        private final Map<String, MultipleCurrencyAmount> values = new LinkedHashMap<>();
+        private MultipleCurrencyMulticurveSensitivity sensitivity = new MultipleCurrencyMulticurveSensitivity();
+
+        private ExpectedValues() {
+            final MarketDataSnapshot data = MarketDataSnapshot.wrap(ByteBuffer.wrap(snapshot().toByteArray()));
+            final IssuerProviderDiscount rates = data.getIssuerProvider(discountingCurves(), issuerCurves());
+            marketData = new PricingMarketData(null, REFERENCE_DATE, rates,
+                    new MulticurveForwardPointsProviderDiscount(rates.getMulticurveProvider(), data.getCurve("EUR/USD Fwd"), EUR_USD),
+                    data.getStaticReplicationData("SPX Vol", "USD Dsc", "SPX Fwd"), Currency.USD);
+        }
+
+        @Override
+        public void bond(final String tradeId, final BondFixedSecurityDefinition bond, final double quantity) {
+            final BondFixedSecurity derivative = bond.toDerivative(REFERENCE_DATE);
+            final BondSecurityDiscountingMethod method = BondSecurityDiscountingMethod.getInstance();
+            values.put(tradeId, method.presentValue(derivative, marketData.getRates()).multipliedBy(quantity));
+            sensitivity = sensitivity.plus(method.presentValueCurveSensitivity(derivative, marketData.getRates()).multipliedBy(quantity));
+        }
+
+        @Override
+        public void forexForward(final String tradeId, final ForexDefinition forward) {
+            final Forex forex = forward.toDerivative(REFERENCE_DATE);
+            final ForexForwardPointsMethod method = ForexForwardPointsMethod.getInstance();
+            values.put(tradeId, method.presentValue(forex, marketData.getForwardPoints()));
+            sensitivity = sensitivity.plus(method.presentValueCurveSensitivity(forex, marketData.getForwardPoints()));
+        }
+
+        @Override
+        public void equityOption(final String tradeId, final EquityOption option) {
+            values.put(tradeId, MultipleCurrencyAmount.of(option.getCurrency(),
+                    EquityOptionBlackMethod.getInstance().presentValue(option, marketData.getEquity())));
+        }
+
+        @Override
+        public void equityFuture(final String tradeId, final EquityFuture future) {
+            final double price = marketData.getEquity().getForwardCurve().getForward(future.getTimeToExpiry());
+            values.put(tradeId, MultipleCurrencyAmount.of(future.getCurrency(), future.accept(MarkToMarketFuturesCalculator.PresentValueCalculator.getInstance(),
+                    new SimpleFutureDataBundle(null, price, null, null, null))));
+        }
+
+        @Override
+        public void barrierOption(final String tradeId, final EuropeanVanillaOption option, final Barrier barrier, final double rebate) {
+            final StaticReplicationDataBundle equity = marketData.getEquity();
+            final double spot = equity.getForwardCurve().getSpot();
+            final double expiry = option.getTimeToExpiry();
+            final double rate = equity.getDiscountCurve().getInterestRate(expiry);
+            final double costOfCarry = Math.log(equity.getForwardCurve().getForward(expiry) / spot) / expiry;
+            final double volatility = equity.getVolatilitySurface().getVolatility(expiry, option.getStrike());
+            values.put(tradeId, MultipleCurrencyAmount.of(Currency.USD, BlackBarrierPriceFunction.getInstance().getPrice(option, barrier, rebate, spot,
+                    costOfCarry, rate, volatility)));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ch.sc.opengamma.incremental;
+
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.forex.provider.ForexDiscountingMethod;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.curve.ConstantDoublesCurve;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.YieldConventionFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+import org.junit.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the trade adapters of the incremental portfolio against direct calls to the OG-Analytics pricers.
+ */
+public class CurveDependentTradeTest {
+
+    private static final double TOL = 1E-10;
+    private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2005, 3, 20);
+    private static final double EUR_USD = 1.40;
+
+    private static final MulticurveProviderDiscount MULTICURVES = new MulticurveProviderDiscount(new FXMatrix(Currency.USD, Currency.EUR, 1.0 / EUR_USD));
+    static {
+        MULTICURVES.setCurve(Currency.EUR, new YieldCurve("EUR Dsc", ConstantDoublesCurve.from(0.02)));
+        MULTICURVES.setCurve(Currency.USD, new YieldCurve("USD Dsc", ConstantDoublesCurve.from(0.01)));
+    }
+    private static final IssuerProviderDiscount PROVIDER;
+    static {
+        final Map<Pair<String, Currency>, YieldAndDiscountCurve> issuers = new LinkedHashMap<>();
+        issuers.put(new ObjectsPair<>("Issuer", Currency.EUR), new YieldCurve("Issuer EUR", ConstantDoublesCurve.from(0.035)));
+        PROVIDER = new IssuerProviderDiscount(MULTICURVES, issuers);
+    }
+
+    @Test
+    public void bondTradeMatchesDiscountingMethod() {
+        final ZonedDateTime firstAccrualDate = DateUtils.getUTCDate(2005, 2, 20);
+        final BondFixedSecurity bond = BondFixedSecurityDefinition.from(Currency.EUR, firstAccrualDate.plus(Period.ofYears(5)), firstAccrualDate,
+                Period.ofMonths(6), 0.04, 0, 1000d, 0, new CalendarNoHoliday("A"), DayCountFactory.INSTANCE.getDayCount("30E/360"),
+                BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Following"),
+                YieldConventionFactory.INSTANCE.getYieldConvention("STREET CONVENTION"), false, "Issuer", "Repo").toDerivative(REFERENCE_DATE);
+        final BondTrade trade = new BondTrade("Rates", bond, 12, Currency.USD, "Issuer EUR");
+        final double expected = 12 * BondSecurityDiscountingMethod.getInstance().presentValue(bond, PROVIDER).getAmount(Currency.EUR) * EUR_USD;
+        assertEquals(expected, trade.presentValue(PROVIDER), TOL * Math.abs(expected));
+        assertEquals(bond.getCoupon().getNumberOfPayments() + 1, trade.getCurveTimes().get("Issuer EUR").length);
+    }
+
+    @Test
+    public void forexForwardTradeMatchesDiscountingMethod() {
+        final Forex forex = new ForexDefinition(Currency.EUR, Currency.USD, DateUtils.getUTCDate(2006, 6, 26), 1000000, 1.42).toDerivative(REFERENCE_DATE);
+        final ForexForwardTrade trade = new ForexForwardTrade("FX", forex, Currency.USD, MULTICURVES);
+        final double expected = MULTICURVES.getFxRates().convert(ForexDiscountingMethod.getInstance().presentValue(forex, MULTICURVES), Currency.USD)
+                .getAmount();
+        assertEquals(expected, trade.presentValue(PROVIDER), TOL * 1000000);
+        assertTrue(trade.getCurveTimes().containsKey("EUR Dsc"));
+        assertTrue(trade.getCurveTimes().containsKey("USD Dsc"));
+    }
+}
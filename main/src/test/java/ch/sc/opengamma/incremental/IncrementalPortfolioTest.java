@@ -0,0 +1,172 @@
+package ch.sc.opengamma.incremental;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class IncrementalPortfolioTest {
+
+    private static final double TOL = 1E-10;
+    private static final double[] NODES = new double[] {0.0, 0.5, 1.0, 2.0, 5.0};
+    private static final Map<String, double[]> LOCAL_CURVES = Collections.singletonMap("EUR Dsc", NODES);
+
+    /**
+     * Market data of the test: zero rates at the nodes of the EUR curve, and one flat USD rate.
+     */
+    private static final class Rates {
+        private final double[] eur;
+        private final double usd;
+
+        private Rates(final double[] eur, final double usd) {
+            this.eur = eur;
+            this.usd = usd;
+        }
+
+        private double eurRate(final double t) {
+            if (t <= NODES[0]) {
+                return eur[0];
+            }
+            for (int i = 1; i < NODES.length; i++) {
+                if (t <= NODES[i]) {
+                    final double weight = (t - NODES[i - 1]) / (NODES[i] - NODES[i - 1]);
+                    return (1 - weight) * eur[i - 1] + weight * eur[i];
+                }
+            }
+            return eur[NODES.length - 1];
+        }
+    }
+
+    /**
+     * Zero coupon paying in EUR and USD at the same time, counting its pricings.
+     */
+    private static final class ZeroCoupon implements CurveDependentTrade<Rates> {
+        private final String book;
+        private final double time;
+        private final double eurAmount;
+        private final double usdAmount;
+        private final AtomicInteger pricings = new AtomicInteger();
+
+        private ZeroCoupon(final String book, final double time, final double eurAmount, final double usdAmount) {
+            this.book = book;
+            this.time = time;
+            this.eurAmount = eurAmount;
+            this.usdAmount = usdAmount;
+        }
+
+        @Override
+        public String getBook() {
+            return book;
+        }
+
+        @Override
+        public double presentValue(final Rates rates) {
+            pricings.incrementAndGet();
+            return eurAmount * Math.exp(-rates.eurRate(time) * time) + usdAmount * Math.exp(-rates.usd * time);
+        }
+
+        @Override
+        public Map<String, double[]> getCurveTimes() {
+            final Map<String, double[]> times = new HashMap<>();
+            if (eurAmount != 0) {
+                times.put("EUR Dsc", new double[] {time});
+            }
+            if (usdAmount != 0) {
+                times.put("USD Dsc", new double[] {time});
+            }
+            return times;
+        }
+    }
+
+    private static List<ZeroCoupon> trades() {
+        final List<ZeroCoupon> trades = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final double time = 0.05 + 0.03 * i;
+            trades.add(new ZeroCoupon(i % 2 == 0 ? "Rates" : "FX", time, 1000.0 * (1 + i % 5), i % 3 == 0 ? -700.0 : 0.0));
+        }
+        return trades;
+    }
+
+    private static double fullValue(final List<ZeroCoupon> trades, final Rates rates) {
+        double total = 0;
+        for (final ZeroCoupon trade : trades) {
+            total += trade.presentValue(rates);
+        }
+        return total;
+    }
+
+    @Test
+    public void indexMapsTimesToSurroundingNodes() {
+        final List<ZeroCoupon> trades = Arrays.asList(new ZeroCoupon("A", 0.75, 1, 0), new ZeroCoupon("A", 2.0, 1, 0),
+                new ZeroCoupon("A", 7.0, 1, 1));
+        final CurveNodeIndex index = new CurveNodeIndex(LOCAL_CURVES, trades);
+        assertArrayEquals(new int[] {}, index.getTrades("EUR Dsc", 0));
+        assertArrayEquals(new int[] {0}, index.getTrades("EUR Dsc", 1));
+        assertArrayEquals(new int[] {0}, index.getTrades("EUR Dsc", 2));
+        assertArrayEquals(new int[] {1}, index.getTrades("EUR Dsc", 3));
+        assertArrayEquals(new int[] {2}, index.getTrades("EUR Dsc", 4));
+        // USD has no node times: every node move affects every USD trade.
+        assertArrayEquals(new int[] {2}, index.getTrades("USD Dsc", 0));
+        assertArrayEquals(new int[] {0, 1, 2}, index.getTrades("EUR Dsc"));
+        assertArrayEquals(new int[] {}, index.getTrades("GBP Dsc"));
+    }
+
+    @Test
+    public void nodeUpdateRepricesOnlyAffectedTrades() {
+        final List<ZeroCoupon> trades = trades();
+        final double[] eur = new double[] {0.0150, 0.0125, 0.0150, 0.0175, 0.0150};
+        final IncrementalPortfolio<Rates> portfolio = new IncrementalPortfolio<>(trades, LOCAL_CURVES, new Rates(eur, 0.01), new ForkJoinPool(4));
+        for (final ZeroCoupon trade : trades) {
+            trade.pricings.set(0);
+        }
+
+        final double[] bumped = eur.clone();
+        bumped[1] += 0.0010;
+        final Rates updated = new Rates(bumped, 0.01);
+        final int repriced = portfolio.nodeChanged(updated, "EUR Dsc", 1);
+
+        int expected = 0;
+        for (final ZeroCoupon trade : trades) {
+            final boolean affected = trade.time < NODES[2];
+            assertEquals(affected ? 1 : 0, trade.pricings.get());
+            expected += affected ? 1 : 0;
+        }
+        assertEquals(expected, repriced);
+        assertEquals(fullValue(trades, updated), portfolio.getTotal(), TOL);
+    }
+
+    @Test
+    public void curveUpdateKeepsBookTotalsConsistent() {
+        final List<ZeroCoupon> trades = trades();
+        final double[] eur = new double[] {0.0150, 0.0125, 0.0150, 0.0175, 0.0150};
+        final IncrementalPortfolio<Rates> portfolio = new IncrementalPortfolio<>(trades, LOCAL_CURVES, new Rates(eur, 0.01), new ForkJoinPool(2));
+        final Rates updated = new Rates(eur, 0.02);
+        final int repriced = portfolio.curveChanged(updated, "USD Dsc");
+        assertEquals(67, repriced);
+
+        double rates = 0;
+        double fx = 0;
+        for (final ZeroCoupon trade : trades) {
+            if ("Rates".equals(trade.book)) {
+                rates += trade.presentValue(updated);
+            } else {
+                fx += trade.presentValue(updated);
+            }
+        }
+        final Map<String, Double> books = portfolio.getBookTotals();
+        assertEquals(Arrays.asList("Rates", "FX"), new ArrayList<>(books.keySet()));
+        assertEquals(rates, books.get("Rates"), TOL);
+        assertEquals(fx, books.get("FX"), TOL);
+        portfolio.resynchronize();
+        assertEquals(rates + fx, portfolio.getTotal(), TOL);
+    }
+}
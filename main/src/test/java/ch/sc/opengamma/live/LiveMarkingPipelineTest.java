@@ -0,0 +1,207 @@
+package ch.sc.opengamma.live;
+
+import ch.sc.opengamma.future.FuturesBook;
+import ch.sc.opengamma.metrics.PricingMetrics;
+import ch.sc.opengamma.option.EquityOptionBook;
+import ch.sc.opengamma.option.EquityOptionGreeks;
+import ch.sc.opengamma.option.EquityOptionGreeksCalculator;
+import com.codahale.metrics.MetricRegistry;
+import com.opengamma.analytics.financial.ExerciseDecisionType;
+import com.opengamma.analytics.financial.commodity.definition.SettlementType;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.model.volatility.surface.BlackVolatilitySurfaceStrike;
+import com.opengamma.analytics.math.curve.ConstantDoublesCurve;
+import com.opengamma.analytics.math.surface.ConstantDoublesSurface;
+import com.opengamma.util.money.Currency;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the marking, conflation and statistics of the live pipeline.
+ */
+public class LiveMarkingPipelineTest {
+
+    private static final double RATE = 0.02;
+    private static final double DRIFT = 0.01;
+    private static final double TOL = 1E-9;
+
+    private static final EquityOption[] OPTIONS = new EquityOption[] {
+            new EquityOption(0.25, 0.253, 100, true, Currency.EUR, 10, ExerciseDecisionType.EUROPEAN, SettlementType.CASH),
+            new EquityOption(1.0, 1.003, 110, false, Currency.EUR, 10, ExerciseDecisionType.EUROPEAN, SettlementType.CASH) };
+
+    private static StaticReplicationDataBundle market(final double spot) {
+        return new StaticReplicationDataBundle(new BlackVolatilitySurfaceStrike(new ConstantDoublesSurface(0.25)),
+                YieldCurve.from(ConstantDoublesCurve.from(RATE)), new ForwardCurve(spot, DRIFT));
+    }
+
+    private static FuturesBook futures() {
+        final FuturesBook futures = new FuturesBook();
+        futures.add("SX5E", Currency.EUR, 10, 98);
+        futures.add("ES", Currency.USD, 50, 4000);
+        futures.add("SX5E", Currency.EUR, -20, 101);
+        return futures;
+    }
+
+    private static EquityOptionBook options() {
+        final EquityOptionBook options = new EquityOptionBook();
+        for (final EquityOption option : OPTIONS) {
+            options.add("SX5E", option, 3, market(100));
+        }
+        return options;
+    }
+
+    @Test
+    public void marksPositionsOnTheUnderlying() throws InterruptedException {
+        final BlockingQueue<LiveUpdate> updates = new LinkedBlockingQueue<>();
+        final LiveMarkingPipeline pipeline = new LiveMarkingPipeline(futures(), options(), new LiveMarkingPipeline.Listener() {
+            @Override
+            public void onUpdate(final LiveUpdate update) {
+                updates.add(update);
+            }
+        });
+        try {
+            assertEquals(2, pipeline.getNumberOfUnderlyings());
+            assertTrue(pipeline.onTick("SX5E", 105));
+            assertTrue(pipeline.awaitIdle(5, TimeUnit.SECONDS));
+            final LiveUpdate update = updates.poll();
+            assertEquals("SX5E", update.getUnderlyingId());
+            assertEquals(Currency.EUR, update.getCurrency());
+            assertEquals(105, update.getPrice(), 0);
+            assertEquals(10 * (105 - 98), update.getFuturePresentValues()[0], TOL);
+            assertEquals(-20 * (105 - 101), update.getFuturePresentValues()[1], TOL);
+            assertEquals(2, update.getFutures()[1]);
+            // The positions returned are copies: changing them alters neither this update nor the next one.
+            update.getFutures()[1] = 1;
+            update.getFuturePresentValues()[0] = 0;
+            assertEquals(2, update.getFutures()[1]);
+            assertEquals(10 * (105 - 98), update.getFuturePresentValues()[0], TOL);
+
+            final EquityOptionGreeks greeks = EquityOptionGreeksCalculator.getInstance().calculate(OPTIONS, market(105));
+            double presentValue = 10 * (105 - 98) - 20 * (105 - 101);
+            double delta = 10 - 20;
+            for (int i = 0; i < OPTIONS.length; i++) {
+                assertEquals(3 * greeks.getPresentValue()[i], update.getOptionPresentValues()[i], TOL);
+                assertEquals(3 * greeks.getDelta()[i], update.getOptionDeltas()[i], TOL);
+                presentValue += update.getOptionPresentValues()[i];
+                delta += update.getOptionDeltas()[i];
+            }
+            assertEquals(presentValue, update.getPresentValue(), TOL);
+            assertEquals(delta, update.getDelta(), TOL);
+            assertTrue(update.getLatencyNanos() >= 0);
+            assertTrue(pipeline.getMaxLatencyNanos() >= update.getLatencyNanos());
+
+            assertTrue(pipeline.onTick("SX5E", 106));
+            assertTrue(pipeline.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(2, updates.poll().getFutures()[1]);
+
+            assertFalse(pipeline.onTick("NKY", 30000));
+            assertEquals(1, pipeline.getIgnoredCount());
+            assertTrue(updates.isEmpty());
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPositionsOfAnUnderlyingInDifferentCurrencies() {
+        final EquityOptionBook options = new EquityOptionBook();
+        options.add("ES", OPTIONS[0], 3, market(4000));
+        new LiveMarkingPipeline(futures(), options, new LiveMarkingPipeline.Listener() {
+            @Override
+            public void onUpdate(final LiveUpdate update) {
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAmericanOptions() {
+        new EquityOptionBook().add("SX5E",
+                new EquityOption(0.25, 0.253, 100, false, Currency.EUR, 10, ExerciseDecisionType.AMERICAN, SettlementType.CASH), 3, market(100));
+    }
+
+    @Test
+    public void conflatesTicksWhileTheListenerIsBusy() throws InterruptedException {
+        final CountDownLatch busy = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final BlockingQueue<LiveUpdate> updates = new LinkedBlockingQueue<>();
+        final MetricRegistry registry = new MetricRegistry();
+        final LiveMarkingPipeline pipeline = new LiveMarkingPipeline(futures(), options(), new LiveMarkingPipeline.Listener() {
+            @Override
+            public void onUpdate(final LiveUpdate update) {
+                updates.add(update);
+                busy.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, new PricingMetrics(registry, "Listed"));
+        try {
+            pipeline.onTick("ES", 4000);
+            assertTrue(busy.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i <= 100; i++) {
+                pipeline.onTick("ES", 4000 + i);
+                pipeline.onTick("SX5E", 100 + i);
+            }
+            assertEquals(2, pipeline.getWaitingCount());
+            assertEquals(2, registry.getGauges().get("pricing.Listed.Live.waiting.depth").getValue());
+            release.countDown();
+            assertTrue(pipeline.awaitIdle(5, TimeUnit.SECONDS));
+
+            assertEquals(3, updates.size());
+            assertEquals(4000, updates.poll().getPrice(), 0);
+            final LiveUpdate es = updates.poll();
+            final LiveUpdate sx5e = updates.poll();
+            assertEquals(4100, es.getPrice(), 0);
+            assertEquals(50 * 100, es.getPresentValue(), TOL);
+            assertEquals(200, sx5e.getPrice(), 0);
+            assertEquals(201, pipeline.getTickCount());
+            assertEquals(198, pipeline.getConflatedCount());
+            assertEquals(3, pipeline.getPublishedCount());
+            assertEquals(201, registry.meter("pricing.Listed.Live.ticks").getCount());
+            assertEquals(3, registry.timer("pricing.Listed.Live.latency").getCount());
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void replaysTicks() throws InterruptedException {
+        final BlockingQueue<LiveUpdate> updates = new LinkedBlockingQueue<>();
+        final LiveMarkingPipeline pipeline = new LiveMarkingPipeline(futures(), options(), new LiveMarkingPipeline.Listener() {
+            @Override
+            public void onUpdate(final LiveUpdate update) {
+                updates.add(update);
+            }
+        });
+        try {
+            final String ticks = "# underlying,price,offset\nES,4010,0\n\nSX5E,99.5,1000\nNKY,30000\nES,4020,2000\n";
+            assertEquals(4, new TickReplay(pipeline).replay(new StringReader(ticks)));
+            assertTrue(pipeline.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(1, pipeline.getIgnoredCount());
+            LiveUpdate last = null;
+            for (final LiveUpdate update : updates) {
+                if (update.getUnderlyingId().equals("ES")) {
+                    last = update;
+                }
+            }
+            assertEquals(4020, last.getPrice(), 0);
+            assertEquals(50 * 20, last.getPresentValue(), TOL);
+        } finally {
+            pipeline.close();
+        }
+    }
+}
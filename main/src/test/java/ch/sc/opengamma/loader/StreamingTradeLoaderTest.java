@@ -0,0 +1,178 @@
+package ch.sc.opengamma.loader;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamingTradeLoaderTest {
+
+    private static final CsvTradeParser PARSER = new CsvTradeParser(new CalendarNoHoliday("A"));
+
+    private static final String BOND = "BOND,B1,EUR,2011-01-01,2021-01-01,P6M,0.05,3,1000,0,30E/360,Following,STREET CONVENTION,false,"
+            + "Issuer,Repo,10";
+    private static final String FX_FORWARD = "FX_FORWARD,F1,EUR,USD,2013-06-26,100000000,1.4177";
+    private static final String EQUITY_OPTION = "EQUITY_OPTION,O1,0.5,0.5,100,true,USD,1,EUROPEAN,CASH";
+    private static final String EQUITY_FUTURE = "EQUITY_FUTURE,E1,0.25,0.26,2000,USD,50";
+    private static final String BARRIER_OPTION = "BARRIER_OPTION,X1,100,0.5,false,OUT,DOWN,CONTINUOUS,90,1.5";
+
+    @Test
+    public void loadsEveryTradeType() {
+        final String csv = "# type,id,...\n" + BOND + "\n" + FX_FORWARD + "\n\n" + EQUITY_OPTION + "\n" + EQUITY_FUTURE + "\n" + BARRIER_OPTION + "\n";
+        final RecordingHandler handler = new RecordingHandler();
+        final long nbTrades = new StreamingTradeLoader(PARSER, 2, 4).load(new StringReader(csv), handler);
+        assertEquals(5, nbTrades);
+        assertEquals("BOND", handler.types.get("B1"));
+        assertEquals("FX_FORWARD", handler.types.get("F1"));
+        assertEquals("EQUITY_OPTION", handler.types.get("O1"));
+        assertEquals("EQUITY_FUTURE", handler.types.get("E1"));
+        assertEquals("BARRIER_OPTION", handler.types.get("X1"));
+        assertEquals(10, handler.bondQuantity, 0);
+        assertEquals(1.5, handler.rebate, 0);
+    }
+
+    @Test
+    public void streamsFileLargerThanBuffer() {
+        final int nbRows = 20000;
+        final Reader source = new GeneratedReader(nbRows);
+        final RecordingHandler handler = new RecordingHandler();
+        final long nbTrades = new StreamingTradeLoader(PARSER, 4, 16).load(source, handler);
+        assertEquals(nbRows, nbTrades);
+        assertEquals(nbRows, handler.count.get());
+    }
+
+    @Test
+    public void reportsLineOfInvalidRow() {
+        final String csv = EQUITY_FUTURE + "\n" + "EQUITY_OPTION,O2,0.5,0.5,not a number,true,USD,1,EUROPEAN,CASH\n" + EQUITY_FUTURE + "\n";
+        try {
+            new StreamingTradeLoader(PARSER, 1, 1).load(new StringReader(csv), new RecordingHandler());
+            fail();
+        } catch (final OpenGammaRuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 2"));
+        }
+    }
+
+    @Test
+    public void reportsLineInTheSource() {
+        // The indented comment is skipped and the quoted field spans two lines.
+        final String csv = "  # type,id,...\n\nBARRIER_OPTION,\"X\n1\",100,0.5,false,OUT,DOWN,CONTINUOUS,90,1.5\n"
+                + "EQUITY_OPTION,O2,0.5,0.5,not a number,true,USD,1,EUROPEAN,CASH\n";
+        try {
+            new StreamingTradeLoader(PARSER, 1, 1).load(new StringReader(csv), new RecordingHandler());
+            fail();
+        } catch (final OpenGammaRuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid trade at line 5:"));
+        }
+    }
+
+    @Test
+    public void reportsHandlerFailuresApartFromInvalidTrades() {
+        final IllegalStateException rejected = new IllegalStateException("book closed");
+        final RecordingHandler handler = new RecordingHandler() {
+            @Override
+            public void equityFuture(final String tradeId, final EquityFuture future) {
+                throw rejected;
+            }
+        };
+        try {
+            new StreamingTradeLoader(PARSER, 1, 1).load(new StringReader(EQUITY_OPTION + "\n" + EQUITY_FUTURE + "\n"), handler);
+            fail();
+        } catch (final OpenGammaRuntimeException e) {
+            assertEquals("Could not handle trade at line 2: book closed", e.getMessage());
+            assertSame(rejected, e.getCause());
+        }
+    }
+
+    @Test(expected = OpenGammaRuntimeException.class)
+    public void rejectsWrongNumberOfColumns() {
+        new StreamingTradeLoader(PARSER, 1, 1).load(new StringReader("EQUITY_FUTURE,E1,0.25,0.26,2000,USD\n"), new RecordingHandler());
+    }
+
+    private static class RecordingHandler implements TradeHandler {
+        private final Map<String, String> types = new ConcurrentHashMap<>();
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile double bondQuantity;
+        private volatile double rebate;
+
+        private void record(final String tradeId, final String type) {
+            types.put(tradeId, type);
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void bond(final String tradeId, final BondFixedSecurityDefinition bond, final double quantity) {
+            bondQuantity = quantity;
+            record(tradeId, "BOND");
+        }
+
+        @Override
+        public void forexForward(final String tradeId, final ForexDefinition forward) {
+            record(tradeId, "FX_FORWARD");
+        }
+
+        @Override
+        public void equityOption(final String tradeId, final EquityOption option) {
+            record(tradeId, "EQUITY_OPTION");
+        }
+
+        @Override
+        public void equityFuture(final String tradeId, final EquityFuture future) {
+            record(tradeId, "EQUITY_FUTURE");
+        }
+
+        @Override
+        public void barrierOption(final String tradeId, final EuropeanVanillaOption option, final Barrier barrier, final double rebate) {
+            this.rebate = rebate;
+            record(tradeId, "BARRIER_OPTION");
+        }
+    }
+
+    /**
+     * Produces the rows on demand, so the test itself does not hold the file in memory.
+     */
+    private static final class GeneratedReader extends Reader {
+        private final int nbRows;
+        private int row;
+        private String current = "";
+        private int position;
+
+        private GeneratedReader(final int nbRows) {
+            this.nbRows = nbRows;
+        }
+
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) {
+            if (position == current.length()) {
+                if (row == nbRows) {
+                    return -1;
+                }
+                current = "EQUITY_FUTURE,E" + row++ + ",0.25,0.26,2000,USD,50\n";
+                position = 0;
+            }
+            final int n = Math.min(length, current.length() - position);
+            current.getChars(position, position + n, buffer, offset);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
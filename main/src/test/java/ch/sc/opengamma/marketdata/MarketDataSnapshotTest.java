@@ -0,0 +1,142 @@
+package ch.sc.opengamma.marketdata;
+
+import ch.sc.opengamma.volatility.LinearFlatVolatilitySurface;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.util.money.Currency;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MarketDataSnapshotTest {
+
+    private static final double TOL = 1E-15;
+
+    private static final double[] EUR_DSC_TIME = new double[] {0.0, 0.5, 1.0, 2.0, 5.0};
+    private static final double[] EUR_DSC_RATE = new double[] {0.0150, 0.0125, 0.0150, 0.0175, 0.0150};
+    private static final double[] USD_DSC_TIME = new double[] {0.0, 0.5, 1.0, 2.0, 5.0};
+    private static final double[] USD_DSC_RATE = new double[] {0.0100, 0.0120, 0.0120, 0.0140, 0.0140};
+    private static final double[] FWD_TIME = new double[] {0.25, 1.0, 2.0};
+    private static final double[] FWD_VALUE = new double[] {100.5, 102.0, 104.1};
+    private static final double[] EXPIRIES = new double[] {0.5, 1.0};
+    private static final double[] STRIKES = new double[] {80, 100, 120};
+    private static final double[][] VOLATILITIES = new double[][] {{0.30, 0.25, 0.27}, {0.28, 0.24, 0.25}};
+    private static final double EUR_USD = 1.40;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path writeSnapshot() throws IOException {
+        final Path file = folder.newFile("snapshot.bin").toPath();
+        new MarketDataSnapshotWriter()
+                .addCurve("EUR Dsc", EUR_DSC_TIME, EUR_DSC_RATE, Interpolator1DFactory.LINEAR, Interpolator1DFactory.FLAT_EXTRAPOLATOR,
+                        Interpolator1DFactory.FLAT_EXTRAPOLATOR)
+                .addCurve("USD Dsc", USD_DSC_TIME, USD_DSC_RATE, Interpolator1DFactory.LINEAR, Interpolator1DFactory.FLAT_EXTRAPOLATOR,
+                        Interpolator1DFactory.FLAT_EXTRAPOLATOR)
+                .addCurve("SPX Fwd", FWD_TIME, FWD_VALUE, Interpolator1DFactory.LINEAR, Interpolator1DFactory.LINEAR_EXTRAPOLATOR,
+                        Interpolator1DFactory.LINEAR_EXTRAPOLATOR)
+                .addFxRate(Currency.USD, Currency.EUR, 1.0 / EUR_USD)
+                .addVolatilitySurface("SPX Vol", EXPIRIES, STRIKES, VOLATILITIES, Interpolator1DFactory.LINEAR, Interpolator1DFactory.FLAT_EXTRAPOLATOR)
+                .addVolatilitySurface("Flat Vol", new double[] {1.0}, new double[] {100.0}, new double[][] {{0.2}}, Interpolator1DFactory.LINEAR,
+                        Interpolator1DFactory.FLAT_EXTRAPOLATOR)
+                .write(file);
+        return file;
+    }
+
+    @Test
+    public void curveNodesRoundTrip() throws IOException {
+        final MarketDataSnapshot snapshot = MarketDataSnapshot.open(writeSnapshot());
+        assertEquals(Arrays.asList("EUR Dsc", "USD Dsc", "SPX Fwd"), Arrays.asList(snapshot.getCurveNames().toArray()));
+        assertEquals(Arrays.asList("SPX Vol", "Flat Vol"), Arrays.asList(snapshot.getVolatilitySurfaceNames().toArray()));
+        assertArrayEquals(EUR_DSC_TIME, snapshot.getCurveTimes("EUR Dsc"), 0);
+        assertArrayEquals(EUR_DSC_RATE, snapshot.getCurveValues("EUR Dsc"), 0);
+        assertArrayEquals(FWD_TIME, snapshot.getCurveTimes("SPX Fwd"), 0);
+        assertArrayEquals(FWD_VALUE, snapshot.getCurveValues("SPX Fwd"), 0);
+    }
+
+    @Test
+    public void providersMatchCurvesBuiltInMemory() throws IOException {
+        final MarketDataSnapshot snapshot = MarketDataSnapshot.open(writeSnapshot());
+        final Map<Currency, String> discounting = new HashMap<>();
+        discounting.put(Currency.EUR, "EUR Dsc");
+        discounting.put(Currency.USD, "USD Dsc");
+        final MulticurveProviderDiscount multicurve = snapshot.getMulticurveProvider(discounting);
+
+        final Interpolator1D linearFlat = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+                Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+        final YieldAndDiscountCurve eurDsc = new YieldCurve("EUR Dsc", new InterpolatedDoublesCurve(EUR_DSC_TIME, EUR_DSC_RATE, linearFlat, true, "EUR Dsc"));
+        for (final double t : new double[] {0.1, 0.75, 3.0, 7.0}) {
+            assertEquals(eurDsc.getDiscountFactor(t), multicurve.getDiscountFactor(Currency.EUR, t), TOL);
+        }
+        assertEquals(EUR_USD, multicurve.getFxRate(Currency.EUR, Currency.USD), 1E-12);
+
+        final StaticReplicationDataBundle equity = snapshot.getStaticReplicationData("SPX Vol", "USD Dsc", "SPX Fwd");
+        assertEquals(102.0, equity.getForwardCurve().getForward(1.0), TOL);
+        assertEquals(0.24, equity.getVolatilitySurface().getVolatility(1.0, 100.0), TOL);
+        assertTrue(equity.getVolatilitySurface() instanceof LinearFlatVolatilitySurface);
+        assertEquals(0.2, snapshot.getVolatilitySurface("Flat Vol").getVolatility(3.0, 50.0), TOL);
+    }
+
+    @Test(expected = OpenGammaRuntimeException.class)
+    public void rejectsFileWithoutHeader() throws IOException {
+        final Path file = folder.newFile("garbage.bin").toPath();
+        Files.write(file, "not a snapshot at all".getBytes("UTF-8"));
+        MarketDataSnapshot.open(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNameLongerThanFormat() {
+        final char[] name = new char[SnapshotFormat.MAX_STRING_BYTES + 1];
+        Arrays.fill(name, 'x');
+        new MarketDataSnapshotWriter().addCurve(new String(name), EUR_DSC_TIME, EUR_DSC_RATE, Interpolator1DFactory.LINEAR,
+                Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR).toByteArray();
+    }
+
+    @Test
+    public void rejectedCurveDoesNotTakeItsName() throws IOException {
+        final MarketDataSnapshotWriter writer = new MarketDataSnapshotWriter();
+        try {
+            writer.addCurve("EUR Dsc", EUR_DSC_TIME, USD_DSC_RATE, null, Interpolator1DFactory.FLAT_EXTRAPOLATOR,
+                    Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // The interpolator is missing.
+        }
+        final Path file = folder.newFile("retried.bin").toPath();
+        writer.addCurve("EUR Dsc", EUR_DSC_TIME, EUR_DSC_RATE, Interpolator1DFactory.LINEAR, Interpolator1DFactory.FLAT_EXTRAPOLATOR,
+                Interpolator1DFactory.FLAT_EXTRAPOLATOR).write(file);
+        assertArrayEquals(EUR_DSC_RATE, MarketDataSnapshot.open(file).getCurveValues("EUR Dsc"), TOL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateName() {
+        new MarketDataSnapshotWriter()
+                .addCurve("EUR Dsc", EUR_DSC_TIME, EUR_DSC_RATE, Interpolator1DFactory.LINEAR, Interpolator1DFactory.FLAT_EXTRAPOLATOR,
+                        Interpolator1DFactory.FLAT_EXTRAPOLATOR)
+                .addVolatilitySurface("EUR Dsc", EXPIRIES, STRIKES, VOLATILITIES, Interpolator1DFactory.LINEAR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownCurve() throws IOException {
+        MarketDataSnapshot.open(writeSnapshot()).getCurveTimes("GBP Dsc");
+    }
+}
@@ -0,0 +1,79 @@
+package ch.sc.opengamma.math;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NormalKernelTest {
+
+    private static final double TOL = 1E-14;
+
+    // Reference values computed in 60-digit decimal arithmetic.
+    private static final double[] X = {-30, -10, -7.5, -5, -3, -1.5, -0.5, 0, 0.3, 1, 2.5, 6};
+    private static final double[] CDF = {4.906713927148187e-198, 7.619853024160525e-24, 3.1908916729108963e-14, 2.866515718791939e-07,
+        0.0013498980316300946, 0.06680720126885807, 0.3085375387259869, 0.5, 0.6179114221889527, 0.8413447460685429,
+        0.9937903346742238, 0.9999999990134123};
+    private static final double[] P = {1e-300, 1e-12, 1e-6, 0.01, 0.02425, 0.3, 0.5, 0.8, 0.99, 1 - 1e-10};
+    private static final double[] QUANTILE = {-37.0470962993612, -7.034483825301132, -4.753424308822899, -2.326347874040841,
+        -1.972961051311885, -0.5244005127080408, 0.0, 0.8416212335729144, 2.3263478740408408, 6.361340889697422};
+
+    @Test
+    public void cdfMatchesReference() {
+        for (int i = 0; i < X.length; i++) {
+            // Relative accuracy in the lower tail, absolute elsewhere.
+            assertEquals(CDF[i], NormalKernel.cdf(X[i]), TOL * Math.min(CDF[i], 1));
+        }
+    }
+
+    @Test
+    public void inverseCdfMatchesReference() {
+        for (int i = 0; i < P.length; i++) {
+            assertEquals(QUANTILE[i], NormalKernel.inverseCdf(P[i]), TOL * Math.max(Math.abs(QUANTILE[i]), 1));
+        }
+        assertEquals(Double.NEGATIVE_INFINITY, NormalKernel.inverseCdf(0), 0);
+        assertEquals(Double.POSITIVE_INFINITY, NormalKernel.inverseCdf(1), 0);
+    }
+
+    @Test
+    public void inverseCdfOfSubnormalProbabilitiesIsFinite() {
+        // Reference values from the asymptotic expansion of the log of the cumulative distribution.
+        final double[] p = {Double.MIN_VALUE, 1e-310, Double.MIN_NORMAL / 2};
+        final double[] quantile = {-38.467405617144344, -37.663060331949524, -37.537836095576054};
+        for (int i = 0; i < p.length; i++) {
+            assertEquals(quantile[i], NormalKernel.inverseCdf(p[i]), 1E-8 * Math.abs(quantile[i]));
+        }
+        assertTrue(NormalKernel.inverseCdf(Double.MIN_VALUE) < NormalKernel.inverseCdf(1e-310));
+        assertTrue(NormalKernel.inverseCdf(Double.MIN_NORMAL / 2) < NormalKernel.inverseCdf(Double.MIN_NORMAL));
+    }
+
+    @Test
+    public void shiftedAndStretchedDistribution() {
+        final NormalKernel normal = new NormalKernel(100, 10);
+        assertEquals(0.5, normal.getCDF(100), TOL);
+        assertEquals(100, normal.getInverseCDF(0.5), TOL);
+        assertEquals(CDF[9], normal.getCDF(110), TOL);
+        assertEquals(110, normal.getInverseCDF(CDF[9]), 1E-12);
+        assertEquals(90, normal.getInverseCDF(1 - CDF[9]), 1E-12);
+        assertEquals(NormalKernel.pdf(1) / 10, normal.getPDF(110), TOL);
+    }
+
+    @Test
+    public void batchMethodsMatchScalar() {
+        final NormalKernel normal = new NormalKernel(-1, 2);
+        final double[] out = new double[X.length];
+        normal.getCDF(X, out);
+        for (int i = 0; i < X.length; i++) {
+            assertEquals(normal.getCDF(X[i]), out[i], 0);
+        }
+        normal.getPDF(X, out);
+        for (int i = 0; i < X.length; i++) {
+            assertEquals(normal.getPDF(X[i]), out[i], 0);
+        }
+        final double[] quantiles = P.clone();
+        normal.getInverseCDF(quantiles, quantiles);
+        for (int i = 0; i < P.length; i++) {
+            assertEquals(normal.getInverseCDF(P[i]), quantiles[i], 0);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ch.sc.opengamma.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.ganglia.GangliaReporter;
+import com.google.common.base.Supplier;
+import com.google.common.cache.CacheStats;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PricingMetricsTest {
+
+    @Test
+    public void metricsAreNamedByDeskAndInstrument() {
+        final MetricRegistry registry = new MetricRegistry();
+        final PricingMetrics metrics = new PricingMetrics(registry, "Rates");
+        metrics.timer("Bond", PricingMetrics.PRESENT_VALUE).time().stop();
+        metrics.histogram("Bond", "batchSize").update(10);
+        metrics.meter("ForexForward", "priced").mark(3);
+        assertEquals(1, registry.getTimers().get("pricing.Rates.Bond.pv").getCount());
+        assertEquals(1, registry.getHistograms().get("pricing.Rates.Bond.batchSize").getCount());
+        assertEquals(3, registry.getMeters().get("pricing.Rates.ForexForward.priced").getCount());
+        // Another desk has its own timers in the same registry.
+        new PricingMetrics(registry, "FX").timer("Bond", PricingMetrics.PRESENT_VALUE).time().stop();
+        assertEquals(1, registry.getTimers().get("pricing.Rates.Bond.pv").getCount());
+        assertEquals(1, registry.getTimers().get("pricing.FX.Bond.pv").getCount());
+    }
+
+    @Test
+    public void gaugesReadCurrentState() {
+        final MetricRegistry registry = new MetricRegistry();
+        final PricingMetrics metrics = new PricingMetrics(registry, "Rates");
+        final CacheStats[] stats = new CacheStats[] {new CacheStats(3, 1, 1, 0, 10, 0)};
+        final Supplier<CacheStats> supplier = new Supplier<CacheStats>() {
+            @Override
+            public CacheStats get() {
+                return stats[0];
+            }
+        };
+        metrics.registerCache("Bond", "derivativeCache", supplier);
+        assertEquals(0.75, (Double) registry.getGauges().get("pricing.Rates.Bond.derivativeCache.hitRatio").getValue(), 0);
+        stats[0] = new CacheStats(1, 3, 3, 0, 10, 2);
+        assertEquals(0.25, (Double) registry.getGauges().get("pricing.Rates.Bond.derivativeCache.hitRatio").getValue(), 0);
+        assertEquals(2L, registry.getGauges().get("pricing.Rates.Bond.derivativeCache.evictions").getValue());
+        // Registering again replaces the gauges instead of failing.
+        metrics.registerCache("Bond", "derivativeCache", supplier);
+
+        final Queue<String> queue = new ArrayDeque<>();
+        metrics.registerQueue("Loader", "rows", queue);
+        queue.add("row");
+        queue.add("row");
+        assertEquals(2, registry.getGauges().get("pricing.Rates.Loader.rows.depth").getValue());
+    }
+
+    @Test
+    public void gangliaReporterSendsToUdpStub() throws Exception {
+        try (DatagramSocket stub = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            stub.setSoTimeout(5000);
+            final MetricRegistry registry = new MetricRegistry();
+            final Timer timer = new PricingMetrics(registry, "Rates").timer("Bond", PricingMetrics.PRESENT_VALUE);
+            timer.time().stop();
+            final GangliaReporter reporter = MetricsReporters.ganglia(registry, "127.0.0.1", stub.getLocalPort());
+            reporter.report();
+
+            boolean found = false;
+            final byte[] buffer = new byte[1500];
+            for (int i = 0; i < 64 && !found; i++) {
+                final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                stub.receive(packet);
+                found = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.ISO_8859_1).contains("pricing.Rates.Bond.pv");
+            }
+            assertTrue(found);
+        }
+    }
+}
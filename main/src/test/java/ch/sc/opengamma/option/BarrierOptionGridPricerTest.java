@@ -0,0 +1,93 @@
+package ch.sc.opengamma.option;
+
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.codahale.metrics.MetricRegistry;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.BlackBarrierPriceFunction;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the barrier grid against point-by-point calls to {@link BlackBarrierPriceFunction}.
+ */
+public class BarrierOptionGridPricerTest {
+
+    private static final double EXPIRY_TIME = 3.5;
+    private static final EuropeanVanillaOption[] OPTIONS = new EuropeanVanillaOption[] {
+            new EuropeanVanillaOption(100, EXPIRY_TIME, true), new EuropeanVanillaOption(100, EXPIRY_TIME, false),
+            new EuropeanVanillaOption(120, EXPIRY_TIME, false), new EuropeanVanillaOption(100, EXPIRY_TIME, true) };
+    private static final Barrier[] BARRIERS = new Barrier[] {
+            new Barrier(Barrier.KnockType.IN, Barrier.BarrierType.DOWN, Barrier.ObservationType.CONTINUOUS, 90),
+            new Barrier(Barrier.KnockType.OUT, Barrier.BarrierType.DOWN, Barrier.ObservationType.CONTINUOUS, 90),
+            new Barrier(Barrier.KnockType.IN, Barrier.BarrierType.UP, Barrier.ObservationType.CONTINUOUS, 110),
+            new Barrier(Barrier.KnockType.OUT, Barrier.BarrierType.UP, Barrier.ObservationType.CONTINUOUS, 110) };
+    private static final double[] REBATES = new double[] {2, 2, 0, 1 };
+    private static final double RATE_DOM = 0.05;
+    private static final double COST_OF_CARRY = 0.03;
+    private static final double[][] SCENARIOS = BarrierOptionGridPricer.cartesianScenarios(new double[] {95, 100, 105 }, new double[] {0.1, 0.2, 0.3 });
+    private static final BlackBarrierPriceFunction BARRIER_FUNCTION = BlackBarrierPriceFunction.getInstance();
+
+    private static final double TOL = 1E-12;
+
+    @Test
+    public void gridMatchesPointByPointAdjoint() {
+        final double[] spots = SCENARIOS[0];
+        final double[] vols = SCENARIOS[1];
+        final BarrierOptionGridResult result = new BarrierOptionGridPricer(new ForkJoinPool(3))
+                .price(OPTIONS, BARRIERS, REBATES, COST_OF_CARRY, RATE_DOM, spots, vols);
+
+        final double[] derivatives = new double[BarrierOptionGridResult.NB_DERIVATIVES];
+        for (int i = 0; i < OPTIONS.length; i++) {
+            for (int s = 0; s < spots.length; s++) {
+                final double price = BARRIER_FUNCTION.getPrice(OPTIONS[i], BARRIERS[i], REBATES[i], spots[s], COST_OF_CARRY, RATE_DOM, vols[s]);
+                assertEquals(price, result.getPrice(i, s), 1E-10);
+                BARRIER_FUNCTION.getPriceAdjoint(OPTIONS[i], BARRIERS[i], REBATES[i], spots[s], COST_OF_CARRY, RATE_DOM, vols[s], derivatives);
+                for (int k = 0; k < BarrierOptionGridResult.NB_DERIVATIVES; k++) {
+                    assertEquals(derivatives[k], result.getDerivative(i, s, k), TOL);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void metricsAreRecorded() {
+        final MetricRegistry registry = new MetricRegistry();
+        new BarrierOptionGridPricer(new ForkJoinPool(2), new PricingMetrics(registry, "Equity"))
+                .price(OPTIONS, BARRIERS, REBATES, COST_OF_CARRY, RATE_DOM, SCENARIOS[0], SCENARIOS[1]);
+        final int nbPoints = OPTIONS.length * SCENARIOS[0].length;
+        assertEquals(1, registry.getTimers().get("pricing.Equity.BarrierOption.greeks").getCount());
+        assertEquals(nbPoints, registry.getMeters().get("pricing.Equity.BarrierOption.priced").getCount());
+    }
+
+    @Test
+    public void spotDerivativeMatchesBumpAndReprice() {
+        final double shiftSpot = 0.001;
+        final BarrierOptionGridResult result = new BarrierOptionGridPricer()
+                .price(OPTIONS, BARRIERS, REBATES, COST_OF_CARRY, RATE_DOM, new double[] {100 }, new double[] {0.2 });
+        for (int i = 0; i < OPTIONS.length; i++) {
+            final double bumped = BARRIER_FUNCTION.getPrice(OPTIONS[i], BARRIERS[i], REBATES[i], 100 + shiftSpot, COST_OF_CARRY, RATE_DOM, 0.2);
+            assertEquals((bumped - result.getPrice(i, 0)) / shiftSpot, result.getDerivative(i, 0, BarrierOptionGridResult.SPOT), 2.0E-4);
+        }
+    }
+
+    @Test
+    public void preallocatedResultIsReused() {
+        final BarrierOptionGridPricer pricer = new BarrierOptionGridPricer();
+        final BarrierOptionGridResult result = new BarrierOptionGridResult(OPTIONS.length, 1);
+        pricer.price(OPTIONS, BARRIERS, REBATES, COST_OF_CARRY, RATE_DOM, new double[] {100 }, new double[] {0.2 }, result);
+        final double first = result.getPrice(0, 0);
+        pricer.price(OPTIONS, BARRIERS, REBATES, COST_OF_CARRY, RATE_DOM, new double[] {104 }, new double[] {0.2 }, result);
+        assertEquals(BARRIER_FUNCTION.getPrice(OPTIONS[0], BARRIERS[0], REBATES[0], 104, COST_OF_CARRY, RATE_DOM, 0.2), result.getPrice(0, 0), TOL);
+        assertEquals(BARRIER_FUNCTION.getPrice(OPTIONS[0], BARRIERS[0], REBATES[0], 100, COST_OF_CARRY, RATE_DOM, 0.2), first, TOL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mismatchedResultIsRejected() {
+        new BarrierOptionGridPricer().price(OPTIONS, BARRIERS, REBATES, COST_OF_CARRY, RATE_DOM, new double[] {100 }, new double[] {0.2 },
+                new BarrierOptionGridResult(OPTIONS.length, 2));
+    }
+}
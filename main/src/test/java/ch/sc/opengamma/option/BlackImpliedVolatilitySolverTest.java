@@ -0,0 +1,97 @@
+package ch.sc.opengamma.option;
+
+import com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validates the batch implied volatilities against {@link BlackFormulaRepository}.
+ */
+public class BlackImpliedVolatilitySolverTest {
+
+    private static final BlackImpliedVolatilitySolver SOLVER = new BlackImpliedVolatilitySolver(new ForkJoinPool(4));
+    private static final double[] FORWARDS = new double[] {100, 2500 };
+    private static final double[] MONEYNESS = new double[] {0.6, 0.8, 0.95, 1.0, 1.05, 1.25, 1.6 };
+    private static final double[] EXPIRIES = new double[] {0.05, 0.5, 2.0, 5.0 };
+    private static final double[] VOLATILITIES = new double[] {0.08, 0.2, 0.45, 0.9 };
+    private static final double TOL = 1E-9;
+
+    @Test
+    public void recoversVolatilitiesByUnderlying() {
+        final int perUnderlying = MONEYNESS.length * EXPIRIES.length * VOLATILITIES.length * 2;
+        final int nbQuotes = FORWARDS.length * perUnderlying;
+        final double[] forwards = new double[nbQuotes];
+        final double[] strikes = new double[nbQuotes];
+        final double[] expiries = new double[nbQuotes];
+        final double[] prices = new double[nbQuotes];
+        final boolean[] isCall = new boolean[nbQuotes];
+        final double[] volatilities = new double[nbQuotes];
+        final int[] offsets = new int[FORWARDS.length + 1];
+        int i = 0;
+        for (int u = 0; u < FORWARDS.length; u++) {
+            for (final double moneyness : MONEYNESS) {
+                for (final double expiry : EXPIRIES) {
+                    for (final double volatility : VOLATILITIES) {
+                        for (final boolean call : new boolean[] {true, false }) {
+                            forwards[i] = FORWARDS[u];
+                            strikes[i] = FORWARDS[u] * moneyness;
+                            expiries[i] = expiry;
+                            isCall[i] = call;
+                            volatilities[i] = volatility;
+                            prices[i] = BlackFormulaRepository.price(forwards[i], strikes[i], expiry, volatility, call);
+                            i++;
+                        }
+                    }
+                }
+            }
+            offsets[u + 1] = i;
+        }
+        final ImpliedVolatilityResult result = new ImpliedVolatilityResult(nbQuotes);
+        SOLVER.solve(forwards, strikes, expiries, prices, isCall, offsets, result);
+        for (i = 0; i < nbQuotes; i++) {
+            final double vega = BlackFormulaRepository.vega(forwards[i], strikes[i], expiries[i], volatilities[i]);
+            if (vega < 1E-6 * forwards[i]) {
+                continue; // the price does not determine the volatility to the tolerance
+            }
+            assertTrue("quote " + i, result.isConverged(i));
+            assertEquals("quote " + i, volatilities[i], result.getVolatility(i), TOL);
+            assertEquals("quote " + i, BlackFormulaRepository.impliedVolatility(prices[i], forwards[i], strikes[i], expiries[i], isCall[i]),
+                    result.getVolatility(i), 1E-7);
+            assertTrue("quote " + i, result.getIterations()[i] <= 10);
+        }
+
+        final ImpliedVolatilityResult independent = SOLVER.solve(forwards, strikes, expiries, prices, isCall);
+        for (i = 0; i < nbQuotes; i++) {
+            assertEquals(result.isConverged(i), independent.isConverged(i));
+            assertEquals(result.getVolatility(i), independent.getVolatility(i), 0);
+        }
+    }
+
+    @Test
+    public void flagsPricesWithoutVolatility() {
+        final double forward = 100;
+        final double[] forwards = new double[] {forward, forward, forward, forward, forward, forward };
+        final double[] strikes = new double[] {90, 90, 110, 110, 100, 100 };
+        final double[] expiries = new double[] {1, 1, 1, 1, 1, 0 };
+        // Below intrinsic, above the forward, at intrinsic (zero volatility), zero for an out-of-the-money option, ATM, expired.
+        final double[] prices = new double[] {9, 101, 10, 0, 8, 8 };
+        final boolean[] isCall = new boolean[] {true, true, false, true, true, true };
+        final ImpliedVolatilityResult result = SOLVER.solve(forwards, strikes, expiries, prices, isCall);
+        assertFalse(result.isConverged(0));
+        assertTrue(Double.isNaN(result.getVolatility(0)));
+        assertFalse(result.isConverged(1));
+        assertTrue(result.isConverged(2));
+        assertEquals(0, result.getVolatility(2), 0);
+        assertTrue(result.isConverged(3));
+        assertEquals(0, result.getVolatility(3), 0);
+        assertTrue(result.isConverged(4));
+        assertEquals(BlackFormulaRepository.impliedVolatility(8, forward, 100, 1, true), result.getVolatility(4), 1E-9);
+        assertFalse(result.isConverged(5));
+        assertEquals(4, result.getConvergedCount());
+    }
+}
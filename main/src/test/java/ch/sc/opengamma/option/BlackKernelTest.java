@@ -0,0 +1,39 @@
+package ch.sc.opengamma.option;
+
+import com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BlackKernelTest {
+
+    private static final double TOL = 1E-10;
+    private static final double FORWARD = 100;
+    private static final double[] STRIKES = {60, 90, 100, 110, 160};
+    private static final double[] EXPIRIES = {0.05, 0.5, 3.0};
+    private static final double VOLATILITY = 0.3;
+
+    @Test
+    public void matchesBlackFormulaRepository() {
+        for (final double strike : STRIKES) {
+            for (final double expiry : EXPIRIES) {
+                final double sigmaRootT = VOLATILITY * Math.sqrt(expiry);
+                final double d1 = BlackKernel.d1(FORWARD, strike, sigmaRootT);
+                for (final boolean isCall : new boolean[] {true, false}) {
+                    final double sign = isCall ? 1.0 : -1.0;
+                    final double expected = BlackFormulaRepository.price(FORWARD, strike, expiry, VOLATILITY, isCall);
+                    assertEquals(expected, BlackKernel.price(FORWARD, strike, sigmaRootT, sign, d1), TOL);
+                    assertEquals(expected, BlackKernel.price(FORWARD, strike, sigmaRootT, sign), TOL);
+                    assertEquals(BlackFormulaRepository.delta(FORWARD, strike, expiry, VOLATILITY, isCall), BlackKernel.forwardDelta(sign, d1), TOL);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void noOptionalityLeftIsWorthIntrinsic() {
+        assertEquals(10, BlackKernel.price(FORWARD, 90, 0, 1.0), 0);
+        assertEquals(0, BlackKernel.price(FORWARD, 90, 0, -1.0), 0);
+        assertEquals(90, BlackKernel.price(0, 90, 0.3, -1.0), 0);
+    }
+}
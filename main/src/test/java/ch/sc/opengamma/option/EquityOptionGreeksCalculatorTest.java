@@ -0,0 +1,136 @@
+package ch.sc.opengamma.option;
+
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.codahale.metrics.MetricRegistry;
+import com.opengamma.analytics.financial.ExerciseDecisionType;
+import com.opengamma.analytics.financial.commodity.definition.SettlementType;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.equity.option.EquityOptionBlackMethod;
+import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.model.volatility.surface.BlackVolatilitySurfaceStrike;
+import com.opengamma.analytics.math.curve.ConstantDoublesCurve;
+import com.opengamma.analytics.math.surface.ConstantDoublesSurface;
+import com.opengamma.util.money.Currency;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the one-pass greeks against {@link EquityOptionBlackMethod} and finite differences of the present value.
+ */
+public class EquityOptionGreeksCalculatorTest {
+
+    private static final double SPOT = 100;
+    private static final double RATE = 0.02;
+    private static final double DIVIDEND_YIELD = 0.01;
+    private static final double VOLATILITY = 0.3;
+    private static final double UNIT_AMOUNT = 10;
+
+    private static final EquityOption[] OPTIONS = new EquityOption[] {
+            option(0.25, 0.253, 100, false), option(0.25, 0.253, 90, true), option(0.25, 0.253, 110, true),
+            option(1.0, 1.003, 100, true), option(2.0, 2.003, 120, false) };
+
+    private static final EquityOptionGreeksCalculator CALCULATOR = EquityOptionGreeksCalculator.getInstance();
+    private static final EquityOptionBlackMethod METHOD = EquityOptionBlackMethod.getInstance();
+    private static final double TOL = 1E-8;
+
+    private static EquityOption option(final double expiry, final double settlement, final double strike, final boolean isCall) {
+        return new EquityOption(expiry, settlement, strike, isCall, Currency.AUD, UNIT_AMOUNT, ExerciseDecisionType.EUROPEAN, SettlementType.CASH);
+    }
+
+    private static StaticReplicationDataBundle market(final double spot, final double rate, final double volatility) {
+        return new StaticReplicationDataBundle(new BlackVolatilitySurfaceStrike(new ConstantDoublesSurface(volatility)),
+                YieldCurve.from(ConstantDoublesCurve.from(rate)), new ForwardCurve(spot, rate - DIVIDEND_YIELD));
+    }
+
+    private static final StaticReplicationDataBundle MARKET = market(SPOT, RATE, VOLATILITY);
+
+    private static double[] presentValues(final EquityOption[] options, final StaticReplicationDataBundle market) {
+        return CALCULATOR.calculate(options, market).getPresentValue();
+    }
+
+    @Test
+    public void presentValueMatchesBlackMethod() {
+        final EquityOptionGreeks greeks = CALCULATOR.calculate(OPTIONS, MARKET);
+        for (int i = 0; i < OPTIONS.length; i++) {
+            assertEquals(METHOD.presentValue(OPTIONS[i], MARKET), greeks.getPresentValue()[i], TOL);
+        }
+    }
+
+    @Test
+    public void spotGreeksMatchFiniteDifferences() {
+        final double shift = 0.01;
+        final EquityOptionGreeks greeks = CALCULATOR.calculate(OPTIONS, MARKET);
+        final double[] up = presentValues(OPTIONS, market(SPOT + shift, RATE, VOLATILITY));
+        final double[] down = presentValues(OPTIONS, market(SPOT - shift, RATE, VOLATILITY));
+        for (int i = 0; i < OPTIONS.length; i++) {
+            assertEquals((up[i] - down[i]) / (2 * shift), greeks.getDelta()[i], 1E-6);
+            assertEquals((up[i] - 2 * greeks.getPresentValue()[i] + down[i]) / (shift * shift), greeks.getGamma()[i], 1E-4);
+        }
+    }
+
+    @Test
+    public void greeksMatchBlackMethod() {
+        final EquityOptionGreeks greeks = CALCULATOR.calculate(OPTIONS, MARKET);
+        for (int i = 0; i < OPTIONS.length; i++) {
+            assertEquals(METHOD.delta(OPTIONS[i], MARKET), greeks.getDelta()[i], TOL);
+            assertEquals(METHOD.gammaWrtSpot(OPTIONS[i], MARKET), greeks.getGamma()[i], TOL);
+            assertEquals(METHOD.spotTheta(OPTIONS[i], MARKET), greeks.getTheta()[i], TOL);
+            assertEquals(METHOD.vega(OPTIONS[i], MARKET), greeks.getVega()[i], TOL);
+            assertEquals(METHOD.rhoBlackScholes(OPTIONS[i], MARKET), greeks.getRho()[i], TOL);
+        }
+    }
+
+    @Test
+    public void vegaAndRhoMatchFiniteDifferences() {
+        final double shiftVol = 1E-5;
+        final double shiftRate = 1E-6;
+        // Settled at expiry, so that bumping the flat rate moves the Black-Scholes discounting and cost of carry only
+        final EquityOption[] options = new EquityOption[] {option(0.25, 0.25, 100, false), option(1.0, 1.0, 110, true) };
+        final EquityOptionGreeks greeks = CALCULATOR.calculate(options, MARKET);
+        final double[] volUp = presentValues(options, market(SPOT, RATE, VOLATILITY + shiftVol));
+        final double[] volDown = presentValues(options, market(SPOT, RATE, VOLATILITY - shiftVol));
+        final double[] rateUp = presentValues(options, market(SPOT, RATE + shiftRate, VOLATILITY));
+        final double[] rateDown = presentValues(options, market(SPOT, RATE - shiftRate, VOLATILITY));
+        for (int i = 0; i < options.length; i++) {
+            assertEquals((volUp[i] - volDown[i]) / (2 * shiftVol), greeks.getVega()[i], 1E-5);
+            assertEquals((rateUp[i] - rateDown[i]) / (2 * shiftRate), greeks.getRho()[i], 1E-4);
+        }
+    }
+
+    @Test
+    public void thetaMatchesFiniteDifference() {
+        final double dTime = 0.0001;
+        // Settled at expiry, with flat rate and cost of carry: the spot theta is minus the sensitivity to the expiry
+        final EquityOption[] options = new EquityOption[] {option(0.25, 0.25, 100, false), option(0.5, 0.5, 110, true) };
+        final EquityOptionGreeks greeks = CALCULATOR.calculate(options, MARKET);
+        for (int i = 0; i < options.length; i++) {
+            final EquityOption option = options[i];
+            final double shorter = presentValues(new EquityOption[] {option(option.getTimeToExpiry() - dTime, option.getTimeToSettlement() - dTime,
+                    option.getStrike(), option.isCall()) }, MARKET)[0];
+            final double longer = presentValues(new EquityOption[] {option(option.getTimeToExpiry() + dTime, option.getTimeToSettlement() + dTime,
+                    option.getStrike(), option.isCall()) }, MARKET)[0];
+            assertEquals((shorter - longer) / (2 * dTime), greeks.getTheta()[i], 1E-4);
+        }
+    }
+
+    @Test
+    public void metricsAreRecorded() {
+        final MetricRegistry registry = new MetricRegistry();
+        final EquityOptionGreeks greeks = new EquityOptionGreeksCalculator(new PricingMetrics(registry, "Equity")).calculate(OPTIONS, MARKET);
+        assertArrayEquals(CALCULATOR.calculate(OPTIONS, MARKET).getTheta(), greeks.getTheta(), 0);
+        assertEquals(1, registry.getTimers().get("pricing.Equity.EquityOption.greeks").getCount());
+        assertEquals(OPTIONS.length, registry.getMeters().get("pricing.Equity.EquityOption.priced").getCount());
+    }
+
+    @Test
+    public void expiredOptionIsWorthIntrinsic() {
+        final EquityOptionGreeks greeks = CALCULATOR.calculate(new EquityOption[] {option(0.0, 0.0, 90, true) }, market(SPOT, 0.0, VOLATILITY));
+        assertEquals(UNIT_AMOUNT * (SPOT - 90), greeks.getPresentValue()[0], TOL);
+        assertEquals(UNIT_AMOUNT, greeks.getDelta()[0], TOL);
+        assertEquals(0.0, greeks.getGamma()[0], TOL);
+    }
+}
@@ -0,0 +1,135 @@
+package ch.sc.opengamma.scenario;
+
+import ch.sc.opengamma.incremental.ForexForwardTrade;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.Pair;
+import org.junit.Test;
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.opengamma.util.money.Currency.EUR;
+import static com.opengamma.util.money.Currency.USD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ScenarioEngineTest {
+
+    private static final Interpolator1D LINEAR_FLAT = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+            Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+
+    private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2013, 2, 12);
+    private static final double[] TIMES = new double[] {0.0, 0.5, 1.0, 2.0, 5.0};
+    private static final double[] EUR_RATES = new double[] {0.0150, 0.0125, 0.0150, 0.0175, 0.0150};
+    private static final double[] USD_RATES = new double[] {0.0100, 0.0120, 0.0120, 0.0140, 0.0140};
+    private static final String EUR_DSC_NAME = "EUR Dsc";
+    private static final String USD_DSC_NAME = "USD Dsc";
+    private static final double EUR_USD = 1.40;
+    private static final double TOL = 1.0E-4;
+
+    private static IssuerProviderDiscount provider(final double[] eurRates, final double[] usdRates, final double eurUsd) {
+        final MulticurveProviderDiscount multicurve = new MulticurveProviderDiscount(new FXMatrix(USD, EUR, 1.0d / eurUsd));
+        multicurve.setCurve(EUR, curve(EUR_DSC_NAME, eurRates));
+        multicurve.setCurve(USD, curve(USD_DSC_NAME, usdRates));
+        return new IssuerProviderDiscount(multicurve, new HashMap<Pair<String, Currency>, YieldAndDiscountCurve>());
+    }
+
+    private static YieldAndDiscountCurve curve(final String name, final double[] rates) {
+        return new YieldCurve(name, new InterpolatedDoublesCurve(TIMES, rates, LINEAR_FLAT, true, name));
+    }
+
+    private static List<ForexForwardTrade> trades(final IssuerProviderDiscount provider) {
+        final List<ForexForwardTrade> trades = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            final ZonedDateTime paymentDate = DateUtils.getUTCDate(2013 + i % 4, 3 + i % 9, 26);
+            final double nominal = (i % 3 == 0 ? -1 : 1) * 1.0E+6 * (1 + i % 7);
+            trades.add(new ForexForwardTrade(i % 2 == 0 ? "Spot" : "Forward",
+                    new ForexDefinition(EUR, USD, paymentDate, nominal, EUR_USD).toDerivative(REFERENCE_DATE), USD,
+                    provider.getMulticurveProvider()));
+        }
+        return trades;
+    }
+
+    private static double value(final List<ForexForwardTrade> trades, final IssuerProviderDiscount provider) {
+        double value = 0;
+        for (final ForexForwardTrade trade : trades) {
+            value += trade.presentValue(provider);
+        }
+        return value;
+    }
+
+    @Test
+    public void shiftShapes() {
+        assertEquals(0.001, CurveShift.parallel(0.001).getShift(7.0), 1.0E-15);
+        final CurveShift keyRate = CurveShift.keyRate(TIMES, 2, 0.001);
+        assertEquals(0.0, keyRate.getShift(0.5), 1.0E-15);
+        assertEquals(0.0005, keyRate.getShift(0.75), 1.0E-15);
+        assertEquals(0.001, keyRate.getShift(1.0), 1.0E-15);
+        assertEquals(0.0, keyRate.getShift(3.0), 1.0E-15);
+        final CurveShift twist = CurveShift.twist(1.0, -0.001, 5.0, 0.001);
+        assertEquals(-0.001, twist.getShift(0.25), 1.0E-15);
+        assertEquals(0.0, twist.getShift(3.0), 1.0E-15);
+        assertEquals(0.001, twist.getShift(10.0), 1.0E-15);
+    }
+
+    @Test
+    public void scenariosMatchRebuiltProviders() {
+        final IssuerProviderDiscount base = provider(EUR_RATES, USD_RATES, EUR_USD);
+        final List<ForexForwardTrade> trades = trades(base);
+        final List<Scenario> scenarios = Arrays.asList(
+                Scenario.of("Base"),
+                Scenario.of("EUR +10bp").withCurveShift(EUR_DSC_NAME, CurveShift.parallel(0.0010)),
+                Scenario.of("USD 1Y key").withCurveShift(USD_DSC_NAME, CurveShift.keyRate(TIMES, 2, 0.0025)),
+                Scenario.of("EUR +5%").withFxShock(EUR, USD, 0.05),
+                Scenario.of("Combined").withCurveShift(EUR_DSC_NAME, CurveShift.parallel(0.0010))
+                        .withCurveShift(EUR_DSC_NAME, CurveShift.parallel(-0.0005)).withFxShock(EUR, USD, -0.02));
+        final ScenarioResult result = new ScenarioEngine(new ForkJoinPool(3)).evaluate(trades, base, scenarios);
+
+        final double[] eurUp = new double[TIMES.length];
+        final double[] eurCombined = new double[TIMES.length];
+        final double[] usdKey = USD_RATES.clone();
+        for (int i = 0; i < TIMES.length; i++) {
+            eurUp[i] = EUR_RATES[i] + 0.0010;
+            eurCombined[i] = EUR_RATES[i] + 0.0005;
+        }
+        usdKey[2] += 0.0025;
+        final double baseValue = value(trades, base);
+        assertEquals(5, result.getNumberOfScenarios());
+        assertEquals(baseValue, result.getBaseValue(), TOL);
+        assertEquals(baseValue, result.getValue(0), TOL);
+        assertEquals(0.0, result.getProfitAndLoss(0), TOL);
+        assertEquals(value(trades, provider(eurUp, USD_RATES, EUR_USD)), result.getValue(1), TOL);
+        assertEquals(value(trades, provider(EUR_RATES, usdKey, EUR_USD)), result.getValue(2), TOL);
+        assertEquals(value(trades, provider(EUR_RATES, USD_RATES, EUR_USD * 1.05)), result.getValue(3), TOL);
+        assertEquals(value(trades, provider(eurCombined, USD_RATES, EUR_USD * 0.98)), result.getValue(4), TOL);
+        assertEquals("Combined", result.getName(4));
+        // The base provider is left untouched.
+        assertEquals(baseValue, value(trades, base), 0.0);
+    }
+
+    @Test
+    public void unshiftedCurvesAreShared() {
+        final IssuerProviderDiscount base = provider(EUR_RATES, USD_RATES, EUR_USD);
+        final MulticurveProviderDiscount shifted = Scenario.of("EUR +10bp").withCurveShift(EUR_DSC_NAME, CurveShift.parallel(0.0010))
+                .apply(base.getMulticurveProvider());
+        assertSame(base.getMulticurveProvider().getCurve(USD), shifted.getCurve(USD));
+        assertSame(base.getMulticurveProvider().getFxRates(), shifted.getFxRates());
+        assertEquals(EUR_DSC_NAME, shifted.getName(EUR));
+        assertEquals(base.getMulticurveProvider().getCurve(EUR).getInterestRate(1.5) + 0.0010, shifted.getCurve(EUR).getInterestRate(1.5), 1.0E-15);
+    }
+}
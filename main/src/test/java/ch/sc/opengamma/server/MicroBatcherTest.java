@@ -0,0 +1,152 @@
+package ch.sc.opengamma.server;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MicroBatcherTest {
+
+    /**
+     * Doubles its inputs, records the batch sizes and fails on negative inputs.
+     */
+    private static final class Doubler implements BatchPricer<Double> {
+        private final List<Integer> sizes = new ArrayList<>();
+
+        @Override
+        public double[] price(final List<Double> trades) {
+            synchronized (sizes) {
+                sizes.add(trades.size());
+            }
+            final double[] values = new double[trades.size()];
+            for (int i = 0; i < values.length; i++) {
+                if (trades.get(i) < 0) {
+                    throw new IllegalArgumentException("negative trade");
+                }
+                values[i] = 2 * trades.get(i);
+            }
+            return values;
+        }
+    }
+
+    @Test
+    public void concurrentSubmissionsAreCoalesced() throws Exception {
+        final Doubler pricer = new Doubler();
+        final MicroBatcher<Double> batcher = new MicroBatcher<>("test-batcher", pricer, new ForkJoinPool(2), 16, 50000);
+        final int nbTrades = 100;
+        final List<ListenableFuture<Double>> results = new ArrayList<>();
+        final AtomicInteger next = new AtomicInteger();
+        final List<Thread> clients = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            clients.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int i;
+                    while ((i = next.getAndIncrement()) < nbTrades) {
+                        final ListenableFuture<Double> result = batcher.submit((double) i);
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                    }
+                }
+            }));
+        }
+        for (final Thread client : clients) {
+            client.start();
+        }
+        for (final Thread client : clients) {
+            client.join();
+        }
+        double total = 0;
+        for (final ListenableFuture<Double> result : results) {
+            total += result.get();
+        }
+        assertEquals(nbTrades * (nbTrades - 1), total, 0);
+        int priced = 0;
+        for (final int size : pricer.sizes) {
+            assertTrue(size <= 16);
+            priced += size;
+        }
+        assertEquals(nbTrades, priced);
+        assertTrue(pricer.sizes.size() < nbTrades);
+        batcher.close();
+    }
+
+    @Test
+    public void failingTradeDoesNotFailItsBatch() throws Exception {
+        final MicroBatcher<Double> batcher = new MicroBatcher<>("test-batcher", new Doubler(), Executors.newSingleThreadExecutor(), 8, 50000);
+        final ListenableFuture<Double> good = batcher.submit(1.0);
+        final ListenableFuture<Double> bad = batcher.submit(-1.0);
+        assertEquals(2.0, good.get(), 0);
+        try {
+            bad.get();
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        batcher.close();
+    }
+
+    @Test
+    public void rejectedBatchFailsAndLaterBatchesRun() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final Executor rejectFirst = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                if (calls.getAndIncrement() == 0) {
+                    throw new RejectedExecutionException("full");
+                }
+                command.run();
+            }
+        };
+        final MicroBatcher<Double> batcher = new MicroBatcher<>("test-batcher", new Doubler(), rejectFirst, 8, 0);
+        try {
+            batcher.submit(1.0).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause().getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(4.0, batcher.submit(2.0).get(10, TimeUnit.SECONDS), 0);
+        batcher.close();
+    }
+
+    @Test
+    public void errorFailsEveryTradeOfItsBatch() throws Exception {
+        final BatchPricer<Double> broken = new BatchPricer<Double>() {
+            @Override
+            public double[] price(final List<Double> trades) {
+                throw new AssertionError("broken pricer");
+            }
+        };
+        final Executor direct = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                try {
+                    command.run();
+                } catch (final AssertionError e) {
+                    // Rethrown by the batcher once the trades have failed.
+                }
+            }
+        };
+        final MicroBatcher<Double> batcher = new MicroBatcher<>("test-batcher", broken, direct, 8, 0);
+        try {
+            batcher.submit(1.0).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        batcher.close();
+    }
+}
@@ -0,0 +1,271 @@
+package ch.sc.opengamma.server;
+
+import ch.sc.opengamma.cache.InMemoryResultStore;
+import ch.sc.opengamma.cache.TwoLevelResultCache;
+import ch.sc.opengamma.loader.CsvTradeParser;
+import ch.sc.opengamma.loader.TradeHandler;
+import com.opengamma.analytics.financial.ExerciseDecisionType;
+import com.opengamma.analytics.financial.commodity.definition.SettlementType;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.equity.option.EquityOptionBlackMethod;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.forex.provider.ForexForwardPointsMethod;
+import com.opengamma.analytics.financial.future.MarkToMarketFuturesCalculator;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.BlackBarrierPriceFunction;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.simpleinstruments.pricing.SimpleFutureDataBundle;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.YieldConventionFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+import com.opengamma.util.time.DateUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.Period;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PricingServerTest {
+
+    private static final double TOL = 1E-8;
+    private static final String BOND = "BOND,B1,EUR,2005-02-20,2010-02-20,P6M,0.05,0,1000,0,30E/360,Following,STREET CONVENTION,false,Issuer,Repo,10";
+    private static final String EQUITY_OPTION = "EQUITY_OPTION,O1,0.5,0.5,100,true,USD,1,EUROPEAN,CASH";
+    private static final String EQUITY_FUTURE = "EQUITY_FUTURE,E1,0.25,0.26,95,USD,50";
+
+    private PricingService service;
+
+    @Before
+    public void setUp() {
+        service = new PricingService(new CsvTradeParser(new CalendarNoHoliday("A")), PricingServer.demoMarketData(), new ForkJoinPool(2),
+                64, 100, null);
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+    }
+
+    @Test
+    public void pricesMatchDirectCalls() {
+        final List<PricedTrade> priced = service.price(new StringReader(BOND + "\n" + EQUITY_OPTION + "\n" + EQUITY_FUTURE + "\n"));
+        assertEquals(3, priced.size());
+
+        final PricingMarketData marketData = PricingServer.demoMarketData();
+        final BondFixedSecurity bond = BondFixedSecurityDefinition.from(Currency.EUR, DateUtils.getUTCDate(2010, 2, 20), DateUtils.getUTCDate(2005, 2, 20),
+                Period.ofMonths(6), 0.05, 0, 1000, 0, new CalendarNoHoliday("A"), DayCountFactory.INSTANCE.getDayCount("30E/360"),
+                BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Following"),
+                YieldConventionFactory.INSTANCE.getYieldConvention("STREET CONVENTION"), false, "Issuer", "Repo").toDerivative(marketData.getReferenceDate());
+        assertEquals("B1", priced.get(0).getTradeId());
+        assertEquals("BOND", priced.get(0).getType());
+        assertEquals(Currency.EUR, priced.get(0).getCurrency());
+        assertEquals(10 * BondSecurityDiscountingMethod.getInstance().presentValue(bond, marketData.getRates()).getAmount(Currency.EUR),
+                priced.get(0).getPresentValue(), TOL);
+
+        final EquityOption option = new EquityOption(0.5, 0.5, 100, true, Currency.USD, 1, ExerciseDecisionType.EUROPEAN, SettlementType.CASH);
+        assertEquals(Currency.USD, priced.get(1).getCurrency());
+        assertEquals(EquityOptionBlackMethod.getInstance().presentValue(option, marketData.getEquity()), priced.get(1).getPresentValue(), TOL);
+        assertEquals(50 * (marketData.getEquity().getForwardCurve().getForward(0.25) - 95), priced.get(2).getPresentValue(), TOL);
+    }
+
+    @Test
+    public void warmUpMatchesOpenGammaPricers() {
+        service.warmUp(PricingServer.warmUpTrades(), 2);
+        final List<PricedTrade> priced = service.price(PricingServer.warmUpTrades());
+        final ExpectedValues expected = new ExpectedValues(PricingServer.demoMarketData());
+        final CsvTradeParser parser = new CsvTradeParser(new CalendarNoHoliday("A"));
+        for (final String[] row : PricingServer.warmUpTrades()) {
+            parser.parse(row, expected);
+        }
+        assertEquals(expected.values.size(), priced.size());
+        for (int i = 0; i < priced.size(); i++) {
+            final PricedTrade trade = priced.get(i);
+            assertEquals(trade.getTradeId(), expected.currencies.get(i), trade.getCurrency());
+            assertEquals(trade.getTradeId(), expected.values.get(i), trade.getPresentValue(), TOL);
+        }
+    }
+
+    /**
+     * Prices each trade with the og-analytics method of its type, one call per trade.
+     */
+    private static final class ExpectedValues implements TradeHandler {
+        private final PricingMarketData marketData;
+        private final List<Double> values = new ArrayList<>();
+        private final List<Currency> currencies = new ArrayList<>();
+
+        private ExpectedValues(final PricingMarketData marketData) {
+            this.marketData = marketData;
+        }
+
+        private void add(final Currency currency, final double value) {
+            currencies.add(currency);
+            values.add(value);
+        }
+
+        @Override
+        public void bond(final String tradeId, final BondFixedSecurityDefinition bond, final double quantity) {
+            add(bond.getCurrency(), quantity * BondSecurityDiscountingMethod.getInstance().presentValue(bond.toDerivative(marketData.getReferenceDate()),
+                    marketData.getRates()).getAmount(bond.getCurrency()));
+        }
+
+        @Override
+        public void forexForward(final String tradeId, final ForexDefinition forward) {
+            final MultipleCurrencyAmount pv = ForexForwardPointsMethod.getInstance().presentValue(forward.toDerivative(marketData.getReferenceDate()),
+                    marketData.getForwardPoints());
+            add(forward.getCurrency2(), pv.getAmount(forward.getCurrency2()));
+        }
+
+        @Override
+        public void equityOption(final String tradeId, final EquityOption option) {
+            add(option.getCurrency(), EquityOptionBlackMethod.getInstance().presentValue(option, marketData.getEquity()));
+        }
+
+        @Override
+        public void equityFuture(final String tradeId, final EquityFuture future) {
+            final double price = marketData.getEquity().getForwardCurve().getForward(future.getTimeToExpiry());
+            add(future.getCurrency(), future.accept(MarkToMarketFuturesCalculator.PresentValueCalculator.getInstance(),
+                    new SimpleFutureDataBundle(null, price, null, null, null)));
+        }
+
+        @Override
+        public void barrierOption(final String tradeId, final EuropeanVanillaOption option, final Barrier barrier, final double rebate) {
+            final StaticReplicationDataBundle equity = marketData.getEquity();
+            final double spot = equity.getForwardCurve().getSpot();
+            final double expiry = option.getTimeToExpiry();
+            final double rate = equity.getDiscountCurve().getInterestRate(expiry);
+            final double costOfCarry = Math.log(equity.getForwardCurve().getForward(expiry) / spot) / expiry;
+            final double volatility = equity.getVolatilitySurface().getVolatility(expiry, option.getStrike());
+            add(marketData.getEquityCurrency(), BlackBarrierPriceFunction.getInstance().getPrice(option, barrier, rebate, spot, costOfCarry, rate,
+                    volatility));
+        }
+    }
+
+    @Test
+    public void barrierCurrencyIsTheOneOfTheMarketDataPricedOn() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        final PricingService barriers = new PricingService(new CsvTradeParser(new CalendarNoHoliday("A")), PricingServer.demoMarketData(),
+                pool, 64, 100, null);
+        final CountDownLatch busy = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Holds the only worker, so that the batch is priced after the market data changes.
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    busy.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            final FutureTask<List<PricedTrade>> priced = new FutureTask<>(new Callable<List<PricedTrade>>() {
+                @Override
+                public List<PricedTrade> call() {
+                    return barriers.price(new StringReader("BARRIER_OPTION,X1,100,0.5,false,OUT,DOWN,CONTINUOUS,80,1.5\n"));
+                }
+            });
+            assertTrue(busy.await(5, TimeUnit.SECONDS));
+            new Thread(priced).start();
+            while (pool.getQueuedSubmissionCount() == 0) {
+                Thread.sleep(1);
+            }
+            final PricingMarketData usd = PricingServer.demoMarketData();
+            barriers.setMarketData(new PricingMarketData(null, usd.getReferenceDate(), usd.getRates(), usd.getForwardPoints(), usd.getEquity(),
+                    Currency.EUR));
+            release.countDown();
+            assertEquals(Currency.EUR, priced.get(5, TimeUnit.SECONDS).get(0).getCurrency());
+        } finally {
+            release.countDown();
+            barriers.close();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void servicesShareCachedResults() {
+        final InMemoryResultStore store = new InMemoryResultStore();
+        final TwoLevelResultCache firstCache = new TwoLevelResultCache(1000, 60, store);
+        final TwoLevelResultCache secondCache = new TwoLevelResultCache(1000, 60, store);
+        final CsvTradeParser parser = new CsvTradeParser(new CalendarNoHoliday("A"));
+        final PricingService first = new PricingService(parser, PricingServer.demoMarketData("snap"), new ForkJoinPool(2), 64, 100, null, firstCache);
+        final PricingService second = new PricingService(parser, PricingServer.demoMarketData("snap"), new ForkJoinPool(2), 64, 100, null, secondCache);
+        try {
+            final List<PricedTrade> expected = first.price(PricingServer.warmUpTrades());
+            final List<PricedTrade> actual = second.price(PricingServer.warmUpTrades());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getPresentValue(), actual.get(i).getPresentValue(), 0);
+            }
+            // Every type but equity futures is cached, 80 of the 100 trades; none of them is priced again.
+            final long sharedHits = secondCache.getSharedHitCount();
+            assertEquals(80, sharedHits + secondCache.getLocalStats().hitCount());
+            second.setMarketData(PricingServer.demoMarketData("other"));
+            second.price(PricingServer.warmUpTrades());
+            assertEquals(sharedHits, secondCache.getSharedHitCount());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    public void serverAnswersOverHttp() throws IOException {
+        final PricingServer server = new PricingServer(service, 0, 4);
+        server.start();
+        try {
+            final String base = "http://127.0.0.1:" + server.getPort();
+            final String[] lines = post(base + "/price", BOND + "\n" + EQUITY_FUTURE + "\n", 200).split("\n");
+            assertEquals(2, lines.length);
+            assertTrue(lines[0].startsWith("B1,BOND,EUR,"));
+            assertTrue(lines[1].startsWith("E1,EQUITY_FUTURE,USD,"));
+            assertTrue(post(base + "/price", "EQUITY_FUTURE,E2,not a number,0.26,95,USD,50\n", 400).length() > 0);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static String post(final String url, final String body, final int expectedStatus) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(expectedStatus, connection.getResponseCode());
+        try (InputStream in = expectedStatus == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                response.write(buffer, 0, read);
+            }
+            return new String(response.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ch.sc.opengamma.var;
+
+import ch.sc.opengamma.metrics.PricingMetrics;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public class PortfolioVaREngineTest {
+
+    private static final double TOL = 1E-10;
+    private static final PortfolioVaREngine ENGINE = new PortfolioVaREngine(new ForkJoinPool(4));
+
+    private static final List<FuturePosition> FUTURES = Arrays.asList(
+            new FuturePosition(250.0, 2000.0, 2010.0, 0),
+            new FuturePosition(-100.0, 95.0, 96.0, 1),
+            new FuturePosition(50.0, 3000.0, 2990.0, 0));
+
+    @Test
+    public void historicalVaRMatchesSortedPnL() {
+        final int nbScenarios = 2500;
+        final double[][] shocks = new double[nbScenarios][2];
+        final Random random = new Random(7);
+        for (final double[] shock : shocks) {
+            shock[0] = 0.02 * random.nextGaussian();
+            shock[1] = 0.01 * random.nextGaussian();
+        }
+        final double confidence = 0.99;
+        final PortfolioVaRResult result = ENGINE.evaluate(FUTURES, new HistoricalScenarioSet(shocks), confidence);
+
+        final double base = value(FUTURES, new double[2]);
+        final double[] pnl = new double[nbScenarios];
+        for (int i = 0; i < nbScenarios; i++) {
+            pnl[i] = value(FUTURES, shocks[i]) - base;
+        }
+        Arrays.sort(pnl);
+        final int tail = TailAccumulator.tailSize(nbScenarios, confidence);
+        double tailSum = 0;
+        for (int i = 0; i < tail; i++) {
+            tailSum += pnl[i];
+        }
+        assertEquals(base, result.getBaseValue(), TOL);
+        assertEquals(-pnl[tail - 1], result.getValueAtRisk(), TOL);
+        assertEquals(-tailSum / tail, result.getExpectedShortfall(), TOL);
+        assertEquals(nbScenarios, result.getNumberOfScenarios());
+    }
+
+    @Test
+    public void monteCarloVaROfLinearPositionIsNormalQuantile() {
+        final double sigma = 0.02;
+        final List<FuturePosition> book = new ArrayList<>();
+        book.add(new FuturePosition(1000.0, 100.0, 100.0, 0));
+        final PortfolioVaRResult result = ENGINE.evaluate(book, new MonteCarloScenarioSet(200000, new double[][] {{sigma * sigma}}, 42L), 0.99);
+        // P&L is normal with standard deviation 1000 * 100 * sigma; the 99% quantile is 2.326 standard deviations.
+        final double std = 1000.0 * 100.0 * sigma;
+        assertEquals(2.326348 * std, result.getValueAtRisk(), 0.02 * std);
+        assertEquals(2.665214 * std, result.getExpectedShortfall(), 0.02 * std);
+    }
+
+    @Test
+    public void monteCarloScenariosDoNotDependOnThreading() {
+        final MonteCarloScenarioSet scenarios = new MonteCarloScenarioSet(5000, new double[][] {{4E-4, 1E-4}, {1E-4, 1E-4}}, 11L);
+        final PortfolioVaRResult parallel = ENGINE.evaluate(FUTURES, scenarios, 0.975);
+        final PortfolioVaRResult sequential = new PortfolioVaREngine(new ForkJoinPool(1)).evaluate(FUTURES, scenarios, 0.975);
+        assertEquals(sequential.getValueAtRisk(), parallel.getValueAtRisk(), TOL);
+        assertEquals(sequential.getExpectedShortfall(), parallel.getExpectedShortfall(), TOL);
+    }
+
+    @Test
+    public void metricsAreRecorded() {
+        final MetricRegistry registry = new MetricRegistry();
+        final MonteCarloScenarioSet scenarios = new MonteCarloScenarioSet(1000, new double[][] {{4E-4, 1E-4}, {1E-4, 1E-4}}, 3L);
+        final PortfolioVaRResult metered = new PortfolioVaREngine(new ForkJoinPool(2), new PricingMetrics(registry, "Risk")).evaluate(FUTURES, scenarios, 0.99);
+        assertEquals(ENGINE.evaluate(FUTURES, scenarios, 0.99).getValueAtRisk(), metered.getValueAtRisk(), TOL);
+        assertEquals(1, registry.getTimers().get("pricing.Risk.Portfolio.var").getCount());
+        assertEquals(1000, registry.getMeters().get("pricing.Risk.Portfolio.scenarios").getCount());
+    }
+
+    @Test
+    public void tailAccumulatorMergeKeepsSmallestValues() {
+        final TailAccumulator left = new TailAccumulator(3);
+        final TailAccumulator right = new TailAccumulator(3);
+        for (final double value : new double[] {5, -1, 7, -3}) {
+            left.add(value);
+        }
+        for (final double value : new double[] {-2, 4, 0}) {
+            right.add(value);
+        }
+        left.merge(right);
+        assertEquals(7, left.getCount());
+        assertEquals(-1, left.getQuantile(), TOL);
+        assertEquals(-2, left.getTailMean(), TOL);
+    }
+
+    private static double value(final List<? extends ScenarioPosition> positions, final double[] factors) {
+        double value = 0;
+        for (final ScenarioPosition position : positions) {
+            value += position.value(factors);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,106 @@
+package ch.sc.opengamma.var;
+
+import com.opengamma.analytics.financial.ExerciseDecisionType;
+import com.opengamma.analytics.financial.commodity.definition.SettlementType;
+import com.opengamma.analytics.financial.equity.StaticReplicationDataBundle;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.equity.option.EquityOptionBlackMethod;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.forex.derivative.Forex;
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.forex.provider.ForexDiscountingMethod;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.bond.provider.BondSecurityDiscountingMethod;
+import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.model.volatility.surface.BlackVolatilitySurfaceStrike;
+import com.opengamma.analytics.financial.provider.description.interestrate.IssuerProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.curve.ConstantDoublesCurve;
+import com.opengamma.analytics.math.surface.ConstantDoublesSurface;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.YieldConventionFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+import org.junit.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the scenario positions are worth the present values of the OG-Analytics pricers in the base scenario.
+ */
+public class ScenarioPositionTest {
+
+    private static final double TOL = 1E-8;
+    private static final double[] ZERO_SHOCK = new double[2];
+    private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2005, 3, 20);
+    private static final double EUR_USD = 1.40;
+
+    private static final YieldAndDiscountCurve EUR_DSC = YieldCurve.from(ConstantDoublesCurve.from(0.02));
+    private static final YieldAndDiscountCurve USD_DSC = YieldCurve.from(ConstantDoublesCurve.from(0.01));
+    private static final YieldAndDiscountCurve ISSUER_CURVE = YieldCurve.from(ConstantDoublesCurve.from(0.035));
+    private static final MulticurveProviderDiscount MULTICURVES = new MulticurveProviderDiscount(new FXMatrix(Currency.USD, Currency.EUR, 1.0 / EUR_USD));
+    static {
+        MULTICURVES.setCurve(Currency.EUR, EUR_DSC);
+        MULTICURVES.setCurve(Currency.USD, USD_DSC);
+    }
+    private static final IssuerProviderDiscount ISSUER_MULTICURVES;
+    static {
+        final Map<Pair<String, Currency>, YieldAndDiscountCurve> issuers = new LinkedHashMap<>();
+        issuers.put(new ObjectsPair<>("Issuer", Currency.EUR), ISSUER_CURVE);
+        ISSUER_MULTICURVES = new IssuerProviderDiscount(MULTICURVES, issuers);
+    }
+
+    @Test
+    public void bondIsWorthDiscountingMethodPresentValue() {
+        final BondSecurityDiscountingMethod method = BondSecurityDiscountingMethod.getInstance();
+        final ZonedDateTime firstAccrualDate = DateUtils.getUTCDate(2005, 2, 20);
+        final BondFixedSecurity bond = BondFixedSecurityDefinition.from(Currency.EUR, firstAccrualDate.plus(Period.ofYears(7)), firstAccrualDate,
+                Period.ofMonths(6), 0.045, 0, 1000d, 0, new CalendarNoHoliday("A"), DayCountFactory.INSTANCE.getDayCount("30E/360"),
+                BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Following"),
+                YieldConventionFactory.INSTANCE.getYieldConvention("STREET CONVENTION"), false, "Issuer", "Repo").toDerivative(REFERENCE_DATE);
+        final BondPosition position = BondPosition.of(bond, ISSUER_MULTICURVES, 25, 1);
+        final double presentValue = method.presentValue(bond, ISSUER_MULTICURVES).getAmount(Currency.EUR);
+        assertEquals(25 * presentValue, position.value(ZERO_SHOCK), TOL * Math.abs(presentValue));
+        // A yield shift moves the value as the dirty price of the discounting method.
+        final double yield = method.yieldFromCurves(bond, ISSUER_MULTICURVES);
+        final double shifted = 25 * presentValue * method.dirtyPriceFromYield(bond, yield + 0.001) / method.dirtyPriceFromYield(bond, yield);
+        assertEquals(shifted, position.value(new double[] {0, 0.001}), TOL * Math.abs(presentValue));
+    }
+
+    @Test
+    public void forexForwardIsWorthDiscountingMethodPresentValue() {
+        final Forex forex = new ForexDefinition(Currency.EUR, Currency.USD, DateUtils.getUTCDate(2006, 6, 26), 1000000, 1.42).toDerivative(REFERENCE_DATE);
+        final ForexForwardPosition position = ForexForwardPosition.of(forex, MULTICURVES, 0);
+        final double presentValue = MULTICURVES.getFxRates().convert(ForexDiscountingMethod.getInstance().presentValue(forex, MULTICURVES), Currency.USD)
+                .getAmount();
+        assertEquals(presentValue, position.value(ZERO_SHOCK), TOL * 1000000);
+    }
+
+    @Test
+    public void equityOptionIsWorthBlackMethodPresentValue() {
+        final EquityOptionBlackMethod method = EquityOptionBlackMethod.getInstance();
+        final EquityOption option = new EquityOption(0.5, 0.503, 105, false, Currency.USD, 10, ExerciseDecisionType.EUROPEAN, SettlementType.CASH);
+        final StaticReplicationDataBundle market = equityMarket(100, 0.25);
+        final EquityOptionPosition position = EquityOptionPosition.of(option, market, 3, 0, 1);
+        assertEquals(3 * method.presentValue(option, market), position.value(ZERO_SHOCK), TOL);
+        // Spot and volatility shocks move the value as the Black method on a shocked market.
+        assertEquals(3 * method.presentValue(option, equityMarket(100 * 1.05, 0.27)), position.value(new double[] {0.05, 0.02}), TOL);
+    }
+
+    private static StaticReplicationDataBundle equityMarket(final double spot, final double volatility) {
+        return new StaticReplicationDataBundle(new BlackVolatilitySurfaceStrike(new ConstantDoublesSurface(volatility)), USD_DSC,
+                new ForwardCurve(spot, 0.005));
+    }
+}
@@ -0,0 +1,121 @@
+package ch.sc.opengamma.volatility;
+
+import ch.sc.opengamma.option.BlackImpliedVolatilitySolver;
+import ch.sc.opengamma.option.ImpliedVolatilityResult;
+import com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository;
+import com.opengamma.analytics.financial.model.volatility.surface.BlackVolatilitySurfaceStrike;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.GridInterpolator2D;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.analytics.math.surface.InterpolatedDoublesSurface;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the sliced surface with a {@link BlackVolatilitySurfaceStrike} on a {@link GridInterpolator2D}.
+ */
+public class LinearFlatVolatilitySurfaceTest {
+
+    private static final Interpolator1D LINEAR_FLAT = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR,
+            Interpolator1DFactory.FLAT_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+    private static final double[] EXPIRIES = new double[] {0.25, 0.5, 1.0, 2.0 };
+    private static final double[] STRIKES = new double[] {80, 90, 100, 110, 120 };
+    private static final double[] VOLATILITIES = new double[] {
+        0.32, 0.27, 0.23, 0.21, 0.22,
+        0.30, 0.26, 0.225, 0.21, 0.215,
+        0.28, 0.25, 0.22, 0.205, 0.21,
+        0.26, 0.235, 0.215, 0.2, 0.205 };
+    private static final LinearFlatVolatilitySurface SURFACE = new LinearFlatVolatilitySurface("SX5E", EXPIRIES, STRIKES, VOLATILITIES);
+    private static final double TOL = 1E-12;
+
+    private static BlackVolatilitySurfaceStrike reference() {
+        final double[] x = new double[VOLATILITIES.length];
+        final double[] y = new double[VOLATILITIES.length];
+        for (int i = 0; i < EXPIRIES.length; i++) {
+            for (int j = 0; j < STRIKES.length; j++) {
+                x[i * STRIKES.length + j] = EXPIRIES[i];
+                y[i * STRIKES.length + j] = STRIKES[j];
+            }
+        }
+        return new BlackVolatilitySurfaceStrike(InterpolatedDoublesSurface.from(x, y, VOLATILITIES,
+                new GridInterpolator2D(LINEAR_FLAT, LINEAR_FLAT), "Reference"));
+    }
+
+    private static double[] points(final double from, final double to, final int n) {
+        final double[] points = new double[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = from + (to - from) * i / (n - 1);
+        }
+        return points;
+    }
+
+    @Test
+    public void matchesGridInterpolation() {
+        final BlackVolatilitySurfaceStrike reference = reference();
+        for (final double t : points(0.1, 3.0, 30)) {
+            for (final double k : points(60, 140, 41)) {
+                assertEquals(reference.getVolatility(t, k), SURFACE.getVolatility(t, k), TOL);
+            }
+        }
+        assertEquals(0.225, SURFACE.getVolatility(0.5, 100), TOL);
+        assertEquals(reference.getVolatility(1.3, 97), SURFACE.getSurface().getZValue(1.3, 97.), TOL);
+    }
+
+    @Test
+    public void cachesExpirySlices() {
+        final LinearFlatVolatilitySurface surface = new LinearFlatVolatilitySurface("SX5E", EXPIRIES, STRIKES, VOLATILITIES, 2);
+        final double[] t = new double[] {0.3, 0.3, 0.3, 0.7, 0.7, 0.3, 1.5 };
+        final double[] k = new double[] {85, 100, 115, 85, 100, 95, 100 };
+        final double[] out = new double[t.length];
+        surface.getVolatilities(t, k, out);
+        for (int i = 0; i < t.length; i++) {
+            assertEquals(SURFACE.getVolatility(t[i], k[i]), out[i], 0);
+        }
+        // One miss per expiry change, 0.3 found again in the cache.
+        assertEquals(3, surface.getSliceStats().missCount());
+        assertEquals(1, surface.getSliceStats().hitCount());
+        assertEquals(1.5, surface.slice(1.5).getExpiry(), 0);
+    }
+
+    @Test
+    public void buildsFromImpliedVolatilities() {
+        final double forward = 100;
+        final int nbQuotes = EXPIRIES.length * STRIKES.length;
+        final double[] forwards = new double[nbQuotes];
+        final double[] strikes = new double[nbQuotes];
+        final double[] expiries = new double[nbQuotes];
+        final double[] prices = new double[nbQuotes];
+        final boolean[] isCall = new boolean[nbQuotes];
+        for (int i = 0; i < EXPIRIES.length; i++) {
+            for (int j = 0; j < STRIKES.length; j++) {
+                final int q = i * STRIKES.length + j;
+                forwards[q] = forward;
+                strikes[q] = STRIKES[j];
+                expiries[q] = EXPIRIES[i];
+                isCall[q] = STRIKES[j] >= forward;
+                prices[q] = BlackFormulaRepository.price(forward, STRIKES[j], EXPIRIES[i], VOLATILITIES[q], isCall[q]);
+            }
+        }
+        final ImpliedVolatilityResult implied = new BlackImpliedVolatilitySolver(new ForkJoinPool(2)).solve(forwards, strikes, expiries, prices, isCall);
+        final LinearFlatVolatilitySurface built = new VolatilitySurfaceBuilder("Built").addAll(expiries, strikes, implied).build();
+        for (final double t : points(0.1, 3.0, 15)) {
+            for (final double k : points(60, 140, 17)) {
+                assertEquals(SURFACE.getVolatility(t, k), built.getVolatility(t, k), 1E-9);
+            }
+        }
+
+        // Missing strikes are interpolated within their expiry.
+        final LinearFlatVolatilitySurface sparse = new VolatilitySurfaceBuilder("Sparse")
+                .add(1.0, 80, 0.3).add(1.0, 120, 0.2)
+                .add(2.0, 100, 0.25)
+                .build(new double[] {80, 100, 120 });
+        assertEquals(0.25, sparse.getVolatility(1.0, 100), TOL);
+        assertEquals(0.25, sparse.getVolatility(2.0, 80), TOL);
+        assertEquals(0.25, sparse.getVolatility(1.5, 100), TOL);
+        assertEquals(0.275, sparse.getVolatility(1.5, 80), TOL);
+    }
+}
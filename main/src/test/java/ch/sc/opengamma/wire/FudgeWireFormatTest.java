@@ -0,0 +1,200 @@
+package ch.sc.opengamma.wire;
+
+import ch.sc.opengamma.loader.CsvTradeParser;
+import ch.sc.opengamma.loader.TradeHandler;
+import ch.sc.opengamma.marketdata.MarketDataSnapshot;
+import ch.sc.opengamma.marketdata.MarketDataSnapshotWriter;
+import ch.sc.opengamma.option.EquityOptionGreeks;
+import com.opengamma.analytics.financial.equity.future.derivative.EquityFuture;
+import com.opengamma.analytics.financial.equity.option.EquityOption;
+import com.opengamma.analytics.financial.forex.definition.ForexDefinition;
+import com.opengamma.analytics.financial.instrument.bond.BondFixedSecurityDefinition;
+import com.opengamma.analytics.financial.instrument.payment.CouponFixedDefinition;
+import com.opengamma.analytics.financial.model.option.definition.Barrier;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyMulticurveSensitivity;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.calendar.CalendarNoHoliday;
+import com.opengamma.financial.convention.calendar.MondayToFridayCalendar;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+import com.opengamma.util.tuple.DoublesPair;
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FudgeWireFormatTest {
+
+    private static final double TOL = 1E-15;
+
+    private static final Calendar CALENDAR = new CalendarNoHoliday("A");
+    private static final CsvTradeParser PARSER = new CsvTradeParser(CALENDAR);
+    private static final FudgeTradeReader READER = new FudgeTradeReader(CALENDAR);
+
+    private static final String[][] ROWS = new String[][] {
+        {"BOND", "B1", "EUR", "2011-01-01", "2021-01-01", "P6M", "0.05", "3", "1000", "0", "30E/360", "Following", "STREET CONVENTION", "false",
+            "Issuer", "Repo", "10"},
+        {"FX_FORWARD", "F1", "EUR", "USD", "2013-06-26", "100000000", "1.4177"},
+        {"FX_FORWARD", "F2", "GBP", "USD", "2013-09-26", "-5000000", "1.5512"},
+        {"EQUITY_OPTION", "O1", "0.5", "0.5", "100", "true", "USD", "1", "EUROPEAN", "CASH"},
+        {"EQUITY_FUTURE", "E1", "0.25", "0.26", "2000", "USD", "50"},
+        {"BARRIER_OPTION", "X1", "100", "0.5", "false", "OUT", "DOWN", "CONTINUOUS", "90", "1.5"}};
+
+    @Test
+    public void tradesRoundTrip() {
+        final RecordingHandler expected = new RecordingHandler();
+        final FudgeTradeWriter writer = new FudgeTradeWriter();
+        for (final String[] row : ROWS) {
+            PARSER.parse(row, expected);
+            PARSER.parse(row, writer);
+        }
+        final RecordingHandler actual = new RecordingHandler();
+        assertEquals(ROWS.length, READER.read(writer.toByteArray(), actual));
+        assertEquals(expected.trades, actual.trades);
+    }
+
+    @Test
+    public void bondMaturingOnWeekendRoundTrips() {
+        // Maturity on Saturday 2 January 2021: the last coupon ends on the adjusted Monday, and the earlier coupons
+        // roll from the unadjusted dates, which the reader cannot rebuild from the adjusted maturity.
+        final Calendar weekends = new MondayToFridayCalendar("A");
+        final CsvTradeParser parser = new CsvTradeParser(weekends);
+        final String[] row = new String[] {"BOND", "B2", "EUR", "2011-01-02", "2021-01-02", "P6M", "0.04", "3", "1000", "0", "Actual/365",
+            "Following", "STREET CONVENTION", "false", "Issuer", "Repo", "5"};
+        final RecordingHandler expected = new RecordingHandler();
+        final FudgeTradeWriter writer = new FudgeTradeWriter();
+        parser.parse(row, expected);
+        parser.parse(row, writer);
+        final RecordingHandler actual = new RecordingHandler();
+        assertEquals(1, new FudgeTradeReader(weekends).read(writer.toByteArray(), actual));
+        assertEquals(expected.trades, actual.trades);
+        final BondFixedSecurityDefinition bond = (BondFixedSecurityDefinition) actual.trades.get("B2");
+        final CouponFixedDefinition last = bond.getCoupons().getNthPayment(bond.getCoupons().getNumberOfPayments() - 1);
+        assertEquals(LocalDate.of(2021, 1, 4), last.getAccrualEndDate().toLocalDate());
+        assertEquals(LocalDate.of(2020, 7, 2), last.getAccrualStartDate().toLocalDate());
+    }
+
+    @Test
+    public void emptyBatch() {
+        assertEquals(0, READER.read(new FudgeTradeWriter().toByteArray(), new RecordingHandler()));
+    }
+
+    @Test
+    public void presentValuesDecodeIntoCallerArray() {
+        final double[] presentValues = new double[] {1.5, -2.25, 1E9};
+        final double[] decoded = new double[5];
+        assertEquals(3, FudgeResultCodec.decodePresentValues(FudgeResultCodec.encodePresentValues(presentValues), decoded));
+        assertArrayEquals(new double[] {1.5, -2.25, 1E9, 0, 0}, decoded, TOL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void presentValuesMustFit() {
+        FudgeResultCodec.decodePresentValues(FudgeResultCodec.encodePresentValues(new double[3]), new double[2]);
+    }
+
+    @Test
+    public void greeksRoundTrip() {
+        final EquityOptionGreeks greeks = new EquityOptionGreeks(2);
+        greeks.getPresentValue()[1] = 10.0;
+        greeks.getDelta()[0] = 0.5;
+        greeks.getGamma()[1] = 0.02;
+        greeks.getTheta()[0] = -3.0;
+        greeks.getVega()[1] = 25.0;
+        greeks.getRho()[0] = 12.0;
+        final EquityOptionGreeks decoded = new EquityOptionGreeks(2);
+        assertEquals(2, FudgeResultCodec.decodeGreeks(FudgeResultCodec.encodeGreeks(greeks), decoded));
+        assertArrayEquals(greeks.getPresentValue(), decoded.getPresentValue(), TOL);
+        assertArrayEquals(greeks.getDelta(), decoded.getDelta(), TOL);
+        assertArrayEquals(greeks.getGamma(), decoded.getGamma(), TOL);
+        assertArrayEquals(greeks.getTheta(), decoded.getTheta(), TOL);
+        assertArrayEquals(greeks.getVega(), decoded.getVega(), TOL);
+        assertArrayEquals(greeks.getRho(), decoded.getRho(), TOL);
+    }
+
+    @Test
+    public void amountsRoundTrip() {
+        final MultipleCurrencyAmount[] amounts = new MultipleCurrencyAmount[] {
+            MultipleCurrencyAmount.of(Currency.EUR, 100.0).plus(Currency.USD, -141.77),
+            MultipleCurrencyAmount.of(Currency.GBP, 5.0)};
+        final MultipleCurrencyAmount[] decoded = FudgeResultCodec.decodeAmounts(FudgeResultCodec.encodeAmounts(amounts));
+        assertArrayEquals(amounts, decoded);
+    }
+
+    @Test
+    public void sensitivityRoundTrip() {
+        final Map<String, List<DoublesPair>> eur = new LinkedHashMap<>();
+        eur.put("EUR Dsc", Arrays.asList(DoublesPair.of(0.5, -120.0), DoublesPair.of(1.0, -9850.5)));
+        eur.put("EUR Issuer", Arrays.asList(DoublesPair.of(2.0, 31.25)));
+        final Map<String, List<DoublesPair>> usd = new LinkedHashMap<>();
+        usd.put("USD Dsc", Arrays.asList(DoublesPair.of(1.0, 14177.0)));
+        final MultipleCurrencyMulticurveSensitivity sensitivity = MultipleCurrencyMulticurveSensitivity
+                .of(Currency.EUR, MulticurveSensitivity.ofYieldDiscounting(eur))
+                .plus(Currency.USD, MulticurveSensitivity.ofYieldDiscounting(usd));
+        final MultipleCurrencyMulticurveSensitivity decoded = FudgeResultCodec.decodeSensitivity(FudgeResultCodec.encodeSensitivity(sensitivity));
+        assertEquals(eur, decoded.getSensitivity(Currency.EUR).getYieldDiscountingSensitivities());
+        assertEquals(usd, decoded.getSensitivity(Currency.USD).getYieldDiscountingSensitivities());
+        assertEquals(2, decoded.getSensitivities().size());
+        assertTrue(FudgeResultCodec.decodeSensitivity(FudgeResultCodec.encodeSensitivity(new MultipleCurrencyMulticurveSensitivity()))
+                .getSensitivities().isEmpty());
+    }
+
+    @Test
+    public void marketDataRoundTrip() {
+        final double[] times = new double[] {0.0, 0.5, 1.0, 2.0, 5.0};
+        final double[] rates = new double[] {0.0150, 0.0125, 0.0150, 0.0175, 0.0150};
+        final MarketDataSnapshotWriter writer = new MarketDataSnapshotWriter()
+                .addCurve("EUR Dsc", times, rates, Interpolator1DFactory.LINEAR, Interpolator1DFactory.FLAT_EXTRAPOLATOR,
+                        Interpolator1DFactory.FLAT_EXTRAPOLATOR)
+                .addFxRate(Currency.USD, Currency.EUR, 1.0 / 1.40);
+        final MarketDataSnapshot snapshot = FudgeMarketDataCodec.decode(FudgeMarketDataCodec.encode(writer));
+        assertArrayEquals(times, snapshot.getCurveTimes("EUR Dsc"), TOL);
+        assertArrayEquals(rates, snapshot.getCurveValues("EUR Dsc"), TOL);
+        assertEquals(1.40, snapshot.getFxMatrix().getFxRate(Currency.EUR, Currency.USD), 1E-12);
+    }
+
+    /**
+     * Records the trades it receives, keyed by id; og-analytics definitions implement equals.
+     */
+    private static final class RecordingHandler implements TradeHandler {
+        private final Map<String, Object> trades = new HashMap<>();
+
+        @Override
+        public void bond(final String tradeId, final BondFixedSecurityDefinition bond, final double quantity) {
+            trades.put(tradeId, bond);
+            trades.put(tradeId + ".quantity", quantity);
+        }
+
+        @Override
+        public void forexForward(final String tradeId, final ForexDefinition forward) {
+            trades.put(tradeId, forward);
+        }
+
+        @Override
+        public void equityOption(final String tradeId, final EquityOption option) {
+            trades.put(tradeId, option);
+        }
+
+        @Override
+        public void equityFuture(final String tradeId, final EquityFuture future) {
+            trades.put(tradeId, future);
+        }
+
+        @Override
+        public void barrierOption(final String tradeId, final EuropeanVanillaOption option, final Barrier barrier, final double rebate) {
+            trades.put(tradeId, option);
+            trades.put(tradeId + ".barrier", barrier);
+            trades.put(tradeId + ".rebate", rebate);
+        }
+    }
+}